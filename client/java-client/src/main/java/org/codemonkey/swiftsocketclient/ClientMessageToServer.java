@@ -1,6 +1,7 @@
 package org.codemonkey.swiftsocketclient;
 
 import org.codemonkey.util.DatagramEncoder;
+import org.codemonkey.util.StreamingDatagramEncoder;
 
 /**
  * Provides a default {@link DatagramEncoder} implementation that returns an empty string. The {@link #encode()} method implemented can be
@@ -20,9 +21,10 @@ import org.codemonkey.util.DatagramEncoder;
  * @see SwiftSocketClient#addServerResponse(ServerMessageToClient)
  * @see SwiftSocketClient#getNextServerResponse()
  * @see DatagramEncoder#encode()
+ * @see StreamingDatagramEncoder#encodeTo(StringBuilder)
  * @since 1.0
  */
-public abstract class ClientMessageToServer implements DatagramEncoder {
+public abstract class ClientMessageToServer implements DatagramEncoder, StreamingDatagramEncoder {
 
 	/**
 	 * Default implementation which returns an empty string. This is useful for messages that have no parameters, just a message code.
@@ -33,4 +35,15 @@ public abstract class ClientMessageToServer implements DatagramEncoder {
 	public String encode() {
 		return "";
 	}
+
+	/**
+	 * Default implementation which appends the result of {@link #encode()}. Messages may override it to append their values directly.
+	 * 
+	 * @param coded The datagram being built, already containing the message id.
+	 * @see StreamingDatagramEncoder#encodeTo(StringBuilder)
+	 */
+	@Override
+	public void encodeTo(final StringBuilder coded) {
+		coded.append(encode());
+	}
 }
\ No newline at end of file
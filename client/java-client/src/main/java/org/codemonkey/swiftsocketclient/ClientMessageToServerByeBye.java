@@ -1,5 +1,8 @@
 package org.codemonkey.swiftsocketclient;
 
+import org.codemonkey.util.BinaryDatagramEncoder;
+import org.codemonkey.util.BinaryEncoder;
+
 /**
  * Message that handles graceful disconnection attempts by the client. There will be no response to this message.
  * <p>
@@ -9,5 +12,13 @@ package org.codemonkey.swiftsocketclient;
  * @author Benny Bottema
  * @since 1.0
  */
-class ClientMessageToServerByeBye extends ClientMessageToServer {
+class ClientMessageToServerByeBye extends ClientMessageToServer implements BinaryDatagramEncoder {
+
+	/**
+	 * Writes nothing, since only the message id is relevant.
+	 */
+	@Override
+	public void encode(final BinaryEncoder encoder) {
+		//
+	}
 }
\ No newline at end of file
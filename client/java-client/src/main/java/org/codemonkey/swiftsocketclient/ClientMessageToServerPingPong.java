@@ -1,5 +1,8 @@
 package org.codemonkey.swiftsocketclient;
 
+import org.codemonkey.util.BinaryDatagramEncoder;
+import org.codemonkey.util.BinaryEncoder;
+
 /**
  * Message that is a Pong response to a Ping message.
  * <p>
@@ -9,5 +12,13 @@ package org.codemonkey.swiftsocketclient;
  * @author Benny Bottema
  * @since 1.0
  */
-final class ClientMessageToServerPingPong extends ClientMessageToServer {
+final class ClientMessageToServerPingPong extends ClientMessageToServer implements BinaryDatagramEncoder {
+
+	/**
+	 * Writes nothing, since only the message id is relevant.
+	 */
+	@Override
+	public void encode(final BinaryEncoder encoder) {
+		//
+	}
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package org.codemonkey.swiftsocketclient;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+/**
+ * Message factory calling the default constructor of a message type. The constructor is resolved and validated once when the message type
+ * is registered, so a message type without a default constructor is refused right away instead of failing for every message received.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketClient#registerServerMessageToClientType(int, Class)
+ * @since 1.0
+ */
+final class ConstructorMessageFactory implements ServerMessageToClientFactory<ServerMessageToClient<?>> {
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(ServerMessageToClient.class);
+
+	private final Class<? extends ServerMessageToClient<?>> messageType;
+
+	private final MethodHandle constructor;
+
+	/**
+	 * @param messageType A concrete {@link ServerMessageToClient} sub type with a default constructor.
+	 * @throws IllegalArgumentException Thrown when the message type is abstract or doesn't have a default constructor.
+	 */
+	ConstructorMessageFactory(final Class<? extends ServerMessageToClient<?>> messageType) {
+		this.messageType = messageType;
+		if (messageType.isInterface() || Modifier.isAbstract(messageType.getModifiers())) {
+			throw new IllegalArgumentException(String.format("message type '%s' is abstract", messageType.getSimpleName()));
+		}
+		try {
+			final Constructor<? extends ServerMessageToClient<?>> messageConstructor = messageType.getDeclaredConstructor();
+			messageConstructor.setAccessible(true);
+			constructor = MethodHandles.lookup().unreflectConstructor(messageConstructor).asType(CONSTRUCTOR_TYPE);
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalArgumentException(String.format("message type '%s' has no default constructor", messageType.getSimpleName()), e);
+		} catch (final IllegalAccessException e) {
+			final String msg = "constructor not visible for message type '%s'";
+			throw new IllegalArgumentException(String.format(msg, messageType.getSimpleName()), e);
+		}
+	}
+
+	/**
+	 * Calls the message type's default constructor. Exceptions thrown by the constructor are passed on.
+	 */
+	@Override
+	public ServerMessageToClient<?> create() {
+		try {
+			return (ServerMessageToClient<?>) constructor.invokeExact();
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new RuntimeException(String.format("error calling constructor of message type '%s'", messageType.getSimpleName()), e);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
@@ -13,6 +14,7 @@ import java.net.SocketAddress;
 import java.util.LinkedList;
 
 import org.apache.log4j.Logger;
+import org.codemonkey.util.FrameReader;
 
 /**
  * Abstraction of the server socket. Acts as a wrapper for {@link Socket} and {@link DatagramSocket} to provide uniform behavior.
@@ -40,6 +42,21 @@ abstract class ServerEndpoint {
 
 	abstract void read()
 			throws IOException;
+
+	/**
+	 * Sends a complete frame of a framed {@link WireProtocol}.
+	 */
+	abstract void send(byte[] frame)
+			throws IOException;
+
+	/**
+	 * Returns the reader from which frames of a framed {@link WireProtocol} are read, created on first use.
+	 * 
+	 * @param maxFrameSize The largest frame length in bytes that is accepted.
+	 * @return A reader on the server's input, which should be the only reader used.
+	 */
+	abstract FrameReader getFrameReader(int maxFrameSize)
+			throws IOException;
 }
 
 /**
@@ -59,6 +76,12 @@ class ServerEndpointTCP extends ServerEndpoint {
 	 */
 	private final BufferedReader reader;
 
+	/**
+	 * Reads frames from the server's input stream, created when the first frame is read. Only one of {@link #reader} and this reader is
+	 * used, depending on the {@link WireProtocol}.
+	 */
+	private FrameReader frameReader;
+
 	/**
 	 * Creates a {@link BufferedReader} for the socket's input stream.
 	 * 
@@ -121,6 +144,34 @@ class ServerEndpointTCP extends ServerEndpoint {
 			throws IOException {
 		reader.read();
 	}
+
+	/**
+	 * Writes the frame to {@link Socket#getOutputStream()} and flushes it.
+	 */
+	@Override
+	void send(final byte[] frame)
+			throws IOException {
+		try {
+			final OutputStream out = socket.getOutputStream();
+			out.write(frame);
+			out.flush();
+		} catch (final IOException e) {
+			Logger.getLogger(ServerEndpoint.class).error("outputstream could not be obtained (tried to use dropped connection perhaps?)");
+			throw e;
+		}
+	}
+
+	/**
+	 * @return {@link #frameReader}, reading from {@link Socket#getInputStream()}.
+	 */
+	@Override
+	FrameReader getFrameReader(final int maxFrameSize)
+			throws IOException {
+		if (frameReader == null) {
+			frameReader = new FrameReader(socket.getInputStream(), maxFrameSize);
+		}
+		return frameReader;
+	}
 }
 
 /**
@@ -221,4 +272,20 @@ class ServerEndpointUDP extends ServerEndpoint {
 			throws IOException {
 		//
 	}
+
+	/**
+	 * Not supported, UDP servers only communicate with {@link WireProtocol#TEXT}.
+	 */
+	@Override
+	void send(final byte[] frame) {
+		throw new UnsupportedOperationException("UDP server endpoints only support the text wire protocol");
+	}
+
+	/**
+	 * Not supported, UDP servers only communicate with {@link WireProtocol#TEXT}.
+	 */
+	@Override
+	FrameReader getFrameReader(final int maxFrameSize) {
+		throw new UnsupportedOperationException("UDP server endpoints only support the text wire protocol");
+	}
 }
\ No newline at end of file
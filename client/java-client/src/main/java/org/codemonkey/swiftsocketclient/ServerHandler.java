@@ -2,10 +2,13 @@ package org.codemonkey.swiftsocketclient;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.net.ProtocolException;
 import java.net.SocketException;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDecoder;
+import org.codemonkey.util.FrameReader;
 
 /**
  * Worker thread for the client server that is dedicated to the singular server.
@@ -83,17 +86,15 @@ public class ServerHandler implements Runnable {
 	}
 
 	/**
-	 * Helper method used to send a message to the server.
+	 * Helper method used to send a message to the server, encoded as per the client's {@link WireProtocol}.
 	 * 
 	 * @param serverContext The server to send the message to.
 	 * @param messageId The message id, known to both the server and the client.
-	 * @param message The {@link ClientMessageToServer} used to physically encode the message as <code>String</code>.
+	 * @param message The {@link ClientMessageToServer} used to physically encode the message.
 	 */
 	private void sendResponse(final ServerContext serverContext, final int messageId, final ClientMessageToServer message) {
-		final String paddedMessageId = StringUtils.leftPad(String.valueOf(messageId), MESSAGEID_LENGTH, '0');
-		final String datagram = String.format("%s%s\n\0", paddedMessageId, message.encode());
 		try {
-			serverContext.getServerEndpoint().send(datagram);
+			client.getWireProtocol().send(serverContext.getServerEndpoint(), messageId, message);
 		} catch (final IOException e) {
 			throw new RuntimeException(String.format("unable to send message to client %s", serverContext.getServerInetAddress()), e);
 		}
@@ -145,28 +146,31 @@ public class ServerHandler implements Runnable {
 	 * common denominator, they are required to append a zero (0) byte '\0' as per Flash clients. This character is appended to the newline
 	 * '\n' character and needs to be discarded manually using a {@link BufferedReader#read()}.
 	 * <p>
-	 * Each complete line received serves as a datagram and is handled by {@link #handleMessage(String)}.
+	 * Each complete line received serves as a datagram and is handled by {@link #handleMessage(String)}. With a framed
+	 * {@link WireProtocol} complete length-prefixed frames are read in bulk instead, which are handled as per the protocol.
 	 * 
 	 * @see #handleMessage(String)
 	 * @see SwiftSocketClient#isRunning()
 	 */
 	@Override
 	public void run() {
+		final boolean framed = client.getWireProtocol().isFramed();
 		while (client.isRunning() && !serverContext.isServerSaidByeBye()) {
 			try {
-				final String line = serverContext.getServerEndpoint().readLine();
-				if (client.isRunning()) {
-					if (line != null) {
-						serverContext.getServerEndpoint().read();
-						handleMessage(line);
-					} else {
-						// server closed its connection the hard way
-						LOGGER.debug(String.format("server %s closed connection non-gracefully", serverContext.getServerInetAddress()));
-						serverContext.setServerSaidByeBye(true);
-						client.removeServerHandler();
-						break;
-					}
+				if (!(framed ? receiveFrame() : receiveLine()) && client.isRunning()) {
+					// server closed its connection the hard way
+					LOGGER.debug(String.format("server %s closed connection non-gracefully", serverContext.getServerInetAddress()));
+					serverContext.setServerSaidByeBye(true);
+					client.removeServerHandler();
+					break;
 				}
+			} catch (final ProtocolException e) {
+				// the rest of the input can't be framed reliably anymore
+				final String msg = "invalid frame received from server %s: %s";
+				LOGGER.error(String.format(msg, serverContext.getServerInetAddress(), e.getMessage()));
+				serverContext.setServerSaidByeBye(true);
+				client.removeServerHandler();
+				break;
 			} catch (final SocketException e) {
 				if (e.getMessage().equals(ERROR_SOCKET_CLOSED) || e.getMessage().equals(ERROR_RECV_FAILED)
 						|| e.getMessage().equals(ERROR_CONNECTION_RESET)) {
@@ -183,13 +187,46 @@ public class ServerHandler implements Runnable {
 				}
 				// we have no clue what exception was thrown, just log the error and retry
 				LOGGER.error(e.getMessage(), e);
+				ServerUtil.defaultSleep();
 			} catch (final IOException e) {
 				// we have no clue what exception was thrown, just log the error and retry
 				LOGGER.error(e.getMessage(), e);
+				ServerUtil.defaultSleep();
 			}
+		}
+	}
 
-			ServerUtil.defaultSleep();
+	/**
+	 * Reads the next line and handles it if the client is still running.
+	 * 
+	 * @return Whether a line was read, <code>false</code> if the connection was closed.
+	 */
+	private boolean receiveLine()
+			throws IOException {
+		final String line = serverContext.getServerEndpoint().readLine();
+		if (line != null && client.isRunning()) {
+			serverContext.getServerEndpoint().read();
+			handleMessage(line);
 		}
+		return line != null;
+	}
+
+	/**
+	 * Reads the next frame and handles it as per the {@link WireProtocol} if the client is still running.
+	 * 
+	 * @return Whether a frame was read, <code>false</code> if the connection was closed.
+	 */
+	private boolean receiveFrame()
+			throws IOException {
+		final FrameReader frameReader = serverContext.getServerEndpoint().getFrameReader(client.getMaxFrameSize());
+		if (!frameReader.next()) {
+			return false;
+		}
+		if (client.isRunning()) {
+			client.getWireProtocol().handleFrame(this, frameReader.getBuffer(), frameReader.getFrameOffset(),
+					frameReader.getFrameLength());
+		}
+		return true;
 	}
 
 	/**
@@ -201,7 +238,25 @@ public class ServerHandler implements Runnable {
 	 * @see SwiftSocketClient#addServerResponse(ServerMessageToClient)
 	 */
 	public void handleMessage(final String datagramMessage) {
-		final ServerMessageToClient<?> response = createDecodedExecutableResponse(datagramMessage);
+		dispatchResponse(createDecodedExecutableResponse(datagramMessage));
+	}
+
+	/**
+	 * Handles a single binary server message, the same way as {@link #handleMessage(String)}.
+	 * 
+	 * @param frame The content of a binary frame, positioned at the message id.
+	 * @see #createDecodedExecutableResponse(BinaryDecoder)
+	 */
+	public void handleMessage(final BinaryDecoder frame) {
+		dispatchResponse(createDecodedExecutableResponse(frame));
+	}
+
+	/**
+	 * Executes server level messages directly and adds all other messages to the client message queue.
+	 * 
+	 * @param response The decoded server message.
+	 */
+	private void dispatchResponse(final ServerMessageToClient<?> response) {
 		determineLogger(response)
 				.debug(String.format("receiving response from %s: %s", serverContext, response.getClass().getSimpleName()));
 		if (response instanceof ServerMessageToClientPingPong) {
@@ -217,14 +272,19 @@ public class ServerHandler implements Runnable {
 	 * message denote the message code.
 	 * <p>
 	 * In case anything goes wrong, a {@link ServerMessageToClientInvalid} object is returned instead which generates some useful message
-	 * for logging purposes. The server user can choose to filter out unknown messages at its own discretion. If a
+	 * for logging purposes. This includes messages that fail to decode, the same as with
+	 * {@link #createDecodedExecutableResponse(BinaryDecoder)}. The server user can choose to filter out unknown messages at its own discretion. If a
 	 * <code>ServerMessageToClientInvalid</code> is executed however, it will throw a runtime exception with the original message.
 	 * 
 	 * @param datagramMessage The server input string that represents a single message.
 	 * @return {@link #createDecodedExecutableMessage(int, String)}
-	 * @see #createInvalidMessage(String, Exception, String)
+	 * @see #createInvalidMessage(Object, Exception, String)
 	 */
 	protected ServerMessageToClient<?> createDecodedExecutableResponse(final String datagramMessage) {
+		if (datagramMessage.length() < MESSAGEID_LENGTH) {
+			final String errorMessage = String.format("response shorter than the %s digit response identifier", MESSAGEID_LENGTH);
+			return createInvalidMessage(datagramMessage, new IllegalArgumentException(errorMessage), "invalid response identifier");
+		}
 		final int responseCode;
 		try {
 			responseCode = Integer.parseInt(datagramMessage.substring(0, MESSAGEID_LENGTH));
@@ -240,21 +300,83 @@ public class ServerHandler implements Runnable {
 	 * 
 	 * @param messageId The identifier for the message type we need to instantiate.
 	 * @param messageContent The message content for the solved message type to decode.
-	 * @return A {@link ServerMessageToClient} with identified by <code>messageId</code> decoded from <code>messageContent</code>.
-	 * @see SwiftSocketClient#getServerMessageToClientType(int)
+	 * @return A {@link ServerMessageToClient} with identified by <code>messageId</code> decoded from <code>messageContent</code>, or a
+	 *         {@link ServerMessageToClientInvalid} if it couldn't be created or decoded.
+	 * @see SwiftSocketClient#getServerMessageToClientFactory(int)
 	 * @see ServerMessageToClient#decode(String)
 	 */
 	private final ServerMessageToClient<?> createDecodedExecutableMessage(final int messageId, final String messageContent) {
-		final Class<? extends ServerMessageToClient<?>> responseType = client.getServerMessageToClientType(messageId);
-		ServerMessageToClient<?> response;
+		final ServerMessageToClient<?> response = createExecutableMessage(messageId, messageContent);
+		if (!(response instanceof ServerMessageToClientInvalid)) {
+			try {
+				response.decode(messageContent);
+			} catch (final RuntimeException e) {
+				return createInvalidMessage(messageContent, e, "unable to decode message");
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * Binary counterpart of {@link #createDecodedExecutableResponse(String)}: reads the message id from the frame and lets the registered
+	 * message type decode the rest of the frame, which requires the message type to implement {@link BinaryDatagramDecoder}.
+	 * <p>
+	 * In case anything goes wrong, a {@link ServerMessageToClientInvalid} object is returned instead.
+	 * 
+	 * @param frame The content of a binary frame, positioned at the message id.
+	 * @return A {@link ServerMessageToClient} identified by the frame's message id and decoded from the rest of the frame.
+	 * @see BinaryDatagramDecoder#decode(BinaryDecoder)
+	 */
+	protected ServerMessageToClient<?> createDecodedExecutableResponse(final BinaryDecoder frame) {
+		final int responseCode;
+		try {
+			responseCode = frame.readVarInt();
+		} catch (final IllegalStateException e) {
+			return createInvalidMessage(frame.toString(), e, "invalid response identifier");
+		}
+		// the frame itself is passed, so its description is only built when the message can't be created
+		final ServerMessageToClient<?> response = createExecutableMessage(responseCode, frame);
+		if (response instanceof ServerMessageToClientInvalid) {
+			return response;
+		} else if (!(response instanceof BinaryDatagramDecoder)) {
+			final String errorMessage = String.format("message type '%s' does not implement %s", response.getClass().getSimpleName(),
+					BinaryDatagramDecoder.class.getSimpleName());
+			return createInvalidMessage(frame.toString(), new UnsupportedOperationException(errorMessage), errorMessage);
+		}
 		try {
-			response = responseType.newInstance();
-		} catch (final IllegalAccessException e) {
-			return createInvalidMessage(messageContent, e, "constructor not visible for message");
-		} catch (final InstantiationException e) {
-			return createInvalidMessage(messageContent, e, "unable to construct message");
+			((BinaryDatagramDecoder) response).decode(frame);
+		} catch (final RuntimeException e) {
+			return createInvalidMessage(frame.toString(), e, "unable to decode message");
+		}
+		return response;
+	}
+
+	/**
+	 * Creates a message with the factory registered for the message id, without decoding it.
+	 * 
+	 * @param messageId The identifier for the message type we need to instantiate.
+	 * @param originalMessage The received message, used for logging purposes if the message type can't be instantiated. Converted to a
+	 *            string only in that case.
+	 * @return A new message of the registered type, or a {@link ServerMessageToClientInvalid} if the message id is unknown or the factory
+	 *         failed.
+	 * @see SwiftSocketClient#getServerMessageToClientFactory(int)
+	 */
+	private ServerMessageToClient<?> createExecutableMessage(final int messageId, final Object originalMessage) {
+		final ServerMessageToClientFactory<?> responseFactory = client.getServerMessageToClientFactory(messageId);
+		if (responseFactory == null) {
+			final String errorMessage = String.format("unknown message id %s", messageId);
+			return createInvalidMessage(originalMessage, new IllegalArgumentException(errorMessage), errorMessage);
+		}
+		final ServerMessageToClient<?> response;
+		try {
+			response = responseFactory.create();
+		} catch (final RuntimeException e) {
+			return createInvalidMessage(originalMessage, e, "error creating message");
+		}
+		if (response == null) {
+			final String errorMessage = String.format("message factory for message id %s returned null", messageId);
+			return createInvalidMessage(originalMessage, new IllegalStateException(errorMessage), errorMessage);
 		}
-		response.decode(messageContent);
 		return response;
 	}
 
@@ -262,12 +384,12 @@ public class ServerHandler implements Runnable {
 	 * Generates a {@link ServerMessageToClientInvalid} object with the failure cause. When executed, this message throws a runtime
 	 * exception with the original exception.
 	 * 
-	 * @param originalMessage The original message
+	 * @param originalMessage The original message, or a binary frame which is described by its string representation.
 	 * @param failureCause The exception that occurred when the original messages was being converted into a {@link ServerMessageToClient}.
 	 * @param cause A fine grained exception description when the exception <code>failureCause</code> occurred.
 	 * @return An instance of {@link ServerMessageToClientInvalid}.
 	 */
-	private ServerMessageToClient<?> createInvalidMessage(final String originalMessage, final Exception failureCause, final String cause) {
+	private ServerMessageToClient<?> createInvalidMessage(final Object originalMessage, final Exception failureCause, final String cause) {
 		final ServerMessageToClientInvalid response = new ServerMessageToClientInvalid(serverContext, failureCause);
 		response.decode(String.format("%s (original response: '%s')", cause, originalMessage));
 		return response;
@@ -0,0 +1,19 @@
+package org.codemonkey.swiftsocketclient;
+
+/**
+ * Creates instances of a server-to-client message type, registered once for a message id with
+ * {@link SwiftSocketClient#registerServerMessageToClientType(int, ServerMessageToClientFactory)}. A factory is invoked for every message
+ * received with that id, before the message is decoded, so creating a message is a direct call rather than a reflective one.
+ * 
+ * @author Benny Bottema
+ * @param <T> The message type created by the factory.
+ * @see SwiftSocketClient#registerServerMessageToClientType(int, Class)
+ * @since 1.0
+ */
+public interface ServerMessageToClientFactory<T extends ServerMessageToClient<?>> {
+
+	/**
+	 * @return A new, not yet decoded message.
+	 */
+	T create();
+}
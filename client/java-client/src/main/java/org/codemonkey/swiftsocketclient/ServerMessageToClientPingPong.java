@@ -1,12 +1,15 @@
 package org.codemonkey.swiftsocketclient;
 
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDecoder;
+
 /**
  * Represents a server Ping message and when executed responds with a Pong message via {@link ServerHandler#pong()}.
  * 
  * @author Benny Bottema
  * @since 1.0
  */
-final class ServerMessageToClientPingPong implements ServerMessageToClient<ServerHandler> {
+final class ServerMessageToClientPingPong implements ServerMessageToClient<ServerHandler>, BinaryDatagramDecoder {
 	
 	/**
 	 * Validates that there is indeed no content in this message, since only the message id is relevant.
@@ -18,6 +21,16 @@ final class ServerMessageToClientPingPong implements ServerMessageToClient<Serve
 		}
 	}
 
+	/**
+	 * Validates that there is indeed no content in this message, since only the message id is relevant.
+	 */
+	@Override
+	public void decode(final BinaryDecoder decoder) {
+		if (decoder.remaining() > 0) {
+			throw new RuntimeException("invalid pong message, reason: message too long");
+		}
+	}
+
 	/**
 	 * Simply delegates the ping event to the {@link ServerHandler}.
 	 * 
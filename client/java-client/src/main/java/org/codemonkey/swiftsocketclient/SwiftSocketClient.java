@@ -4,10 +4,13 @@ import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
+import org.codemonkey.util.DecoderUtil;
+import org.codemonkey.util.EncoderUtil;
 
 /**
  * A low level message client that mediates messages from and to a server and the client in the form of 'datagrams' (custom serialized
@@ -50,9 +53,9 @@ public class SwiftSocketClient {
 	private ClientEndpoint clientEndpoint;
 
 	/**
-	 * Used to identify a {@link ServerMessageToClient} type that can handle a binary packet.
+	 * Used to create a {@link ServerMessageToClient} that can handle a binary packet, by message id.
 	 */
-	private final Map<Integer, Class<? extends ServerMessageToClient<?>>> serverMessageToClientTypeList;
+	private final Map<Integer, ServerMessageToClientFactory<?>> serverMessageToClientFactories;
 
 	/**
 	 * Contains context objects mapped directly against a executable client message type. Usage of this list is optional.
@@ -70,14 +73,35 @@ public class SwiftSocketClient {
 	/**
 	 * A queue that contains unprocessed messages from the server.
 	 */
-	private final LinkedList<ServerMessageToClient<?>> serverMessages;
+	private final Queue<ServerMessageToClient<?>> serverMessages;
+
+	/**
+	 * Signaled when a message is added to {@link #serverMessages} or the client is stopping. Created on {@link #start()} with the
+	 * configured {@link #waitStrategy}.
+	 */
+	private volatile WaitSignal serverMessageSignal;
+
+	/**
+	 * Determines how threads wait for new server messages. Default set to {@link WaitStrategy#BLOCKING} in the constructor.
+	 */
+	private WaitStrategy waitStrategy;
+
+	/**
+	 * Determines how messages are laid out on the wire. Default set to {@link WireProtocol#TEXT} in the constructor.
+	 */
+	private WireProtocol wireProtocol;
+
+	/**
+	 * The largest frame in bytes accepted from the server with a framed {@link WireProtocol}. Default set to 65536 in the constructor.
+	 */
+	private int maxFrameSize;
 
 	/**
 	 * A server connection handler, for receiving {@link ServerMessageToClient} messages and sending {@link ClientMessageToServer} messages.
 	 */
 	private ServerHandler serverHandler;
 
-	private boolean stopping;
+	private volatile boolean stopping;
 
 	/**
 	 * Default constructor, calls {@link #SwiftSocketClient(String, int, ClientType)} with TCP {@link ClientType}.
@@ -107,9 +131,12 @@ public class SwiftSocketClient {
 		this.port = port;
 		this.clientType = clientType;
 
-		serverMessageToClientTypeList = new HashMap<Integer, Class<? extends ServerMessageToClient<?>>>();
+		serverMessageToClientFactories = new HashMap<Integer, ServerMessageToClientFactory<?>>();
 		clientMessageToServerIdList = new HashMap<Class<? extends ClientMessageToServer>, Integer>();
-		serverMessages = new LinkedList<ServerMessageToClient<?>>();
+		serverMessages = new ConcurrentLinkedQueue<ServerMessageToClient<?>>();
+		waitStrategy = WaitStrategy.BLOCKING;
+		wireProtocol = WireProtocol.TEXT;
+		maxFrameSize = 65536;
 		executionContexts = new HashMap<Class<? extends ServerMessageToClient<?>>, Object>();
 
 		registerClientMessageToServerType(MESSAGE_ID_PINGPONG, ClientMessageToServerPingPong.class);
@@ -122,22 +149,57 @@ public class SwiftSocketClient {
 	 * Registers a client-to-server message on the given unique identifier. Both the client and server must use the same identifier to be
 	 * able to decode the message on the server.
 	 * 
+	 * <p>
+	 * The fields used by {@link EncoderUtil#reflectiveEncode(Object, Class)} are resolved here; a message type that can't be encoded
+	 * reflectively is reported right away, though only as warning since it may encode itself without reflection.
+	 * 
 	 * @param messageId The unique identifier for this message type.
 	 * @param messageType A {@link ClientMessageToServer} sub type.
 	 */
 	public void registerClientMessageToServerType(final int messageId, final Class<? extends ClientMessageToServer> messageType) {
 		clientMessageToServerIdList.put(messageType, messageId);
+		try {
+			EncoderUtil.prepareReflectiveEncode(messageType);
+		} catch (final RuntimeException e) {
+			LOGGER.warn(String.format("message type '%s' can't be encoded reflectively: %s", messageType.getName(), e.getMessage()));
+		}
 	}
 
 	/**
 	 * Registers a server-to-client message on the given unique identifier. Both the client and server must use the same identifier to be
 	 * able to decode the message on the client.
 	 * 
+	 * <p>
+	 * The message type's default constructor is resolved once, here, and called directly for every message received. The fields used by
+	 * {@link DecoderUtil#reflectiveDecode(Object, StringBuilder, Class)} are resolved here as well; a message type that can't be decoded
+	 * reflectively is reported right away, though only as warning since it may decode itself without reflection.
+	 * 
 	 * @param messageId The unique identifier for this message type.
-	 * @param messageType A {@link ServerMessageToClient} sub type.
+	 * @param messageType A concrete {@link ServerMessageToClient} sub type with a default constructor.
+	 * @throws IllegalArgumentException Thrown when the message type is abstract or doesn't have a default constructor.
+	 * @see #registerServerMessageToClientType(int, ServerMessageToClientFactory)
 	 */
 	public void registerServerMessageToClientType(final int messageId, final Class<? extends ServerMessageToClient<?>> messageType) {
-		serverMessageToClientTypeList.put(messageId, messageType);
+		registerServerMessageToClientType(messageId, new ConstructorMessageFactory(messageType));
+		try {
+			DecoderUtil.prepareReflectiveDecode(messageType);
+		} catch (final RuntimeException e) {
+			LOGGER.warn(String.format("message type '%s' can't be decoded reflectively: %s", messageType.getName(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * Registers a factory for server-to-client messages on the given unique identifier, for example a constructor reference on Java 8 and
+	 * later. Both the client and server must use the same identifier to be able to decode the message on the client.
+	 * 
+	 * @param messageId The unique identifier for the message type created by the factory.
+	 * @param messageFactory The factory creating a new message for every message received with the given identifier.
+	 */
+	public void registerServerMessageToClientType(final int messageId, final ServerMessageToClientFactory<?> messageFactory) {
+		if (messageFactory == null) {
+			throw new IllegalArgumentException("message factory should not be null");
+		}
+		serverMessageToClientFactories.put(messageId, messageFactory);
 	}
 
 	/**
@@ -152,6 +214,43 @@ public class SwiftSocketClient {
 		executionContexts.put(messageType, executionContext);
 	}
 
+	/**
+	 * Sets how threads wait for new server messages (see {@link #awaitServerResponses(long)}). Only applies when set before the client is
+	 * started.
+	 * 
+	 * @param waitStrategy The strategy that trades latency against cpu usage.
+	 */
+	public void setWaitStrategy(final WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Sets how messages are laid out on the wire, which should match the protocol used by the server. The framed protocols
+	 * {@link WireProtocol#TEXT_FRAMED} and {@link WireProtocol#BINARY} are only supported by {@link ClientType#TCP}. Only applies when set
+	 * before the client is started.
+	 * 
+	 * @param wireProtocol The protocol used to encode and decode messages.
+	 */
+	public void setWireProtocol(final WireProtocol wireProtocol) {
+		if (wireProtocol.isFramed() && clientType == ClientType.UDP) {
+			throw new IllegalArgumentException(String.format("wire protocol %s is not supported by UDP clients", wireProtocol));
+		}
+		this.wireProtocol = wireProtocol;
+	}
+
+	/**
+	 * Sets the largest frame in bytes accepted from the server with a framed {@link WireProtocol}. Only applies when set before the client
+	 * is started.
+	 * 
+	 * @param maxFrameSize The maximum frame size in bytes, excluding the frame length header.
+	 */
+	public void setMaxFrameSize(final int maxFrameSize) {
+		if (maxFrameSize < 1) {
+			throw new IllegalArgumentException("maximum frame size should be positive");
+		}
+		this.maxFrameSize = maxFrameSize;
+	}
+
 	/**
 	 * Thread safe method that starts the client thread, listening for new messages and sending messages.
 	 * 
@@ -160,6 +259,7 @@ public class SwiftSocketClient {
 	public void start() {
 		LOGGER.info(String.format("booting Swift message client (%s). Hold on...", clientType.name()));
 		stopping = false;
+		serverMessageSignal = new WaitSignal(waitStrategy);
 		new Thread(new InvisibleClientRunner()).start();
 	}
 
@@ -169,13 +269,31 @@ public class SwiftSocketClient {
 	 * @return Whether {@link #serverMessages} contains any entries.
 	 */
 	public boolean hasServerResponses() {
-		return serverMessages.size() > 0;
+		return !serverMessages.isEmpty();
+	}
+
+	/**
+	 * Waits as per the configured {@link WaitStrategy} until there are unprocessed server messages, the client is stopping or the time-out
+	 * has elapsed. Should only be called after the client has been started.
+	 * 
+	 * @param timeoutMs The maximum time to wait in milliseconds.
+	 * @return Whether there are unprocessed server messages waiting in queue to be executed.
+	 * @see #setWaitStrategy(WaitStrategy)
+	 */
+	public boolean awaitServerResponses(final long timeoutMs) {
+		serverMessageSignal.await(new WaitCondition() {
+			@Override
+			public boolean isSatisfied() {
+				return !serverMessages.isEmpty() || isStopping();
+			}
+		}, timeoutMs);
+		return hasServerResponses();
 	}
 
 	/**
 	 * Returns the queue's next unprocessed server message to be executed.
 	 * 
-	 * @return The first entry of {@link #serverMessages} using {@link LinkedList#poll()}.
+	 * @return The first entry of {@link #serverMessages} using {@link Queue#poll()}.
 	 */
 	public ServerMessageToClient<?> getNextServerResponse() {
 		return serverMessages.poll();
@@ -234,6 +352,20 @@ public class SwiftSocketClient {
 		serverHandler.sendMessage(message);
 	}
 
+	/**
+	 * @return {@link #wireProtocol}
+	 */
+	final WireProtocol getWireProtocol() {
+		return wireProtocol;
+	}
+
+	/**
+	 * @return {@link #maxFrameSize}
+	 */
+	final int getMaxFrameSize() {
+		return maxFrameSize;
+	}
+
 	/**
 	 * @return {@link #stopping}
 	 */
@@ -254,16 +386,16 @@ public class SwiftSocketClient {
 			((ServerMessageToClient<? super Object>) message).execute(contextObject);
 		} else {
 			serverMessages.offer(message);
+			serverMessageSignal.signal();
 		}
 	}
 
 	/**
-	 * @param messageId The message id for which to find the registered message type.
-	 * @return The server-to-client message type associated with the given message id, or {@link ServerMessageToClientInvalid} if not found.
+	 * @param messageId The message id for which to find the registered message factory.
+	 * @return The server-to-client message factory associated with the given message id, or <code>null</code> if not found.
 	 */
-	protected Class<? extends ServerMessageToClient<?>> getServerMessageToClientType(final int messageId) {
-		final Class<? extends ServerMessageToClient<?>> messageType = serverMessageToClientTypeList.get(messageId);
-		return (messageType != null) ? messageType : ServerMessageToClientInvalid.class;
+	protected ServerMessageToClientFactory<?> getServerMessageToClientFactory(final int messageId) {
+		return serverMessageToClientFactories.get(messageId);
 	}
 
 	/**
@@ -282,6 +414,9 @@ public class SwiftSocketClient {
 		LOGGER.info("waving server goodbye");
 		sendMessage(new ClientMessageToServerByeBye());
 		stopping = true;
+		if (serverMessageSignal != null) {
+			serverMessageSignal.signal();
+		}
 		shutdown();
 	}
 
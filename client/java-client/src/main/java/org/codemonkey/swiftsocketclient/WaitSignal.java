@@ -0,0 +1,135 @@
+package org.codemonkey.swiftsocketclient;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A hand-off point between threads: consumers wait for a {@link WaitCondition} as per the configured {@link WaitStrategy}, while producers
+ * call {@link #signal()} after changing state the condition depends on, such as adding an element to a concurrent queue.
+ * <p>
+ * Signaling is cheap when nobody waits: the lock is only taken when a thread is blocked and only parked threads are unparked.
+ * 
+ * @author Benny Bottema
+ * @see WaitStrategy
+ * @since 1.0
+ */
+final class WaitSignal {
+
+	private static final Logger LOGGER = Logger.getLogger(WaitSignal.class);
+
+	private final WaitStrategy waitStrategy;
+
+	private final Lock lock;
+
+	private final Condition signaled;
+
+	/**
+	 * The number of threads waiting with {@link WaitStrategy#BLOCKING}, checked by {@link #signal()} before taking the {@link #lock}.
+	 */
+	private final AtomicInteger blockedThreadCount;
+
+	/**
+	 * The threads waiting with {@link WaitStrategy#PARK_WITH_BACKOFF}, unparked by {@link #signal()}.
+	 */
+	private final Queue<Thread> parkedThreads;
+
+	/**
+	 * @param waitStrategy The strategy used by threads waiting on this signal.
+	 */
+	WaitSignal(final WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+		lock = new ReentrantLock();
+		signaled = lock.newCondition();
+		blockedThreadCount = new AtomicInteger();
+		parkedThreads = new ConcurrentLinkedQueue<Thread>();
+	}
+
+	/**
+	 * Waits until the condition is satisfied, without time-out.
+	 * 
+	 * @param condition The condition to wait for.
+	 */
+	void await(final WaitCondition condition) {
+		// overflows on purpose: deadlines are only compared by their difference with System.nanoTime()
+		waitStrategy.await(this, condition, System.nanoTime() + Long.MAX_VALUE);
+	}
+
+	/**
+	 * Waits until the condition is satisfied or the time-out has elapsed.
+	 * 
+	 * @param condition The condition to wait for.
+	 * @param timeoutMs The maximum time to wait in milliseconds.
+	 * @return Whether the condition was satisfied.
+	 */
+	boolean await(final WaitCondition condition, final long timeoutMs) {
+		return waitStrategy.await(this, condition, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+	}
+
+	/**
+	 * Thread safe method that wakes up all threads waiting on this signal, so they evaluate their condition again.
+	 */
+	void signal() {
+		if (blockedThreadCount.get() > 0) {
+			lock.lock();
+			try {
+				signaled.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		for (final Thread parkedThread : parkedThreads) {
+			LockSupport.unpark(parkedThread);
+		}
+	}
+
+	/**
+	 * Used by {@link WaitStrategy#BLOCKING}: waits on the {@link #signaled} condition until the condition is satisfied or the deadline
+	 * has passed.
+	 */
+	boolean block(final WaitCondition condition, final long deadlineNanos) {
+		if (condition.isSatisfied()) {
+			return true;
+		}
+		blockedThreadCount.incrementAndGet();
+		lock.lock();
+		try {
+			while (!condition.isSatisfied()) {
+				final long remainingNanos = deadlineNanos - System.nanoTime();
+				if (remainingNanos <= 0) {
+					return false;
+				}
+				signaled.awaitNanos(remainingNanos);
+			}
+			return true;
+		} catch (final InterruptedException e) {
+			LOGGER.debug("interrupted while waiting", e);
+			Thread.currentThread().interrupt();
+			return condition.isSatisfied();
+		} finally {
+			lock.unlock();
+			blockedThreadCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Used by {@link WaitStrategy#PARK_WITH_BACKOFF} to register a thread that is about to park.
+	 */
+	void addParkedThread(final Thread thread) {
+		parkedThreads.offer(thread);
+	}
+
+	/**
+	 * Used by {@link WaitStrategy#PARK_WITH_BACKOFF} to unregister a thread that is done waiting.
+	 */
+	void removeParkedThread(final Thread thread) {
+		parkedThreads.remove(thread);
+	}
+}
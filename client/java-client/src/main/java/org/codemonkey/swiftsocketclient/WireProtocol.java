@@ -0,0 +1,155 @@
+package org.codemonkey.swiftsocketclient;
+
+import java.io.IOException;
+
+import org.apache.commons.lang.StringUtils;
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDatagramEncoder;
+import org.codemonkey.util.BinaryDecoder;
+import org.codemonkey.util.BinaryEncoder;
+import org.codemonkey.util.FrameReader;
+
+/**
+ * Defines how messages are laid out on the wire, {@link #TEXT}, {@link #TEXT_FRAMED} or {@link #BINARY}. Both the client and the server
+ * must use the same protocol. Only {@link ClientType#TCP} supports the framed protocols.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketClient#setWireProtocol(WireProtocol)
+ * @since 1.0
+ */
+public enum WireProtocol {
+	/**
+	 * Messages are encoded as text: a three digit message id, followed by the encoded message, a newline '\n' and a zero (0) byte '\0'.
+	 * Message ids are limited to 999 and message values may not contain newlines.
+	 * 
+	 * @see ClientMessageToServer#encodeTo(StringBuilder)
+	 * @see ServerMessageToClient#decode(String)
+	 */
+	TEXT(false) {
+		/**
+		 * @see WireProtocol#TEXT
+		 */
+		@Override
+		void send(final ServerEndpoint serverEndpoint, final int messageId, final ClientMessageToServer message)
+				throws IOException {
+			serverEndpoint.send(encodeText(messageId, message).append("\n\0").toString());
+		}
+
+		/**
+		 * Not supported, text messages are not framed but end with a newline.
+		 */
+		@Override
+		void handleFrame(final ServerHandler serverHandler, final byte[] buffer, final int offset, final int length) {
+			throw new UnsupportedOperationException("text messages are not framed");
+		}
+	},
+	/**
+	 * Messages are encoded as text like {@link #TEXT}, but instead of ending with a newline every message is preceded by its length in
+	 * bytes as variable length integer (see {@link BinaryEncoder#writeVarInt(int)}). Message values may contain newlines and messages are
+	 * read in bulk instead of per line, while messages larger than the maximum frame size are refused.
+	 * 
+	 * @see SwiftSocketClient#setMaxFrameSize(int)
+	 * @see FrameReader
+	 */
+	TEXT_FRAMED(true) {
+		/**
+		 * @see WireProtocol#TEXT_FRAMED
+		 */
+		@Override
+		void send(final ServerEndpoint serverEndpoint, final int messageId, final ClientMessageToServer message)
+				throws IOException {
+			final byte[] content = encodeText(messageId, message).toString().getBytes();
+			serverEndpoint.send(BinaryEncoder.toFrame(content, 0, content.length));
+		}
+
+		/**
+		 * Hands the frame content to {@link ServerHandler#handleMessage(String)}.
+		 */
+		@Override
+		void handleFrame(final ServerHandler serverHandler, final byte[] buffer, final int offset, final int length) {
+			serverHandler.handleMessage(new String(buffer, offset, length));
+		}
+	},
+	/**
+	 * Messages are encoded in a compact binary form: the frame length in bytes and message id as variable length integers, followed by the
+	 * message values as written by a {@link BinaryEncoder}. Message ids are not limited to three digits and numbers are not converted to
+	 * text. Messages must implement {@link BinaryDatagramEncoder} (client-to-server) or {@link BinaryDatagramDecoder} (server-to-client).
+	 * 
+	 * @see BinaryEncoder#toFrame()
+	 */
+	BINARY(true) {
+		/**
+		 * @see WireProtocol#BINARY
+		 */
+		@Override
+		void send(final ServerEndpoint serverEndpoint, final int messageId, final ClientMessageToServer message)
+				throws IOException {
+			if (!(message instanceof BinaryDatagramEncoder)) {
+				final String msg = "message type '%s' does not implement %s";
+				throw new IllegalArgumentException(String.format(msg, message.getClass().getSimpleName(),
+						BinaryDatagramEncoder.class.getSimpleName()));
+			}
+			final BinaryEncoder encoder = new BinaryEncoder();
+			encoder.writeVarInt(messageId);
+			((BinaryDatagramEncoder) message).encode(encoder);
+			serverEndpoint.send(encoder.toFrame());
+		}
+
+		/**
+		 * Hands a decoder on the frame content to {@link ServerHandler#handleMessage(BinaryDecoder)}.
+		 */
+		@Override
+		void handleFrame(final ServerHandler serverHandler, final byte[] buffer, final int offset, final int length) {
+			serverHandler.handleMessage(new BinaryDecoder(buffer, offset, length));
+		}
+	};
+
+	/**
+	 * Whether every message is preceded by its length, instead of ending with a newline.
+	 */
+	private final boolean framed;
+
+	private WireProtocol(final boolean framed) {
+		this.framed = framed;
+	}
+
+	/**
+	 * Encodes a message as per this protocol and sends it to the server.
+	 * 
+	 * @param serverEndpoint The server to send the message to.
+	 * @param messageId The message id, known to both the server and the client.
+	 * @param message The message to encode.
+	 * @throws IOException Thrown by the server endpoint when sending failed.
+	 */
+	abstract void send(ServerEndpoint serverEndpoint, int messageId, ClientMessageToServer message)
+			throws IOException;
+
+	/**
+	 * Decodes the content of a received frame and hands the message to the server handler. The content is only valid during this call.
+	 * 
+	 * @param serverHandler The handler of the server that sent the frame.
+	 * @param buffer The array containing the frame content.
+	 * @param offset The position of the frame content, excluding the frame length header.
+	 * @param length The length of the frame content in bytes.
+	 */
+	abstract void handleFrame(ServerHandler serverHandler, byte[] buffer, int offset, int length);
+
+	/**
+	 * @return {@link #framed}
+	 */
+	final boolean isFramed() {
+		return framed;
+	}
+
+	/**
+	 * @param messageId The message id, left-padded with zeros to {@link ServerHandler#MESSAGEID_LENGTH} digits.
+	 * @param message The message appending its values to the datagram.
+	 * @return The message id followed by the encoded message.
+	 * @see ClientMessageToServer#encodeTo(StringBuilder)
+	 */
+	private static StringBuilder encodeText(final int messageId, final ClientMessageToServer message) {
+		final StringBuilder coded = new StringBuilder(StringUtils.leftPad(String.valueOf(messageId), ServerHandler.MESSAGEID_LENGTH, '0'));
+		message.encodeTo(coded);
+		return coded;
+	}
+}
@@ -4,9 +4,12 @@ import org.apache.log4j.Logger;
 import org.codemonkey.swiftsocketclient.ClientMessageToServer;
 import org.codemonkey.swiftsocketclient.ClientType;
 import org.codemonkey.swiftsocketclient.ServerMessageToClient;
+import org.codemonkey.swiftsocketclient.ServerMessageToClientFactory;
 import org.codemonkey.swiftsocketclient.ServerUtil;
 import org.codemonkey.swiftsocketclient.SwiftSocketClient;
 import org.codemonkey.swiftsocketclient.UnknownMessageException;
+import org.codemonkey.swiftsocketclient.WaitStrategy;
+import org.codemonkey.swiftsocketclient.WireProtocol;
 
 /**
  * The World Client class adds a thin layer around the {@link SwiftSocketClient} to ease the management of a server-client interaction, or
@@ -16,7 +19,8 @@ import org.codemonkey.swiftsocketclient.UnknownMessageException;
  * The World Client allows us to execute decoded server messages against a known context (your game class for example), so that the
  * executable message can then invoke specific methods on your {@link WorldContext} implementation.
  * <p>
- * This class keeps polling the client for unprocessed messages and executes them when they become available.
+ * This class keeps waiting on the client for unprocessed messages (see {@link #setWaitStrategy(WaitStrategy)}) and executes them when they
+ * become available.
  * 
  * @param <T> A specific {@link WorldContext} implementation, such a some game or a simulation.
  * @author Benny Bottema
@@ -26,6 +30,12 @@ public final class WorldClient<T extends WorldContext> {
 
 	private static final Logger LOGGER = Logger.getLogger(WorldClient.class);
 
+	/**
+	 * The maximum time in milliseconds the runner waits for a server message before checking whether the client is still running. Waiting
+	 * is cut short when a message arrives or the client is stopped.
+	 */
+	private static final long RESPONSE_WAIT_TIMEOUT_MS = 1000;
+
 	/**
 	 * The client that we simply start and listen to for new messages. All registered message types are delegated to this client instance.
 	 */
@@ -63,6 +73,33 @@ public final class WorldClient<T extends WorldContext> {
 		client = new SwiftSocketClient(host, port, clientType);
 	}
 
+	/**
+	 * Delegates to {@link SwiftSocketClient#setWaitStrategy(WaitStrategy)}.
+	 * 
+	 * @param waitStrategy The strategy that trades latency against cpu usage.
+	 */
+	public void setWaitStrategy(final WaitStrategy waitStrategy) {
+		client.setWaitStrategy(waitStrategy);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketClient#setWireProtocol(WireProtocol)}.
+	 * 
+	 * @param wireProtocol The protocol used to encode and decode messages.
+	 */
+	public void setWireProtocol(final WireProtocol wireProtocol) {
+		client.setWireProtocol(wireProtocol);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketClient#setMaxFrameSize(int)}.
+	 * 
+	 * @param maxFrameSize The maximum frame size in bytes.
+	 */
+	public void setMaxFrameSize(final int maxFrameSize) {
+		client.setMaxFrameSize(maxFrameSize);
+	}
+
 	/**
 	 * Registers a client-to-server message on the given unique identifier on the message socket client, by delegating to
 	 * {@link SwiftSocketClient#registerClientMessageToServerType(int, Class)}.
@@ -85,6 +122,17 @@ public final class WorldClient<T extends WorldContext> {
 		client.registerServerMessageToClientType(messageId, messageType);
 	}
 
+	/**
+	 * Registers a factory for server-to-client messages on the given unique identifier on the swift socket client, by delegating to
+	 * {@link SwiftSocketClient#registerServerMessageToClientType(int, ServerMessageToClientFactory)}.
+	 * 
+	 * @param messageId The unique identifier for the message type created by the factory.
+	 * @param messageFactory The factory creating a new message for every message received with the given identifier.
+	 */
+	public void registerServerMessageToClientId(final int messageId, final ServerMessageToClientFactory<?> messageFactory) {
+		client.registerServerMessageToClientType(messageId, messageFactory);
+	}
+
 	/**
 	 * Calls {@link WorldContext#initWorld()} before starting the server, after which the server starts handling client connections and
 	 * incoming messages.
@@ -107,6 +155,12 @@ public final class WorldClient<T extends WorldContext> {
 		}
 	}
 
+	/**
+	 * Executes server messages as soon as they become available, waiting for them as per the configured {@link WaitStrategy}.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
 	private class InvisibleServerRunner implements Runnable {
 
 		@Override
@@ -128,7 +182,7 @@ public final class WorldClient<T extends WorldContext> {
 						LOGGER.debug("\t\t" + e);
 					}
 				} else {
-					ServerUtil.defaultSleep();
+					client.awaitServerResponses(RESPONSE_WAIT_TIMEOUT_MS);
 				}
 			}
 		}
@@ -0,0 +1,19 @@
+package org.codemonkey.util;
+
+/**
+ * Interface for marking objects as binary datagram decoders, the binary counterpart of {@link DatagramDecoder}.
+ * 
+ * @author Benny Bottema
+ * @see BinaryDatagramEncoder
+ * @since 1.0
+ */
+public interface BinaryDatagramDecoder {
+
+	/**
+	 * Populates the current implementation instance fields with values read from the decoder, in the same order as they were written by
+	 * {@link BinaryDatagramEncoder#encode(BinaryEncoder)}.
+	 * 
+	 * @param decoder The decoder positioned at the first value of the current instance.
+	 */
+	void decode(BinaryDecoder decoder);
+}
@@ -0,0 +1,22 @@
+package org.codemonkey.util;
+
+/**
+ * Interface for marking objects encodable as binary datagram, the binary counterpart of {@link DatagramEncoder}. Values are written in a
+ * fixed order to a {@link BinaryEncoder}, which produces little-endian primitives, variable length integers and length-prefixed strings
+ * instead of text.
+ * 
+ * @author Benny Bottema
+ * @see BinaryDatagramDecoder
+ * @since 1.0
+ */
+public interface BinaryDatagramEncoder {
+
+	/**
+	 * Writes the values of the current instance to the encoder. It does not know the message id, which is assigned externally and written
+	 * before the values written by this method.
+	 * 
+	 * @param encoder The encoder to write the values to, in the same order as they are read by
+	 *            {@link BinaryDatagramDecoder#decode(BinaryDecoder)}.
+	 */
+	void encode(BinaryEncoder encoder);
+}
@@ -0,0 +1,236 @@
+package org.codemonkey.util;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Binary counterpart of {@link EncoderUtil}: writes values into a growing byte array instead of a string, so numbers are not converted to
+ * text and values may contain any character, including newlines.
+ * <p>
+ * The format is as follows:
+ * <ul>
+ * <li>primitives are written little-endian in their natural size (a <code>boolean</code> takes one byte)</li>
+ * <li>variable length integers (see {@link #writeVarInt(int)}) take 7 bits per byte, the high bit indicating another byte follows</li>
+ * <li>strings are written as UTF-8, preceded by their length in bytes plus one as variable length integer, <code>null</code> being
+ * written as 0</li>
+ * <li>lists are preceded by their size plus one as variable length integer, <code>null</code> being written as 0</li>
+ * </ul>
+ * A binary frame consists of its length in bytes as variable length integer, followed by the message id as variable length integer and the
+ * message values (see {@link #toFrame()}).
+ * 
+ * @author Benny Bottema
+ * @see BinaryDecoder
+ * @see BinaryDatagramEncoder
+ * @since 1.0
+ */
+public final class BinaryEncoder {
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+	/**
+	 * The maximum number of bytes of a variable length <code>int</code>.
+	 */
+	static final int MAX_VARINT_SIZE = 5;
+
+	private byte[] buffer;
+
+	private int size;
+
+	/**
+	 * Creates an encoder with a small initial capacity, which grows as values are written.
+	 */
+	public BinaryEncoder() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity The number of bytes that can be written before the encoder needs to grow.
+	 */
+	public BinaryEncoder(final int initialCapacity) {
+		buffer = new byte[Math.max(initialCapacity, MAX_VARINT_SIZE)];
+	}
+
+	/**
+	 * Writes an <code>int</code> in 1 to 5 bytes, using 7 bits per byte starting with the lowest bits. Small positive values take the
+	 * fewest bytes, negative values always take 5 bytes.
+	 * 
+	 * @param value The value to write.
+	 * @return This encoder.
+	 */
+	public BinaryEncoder writeVarInt(final int value) {
+		ensureCapacity(MAX_VARINT_SIZE);
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			buffer[size++] = (byte) ((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		buffer[size++] = (byte) remaining;
+		return this;
+	}
+
+	public BinaryEncoder writeByte(final byte value) {
+		ensureCapacity(1);
+		buffer[size++] = value;
+		return this;
+	}
+
+	public BinaryEncoder writeBoolean(final boolean value) {
+		return writeByte((byte) (value ? 1 : 0));
+	}
+
+	public BinaryEncoder writeShort(final short value) {
+		ensureCapacity(2);
+		buffer[size++] = (byte) value;
+		buffer[size++] = (byte) (value >> 8);
+		return this;
+	}
+
+	public BinaryEncoder writeInt(final int value) {
+		ensureCapacity(4);
+		buffer[size++] = (byte) value;
+		buffer[size++] = (byte) (value >> 8);
+		buffer[size++] = (byte) (value >> 16);
+		buffer[size++] = (byte) (value >> 24);
+		return this;
+	}
+
+	public BinaryEncoder writeLong(final long value) {
+		writeInt((int) value);
+		return writeInt((int) (value >> 32));
+	}
+
+	public BinaryEncoder writeFloat(final float value) {
+		return writeInt(Float.floatToIntBits(value));
+	}
+
+	public BinaryEncoder writeDouble(final double value) {
+		return writeLong(Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * Writes a string as UTF-8, preceded by its length in bytes plus one, or only a 0 for <code>null</code>.
+	 * 
+	 * @param value The string to write, may be <code>null</code>.
+	 * @return This encoder.
+	 */
+	public BinaryEncoder writeString(final String value) {
+		if (value == null) {
+			return writeVarInt(0);
+		}
+		final byte[] bytes = value.getBytes(UTF8);
+		writeVarInt(bytes.length + 1);
+		return writeBytes(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes raw bytes, without length.
+	 * 
+	 * @param bytes The array containing the bytes to write.
+	 * @param offset The position of the first byte to write.
+	 * @param length The number of bytes to write.
+	 * @return This encoder.
+	 */
+	public BinaryEncoder writeBytes(final byte[] bytes, final int offset, final int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, size, length);
+		size += length;
+		return this;
+	}
+
+	/**
+	 * Writes the number of encoders plus one, followed by the values of every encoder, or only a 0 for <code>null</code>.
+	 * 
+	 * @param encoders The list of encoders to write, may be <code>null</code> but may not contain <code>null</code>.
+	 * @return This encoder.
+	 */
+	public BinaryEncoder writeList(final List<? extends BinaryDatagramEncoder> encoders) {
+		if (encoders == null) {
+			return writeVarInt(0);
+		}
+		writeVarInt(encoders.size() + 1);
+		for (final BinaryDatagramEncoder encoder : encoders) {
+			if (encoder == null) {
+				throw new RuntimeException("cannot encode a null list-item, only properties are allowed to be null");
+			}
+			encoder.encode(this);
+		}
+		return this;
+	}
+
+	/**
+	 * @return The number of bytes written so far.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Discards everything written so far, keeping the capacity so the encoder can be reused.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * @return A copy of the bytes written so far.
+	 */
+	public byte[] toByteArray() {
+		final byte[] bytes = new byte[size];
+		System.arraycopy(buffer, 0, bytes, 0, size);
+		return bytes;
+	}
+
+	/**
+	 * @return A copy of the bytes written so far, preceded by their number as variable length integer, which makes up a complete binary
+	 *         frame when a message id and message values have been written.
+	 * @see FrameReader
+	 */
+	public byte[] toFrame() {
+		return toFrame(buffer, 0, size);
+	}
+
+	/**
+	 * Creates a frame of arbitrary content, such as a text message, which can be read by a {@link FrameReader}.
+	 * 
+	 * @param bytes The array containing the frame content.
+	 * @param offset The position of the first byte of the frame content.
+	 * @param length The number of bytes of the frame content.
+	 * @return A copy of the content, preceded by its length as variable length integer.
+	 */
+	public static byte[] toFrame(final byte[] bytes, final int offset, final int length) {
+		final int headerSize = varIntSize(length);
+		final byte[] frame = new byte[headerSize + length];
+		int value = length;
+		for (int i = 0; i < headerSize - 1; i++) {
+			frame[i] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		frame[headerSize - 1] = (byte) value;
+		System.arraycopy(bytes, offset, frame, headerSize, length);
+		return frame;
+	}
+
+	/**
+	 * @param value The value that would be written by {@link #writeVarInt(int)}.
+	 * @return The number of bytes {@link #writeVarInt(int)} takes for the value.
+	 */
+	static int varIntSize(final int value) {
+		int size = 1;
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			remaining >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private void ensureCapacity(final int additionalBytes) {
+		if (size + additionalBytes > buffer.length) {
+			final byte[] grownBuffer = new byte[Math.max(buffer.length * 2, size + additionalBytes)];
+			System.arraycopy(buffer, 0, grownBuffer, 0, size);
+			buffer = grownBuffer;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.codemonkey.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+
+/**
+ * Reads length-prefixed frames from a stream: every frame starts with its length in bytes as variable length integer (see
+ * {@link BinaryEncoder#writeVarInt(int)}), followed by the frame content. Input is read in bulk into a single buffer that is reused for
+ * every frame, so that a stream of small frames costs neither a read nor an allocation per frame.
+ * <p>
+ * The content of the current frame is only valid until {@link #next()} is called again. Frames larger than the configured maximum are
+ * refused, so a peer can't make the reader buffer arbitrary amounts of data.
+ * 
+ * @author Benny Bottema
+ * @see BinaryEncoder#toFrame()
+ * @since 1.0
+ */
+public final class FrameReader {
+
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+
+	private final InputStream in;
+
+	private final int maxFrameSize;
+
+	/**
+	 * Contains the bytes read from the stream, of which the bytes from {@link #start} up to {@link #end} have not been consumed yet. The
+	 * current frame's content precedes {@link #start}.
+	 */
+	private byte[] buffer;
+
+	private int start;
+
+	private int end;
+
+	private int frameOffset;
+
+	private int frameLength;
+
+	/**
+	 * @param in The stream to read frames from, which doesn't need to be buffered.
+	 * @param maxFrameSize The largest frame length in bytes that is accepted.
+	 */
+	public FrameReader(final InputStream in, final int maxFrameSize) {
+		this.in = in;
+		this.maxFrameSize = maxFrameSize;
+		buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, maxFrameSize + BinaryEncoder.MAX_VARINT_SIZE)];
+	}
+
+	/**
+	 * Reads the next frame, blocking until it has been received completely. The previous frame's content may be overwritten.
+	 * 
+	 * @return Whether a frame was read, <code>false</code> if the stream ended before a new frame started.
+	 * @throws EOFException Thrown when the stream ends within a frame.
+	 * @throws ProtocolException Thrown when the frame header is malformed or the frame exceeds the maximum size, after which the stream
+	 *             can't be read reliably anymore.
+	 * @throws IOException Thrown by {@link InputStream#read(byte[], int, int)}.
+	 */
+	public boolean next()
+			throws IOException {
+		int headerSize = 0;
+		int length = 0;
+		for (int shift = 0;; shift += 7) {
+			if (shift == 35) {
+				throw new ProtocolException("malformed frame header");
+			} else if (start + headerSize == end && !fill(headerSize + 1)) {
+				if (headerSize == 0) {
+					return false;
+				}
+				throw new EOFException("stream ended within frame header");
+			}
+			final byte b = buffer[start + headerSize++];
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+		}
+		if (length < 0 || length > maxFrameSize) {
+			final String msg = "frame of %s bytes exceeds the maximum frame size of %s bytes";
+			throw new ProtocolException(String.format(msg, length, maxFrameSize));
+		}
+		while (end - start < headerSize + length) {
+			if (!fill(headerSize + length)) {
+				throw new EOFException("stream ended within frame");
+			}
+		}
+		frameOffset = start + headerSize;
+		frameLength = length;
+		start = frameOffset + frameLength;
+		return true;
+	}
+
+	/**
+	 * Reads more bytes from the stream, first making room for the given number of bytes from {@link #start} by moving the unconsumed bytes
+	 * to the start of the buffer and growing the buffer if needed. The content of the current frame may be overwritten.
+	 * 
+	 * @param required The number of bytes from {@link #start} that should fit in the buffer, which is more than the number of unconsumed
+	 *            bytes.
+	 * @return Whether any bytes were read, <code>false</code> if the stream has ended.
+	 */
+	private boolean fill(final int required)
+			throws IOException {
+		if (buffer.length - start < required) {
+			final int unconsumed = end - start;
+			final byte[] target = (required > buffer.length) ? new byte[Math.max(required, buffer.length * 2)] : buffer;
+			System.arraycopy(buffer, start, target, 0, unconsumed);
+			buffer = target;
+			start = 0;
+			end = unconsumed;
+		}
+		final int read = in.read(buffer, end, buffer.length - end);
+		if (read < 0) {
+			return false;
+		}
+		end += read;
+		return true;
+	}
+
+	/**
+	 * @return The buffer containing the current frame's content, from {@link #getFrameOffset()}.
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return The position of the current frame's content in {@link #getBuffer()}.
+	 */
+	public int getFrameOffset() {
+		return frameOffset;
+	}
+
+	/**
+	 * @return The length of the current frame's content in bytes.
+	 */
+	public int getFrameLength() {
+		return frameLength;
+	}
+}
@@ -0,0 +1,67 @@
+package org.codemonkey.swiftcodegen;
+
+/**
+ * Accumulates the source code of a generated codec, one indented line at a time.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+final class CodecWriter {
+
+	private final StringBuilder source = new StringBuilder();
+
+	/**
+	 * The number of tabs each line is prefixed with.
+	 */
+	private int indentation;
+
+	/**
+	 * Appends a single line at the current indentation.
+	 * 
+	 * @param format A {@link String#format(String, Object...)} format for the line.
+	 * @param args The arguments for the format.
+	 */
+	void line(final String format, final Object... args) {
+		for (int i = 0; i < indentation; i++) {
+			source.append('\t');
+		}
+		source.append(String.format(format, args)).append('\n');
+	}
+
+	/**
+	 * Appends an empty line.
+	 */
+	void newLine() {
+		source.append('\n');
+	}
+
+	/**
+	 * Starts a block: the given line followed by an increased indentation.
+	 */
+	void open(final String format, final Object... args) {
+		line(format, args);
+		indentation++;
+	}
+
+	/**
+	 * Ends a block: a decreased indentation followed by the given line.
+	 */
+	void close(final String format, final Object... args) {
+		indentation--;
+		line(format, args);
+	}
+
+	/**
+	 * Continues a block, such as an else clause: the given line at the indentation of the line that started the block.
+	 */
+	void reopen(final String format, final Object... args) {
+		indentation--;
+		line(format, args);
+		indentation++;
+	}
+
+	@Override
+	public String toString() {
+		return source.toString();
+	}
+}
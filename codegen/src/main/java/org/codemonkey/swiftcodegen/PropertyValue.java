@@ -0,0 +1,156 @@
+package org.codemonkey.swiftcodegen;
+
+/**
+ * Describes how the value of a single property (or list item) is encoded and decoded, resolved from its type by the
+ * {@link SwiftMessageProcessor}.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+final class PropertyValue {
+
+	private final ValueKind kind;
+
+	/**
+	 * The type as it appears in source code.
+	 */
+	private final String typeName;
+
+	/**
+	 * Whether the value may be <code>null</code>, which is not the case for primitives.
+	 */
+	private final boolean nullable;
+
+	/**
+	 * For {@link ValueKind#SCALAR} values, a format producing the string representation of the value.
+	 */
+	private final String encoding;
+
+	/**
+	 * For {@link ValueKind#SCALAR} values, a format producing the value from its string representation.
+	 */
+	private final String decoding;
+
+	/**
+	 * For {@link ValueKind#NESTED} values of a {@link SwiftMessage} type, the generated codec of that type. <code>null</code> if the
+	 * type encodes and decodes itself.
+	 */
+	private final String codec;
+
+	/**
+	 * For {@link ValueKind#NESTED} values without codec, indicates the type implements <code>StreamingDatagramEncoder</code> rather than
+	 * only <code>DatagramEncoder</code>.
+	 */
+	private final boolean streamingEncoder;
+
+	/**
+	 * For {@link ValueKind#NESTED} values without codec, indicates the type implements <code>StreamingDatagramDecoder</code> rather than
+	 * only <code>DatagramDecoder</code>.
+	 */
+	private final boolean streamingDecoder;
+
+	/**
+	 * For {@link ValueKind#LIST} values, the items in the list.
+	 */
+	private final PropertyValue item;
+
+	private PropertyValue(final ValueKind kind, final String typeName, final boolean nullable, final String encoding,
+			final String decoding, final String codec, final boolean streamingEncoder, final boolean streamingDecoder,
+			final PropertyValue item) {
+		this.kind = kind;
+		this.typeName = typeName;
+		this.nullable = nullable;
+		this.encoding = encoding;
+		this.decoding = decoding;
+		this.codec = codec;
+		this.streamingEncoder = streamingEncoder;
+		this.streamingDecoder = streamingDecoder;
+		this.item = item;
+	}
+
+	static PropertyValue scalar(final String typeName, final boolean nullable, final String encoding, final String decoding) {
+		return new PropertyValue(ValueKind.SCALAR, typeName, nullable, encoding, decoding, null, false, false, null);
+	}
+
+	static PropertyValue nested(final String typeName, final String codec, final boolean streamingEncoder,
+			final boolean streamingDecoder) {
+		return new PropertyValue(ValueKind.NESTED, typeName, true, null, null, codec, streamingEncoder, streamingDecoder, null);
+	}
+
+	static PropertyValue list(final String typeName, final PropertyValue item) {
+		return new PropertyValue(ValueKind.LIST, typeName, true, null, null, null, false, false, item);
+	}
+
+	/**
+	 * Writes the statements that append the value held by the given variable to the datagram named <code>coded</code>.
+	 */
+	void writeEncode(final CodecWriter writer, final String variable) {
+		kind.writeEncode(writer, this, variable);
+	}
+
+	/**
+	 * Writes the statements that read a value from the datagram reader named <code>reader</code>.
+	 * 
+	 * @param variable The base name for local variables.
+	 * @param assignment A format for the statement that receives the decoded value.
+	 */
+	void writeDecode(final CodecWriter writer, final String variable, final String assignment) {
+		kind.writeDecode(writer, this, variable, assignment);
+	}
+
+	/**
+	 * @return {@link #typeName}
+	 */
+	String getTypeName() {
+		return typeName;
+	}
+
+	/**
+	 * @return {@link #nullable}
+	 */
+	boolean isNullable() {
+		return nullable;
+	}
+
+	/**
+	 * @return {@link #encoding}
+	 */
+	String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * @return {@link #decoding}
+	 */
+	String getDecoding() {
+		return decoding;
+	}
+
+	/**
+	 * @return {@link #codec}
+	 */
+	String getCodec() {
+		return codec;
+	}
+
+	/**
+	 * @return {@link #streamingEncoder}
+	 */
+	boolean isStreamingEncoder() {
+		return streamingEncoder;
+	}
+
+	/**
+	 * @return {@link #streamingDecoder}
+	 */
+	boolean isStreamingDecoder() {
+		return streamingDecoder;
+	}
+
+	/**
+	 * @return {@link #item}
+	 */
+	PropertyValue getItem() {
+		return item;
+	}
+}
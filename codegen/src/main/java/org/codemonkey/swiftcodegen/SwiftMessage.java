@@ -0,0 +1,56 @@
+package org.codemonkey.swiftcodegen;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a message or datagram type for which a codec should be generated at compile time by the {@link SwiftMessageProcessor}. The codec
+ * is named after the type with a <code>Codec</code> suffix (nested types are joined with an underscore, so <code>Outer.Inner</code>
+ * becomes <code>Outer_InnerCodec</code>) and is generated in the same package. It encodes every field that has a getter and decodes
+ * every field that has a setter, with straight-line code instead of reflection. The datagram format and field order are the same as
+ * those of <code>EncoderUtil.reflectiveEncode(Object, Class)</code> and
+ * <code>DecoderUtil.reflectiveDecode(Object, StringBuilder, Class)</code>.
+ * <p>
+ * Message types (sub types of <code>ClientMessageToServer</code> or <code>ServerMessageToClient</code>, either server or client side)
+ * need to declare their message id, which is checked for uniqueness per message direction and exposed as the codec's
+ * <code>MESSAGE_ID</code> constant. Other types, such as list items implementing <code>DatagramEncoder</code> and
+ * <code>DatagramDecoder</code>, don't have an id.
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * &#064;SwiftMessage(id = 5)
+ * public class ClientMessageToServerLogin extends ClientMessageToServer&lt;LoginController&gt; {
+ * 	...
+ * 	&#064;Override
+ * 	protected void decode(final String datagramMessage) {
+ * 		ClientMessageToServerLoginCodec.decode(this, datagramMessage);
+ * 	}
+ * }
+ * 
+ * server.registerClientMessageToServerType(ClientMessageToServerLoginCodec.MESSAGE_ID, ClientMessageToServerLogin.class);
+ * </pre>
+ * 
+ * @author Benny Bottema
+ * @see SwiftMessageProcessor
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SwiftMessage {
+
+	/**
+	 * Default for {@link #id()}, indicating the type isn't a message with an id of its own.
+	 */
+	int NO_ID = -1;
+
+	/**
+	 * @return The unique message id of the annotated message type, in the range 0-65535 except for 998 and 999, which are used by the
+	 *         server internally. The text wire protocols only support ids up to 997, the binary wire protocol supports the full range.
+	 */
+	int id() default NO_ID;
+}
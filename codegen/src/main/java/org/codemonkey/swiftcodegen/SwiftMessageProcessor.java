@@ -0,0 +1,463 @@
+package org.codemonkey.swiftcodegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a codec for every type annotated with {@link SwiftMessage}, see the annotation for the generated API. The processor is
+ * registered as a service, so it runs automatically when this module is on the compiler's class path.
+ * <p>
+ * Everything the reflective codecs find out at run time is checked here at compile time instead: property types that can't be
+ * converted, private accessors, and message ids that are missing, out of range or used twice for the same message direction (within one
+ * compilation).
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+@SupportedAnnotationTypes("org.codemonkey.swiftcodegen.SwiftMessage")
+public class SwiftMessageProcessor extends AbstractProcessor {
+
+	/**
+	 * The highest message id that can be laid out on the wire, by the binary protocol. The text protocols only support ids up to 999, which
+	 * the server checks when the message type is registered, since the protocol isn't known at compile time.
+	 */
+	private static final int MAX_MESSAGE_ID = 0xFFFF;
+
+	/**
+	 * The message ids used by the server internally (Bye Bye and Ping Pong).
+	 */
+	private static final Set<Integer> RESERVED_MESSAGE_IDS = new HashSet<Integer>(Arrays.asList(998, 999));
+
+	/**
+	 * Server and client side base types of messages sent by the client, which share a single range of message ids.
+	 */
+	private static final Set<String> CLIENT_TO_SERVER_TYPES = new HashSet<String>(Arrays.asList(
+			"org.codemonkey.swiftsocketserver.ClientMessageToServer", "org.codemonkey.swiftsocketclient.ClientMessageToServer"));
+
+	/**
+	 * Server and client side base types of messages sent by the server, which share a single range of message ids.
+	 */
+	private static final Set<String> SERVER_TO_CLIENT_TYPES = new HashSet<String>(Arrays.asList(
+			"org.codemonkey.swiftsocketserver.ServerMessageToClient", "org.codemonkey.swiftsocketclient.ServerMessageToClient"));
+
+	/**
+	 * Names of the generated methods' parameters, which local variables named after properties must not hide.
+	 */
+	private static final Set<String> PARAMETER_NAMES = new HashSet<String>(Arrays.asList("message", "coded", "encodedString", "reader"));
+
+	/**
+	 * Conversions from a string representation for common types, which are encoded by their {@link String#valueOf(Object)}.
+	 */
+	private static final Map<String, String> COMMON_TYPES = new HashMap<String, String>();
+	static {
+		COMMON_TYPES.put("java.lang.String", "%s");
+		COMMON_TYPES.put("java.lang.Boolean", "Boolean.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Byte", "Byte.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Short", "Short.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Integer", "Integer.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Long", "Long.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Float", "Float.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Double", "Double.valueOf(%s)");
+		COMMON_TYPES.put("java.lang.Character", "Character.valueOf(%s.charAt(0))");
+		COMMON_TYPES.put("java.math.BigInteger", "new java.math.BigInteger(%s)");
+		COMMON_TYPES.put("java.math.BigDecimal", "new java.math.BigDecimal(%s)");
+	}
+
+	/**
+	 * The message types per message id and direction, kept over all rounds to detect duplicate ids.
+	 */
+	private final Map<Set<String>, Map<Integer, String>> messageIds = new HashMap<Set<String>, Map<Integer, String>>();
+
+	/**
+	 * Indicates whether errors were reported for the type currently being processed.
+	 */
+	private boolean invalid;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		for (final Element element : roundEnv.getElementsAnnotatedWith(SwiftMessage.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				error(element, "@%s only applies to classes", SwiftMessage.class.getSimpleName());
+			} else {
+				processType((TypeElement) element);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Validates the annotated type and its properties and generates its codec if everything checks out.
+	 */
+	private void processType(final TypeElement type) {
+		invalid = false;
+		if (type.getModifiers().contains(Modifier.PRIVATE)) {
+			error(type, "generated codecs can't access private type %s", type.getSimpleName());
+		}
+		checkMessageId(type);
+		final List<Property> properties = collectProperties(type);
+		if (!invalid) {
+			try {
+				writeCodec(type, properties);
+			} catch (final IOException e) {
+				error(type, "unable to generate codec for %s: %s", type.getQualifiedName(), e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Checks whether message types declare an id that is in range and unique for the message direction, and whether other types don't.
+	 */
+	private void checkMessageId(final TypeElement type) {
+		final int messageId = type.getAnnotation(SwiftMessage.class).id();
+		final Set<String> direction = determineMessageDirection(type);
+		if (direction == null) {
+			if (messageId != SwiftMessage.NO_ID) {
+				error(type, "%s is not a message type and can't have a message id", type.getSimpleName());
+			}
+		} else if (messageId < 0 || messageId > MAX_MESSAGE_ID) {
+			error(type, "message type %s needs a message id in the range 0-%s", type.getSimpleName(), MAX_MESSAGE_ID);
+		} else if (RESERVED_MESSAGE_IDS.contains(messageId)) {
+			error(type, "message id %s of %s is reserved by the server", messageId, type.getSimpleName());
+		} else {
+			if (!messageIds.containsKey(direction)) {
+				messageIds.put(direction, new HashMap<Integer, String>());
+			}
+			final String existing = messageIds.get(direction).get(messageId);
+			if (existing != null && !existing.equals(type.getQualifiedName().toString())) {
+				error(type, "message id %s of %s is already used by %s", messageId, type.getSimpleName(), existing);
+			} else {
+				messageIds.get(direction).put(messageId, type.getQualifiedName().toString());
+			}
+		}
+	}
+
+	/**
+	 * @return {@link #CLIENT_TO_SERVER_TYPES} or {@link #SERVER_TO_CLIENT_TYPES} depending on the message's super types, or
+	 *         <code>null</code> if the type isn't a message.
+	 */
+	private Set<String> determineMessageDirection(final TypeElement type) {
+		TypeMirror superType = type.getSuperclass();
+		while (superType.getKind() == TypeKind.DECLARED) {
+			final TypeElement superElement = (TypeElement) ((DeclaredType) superType).asElement();
+			final String name = superElement.getQualifiedName().toString();
+			if (CLIENT_TO_SERVER_TYPES.contains(name)) {
+				return CLIENT_TO_SERVER_TYPES;
+			} else if (SERVER_TO_CLIENT_TYPES.contains(name)) {
+				return SERVER_TO_CLIENT_TYPES;
+			}
+			superType = superElement.getSuperclass();
+		}
+		return null;
+	}
+
+	/**
+	 * Collects the fields declared by the type itself that have a getter or setter, in declaration order, like
+	 * <code>FieldUtils.collectFields(..)</code> does for the reflective codecs.
+	 */
+	private List<Property> collectProperties(final TypeElement type) {
+		final List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+		final List<Property> properties = new ArrayList<Property>();
+		for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+				continue;
+			}
+			final String name = field.getSimpleName().toString();
+			final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			final ExecutableElement getter = findAccessor(methods, 0, "get" + capitalized, "is" + capitalized);
+			final ExecutableElement setter = findAccessor(methods, 1, "set" + capitalized);
+			if (getter != null || setter != null) {
+				final PropertyValue value = resolveValue(field, field.asType(), getter != null, setter != null);
+				if (value != null) {
+					properties.add(new Property(name, getter, setter, value));
+				}
+			}
+		}
+		return properties;
+	}
+
+	/**
+	 * @return The first non-static method with one of the given names and number of parameters, or <code>null</code> if there is none.
+	 */
+	private ExecutableElement findAccessor(final List<ExecutableElement> methods, final int parameterCount, final String... names) {
+		for (final ExecutableElement method : methods) {
+			if (!method.getModifiers().contains(Modifier.STATIC) && method.getParameters().size() == parameterCount
+					&& Arrays.asList(names).contains(method.getSimpleName().toString())) {
+				if (method.getModifiers().contains(Modifier.PRIVATE)) {
+					error(method, "generated codecs can't access private accessor %s", method.getSimpleName());
+				}
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Determines how values of the given type are encoded and decoded, reporting an error if they can't be.
+	 *
+	 * @param field The field the value belongs to, used to report errors on.
+	 * @param type The type of the field, or of the items of a list field.
+	 * @param encoding Whether the value needs to be encoded.
+	 * @param decoding Whether the value needs to be decoded.
+	 * @return The resolved value, or <code>null</code> if the type isn't supported.
+	 */
+	private PropertyValue resolveValue(final VariableElement field, final TypeMirror type, final boolean encoding,
+			final boolean decoding) {
+		if (type.getKind().isPrimitive()) {
+			return resolvePrimitiveValue(type);
+		} else if (type.getKind() != TypeKind.DECLARED) {
+			error(field, "unsupported property type %s", type);
+			return null;
+		}
+		final TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+		final String typeName = typeElement.getQualifiedName().toString();
+		final String commonDecoding = COMMON_TYPES.get(typeName);
+		if (commonDecoding != null) {
+			return PropertyValue.scalar(typeName, true, typeName.equals("java.lang.String") ? "%s" : "String.valueOf(%s)", commonDecoding);
+		} else if (isSubtype(type, "org.codemonkey.util.SimpleSerialization")) {
+			final String instance = typeElement.getKind() == ElementKind.ENUM ? typeName + ".values()[0]" : "new " + typeName + "()";
+			return PropertyValue.scalar(typeName, true, "%s.serialize()", "(" + typeName + ") " + instance + ".deserialize(%s)");
+		} else if (typeElement.getAnnotation(SwiftMessage.class) != null) {
+			return PropertyValue.nested(typeName, determineCodecName(typeElement), false, false);
+		} else if (isSubtype(type, "org.codemonkey.util.DatagramEncoder") || isSubtype(type, "org.codemonkey.util.DatagramDecoder")
+				|| isSubtype(type, "org.codemonkey.util.StreamingDatagramEncoder")
+				|| isSubtype(type, "org.codemonkey.util.StreamingDatagramDecoder")) {
+			final boolean streamingEncoder = isSubtype(type, "org.codemonkey.util.StreamingDatagramEncoder");
+			final boolean streamingDecoder = isSubtype(type, "org.codemonkey.util.StreamingDatagramDecoder");
+			if (encoding && !streamingEncoder && !isSubtype(type, "org.codemonkey.util.DatagramEncoder")) {
+				error(field, "property type %s needs to implement (Streaming)DatagramEncoder to be encoded", typeElement.getSimpleName());
+			} else if (decoding && !streamingDecoder && !isSubtype(type, "org.codemonkey.util.DatagramDecoder")) {
+				error(field, "property type %s needs to implement (Streaming)DatagramDecoder to be decoded", typeElement.getSimpleName());
+			}
+			return PropertyValue.nested(typeName, null, streamingEncoder, streamingDecoder);
+		} else if (isSubtype(type, "java.util.Collection")) {
+			return resolveListValue(field, (DeclaredType) type, encoding, decoding);
+		} else if (typeElement.getKind() == ElementKind.ENUM) {
+			return PropertyValue.scalar(typeName, true, "String.valueOf(%s)", typeName + ".valueOf(%s)");
+		}
+		final String msg = "unsupported property type %s, use a common type, an enum or a SimpleSerialization, DatagramEncoder / "
+				+ "DatagramDecoder or @%s type instead";
+		error(field, msg, typeElement.getSimpleName(), SwiftMessage.class.getSimpleName());
+		return null;
+	}
+
+	private PropertyValue resolvePrimitiveValue(final TypeMirror type) {
+		final String decoding;
+		switch (type.getKind()) {
+		case BOOLEAN:
+			decoding = "Boolean.parseBoolean(%s)";
+			break;
+		case BYTE:
+			decoding = "Byte.parseByte(%s)";
+			break;
+		case SHORT:
+			decoding = "Short.parseShort(%s)";
+			break;
+		case INT:
+			decoding = "Integer.parseInt(%s)";
+			break;
+		case LONG:
+			decoding = "Long.parseLong(%s)";
+			break;
+		case FLOAT:
+			decoding = "Float.parseFloat(%s)";
+			break;
+		case DOUBLE:
+			decoding = "Double.parseDouble(%s)";
+			break;
+		default:
+			decoding = "%s.charAt(0)";
+		}
+		return PropertyValue.scalar(type.toString(), false, "String.valueOf(%s)", decoding);
+	}
+
+	/**
+	 * Resolves a collection property, which is decoded as an {@link ArrayList} like <code>DecoderUtil.genericDecodeList(..)</code> does.
+	 */
+	private PropertyValue resolveListValue(final VariableElement field, final DeclaredType type, final boolean encoding,
+			final boolean decoding) {
+		if (type.getTypeArguments().size() != 1 || type.getTypeArguments().get(0).getKind() != TypeKind.DECLARED) {
+			error(field, "list property %s needs a single concrete item type", field.getSimpleName());
+			return null;
+		}
+		final TypeMirror itemType = type.getTypeArguments().get(0);
+		final TypeMirror arrayListType = processingEnv.getTypeUtils().getDeclaredType(
+				processingEnv.getElementUtils().getTypeElement("java.util.ArrayList"), itemType);
+		if (decoding && !processingEnv.getTypeUtils().isAssignable(arrayListType, type)) {
+			error(field, "list property %s needs to be assignable from an ArrayList to be decoded", field.getSimpleName());
+			return null;
+		}
+		final PropertyValue item = resolveValue(field, itemType, encoding, decoding);
+		return item != null ? PropertyValue.list(type.toString(), item) : null;
+	}
+
+	/**
+	 * @return Whether the type is a sub type of the given type, which doesn't need to be on the class path.
+	 */
+	private boolean isSubtype(final TypeMirror type, final String qualifiedSuperTypeName) {
+		final TypeElement superType = processingEnv.getElementUtils().getTypeElement(qualifiedSuperTypeName);
+		final Types types = processingEnv.getTypeUtils();
+		return superType != null && types.isSubtype(types.erasure(type), types.erasure(superType.asType()));
+	}
+
+	/**
+	 * @return The qualified name of the codec generated for the given type.
+	 */
+	private String determineCodecName(final TypeElement type) {
+		final String packageName = getPackage(type).getQualifiedName().toString();
+		final String simpleName = determineCodecSimpleName(type);
+		return packageName.length() > 0 ? packageName + "." + simpleName : simpleName;
+	}
+
+	/**
+	 * @return The simple name of the codec generated for the given type, joining the names of enclosing types with an underscore.
+	 */
+	private static String determineCodecSimpleName(final TypeElement type) {
+		String name = type.getSimpleName().toString();
+		Element enclosing = type.getEnclosingElement();
+		while (enclosing.getKind() != ElementKind.PACKAGE) {
+			name = enclosing.getSimpleName() + "_" + name;
+			enclosing = enclosing.getEnclosingElement();
+		}
+		return name + "Codec";
+	}
+
+	private PackageElement getPackage(final TypeElement type) {
+		return processingEnv.getElementUtils().getPackageOf(type);
+	}
+
+	/**
+	 * Generates the codec source file for the given type, see {@link SwiftMessage}.
+	 */
+	private void writeCodec(final TypeElement type, final List<Property> properties)
+			throws IOException {
+		final String packageName = getPackage(type).getQualifiedName().toString();
+		final String codecName = determineCodecSimpleName(type);
+		final String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+		final int messageId = type.getAnnotation(SwiftMessage.class).id();
+
+		final CodecWriter writer = new CodecWriter();
+		if (packageName.length() > 0) {
+			writer.line("package %s;", packageName);
+			writer.newLine();
+		}
+		writer.line("import org.codemonkey.util.DatagramReader;");
+		writer.line("import org.codemonkey.util.EncoderUtil;");
+		writer.newLine();
+		writer.line("/**");
+		writer.line(" * Encodes and decodes {@link %s} in the same datagram format as the reflective {@link EncoderUtil} and", typeName);
+		writer.line(" * {@link org.codemonkey.util.DecoderUtil} methods, without reflection. Generated by %s, do not edit.",
+				getClass().getName());
+		writer.line(" */");
+		writer.open("public final class %s {", codecName);
+		if (messageId != SwiftMessage.NO_ID) {
+			writer.newLine();
+			writer.line("public static final int MESSAGE_ID = %s;", messageId);
+		}
+		writer.newLine();
+		writer.open("private %s() {", codecName);
+		writer.close("}");
+
+		writer.newLine();
+		writer.open("public static String encode(final %s message) {", typeName);
+		writer.line("final StringBuilder coded = new StringBuilder();");
+		writer.line("encode(message, coded);");
+		writer.line("return coded.toString();");
+		writer.close("}");
+		writer.newLine();
+		writer.open("public static void encode(final %s message, final StringBuilder coded) {", typeName);
+		for (final Property property : properties) {
+			if (property.getter != null) {
+				final PropertyValue value = property.value;
+				writer.line("final %s %s = message.%s();", value.getTypeName(), property.variable, property.getter.getSimpleName());
+				value.writeEncode(writer, property.variable);
+			}
+		}
+		writer.close("}");
+
+		writer.newLine();
+		writer.open("public static void decode(final %s message, final String encodedString) {", typeName);
+		writer.line("decode(message, new DatagramReader(encodedString));");
+		writer.close("}");
+		writer.newLine();
+		writer.open("public static void decode(final %s message, final StringBuilder encodedString) {", typeName);
+		writer.line("final DatagramReader reader = new DatagramReader(encodedString);");
+		writer.line("decode(message, reader);");
+		writer.line("reader.discardRead();");
+		writer.close("}");
+		writer.newLine();
+		writer.open("public static void decode(final %s message, final DatagramReader reader) {", typeName);
+		for (final Property property : properties) {
+			if (property.setter != null) {
+				property.value.writeDecode(writer, property.variable, "message." + property.setter.getSimpleName() + "(%s);");
+			}
+		}
+		writer.close("}");
+		writer.close("}");
+
+		final Writer sourceWriter = processingEnv.getFiler().createSourceFile(determineCodecName(type), type).openWriter();
+		try {
+			sourceWriter.write(writer.toString());
+		} finally {
+			sourceWriter.close();
+		}
+	}
+
+	private void error(final Element element, final String format, final Object... args) {
+		invalid = true;
+		processingEnv.getMessager().printMessage(Kind.ERROR, String.format(format, args), element);
+	}
+
+	/**
+	 * A field with its accessors and the way its value is encoded and decoded.
+	 */
+	private static final class Property {
+
+		/**
+		 * The name of the local variables holding the property's value in generated code.
+		 */
+		private final String variable;
+
+		private final ExecutableElement getter;
+
+		private final ExecutableElement setter;
+
+		private final PropertyValue value;
+
+		Property(final String name, final ExecutableElement getter, final ExecutableElement setter, final PropertyValue value) {
+			this.variable = PARAMETER_NAMES.contains(name) ? name + "$" : name;
+			this.getter = getter;
+			this.setter = setter;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.codemonkey.swiftcodegen;
+
+/**
+ * The ways a property value can be represented in a datagram, each of which knows how to generate its encoding and decoding statements.
+ * The generated statements produce the same datagram as <code>EncoderUtil.encode(Object...)</code>.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+enum ValueKind {
+	/**
+	 * A value with a string representation, preceded by its length: common types (strings, primitives and their wrappers, big numbers),
+	 * enums and <code>SimpleSerialization</code> types.
+	 */
+	SCALAR {
+		/**
+		 * @see ValueKind#SCALAR
+		 */
+		@Override
+		void writeEncode(final CodecWriter writer, final PropertyValue value, final String variable) {
+			final String encoded = String.format(value.getEncoding(), variable);
+			if (!value.isNullable() || encoded.equals(variable)) {
+				writer.line("EncoderUtil.encodeString(%s, coded);", encoded);
+			} else {
+				writer.line("EncoderUtil.encodeString(%s == null ? null : %s, coded);", variable, encoded);
+			}
+		}
+
+		/**
+		 * @see ValueKind#SCALAR
+		 */
+		@Override
+		void writeDecode(final CodecWriter writer, final PropertyValue value, final String variable, final String assignment) {
+			final String stringValue = variable + "$value";
+			writer.line("final String %s = reader.nextValue();", stringValue);
+			final String decoded = String.format(value.getDecoding(), stringValue);
+			if (!value.isNullable() || decoded.equals(stringValue)) {
+				writer.line(assignment, decoded);
+			} else {
+				writer.line(assignment, String.format("%s == null ? null : %s", stringValue, decoded));
+			}
+		}
+	},
+	/**
+	 * A value which encodes and decodes itself (<code>(Streaming)DatagramEncoder</code> and
+	 * <code>(Streaming)DatagramDecoder</code>) or has a generated codec of its own, without length. Like list items, such values can't be
+	 * decoded as <code>null</code>.
+	 */
+	NESTED {
+		/**
+		 * @see ValueKind#NESTED
+		 */
+		@Override
+		void writeEncode(final CodecWriter writer, final PropertyValue value, final String variable) {
+			writer.open("if (%s == null) {", variable);
+			writer.line("coded.append(EncoderUtil.ENCODED_NULL);");
+			writer.reopen("} else {");
+			if (value.getCodec() != null) {
+				writer.line("%s.encode(%s, coded);", value.getCodec(), variable);
+			} else if (value.isStreamingEncoder()) {
+				writer.line("%s.encodeTo(coded);", variable);
+			} else {
+				writer.line("coded.append(%s.encode());", variable);
+			}
+			writer.close("}");
+		}
+
+		/**
+		 * @see ValueKind#NESTED
+		 */
+		@Override
+		void writeDecode(final CodecWriter writer, final PropertyValue value, final String variable, final String assignment) {
+			writer.line("final %s %s = new %s();", value.getTypeName(), variable, value.getTypeName());
+			if (value.getCodec() != null) {
+				writer.line("%s.decode(%s, reader);", value.getCodec(), variable);
+			} else if (value.isStreamingDecoder()) {
+				writer.line("%s.decode(reader);", variable);
+			} else {
+				writer.line("reader.decode(%s);", variable);
+			}
+			writer.line(assignment, variable);
+		}
+	},
+	/**
+	 * A list of values, preceded by the number of items.
+	 */
+	LIST {
+		/**
+		 * @see ValueKind#LIST
+		 */
+		@Override
+		void writeEncode(final CodecWriter writer, final PropertyValue value, final String variable) {
+			final PropertyValue item = value.getItem();
+			final String itemVariable = variable + "$item";
+			writer.open("if (%s == null) {", variable);
+			writer.line("coded.append(EncoderUtil.ENCODED_NULL);");
+			writer.reopen("} else {");
+			writer.line("coded.append(%s.size()).append(EncoderUtil.VALUE_SEPERATOR);", variable);
+			writer.open("for (final %s %s : %s) {", item.getTypeName(), itemVariable, variable);
+			item.writeEncode(writer, itemVariable);
+			writer.close("}");
+			writer.close("}");
+		}
+
+		/**
+		 * @see ValueKind#LIST
+		 */
+		@Override
+		void writeDecode(final CodecWriter writer, final PropertyValue value, final String variable, final String assignment) {
+			final PropertyValue item = value.getItem();
+			final String count = variable + "$count";
+			final String index = variable + "$index";
+			writer.line("final int %s = reader.nextListCount();", count);
+			writer.line("final %s %s = %s < 0 ? null : new java.util.ArrayList<%s>(%s);", value.getTypeName(), variable, count,
+					item.getTypeName(), count);
+			writer.open("for (int %s = 0; %s < %s; %s++) {", index, index, count, index);
+			item.writeDecode(writer, variable + "$item", variable + ".add(%s);");
+			writer.close("}");
+			writer.line(assignment, variable);
+		}
+	};
+
+	/**
+	 * Writes the statements that append the value held by the given variable to the datagram named <code>coded</code>.
+	 * 
+	 * @param writer The codec source being generated.
+	 * @param value The value's type information.
+	 * @param variable The name of the local variable holding the value.
+	 */
+	abstract void writeEncode(CodecWriter writer, PropertyValue value, String variable);
+
+	/**
+	 * Writes the statements that read a value from the datagram reader named <code>reader</code>.
+	 * 
+	 * @param writer The codec source being generated.
+	 * @param value The value's type information.
+	 * @param variable The base name for local variables.
+	 * @param assignment A format for the statement that receives the decoded value.
+	 */
+	abstract void writeDecode(CodecWriter writer, PropertyValue value, String variable, String assignment);
+}
@@ -0,0 +1,85 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread safe pool of direct {@link ByteBuffer} instances of a fixed size. Direct buffers are expensive to allocate and are only released
+ * by the garbage collector, so transports that need a buffer per read or write acquire one here and release it when done.
+ * <p>
+ * When the pool is empty, a new buffer is allocated. When a buffer is released while the pool already holds its maximum number of buffers,
+ * it is left to the garbage collector.
+ * 
+ * @author Benny Bottema
+ * @see ServerEndpointUDPNIO
+ * @since 1.0
+ */
+final class ByteBufferPool {
+
+	/**
+	 * The capacity of every buffer handed out by this pool.
+	 */
+	private final int bufferSize;
+
+	/**
+	 * The maximum number of idle buffers kept in {@link #pooledBuffers}.
+	 */
+	private final int maxPooledBuffers;
+
+	private final Queue<ByteBuffer> pooledBuffers;
+
+	/**
+	 * The number of buffers in {@link #pooledBuffers}, kept separately since {@link ConcurrentLinkedQueue#size()} is not a constant time
+	 * operation.
+	 */
+	private final AtomicInteger pooledBufferCount;
+
+	/**
+	 * Creates an empty pool. Buffers are allocated on demand.
+	 *
+	 * @param bufferSize The capacity of every buffer handed out by this pool.
+	 * @param maxPooledBuffers The maximum number of idle buffers kept for reuse.
+	 */
+	ByteBufferPool(final int bufferSize, final int maxPooledBuffers) {
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+		pooledBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+		pooledBufferCount = new AtomicInteger();
+	}
+
+	/**
+	 * @return A cleared buffer of {@link #bufferSize} bytes, either reused or newly allocated.
+	 */
+	ByteBuffer acquire() {
+		final ByteBuffer buffer = pooledBuffers.poll();
+		if (buffer != null) {
+			pooledBufferCount.decrementAndGet();
+			buffer.clear();
+			return buffer;
+		} else {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+	}
+
+	/**
+	 * Returns a buffer to the pool. The buffer should not be used by the caller afterwards.
+	 *
+	 * @param buffer A buffer previously returned by {@link #acquire()}.
+	 */
+	void release(final ByteBuffer buffer) {
+		if (pooledBufferCount.incrementAndGet() <= maxPooledBuffers) {
+			pooledBuffers.offer(buffer);
+		} else {
+			pooledBufferCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return {@link #bufferSize}
+	 */
+	int getBufferSize() {
+		return bufferSize;
+	}
+}
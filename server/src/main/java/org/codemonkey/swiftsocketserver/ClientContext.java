@@ -4,6 +4,8 @@ import java.net.InetAddress;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Whenever a client is connected or sending a message to the server, there will be a <code>ClientContext</code> associated with it.
@@ -41,7 +43,7 @@ public class ClientContext {
 	 * Flag that indicates whether the client has sent a 'Bye Bye' notification to gracefully close the connection, or when the connection
 	 * was lost somehow.
 	 */
-	private boolean clientSaidByeBye;
+	private volatile boolean clientSaidByeBye;
 
 	/**
 	 * Time stamp of the last ping message to the client.
@@ -49,7 +51,7 @@ public class ClientContext {
 	 * @see #pongReceived
 	 * @see #isPongReceived()
 	 */
-	private long pingtime;
+	private volatile long pingtime;
 
 	/**
 	 * Flag that indicates whether the client has sent a 'pong' notification.
@@ -57,7 +59,7 @@ public class ClientContext {
 	 * @see #pingtime
 	 * @see #isPongReceived()
 	 */
-	private boolean pongReceived;
+	private volatile boolean pongReceived;
 
 	/**
 	 * A session scoped data container for external use only. Users can access this container to store temporary data concerning the current
@@ -65,6 +67,20 @@ public class ClientContext {
 	 */
 	private final Map<Object, Object> sessionData = new HashMap<Object, Object>();
 
+	/**
+	 * The number of messages of this client dropped without being executed.
+	 * 
+	 * @see SwiftSocketServer#dropClientMessage(ClientMessageToServer)
+	 */
+	private final AtomicLong droppedMessageCount = new AtomicLong();
+
+	/**
+	 * The number of messages of this client waiting in the server's message queue. Only counted when the server limits this number.
+	 * 
+	 * @see SwiftSocketServer#setClientMessageLimit(int, MessageOverflowPolicy)
+	 */
+	private final AtomicInteger queuedMessageCount = new AtomicInteger();
+
 	/**
 	 * Stores the given client endpoint and saves its {@link InetAddress} for later use (in case the endpoint is being closed and we lose
 	 * the ability the query for the {@link InetAddress}).
@@ -102,6 +118,45 @@ public class ClientContext {
 		return clientInetAddress;
 	}
 
+	/**
+	 * Thread safe method that returns the number of messages queued for this client that have not been written yet. A steadily growing
+	 * depth indicates the client doesn't keep up with the messages sent to it (see {@link SlowConsumerPolicy}).
+	 * 
+	 * @return The depth of the client's outbound queue, or 0 for server types that send messages right away (UDP).
+	 */
+	public int getOutboundQueueDepth() {
+		return clientEndpoint.getOutboundQueueDepth();
+	}
+
+	/**
+	 * Thread safe method that returns the number of messages of this client that were dropped without being executed, for example because
+	 * the client exceeded its message budget (see {@link FairMessageQueue}).
+	 * 
+	 * @return {@link #droppedMessageCount}
+	 */
+	public long getDroppedMessageCount() {
+		return droppedMessageCount.get();
+	}
+
+	final void messageDropped() {
+		droppedMessageCount.incrementAndGet();
+	}
+
+	/**
+	 * @return {@link #queuedMessageCount}
+	 */
+	final int getQueuedMessageCount() {
+		return queuedMessageCount.get();
+	}
+
+	final void messageQueued() {
+		queuedMessageCount.incrementAndGet();
+	}
+
+	final void messageDequeued() {
+		queuedMessageCount.decrementAndGet();
+	}
+
 	/**
 	 * @return {@link #sessionData}
 	 */
@@ -4,15 +4,30 @@ import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
+import org.codemonkey.util.FrameReader;
 
 /**
  * Abstraction of the client socket. Acts as a wrapper for {@link Socket} and {@link DatagramSocket} to provide uniform behavior. <br />
@@ -37,12 +52,38 @@ interface ClientEndpoint {
 	void send(String message)
 			throws IOException;
 
+	/**
+	 * Sends an encoded message. The frame may be shared with other client endpoints and is never modified.
+	 * 
+	 * @param frame The encoded message to send.
+	 * @return Whether the frame was accepted, <code>false</code> if the client's outbound queue is full and the client should be dropped as
+	 *         per the configured {@link SlowConsumerPolicy}.
+	 * @throws IOException Thrown when writing to the underlying socket or channel fails.
+	 */
+	boolean sendFrame(Frame frame)
+			throws IOException;
+
+	/**
+	 * @return The number of messages queued for this client that have not been written yet, or 0 if messages are sent right away.
+	 */
+	int getOutboundQueueDepth();
+
 	String readLine()
 			throws IOException;
 
 	void read()
 			throws IOException;
 
+	/**
+	 * Returns the reader from which frames of a framed {@link WireProtocol} are read, created on first use.
+	 * 
+	 * @param maxFrameSize The largest frame length in bytes that is accepted.
+	 * @return A reader on the client's input, which should be the only reader used.
+	 * @throws IOException Thrown when the client's input could not be obtained.
+	 */
+	FrameReader getFrameReader(int maxFrameSize)
+			throws IOException;
+
 	/**
 	 * @return Whether the endpoint connection has been explicitly closed.
 	 */
@@ -52,12 +93,22 @@ interface ClientEndpoint {
 /**
  * Simply delegates all calls to the {@link Socket}. This is because the {@link ClientEndpointUDP} is modeled after the TCP version:
  * {@link ClientEndpointTCP} is a decorator for a TCP Socket, so that both the both the TCP and UDP endpoints implement the same interface.
+ * <p>
+ * Output is the exception: messages are queued in a bounded {@link OutboundQueue} and written by a dedicated {@link OutputHandler} thread,
+ * so that a slow client doesn't hold up the thread sending the messages.
  * 
  * @author Benny Bottema
  * @since 1.0
  */
 class ClientEndpointTCP implements ClientEndpoint {
 
+	private static final Logger LOGGER = Logger.getLogger(ClientEndpoint.class);
+
+	/**
+	 * Size of the buffer in which queued messages are gathered before writing them to the socket.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 8192;
+
 	private final Socket socket;
 
 	/**
@@ -68,25 +119,51 @@ class ClientEndpointTCP implements ClientEndpoint {
 	private final BufferedReader reader;
 
 	/**
-	 * Creates a {@link BufferedReader} for the socket's input stream.
+	 * Reads frames from the client's input stream, created when the first frame is read. Only one of {@link #reader} and this reader is
+	 * used, depending on the {@link WireProtocol}.
+	 */
+	private FrameReader frameReader;
+
+	/**
+	 * Messages waiting to be written to the client by the {@link OutputHandler}.
+	 */
+	private final OutboundQueue outbound;
+
+	/**
+	 * Creates a {@link BufferedReader} for the socket's input stream and an {@link OutboundQueue} for its output stream.
 	 * 
 	 * @param socket The open socket on which to listen for TCP messages.
+	 * @param outboundQueueCapacity The maximum number of messages queued for the client.
+	 * @param slowConsumerPolicy Determines what happens when the outbound queue is full.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
 	 * @throws IOException Thrown by {@link Socket#getInputStream()}.
 	 */
-	public ClientEndpointTCP(final Socket socket)
+	public ClientEndpointTCP(final Socket socket, final int outboundQueueCapacity, final SlowConsumerPolicy slowConsumerPolicy,
+			final int blockTimeoutMs)
 			throws IOException {
 		this.socket = socket;
 		reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		outbound = new OutboundQueue(outboundQueueCapacity, slowConsumerPolicy, blockTimeoutMs);
 	}
 
 	/**
-	 * Calls {@link Socket#close()}.
+	 * Starts the thread that writes queued messages to the client, of the same kind as the client handler's thread.
+	 * 
+	 * @param clientHandler The handler of this client, which drops the client when writing fails.
+	 */
+	void startOutputHandler(final ClientHandler clientHandler) {
+		clientHandler.getThreadMode().newThread(new OutputHandler(clientHandler)).start();
+	}
+
+	/**
+	 * Discards queued output, which stops the {@link OutputHandler}, and calls {@link Socket#close()}.
 	 * 
 	 * @throws IOException Thrown by {@link Socket#close()}.
 	 */
 	@Override
 	public void close()
 			throws IOException {
+		outbound.close();
 		socket.close();
 	}
 
@@ -107,25 +184,40 @@ class ClientEndpointTCP implements ClientEndpoint {
 	}
 
 	/**
-	 * Writes message to {@link Socket#getOutputStream()} using a {@link PrintWriter}.
+	 * Queues the message for writing by the {@link OutputHandler}. Returns immediately, unless the queue is full and the configured
+	 * {@link SlowConsumerPolicy} waits for room.
 	 * 
 	 * @param message The message to send to the client.
-	 * @throws IOException Thrown by {@link Socket#getOutputStream()}.
+	 * @throws IOException Thrown when the message was refused because the outbound queue is full.
 	 */
 	@Override
 	public void send(final String message)
 			throws IOException {
-		try {
-			final PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-			out.write(message);
-			out.flush();
-		} catch (final IOException e) {
-			final Logger LOGGER = Logger.getLogger(ClientEndpoint.class);
-			LOGGER.error("outputstream could not be obtained (tried to use dropped connection perhaps?)");
-			throw e;
+		if (!outbound.offer(ByteBuffer.wrap(message.getBytes()), true)) {
+			throw new IOException("outbound queue full");
 		}
 	}
 
+	/**
+	 * Queues a read-only view on the frame for writing by the {@link OutputHandler}. Returns immediately, unless the queue is full and the
+	 * configured {@link SlowConsumerPolicy} waits for room.
+	 * 
+	 * @param frame The encoded message to send to the client.
+	 * @return Whether the frame was accepted by the {@link #outbound} queue.
+	 */
+	@Override
+	public boolean sendFrame(final Frame frame) {
+		return outbound.offer(frame.asReadOnlyBuffer(), true);
+	}
+
+	/**
+	 * @return {@link OutboundQueue#size()}
+	 */
+	@Override
+	public int getOutboundQueueDepth() {
+		return outbound.size();
+	}
+
 	/**
 	 * @return Data received from the socket, by calling <code>{@link #reader}.readLine()</code>.
 	 * @throws IOException Thrown by {@link BufferedReader#readLine()}.
@@ -146,6 +238,70 @@ class ClientEndpointTCP implements ClientEndpoint {
 			throws IOException {
 		reader.read();
 	}
+
+	/**
+	 * @return {@link #frameReader}, reading from {@link Socket#getInputStream()}.
+	 * @throws IOException Thrown by {@link Socket#getInputStream()}.
+	 */
+	@Override
+	public FrameReader getFrameReader(final int maxFrameSize)
+			throws IOException {
+		if (frameReader == null) {
+			frameReader = new FrameReader(socket.getInputStream(), maxFrameSize);
+		}
+		return frameReader;
+	}
+
+	/**
+	 * Writes queued messages to {@link Socket#getOutputStream()} until the client endpoint is closed, so that a slow client only holds up
+	 * this thread instead of the thread sending the messages. All messages queued at the time are gathered in one buffer and written and
+	 * flushed at once.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private class OutputHandler implements Runnable {
+
+		private final ClientHandler clientHandler;
+
+		public OutputHandler(final ClientHandler clientHandler) {
+			this.clientHandler = clientHandler;
+		}
+
+		@Override
+		public void run() {
+			final ByteBuffer[] batch = new ByteBuffer[OutboundQueue.MAX_BATCH_SIZE];
+			final byte[] writeBuffer = new byte[WRITE_BUFFER_SIZE];
+			try {
+				final OutputStream out = socket.getOutputStream();
+				int batchSize;
+				while ((batchSize = outbound.take(batch)) > 0) {
+					int length = 0;
+					for (int i = 0; i < batchSize; i++) {
+						final ByteBuffer message = batch[i];
+						batch[i] = null;
+						while (message.hasRemaining()) {
+							if (length == writeBuffer.length) {
+								out.write(writeBuffer, 0, length);
+								length = 0;
+							}
+							final int chunk = Math.min(message.remaining(), writeBuffer.length - length);
+							message.get(writeBuffer, length, chunk);
+							length += chunk;
+						}
+					}
+					out.write(writeBuffer, 0, length);
+					out.flush();
+				}
+			} catch (final InterruptedException e) {
+				LOGGER.debug(String.format("output handler for client %s interrupted", socket.getInetAddress()));
+			} catch (final IOException e) {
+				if (!isClosed()) {
+					clientHandler.dropClient(String.format("socket in error state [%s]", e.getMessage()));
+				}
+			}
+		}
+	}
 }
 
 /**
@@ -176,7 +332,12 @@ class ClientEndpointUDP implements ClientEndpoint {
 
 	private final ServerEndpointUDP serverEndpointUDP;
 	private final DatagramSocket datagramSocket;
-	private final LinkedList<DatagramPacket> queue;
+	private final Queue<DatagramPacket> queue;
+
+	/**
+	 * Signaled when a datagram packet is added to the {@link #queue} or this endpoint is closed.
+	 */
+	private final WaitSignal queueSignal;
 	private final InetAddress clientInetAddress;
 	private final SocketAddress clientSocketAddress;
 
@@ -186,15 +347,17 @@ class ClientEndpointUDP implements ClientEndpoint {
 	 * @param serverEndpointUDP The server endpoint from which we can remove clients if necessary.
 	 * @param datagramSocket The {@link DatagramSocket} to send messages to the client with.
 	 * @param datagramPacket The initial {@link DatagramPacket} received from the client that should be a handshake request.
+	 * @param waitStrategy Determines how {@link #readLine()} waits for new datagram packets.
 	 * @see #verifyHandshake(DatagramPacket)
 	 */
 	public ClientEndpointUDP(final ServerEndpointUDP serverEndpointUDP, final DatagramSocket datagramSocket,
-			final DatagramPacket datagramPacket) {
+			final DatagramPacket datagramPacket, final WaitStrategy waitStrategy) {
 		this.serverEndpointUDP = serverEndpointUDP;
 		this.datagramSocket = datagramSocket;
 		clientInetAddress = datagramPacket.getAddress();
 		clientSocketAddress = datagramPacket.getSocketAddress();
-		queue = new LinkedList<DatagramPacket>();
+		queue = new ConcurrentLinkedQueue<DatagramPacket>();
+		queueSignal = new WaitSignal(waitStrategy);
 		verifyHandshake(datagramPacket);
 	}
 
@@ -222,19 +385,20 @@ class ClientEndpointUDP implements ClientEndpoint {
 	}
 
 	/**
-	 * Removes this client endpoint from the server endpoint's list of known clients.
+	 * Removes this client endpoint from the server endpoint's list of known clients and wakes up a thread waiting in {@link #readLine()}.
 	 */
 	@Override
 	public void close() {
 		serverEndpointUDP.removeClient(clientSocketAddress);
+		queueSignal.signal();
 	}
 
 	/**
-	 * @return {@link Socket#isClosed()}.
+	 * @return Whether this client endpoint is no longer known by the server endpoint.
 	 */
 	@Override
 	public boolean isClosed() {
-		return serverEndpointUDP.hasClient(clientSocketAddress);
+		return !serverEndpointUDP.hasClient(clientSocketAddress);
 	}
 
 	/**
@@ -262,6 +426,28 @@ class ClientEndpointUDP implements ClientEndpoint {
 		datagramSocket.send(packet);
 	}
 
+	/**
+	 * Sends the frame's bytes in the form of a {@link DatagramPacket}, using {@link DatagramSocket#send(DatagramPacket)}.
+	 * 
+	 * @param frame The encoded message to send to the client.
+	 * @return Always <code>true</code>, since datagrams are not queued.
+	 * @throws IOException Thrown by {@link DatagramSocket#send(DatagramPacket)}.
+	 */
+	@Override
+	public boolean sendFrame(final Frame frame)
+			throws IOException {
+		datagramSocket.send(frame.createDatagramPacket(clientSocketAddress));
+		return true;
+	}
+
+	/**
+	 * @return Always 0, since datagrams are sent right away.
+	 */
+	@Override
+	public int getOutboundQueueDepth() {
+		return 0;
+	}
+
 	/**
 	 * Adds a datagram packet to the {@link #queue} to be processed, which is done by calling {@link #readLine()}. This is so that it mimics
 	 * how TCP messages are read, molded into a uniform abstraction ({@link ClientEndpoint}).
@@ -273,30 +459,39 @@ class ClientEndpointUDP implements ClientEndpoint {
 	 *            messages are retrieved by the server.
 	 */
 	public void handleDatagramPacket(final DatagramPacket datagramPacket) {
-		queue.add(datagramPacket);
+		queue.offer(datagramPacket);
+		queueSignal.signal();
+	}
+
+	/**
+	 * Wakes up a thread waiting in {@link #readLine()}, so it can find out the socket has been closed.
+	 */
+	void signal() {
+		queueSignal.signal();
 	}
 
 	/**
 	 * Returns a String line from the next {@link DatagramPacket} in the {@link #queue}. This is done by using a {@link BufferedReader} to
-	 * read {@link DatagramPacket#getData()}. If there are no datagram packets to convert to a string line, this method blocks until a
-	 * datagram packet is received or the socket has been closed.
+	 * read {@link DatagramPacket#getData()}. If there are no datagram packets to convert to a string line, this method waits as per the
+	 * configured {@link WaitStrategy} until a datagram packet is received, this endpoint is closed or the socket has been closed.
 	 * 
 	 * @return A complete datagram packet value read using {@link BufferedReader#readLine()} so that it detects the newline and zero/NULL
-	 *         character.
+	 *         character, or <code>null</code> if the endpoint or socket was closed.
 	 * @throws IOException Thrown by {@link BufferedReader#readLine()}.
 	 */
 	@Override
 	public String readLine()
 			throws IOException {
-		while (!datagramSocket.isClosed()) {
-			if (queue.size() > 0) {
-				final DatagramPacket datagram = queue.removeFirst();
-				final BufferedReader bufferedReader = new BufferedReader(
-						new InputStreamReader(new ByteArrayInputStream(datagram.getData())));
-				return bufferedReader.readLine();
-			} else {
-				ServerUtil.defaultSleep();
+		queueSignal.await(new WaitCondition() {
+			@Override
+			public boolean isSatisfied() {
+				return !queue.isEmpty() || datagramSocket.isClosed() || isClosed();
 			}
+		});
+		final DatagramPacket datagram = queue.poll();
+		if (datagram != null) {
+			final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(datagram.getData())));
+			return bufferedReader.readLine();
 		}
 		// socket.close() will be called when the SwiftSocketServer is stopping,
 		// returning null won't cause NullPointerException in that case
@@ -311,4 +506,647 @@ class ClientEndpointUDP implements ClientEndpoint {
 	public void read() {
 		//
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Not supported, UDP clients only communicate with {@link WireProtocol#TEXT}, which is not framed.
+	 */
+	@Override
+	public FrameReader getFrameReader(final int maxFrameSize) {
+		throw new UnsupportedOperationException("UDP client endpoints only support the text wire protocol");
+	}
+}
+
+/**
+ * Client endpoint for a non-blocking {@link SocketChannel} served by a {@link Reactor}. Contrary to the other endpoints, input is not pulled
+ * by a thread calling {@link #readLine()}, but pushed by the reactor: received bytes are framed incrementally by {@link #receive(ByteBuffer)}
+ * and every complete line is handed to the {@link ClientHandler} directly.
+ * <p>
+ * Sending does not block the caller: messages are queued in a bounded {@link OutboundQueue} and written by the reactor once the channel is
+ * writable, using gathering writes so that all queued messages are written with as few system calls as possible. Only when the queue is
+ * full the configured {@link SlowConsumerPolicy} may let the caller wait.
+ * 
+ * @author Benny Bottema
+ * @see Reactor
+ * @see ServerEndpointNIO
+ * @since 1.0
+ */
+class ClientEndpointNIO implements ClientEndpoint {
+
+	private static final Logger LOGGER = Logger.getLogger(ClientEndpoint.class);
+
+	/**
+	 * Initial size of the buffer in which an incomplete line is gathered. The buffer grows when a longer line is received.
+	 */
+	private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+
+	private final SocketChannel socketChannel;
+
+	/**
+	 * The reactor that reads from and writes to {@link #socketChannel}.
+	 */
+	private final Reactor reactor;
+
+	/**
+	 * Messages waiting to be written to the client by the {@link #reactor}.
+	 */
+	private final OutboundQueue outbound;
+
+	/**
+	 * Messages taken out of the {@link #outbound} queue that are being written, from {@link #writeBatchOffset} up to
+	 * {@link #writeBatchSize}. Only accessed by the {@link #reactor} thread.
+	 */
+	private final ByteBuffer[] writeBatch;
+
+	private int writeBatchOffset;
+
+	private int writeBatchSize;
+
+	/**
+	 * The handler that receives every complete line read from the client. Assigned when the client is registered with the {@link #reactor}.
+	 */
+	private ClientHandler clientHandler;
+
+	/**
+	 * Contains the bytes of the line or binary frames currently being received, up to {@link #lineLength}.
+	 */
+	private byte[] lineBuffer;
+
+	private int lineLength;
+
+	/**
+	 * Makes sure the {@link #reactor} is notified only once when the channel is closed.
+	 */
+	private final AtomicBoolean closed;
+
+	/**
+	 * Constructor; stores references to the channel and the reactor serving it.
+	 * 
+	 * @param socketChannel The accepted non-blocking {@link SocketChannel}.
+	 * @param reactor The {@link Reactor} that will perform all reads and writes on the channel.
+	 * @param outboundQueueCapacity The maximum number of messages queued for the client.
+	 * @param slowConsumerPolicy Determines what happens when the outbound queue is full.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
+	 */
+	public ClientEndpointNIO(final SocketChannel socketChannel, final Reactor reactor, final int outboundQueueCapacity,
+			final SlowConsumerPolicy slowConsumerPolicy, final int blockTimeoutMs) {
+		this.socketChannel = socketChannel;
+		this.reactor = reactor;
+		outbound = new OutboundQueue(outboundQueueCapacity, slowConsumerPolicy, blockTimeoutMs);
+		writeBatch = new ByteBuffer[OutboundQueue.MAX_BATCH_SIZE];
+		lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+		closed = new AtomicBoolean();
+	}
+
+	/**
+	 * Discards queued output and calls {@link SocketChannel#close()}, which also cancels its registration with the {@link #reactor}, and
+	 * notifies the reactor so it can keep its connection count.
+	 * 
+	 * @throws IOException Thrown by {@link SocketChannel#close()}.
+	 */
+	@Override
+	public void close()
+			throws IOException {
+		if (closed.compareAndSet(false, true)) {
+			reactor.connectionClosed();
+		}
+		outbound.close();
+		socketChannel.close();
+	}
+
+	/**
+	 * @return Whether the {@link SocketChannel} has been closed.
+	 */
+	@Override
+	public boolean isClosed() {
+		return !socketChannel.isOpen();
+	}
+
+	/**
+	 * @return {@link Socket#getInetAddress()} of the channel's socket.
+	 */
+	@Override
+	public InetAddress getInetAddress() {
+		return socketChannel.socket().getInetAddress();
+	}
+
+	/**
+	 * Queues the message for writing and notifies the {@link #reactor}. Returns immediately, unless the queue is full and the configured
+	 * {@link SlowConsumerPolicy} waits for room.
+	 * 
+	 * @param message The message to send to the client.
+	 * @throws IOException Thrown when the message was refused because the outbound queue is full.
+	 */
+	@Override
+	public void send(final String message)
+			throws IOException {
+		if (!queue(ByteBuffer.wrap(message.getBytes()))) {
+			throw new IOException("outbound queue full");
+		}
+	}
+
+	/**
+	 * Queues a read-only view on the frame for writing and notifies the {@link #reactor}. Returns immediately, unless the queue is full and
+	 * the configured {@link SlowConsumerPolicy} waits for room.
+	 * 
+	 * @param frame The encoded message to send to the client.
+	 * @return Whether the frame was accepted by the {@link #outbound} queue.
+	 */
+	@Override
+	public boolean sendFrame(final Frame frame) {
+		return queue(frame.asReadOnlyBuffer());
+	}
+
+	/**
+	 * Offers the message to the {@link #outbound} queue, never waiting for room when called by the {@link #reactor} thread since that is
+	 * the thread making room.
+	 */
+	private boolean queue(final ByteBuffer message) {
+		if (outbound.offer(message, !reactor.isReactorThread())) {
+			reactor.requestWrite(this);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return {@link OutboundQueue#size()}
+	 */
+	@Override
+	public int getOutboundQueueDepth() {
+		return outbound.size();
+	}
+
+	/**
+	 * Not supported, input is pushed by the {@link Reactor} through {@link #receive(ByteBuffer)}.
+	 */
+	@Override
+	public String readLine() {
+		throw new UnsupportedOperationException("input of non-blocking client endpoints is pushed by the reactor");
+	}
+
+	/**
+	 * Not supported, input is pushed by the {@link Reactor} through {@link #receive(ByteBuffer)}.
+	 */
+	@Override
+	public void read() {
+		throw new UnsupportedOperationException("input of non-blocking client endpoints is pushed by the reactor");
+	}
+
+	/**
+	 * Not supported, input is pushed by the {@link Reactor} through {@link #receive(ByteBuffer)}.
+	 */
+	@Override
+	public FrameReader getFrameReader(final int maxFrameSize) {
+		throw new UnsupportedOperationException("input of non-blocking client endpoints is pushed by the reactor");
+	}
+
+	/**
+	 * Frames received bytes into messages as per the server's {@link WireProtocol} and hands every complete message to the
+	 * {@link #clientHandler}.
+	 * <p>
+	 * Only called by the {@link #reactor} thread.
+	 * 
+	 * @param data The bytes just read from the channel.
+	 * @return The number of complete messages handed to the client handler.
+	 */
+	int receive(final ByteBuffer data) {
+		return clientHandler.getWireProtocol().isFramed() ? receiveFrames(data) : receiveLines(data);
+	}
+
+	/**
+	 * Frames received bytes into lines and hands every complete line to the {@link #clientHandler}. Lines end with a newline character
+	 * '\n', after which Flash clients append a zero (0) byte '\0' which is discarded here. Bytes of an incomplete line are kept until the
+	 * rest of the line is received. Clients sending lines longer than the maximum frame size are dropped, so a client that never sends a
+	 * newline can't make the reactor buffer arbitrary amounts of data.
+	 * 
+	 * @param data The bytes just read from the channel.
+	 * @return The number of complete lines handed to the client handler.
+	 * @see ClientHandler#handleTextMessage(byte[], int, int)
+	 * @see SwiftSocketServer#setMaxFrameSize(int)
+	 */
+	private int receiveLines(final ByteBuffer data) {
+		int lineCount = 0;
+		while (data.hasRemaining() && socketChannel.isOpen()) {
+			final byte b = data.get();
+			if (b == '\n') {
+				final int length = (lineLength > 0 && lineBuffer[lineLength - 1] == '\r') ? lineLength - 1 : lineLength;
+				lineLength = 0;
+				lineCount++;
+				clientHandler.handleTextMessage(lineBuffer, 0, length);
+			} else if (b != '\0' || lineLength > 0) {
+				if (lineLength == clientHandler.getMaxFrameSize()) {
+					clientHandler.dropClient(String.format("line exceeds the maximum frame size of %s bytes", lineLength));
+					return lineCount;
+				} else if (lineLength == lineBuffer.length) {
+					final byte[] grownBuffer = new byte[Math.min(lineBuffer.length * 2, clientHandler.getMaxFrameSize())];
+					System.arraycopy(lineBuffer, 0, grownBuffer, 0, lineLength);
+					lineBuffer = grownBuffer;
+				}
+				lineBuffer[lineLength++] = b;
+			}
+		}
+		return lineCount;
+	}
+
+	/**
+	 * Splits received bytes into length-prefixed frames and hands every complete frame to the {@link #clientHandler}, decoding it straight
+	 * from {@link #lineBuffer} as per the {@link WireProtocol}. Bytes of an incomplete frame are kept until the rest of the frame is
+	 * received. Clients sending malformed or oversized frames are dropped, as well as clients sending a frame that can't be handled at all;
+	 * a message that merely fails to decode is handed out as invalid message instead. Handled frames are always discarded from the
+	 * buffer, so they are never handled twice.
+	 * 
+	 * @param data The bytes just read from the channel.
+	 * @return The number of complete frames handed to the client handler.
+	 * @see WireProtocol#handleFrame(ClientHandler, byte[], int, int)
+	 * @see SwiftSocketServer#setMaxFrameSize(int)
+	 */
+	private int receiveFrames(final ByteBuffer data) {
+		if (lineBuffer.length - lineLength < data.remaining()) {
+			final byte[] grownBuffer = new byte[Math.max(lineBuffer.length * 2, lineLength + data.remaining())];
+			System.arraycopy(lineBuffer, 0, grownBuffer, 0, lineLength);
+			lineBuffer = grownBuffer;
+		}
+		final int length = data.remaining();
+		data.get(lineBuffer, lineLength, length);
+		lineLength += length;
+
+		int frameCount = 0;
+		int frameStart = 0;
+		try {
+			frames: while (socketChannel.isOpen()) {
+				int position = frameStart;
+				int frameLength = 0;
+				for (int shift = 0;; shift += 7) {
+					if (position == lineLength) {
+						// frame header incomplete
+						break frames;
+					} else if (shift == 35) {
+						clientHandler.dropClient("malformed frame header");
+						return frameCount;
+					}
+					final byte b = lineBuffer[position++];
+					frameLength |= (b & 0x7F) << shift;
+					if ((b & 0x80) == 0) {
+						break;
+					}
+				}
+				if (frameLength < 0 || frameLength > clientHandler.getMaxFrameSize()) {
+					clientHandler.dropClient(String.format("frame of %s bytes exceeds the maximum frame size", frameLength));
+					return frameCount;
+				} else if (lineLength - position < frameLength) {
+					// frame content incomplete
+					break;
+				}
+				frameStart = position + frameLength;
+				frameCount++;
+				try {
+					clientHandler.getWireProtocol().handleFrame(clientHandler, lineBuffer, position, frameLength);
+				} catch (final RuntimeException e) {
+					LOGGER.error(String.format("error handling frame from client %s", clientHandler.getClientContext()), e);
+					clientHandler.dropClient(String.format("unable to handle frame [%s]", e.getMessage()));
+					return frameCount;
+				}
+			}
+		} finally {
+			lineLength -= frameStart;
+			System.arraycopy(lineBuffer, frameStart, lineBuffer, 0, lineLength);
+		}
+		return frameCount;
+	}
+
+	/**
+	 * Writes as much of the queued output to the channel as it accepts without blocking. Queued messages are taken out in batches and each
+	 * batch is written with a single gathering write.
+	 * <p>
+	 * Only called by the {@link #reactor} thread.
+	 * 
+	 * @return The number of bytes written.
+	 * @throws IOException Thrown by {@link SocketChannel#write(ByteBuffer[], int, int)}.
+	 * @see #hasPendingOutput()
+	 */
+	int flush()
+			throws IOException {
+		int bytesWritten = 0;
+		while (true) {
+			if (writeBatchOffset == writeBatchSize) {
+				writeBatchOffset = 0;
+				writeBatchSize = outbound.poll(writeBatch);
+				if (writeBatchSize == 0) {
+					break;
+				}
+			}
+			bytesWritten += socketChannel.write(writeBatch, writeBatchOffset, writeBatchSize - writeBatchOffset);
+			while (writeBatchOffset < writeBatchSize && !writeBatch[writeBatchOffset].hasRemaining()) {
+				writeBatch[writeBatchOffset++] = null;
+			}
+			if (writeBatchOffset < writeBatchSize) {
+				// the channel doesn't accept more for now
+				break;
+			}
+		}
+		return bytesWritten;
+	}
+
+	/**
+	 * Only called by the {@link #reactor} thread.
+	 * 
+	 * @return Whether output is queued or being written that has not been written completely yet.
+	 */
+	boolean hasPendingOutput() {
+		return writeBatchOffset < writeBatchSize || !outbound.isEmpty();
+	}
+
+	/**
+	 * @return {@link #reactor}
+	 */
+	Reactor getReactor() {
+		return reactor;
+	}
+
+	/**
+	 * @return {@link #socketChannel}
+	 */
+	SocketChannel getSocketChannel() {
+		return socketChannel;
+	}
+
+	/**
+	 * @return {@link #clientHandler}
+	 */
+	ClientHandler getClientHandler() {
+		return clientHandler;
+	}
+
+	/**
+	 * @param clientHandler {@link #clientHandler}
+	 */
+	void setClientHandler(final ClientHandler clientHandler) {
+		this.clientHandler = clientHandler;
+	}
+}
+
+/**
+ * Client endpoint for a client of a {@link ServerEndpointUDPNIO}. Like {@link ClientEndpointNIO}, input is not pulled by a thread calling
+ * {@link #readLine()}, but pushed by the server endpoint's receiver thread, which lets this endpoint decode the datagram in place (see
+ * {@link #receive(ByteBuffer, byte[])}).
+ * <p>
+ * Messages are sent straight away from the calling thread, encoded into a pooled direct buffer rather than a new byte array.
+ * 
+ * @author Benny Bottema
+ * @see ServerEndpointUDPNIO
+ * @since 1.0
+ */
+class ClientEndpointUDPNIO implements ClientEndpoint {
+
+	private static final Logger LOGGER = Logger.getLogger(ClientEndpoint.class);
+
+	/**
+	 * The maximum number of lines kept in {@link #pendingLines} while the client is not being served yet. Further lines are dropped.
+	 */
+	static final int MAX_PENDING_LINES = 64;
+
+	/**
+	 * Encoders are not thread safe and messages are sent from any thread, so every thread encodes with its own encoder. Malformed and
+	 * unmappable characters are replaced, like {@link String#getBytes()} does.
+	 */
+	private static final ThreadLocal<CharsetEncoder> ENCODER = new ThreadLocal<CharsetEncoder>() {
+		@Override
+		protected CharsetEncoder initialValue() {
+			return Charset.defaultCharset().newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+	};
+
+	private final ServerEndpointUDPNIO serverEndpointUDPNIO;
+	private final DatagramChannel datagramChannel;
+	private final SocketAddress clientSocketAddress;
+	private final ByteBufferPool bufferPool;
+
+	/**
+	 * The largest datagram in bytes that may be sent.
+	 */
+	private final int maxDatagramSize;
+
+	/**
+	 * The handler that receives every line decoded from the client's datagrams. Assigned when the client is being served.
+	 */
+	private volatile ClientHandler clientHandler;
+
+	/**
+	 * Lines received before the {@link #clientHandler} was assigned, handed to the client handler by the receiver thread as soon as it is
+	 * (see {@link #flushPendingLines()}). Holds at most {@value #MAX_PENDING_LINES} lines. Only accessed by the receiver thread.
+	 */
+	private final List<byte[]> pendingLines;
+
+	/**
+	 * Constructor; stores references to the shared channel and buffer pool. The handshake has already been verified by the server endpoint.
+	 * 
+	 * @param serverEndpointUDPNIO The server endpoint from which we can remove clients if necessary.
+	 * @param datagramChannel The {@link DatagramChannel} to send messages to the client with.
+	 * @param clientSocketAddress The address from which the client sent its handshake request.
+	 * @param bufferPool The pool from which buffers are taken to encode messages in.
+	 * @param maxDatagramSize The largest datagram in bytes that may be sent.
+	 */
+	public ClientEndpointUDPNIO(final ServerEndpointUDPNIO serverEndpointUDPNIO, final DatagramChannel datagramChannel,
+			final SocketAddress clientSocketAddress, final ByteBufferPool bufferPool, final int maxDatagramSize) {
+		this.serverEndpointUDPNIO = serverEndpointUDPNIO;
+		this.datagramChannel = datagramChannel;
+		this.clientSocketAddress = clientSocketAddress;
+		this.bufferPool = bufferPool;
+		this.maxDatagramSize = maxDatagramSize;
+		pendingLines = new ArrayList<byte[]>();
+	}
+
+	/**
+	 * Removes this client endpoint from the server endpoint's list of known clients.
+	 */
+	@Override
+	public void close() {
+		serverEndpointUDPNIO.removeClient(clientSocketAddress);
+	}
+
+	/**
+	 * @return Whether this client endpoint is no longer known by the server endpoint.
+	 */
+	@Override
+	public boolean isClosed() {
+		return !serverEndpointUDPNIO.hasClient(clientSocketAddress);
+	}
+
+	/**
+	 * @return The {@link InetAddress} of {@link #clientSocketAddress} for logging purposes.
+	 */
+	@Override
+	public InetAddress getInetAddress() {
+		return ((InetSocketAddress) clientSocketAddress).getAddress();
+	}
+
+	/**
+	 * Encodes the message into a pooled buffer and sends it as a single datagram. Since the channel is non-blocking, the datagram is
+	 * dropped when the socket's send buffer is full, which is acceptable for UDP.
+	 * 
+	 * @param message The message to send to client.
+	 * @throws IOException Thrown when the encoded message exceeds {@link #maxDatagramSize} or by
+	 *             {@link DatagramChannel#send(ByteBuffer, SocketAddress)}.
+	 */
+	@Override
+	public void send(final String message)
+			throws IOException {
+		final ByteBuffer buffer = bufferPool.acquire();
+		try {
+			buffer.limit(maxDatagramSize);
+			final CharsetEncoder encoder = ENCODER.get().reset();
+			CoderResult result = encoder.encode(CharBuffer.wrap(message), buffer, true);
+			if (result.isUnderflow()) {
+				result = encoder.flush(buffer);
+			}
+			if (result.isOverflow()) {
+				throw new IOException(String.format("message exceeds the maximum datagram size of %s bytes", maxDatagramSize));
+			}
+			buffer.flip();
+			if (datagramChannel.send(buffer, clientSocketAddress) == 0) {
+				LOGGER.debug(String.format("send buffer full, dropped datagram to %s", clientSocketAddress));
+			}
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	/**
+	 * Sends a read-only view on the frame as a single datagram. Like {@link #send(String)}, the datagram is dropped when the socket's send
+	 * buffer is full.
+	 * 
+	 * @param frame The encoded message to send to the client.
+	 * @return Always <code>true</code>, since datagrams are not queued.
+	 * @throws IOException Thrown when the frame exceeds {@link #maxDatagramSize} or by
+	 *             {@link DatagramChannel#send(ByteBuffer, SocketAddress)}.
+	 */
+	@Override
+	public boolean sendFrame(final Frame frame)
+			throws IOException {
+		if (frame.length() > maxDatagramSize) {
+			throw new IOException(String.format("message exceeds the maximum datagram size of %s bytes", maxDatagramSize));
+		}
+		if (datagramChannel.send(frame.asReadOnlyBuffer(), clientSocketAddress) == 0) {
+			LOGGER.debug(String.format("send buffer full, dropped datagram to %s", clientSocketAddress));
+		}
+		return true;
+	}
+
+	/**
+	 * @return Always 0, since datagrams are sent right away.
+	 */
+	@Override
+	public int getOutboundQueueDepth() {
+		return 0;
+	}
+
+	/**
+	 * Not supported, input is pushed by the {@link ServerEndpointUDPNIO} through {@link #receive(ByteBuffer, byte[])}.
+	 */
+	@Override
+	public String readLine() {
+		throw new UnsupportedOperationException("input of non-blocking client endpoints is pushed by the server endpoint");
+	}
+
+	/**
+	 * Not supported, input is pushed by the {@link ServerEndpointUDPNIO} through {@link #receive(ByteBuffer, byte[])}.
+	 */
+	@Override
+	public void read() {
+		throw new UnsupportedOperationException("input of non-blocking client endpoints is pushed by the server endpoint");
+	}
+
+	/**
+	 * Not supported, UDP clients only communicate with {@link WireProtocol#TEXT}, which is not framed.
+	 */
+	@Override
+	public FrameReader getFrameReader(final int maxFrameSize) {
+		throw new UnsupportedOperationException("UDP client endpoints only support the text wire protocol");
+	}
+
+	/**
+	 * Decodes every line in the datagram and hands it to the {@link #clientHandler}. Lines end with a newline character '\n', after which
+	 * Flash clients append a zero (0) byte '\0' which is discarded here. Since a datagram is always received whole, a last line without
+	 * newline is considered complete as well.
+	 * <p>
+	 * Only called by the server endpoint's receiver thread.
+	 * 
+	 * @param datagram The received datagram, positioned at its first byte.
+	 * @param lineBuffer A buffer of at least the datagram's size, owned by the receiver thread, in which a line is gathered.
+	 * @see ClientHandler#handleTextMessage(byte[], int, int)
+	 */
+	void receive(final ByteBuffer datagram, final byte[] lineBuffer) {
+		int lineLength = 0;
+		while (datagram.hasRemaining()) {
+			final byte b = datagram.get();
+			if (b == '\n') {
+				final int length = (lineLength > 0 && lineBuffer[lineLength - 1] == '\r') ? lineLength - 1 : lineLength;
+				handleLine(lineBuffer, length);
+				lineLength = 0;
+			} else if (b != '\0' || lineLength > 0) {
+				lineBuffer[lineLength++] = b;
+			}
+		}
+		if (lineLength > 0) {
+			handleLine(lineBuffer, lineLength);
+		}
+	}
+
+	/**
+	 * Hands the line to the {@link #clientHandler}, or keeps a copy until the client handler has been assigned. Lines beyond
+	 * {@value #MAX_PENDING_LINES} pending lines are dropped.
+	 */
+	private void handleLine(final byte[] lineBuffer, final int length) {
+		if (flushPendingLines()) {
+			clientHandler.handleTextMessage(lineBuffer, 0, length);
+		} else if (pendingLines.size() < MAX_PENDING_LINES) {
+			pendingLines.add(Arrays.copyOf(lineBuffer, length));
+		} else {
+			final String msg = "dropped line from %s, client is not served yet and already has %s pending lines";
+			LOGGER.warn(String.format(msg, clientSocketAddress, MAX_PENDING_LINES));
+		}
+	}
+
+	/**
+	 * Hands the lines received before the {@link #clientHandler} was assigned to the client handler, in the order they were received.
+	 * <p>
+	 * Only called by the server endpoint's receiver thread.
+	 * 
+	 * @return Whether the client handler has been assigned, so lines can be handed to it directly.
+	 */
+	boolean flushPendingLines() {
+		final ClientHandler clientHandler = this.clientHandler;
+		if (clientHandler == null) {
+			return false;
+		}
+		if (!pendingLines.isEmpty()) {
+			for (final byte[] pendingLine : pendingLines) {
+				clientHandler.handleTextMessage(pendingLine, 0, pendingLine.length);
+			}
+			pendingLines.clear();
+		}
+		return true;
+	}
+
+	/**
+	 * @return The number of lines in {@link #pendingLines}.
+	 */
+	int getPendingLineCount() {
+		return pendingLines.size();
+	}
+
+	/**
+	 * @return {@link #clientHandler}
+	 */
+	ClientHandler getClientHandler() {
+		return clientHandler;
+	}
+
+	/**
+	 * @param clientHandler {@link #clientHandler}
+	 */
+	void setClientHandler(final ClientHandler clientHandler) {
+		this.clientHandler = clientHandler;
+	}
+}
@@ -2,13 +2,18 @@ package org.codemonkey.swiftsocketserver;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.net.ProtocolException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDecoder;
+import org.codemonkey.util.FrameReader;
 
 /**
  * Worker thread for the server that is dedicated to a single client.
@@ -65,6 +70,16 @@ public class ClientHandler implements Runnable {
 
 	private final boolean pingPongMode;
 
+	/**
+	 * The kind of thread used for the input handler, same as the one this handler runs on.
+	 */
+	private final ThreadMode threadMode;
+
+	/**
+	 * The thread running {@link #run()}, which parks in between connection checks and is unparked by {@link #wakeUp()}.
+	 */
+	private volatile Thread handlerThread;
+
 	/**
 	 * Constructor, which accepts a {@link SwiftSocketServer} instance and a client {@link ClientContext}. Also resets
 	 * {@link ClientContext#getPingtime()} and {@link ClientContext#isPongReceived()} flags.
@@ -74,14 +89,16 @@ public class ClientHandler implements Runnable {
 	 * @param clientContext The context containing the client socket to which this worker thread is dedicated to.
 	 * @param pingPongIntervalMs The Ping Pong interval used if {@link #pingPongMode} is turned on.
 	 * @param pingPongTimeoutMs The Ping Pong timeout used if {@link #pingPongMode} is turned on.
+	 * @param threadMode The kind of thread used for this handler and its input handler.
 	 */
 	protected ClientHandler(final SwiftSocketServer server, final ClientContext clientContext, final boolean pingPongMode,
-			int pingPongIntervalMs, int pingPongTimeoutMs) {
+			int pingPongIntervalMs, int pingPongTimeoutMs, final ThreadMode threadMode) {
 		this.server = server;
 		this.clientContext = clientContext;
 		this.pingPongMode = pingPongMode;
 		this.pingPongIntervalMs = pingPongIntervalMs;
 		this.pingPongTimeoutMs = pingPongTimeoutMs;
+		this.threadMode = threadMode;
 	}
 
 	/**
@@ -89,7 +106,10 @@ public class ClientHandler implements Runnable {
 	 * thread is used since this action is blocking and the thread 'sleeps' until input is available, which would deny us the opportunity to
 	 * do ping messages.<br />
 	 * <br />
-	 * Keeps pinging the client while the server is running.
+	 * Keeps pinging the client while the server is running. In between connection checks the thread is parked until the next ping or pong
+	 * time-out is due, or until it is woken up because the client went away or the server is stopping (see {@link #wakeUp()}). Without
+	 * {@link #pingPongMode} the thread is only woken up in the latter cases. Parking rather than sleeping in short intervals means idle
+	 * clients cost no cpu and, on virtual threads, don't occupy a carrier thread.
 	 * 
 	 * @see java.lang.Runnable#run()
 	 * @see #checkPing()
@@ -98,31 +118,107 @@ public class ClientHandler implements Runnable {
 	 */
 	@Override
 	public final void run() {
-		final Thread inputThread = new Thread(new InputHandler());
-		inputThread.start();
+		handlerThread = Thread.currentThread();
+		threadMode.newThread(new InputHandler()).start();
+
+		startSession();
+		while (server.isRunning() && checkConnection()) {
+			if (pingPongMode) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(determineNextCheckDelayMs()));
+			} else {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of milliseconds until either a new ping message is due or the pong notification times out.
+	 */
+	private long determineNextCheckDelayMs() {
+		final long elapsed = new Date().getTime() - clientContext.getPingtime();
+		final long due = clientContext.isPongReceived() ? pingPongIntervalMs : pingPongTimeoutMs;
+		return Math.max(1, due - elapsed + 1);
+	}
+
+	/**
+	 * Thread safe method that unparks the thread running {@link #run()}, so it checks the connection right away. Called when the client
+	 * went away or when the server is stopping.
+	 */
+	final void wakeUp() {
+		final Thread handlerThread = this.handlerThread;
+		if (handlerThread != null) {
+			LockSupport.unpark(handlerThread);
+		}
+	}
 
+	/**
+	 * @return {@link #threadMode}
+	 */
+	final ThreadMode getThreadMode() {
+		return threadMode;
+	}
+
+	/**
+	 * @return {@link SwiftSocketServer#getWireProtocol()}
+	 */
+	final WireProtocol getWireProtocol() {
+		return server.getWireProtocol();
+	}
+
+	/**
+	 * @return {@link SwiftSocketServer#getMaxFrameSize()}
+	 */
+	final int getMaxFrameSize() {
+		return server.getMaxFrameSize();
+	}
+
+	/**
+	 * Sends the first ping message to the client if {@link #pingPongMode} is turned on. Called once when the client is being served,
+	 * either by {@link #run()} or by an event driven {@link ServerEndpoint} that doesn't dedicate a thread to this handler.
+	 * 
+	 * @see ServerEndpoint#serveClient(ClientHandler)
+	 */
+	final void startSession() {
 		if (pingPongMode) {
 			ping();
 		}
-		while (server.isRunning()) {
-			if (!clientContext.isClientSaidByeBye()) {
-				if (pingPongMode) {
-					if (checkPong()) {
-						checkPing();
-					} else {
-						LOGGER.debug(String.format("dropping client %s, reason: timeout", clientContext));
-						server.disposeOfClient(clientContext);
-						break;
-					}
-				} else {
-					// PingPong mode is turned off, we won't be dropping clients due to time-outs
-				}
-				ServerUtil.defaultSleep(); // avoid hogging cpu
+	}
+
+	/**
+	 * Performs a single connection check: verifies the client hasn't gone away and, if {@link #pingPongMode} is turned on, checks for a
+	 * pong time-out and sends a new ping message when due. Clients that timed out are disposed of by the server.
+	 * 
+	 * @return Whether the client should still be served.
+	 * @see #checkPing()
+	 * @see #checkPong()
+	 */
+	final boolean checkConnection() {
+		if (clientContext.isClientSaidByeBye()) {
+			LOGGER.debug(String.format("dropping client %s, reason: client went away", clientContext.getClientInetAddress()));
+			return false;
+		}
+		if (pingPongMode) {
+			if (checkPong()) {
+				checkPing();
 			} else {
-				LOGGER.debug(String.format("dropping client %s, reason: client went away", clientContext.getClientInetAddress()));
-				break;
+				dropClient("timeout");
+				return false;
 			}
+		} else {
+			// PingPong mode is turned off, we won't be dropping clients due to time-outs
 		}
+		return true;
+	}
+
+	/**
+	 * Logs the reason and lets the server dispose of the client along with this handler.
+	 * 
+	 * @param reason A short description why the client is being dropped, used for logging.
+	 * @see SwiftSocketServer#disposeOfClient(ClientContext)
+	 */
+	final void dropClient(final String reason) {
+		LOGGER.debug(String.format("dropping client %s, reason: %s", clientContext, reason));
+		server.disposeOfClient(clientContext);
 	}
 
 	/**
@@ -206,22 +302,33 @@ public class ClientHandler implements Runnable {
 		}
 	}
 
+	/**
+	 * Logs and sends a response message to the current client using {@link #clientContext}, encoding it for this client only (see
+	 * {@link #sendMessage(ServerMessageToClient, Frame)}).
+	 * 
+	 * @param message The server message to send to the client.
+	 */
+	public void sendMessage(final ServerMessageToClient message) {
+		sendMessage(message, null);
+	}
+
 	/**
 	 * Logs and sends a response message to the current client using {@link #clientContext}, delegating the actual sending to
-	 * {@link #sendMessage(ClientContext, int, ServerMessageToClient)}, unless the client has said 'Bye Bye' in which case the message to be
-	 * sent is ignored altogether.
+	 * {@link #sendFrame(Frame)}, unless the client has said 'Bye Bye' in which case the message to be sent is ignored altogether.
 	 * 
 	 * @param message The server message to send to the client.
+	 * @param frame The message already encoded (when broadcasting), or <code>null</code> to encode the message for this client.
 	 * @see ClientContext#isClientSaidByeBye()
-	 * @see #sendMessage(ClientContext, int, ServerMessageToClient)
+	 * @see SwiftSocketServer#broadcastMessage(ServerMessageToClient)
 	 */
-	public void sendMessage(final ServerMessageToClient message) {
+	final void sendMessage(final ServerMessageToClient message, final Frame frame) {
 		final Logger messageLogger = determineLogger(message);
-		messageLogger.debug(String.format("sending message to %s: %s", clientContext.getClientInetAddress(), message.getClass()
-				.getSimpleName()));
+		if (messageLogger.isDebugEnabled()) {
+			messageLogger.debug(String.format("sending message to %s: %s", clientContext.getClientInetAddress(), message.getClass()
+					.getSimpleName()));
+		}
 		if (!clientContext.isClientSaidByeBye()) {
-			final int messageId = server.getServerMessageId(message.getClass());
-			sendMessage(clientContext, messageId, message);
+			sendFrame((frame != null) ? frame : server.encodeFrame(message));
 		} else {
 			// log message, giving class logger priority
 			Logger availableLogger = LOGGER;
@@ -233,17 +340,16 @@ public class ClientHandler implements Runnable {
 	}
 
 	/**
-	 * Helper method used to send a message to the client.
+	 * Helper method used to send an encoded message to the client. Drops the client when its outbound queue is full and the configured
+	 * {@link SlowConsumerPolicy} refuses the message.
 	 * 
-	 * @param clientContext The client to send the message to.
-	 * @param messageId The message id, known to both the server and the client.
-	 * @param message The {@link ClientMessageToServer} used to physically encode the message as <code>String</code>.
+	 * @param frame The encoded message, possibly shared with other clients.
 	 */
-	private void sendMessage(final ClientContext clientContext, final int messageId, final ServerMessageToClient message) {
-		final String paddedMessageId = StringUtils.leftPad(String.valueOf(messageId), MESSAGEID_LENGTH, '0');
-		final String datagram = String.format("%s%s\n\0", paddedMessageId, message.encode());
+	private void sendFrame(final Frame frame) {
 		try {
-			clientContext.getClientEndpoint().send(datagram);
+			if (!clientContext.getClientEndpoint().sendFrame(frame)) {
+				dropClient("outbound queue full (slow consumer)");
+			}
 		} catch (final IOException e) {
 			throw new RuntimeException(String.format("unable to send message to client %s", clientContext.getClientInetAddress()), e);
 		}
@@ -266,6 +372,232 @@ public class ClientHandler implements Runnable {
 		}
 	}
 
+	/**
+	 * Handles a single client message string. Creates a {@link ClientMessageToServer} and adds this to the server message queue unless
+	 * it is a server level message, such as a 'pong' notification, in which case the message is executed directly. If decoding is
+	 * offloaded, this happens later on a thread of the decode pool, in the order in which the client's messages were received.
+	 * 
+	 * @param datagramMessage The client message string, minus newline character '\n' or zero (0) byte '\0'.
+	 * @see #createDecodedExecutableMessage(ClientContext, String)
+	 * @see SwiftSocketServer#addClientMessage(ClientMessageToServer)
+	 */
+	final void handleMessage(final String datagramMessage) {
+		if (server.isDecodeOffloaded()) {
+			server.decodeLater(clientContext, new Runnable() {
+				@Override
+				public void run() {
+					dispatchMessage(createDecodedExecutableMessage(clientContext, datagramMessage));
+				}
+			});
+		} else {
+			dispatchMessage(createDecodedExecutableMessage(clientContext, datagramMessage));
+		}
+	}
+
+	/**
+	 * Handles a single text client message received as bytes, the same way as {@link #handleMessage(String)}. When decoding is offloaded,
+	 * the bytes are copied, as the buffer is reused for the next message, and converted to a string on the decode thread.
+	 * 
+	 * @param buffer The array containing the message, minus newline character '\n' or zero (0) byte '\0'.
+	 * @param offset The position of the message, starting at the message id.
+	 * @param length The length of the message in bytes.
+	 * @see SwiftSocketServer#setDecodePool(int, int)
+	 */
+	final void handleTextMessage(final byte[] buffer, final int offset, final int length) {
+		if (server.isDecodeOffloaded()) {
+			final byte[] message = Arrays.copyOfRange(buffer, offset, offset + length);
+			server.decodeLater(clientContext, new Runnable() {
+				@Override
+				public void run() {
+					dispatchMessage(createDecodedExecutableMessage(clientContext, new String(message)));
+				}
+			});
+		} else {
+			dispatchMessage(createDecodedExecutableMessage(clientContext, new String(buffer, offset, length)));
+		}
+	}
+
+	/**
+	 * Handles a single binary client message, the same way as {@link #handleMessage(String)}. When decoding is offloaded, the frame content
+	 * is copied first, as the buffer is reused for the next frame.
+	 * 
+	 * @param buffer The array containing the frame content.
+	 * @param offset The position of the frame content, starting at the message id.
+	 * @param length The length of the frame content in bytes.
+	 * @see #createDecodedExecutableMessage(ClientContext, BinaryDecoder)
+	 * @see SwiftSocketServer#setDecodePool(int, int)
+	 */
+	final void handleMessage(final byte[] buffer, final int offset, final int length) {
+		if (server.isDecodeOffloaded()) {
+			final byte[] frame = Arrays.copyOfRange(buffer, offset, offset + length);
+			server.decodeLater(clientContext, new Runnable() {
+				@Override
+				public void run() {
+					dispatchMessage(createDecodedExecutableMessage(clientContext, new BinaryDecoder(frame)));
+				}
+			});
+		} else {
+			dispatchMessage(createDecodedExecutableMessage(clientContext, new BinaryDecoder(buffer, offset, length)));
+		}
+	}
+
+	/**
+	 * Executes server level messages directly and adds all other messages to the server message queue.
+	 * 
+	 * @param message The decoded client message.
+	 */
+	private void dispatchMessage(final ClientMessageToServer<?> message) {
+		determineLogger(message).debug(
+				String.format("receiving message from %s: %s", clientContext, message.getClass().getSimpleName()));
+		if (message instanceof ClientMessageToServerPingPong) {
+			((ClientMessageToServerPingPong) message).execute(this);
+		} else if (message instanceof ClientMessageToServerByeBye) {
+			((ClientMessageToServerByeBye) message).execute(this);
+		} else {
+			server.addClientMessage(message);
+		}
+	}
+
+	/**
+	 * Parses the raw client message into a message id and message content. Passes both values to
+	 * {@link #createDecodedExecutableMessage(ClientContext, int, String)} and returns the result. The first three bytes of the raw
+	 * message denote the message code.
+	 * <p>
+	 * In case anything goes wrong, a {@link ClientMessageToServerInvalid} object is returned instead which generates some useful
+	 * message for logging purposes. This includes messages that fail to decode, the same as with
+	 * {@link #createDecodedExecutableMessage(ClientContext, BinaryDecoder)}, so a malformed message never disrupts the thread receiving
+	 * it. The server user can choose to filter out unknown messages at its own discretion. If a <code>ClientMessageToServerInvalid</code>
+	 * is executed however, it will throw a runtime exception with the original message.
+	 * 
+	 * @param clientMessage The client input string that represents a single message.
+	 * @return {@link #createDecodedExecutableMessage(ClientContext, int, String)}
+	 * @see #createInvalidMessage(Object, Exception, String)
+	 */
+	protected ClientMessageToServer<?> createDecodedExecutableMessage(final ClientContext clientContext, final String clientMessage) {
+		if (clientMessage.length() < MESSAGEID_LENGTH) {
+			final String errorMessage = String.format("message shorter than the %s digit message identifier", MESSAGEID_LENGTH);
+			return createInvalidMessage(clientMessage, new IllegalArgumentException(errorMessage), "invalid message identifier");
+		}
+		final int messageId;
+		try {
+			messageId = Integer.parseInt(clientMessage.substring(0, MESSAGEID_LENGTH));
+		} catch (final NumberFormatException e) {
+			return createInvalidMessage(clientMessage, e, "invalid message identifier");
+		}
+		final String messageContent = clientMessage.substring(MESSAGEID_LENGTH);
+		return createDecodedExecutableMessage(clientContext, messageId, messageContent);
+	}
+
+	/**
+	 * Creates a {@link ClientMessageToServer} instance based on the message id and message content.
+	 * 
+	 * @param clientContext The client that sent the message, useful to be able to reply to.
+	 * @param messageId The identifier for the message type we need to instantiate.
+	 * @param messageContent The message content for the solved message type to decode.
+	 * @return A {@link ClientMessageToServer} with identified by <code>messageId</code> decoded from <code>messageContent</code>, or a
+	 *         {@link ClientMessageToServerInvalid} if it couldn't be created or decoded.
+	 * @see SwiftSocketServer#getClientMessageToServerFactory(int)
+	 * @see ClientMessageToServer#decode(String)
+	 */
+	private final ClientMessageToServer<?> createDecodedExecutableMessage(final ClientContext clientContext, final int messageId,
+			final String messageContent) {
+		final ClientMessageToServer<?> message = createExecutableMessage(clientContext, messageId, messageContent);
+		if (!(message instanceof ClientMessageToServerInvalid)) {
+			try {
+				message.decode(messageContent);
+			} catch (final RuntimeException e) {
+				server.releaseClientMessage(message);
+				return createInvalidMessage(messageContent, e, "unable to decode message");
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * Binary counterpart of {@link #createDecodedExecutableMessage(ClientContext, String)}: reads the message id from the frame and lets
+	 * the registered message type decode the rest of the frame, which requires the message type to implement
+	 * {@link BinaryDatagramDecoder}.
+	 * <p>
+	 * In case anything goes wrong, a {@link ClientMessageToServerInvalid} object is returned instead.
+	 * 
+	 * @param clientContext The client that sent the message, useful to be able to reply to.
+	 * @param frame The content of a binary frame, positioned at the message id.
+	 * @return A {@link ClientMessageToServer} identified by the frame's message id and decoded from the rest of the frame.
+	 * @see BinaryDatagramDecoder#decode(BinaryDecoder)
+	 */
+	protected ClientMessageToServer<?> createDecodedExecutableMessage(final ClientContext clientContext, final BinaryDecoder frame) {
+		final int messageId;
+		try {
+			messageId = frame.readVarInt();
+		} catch (final IllegalStateException e) {
+			return createInvalidMessage(frame.toString(), e, "invalid message identifier");
+		}
+		// the frame itself is passed, so its description is only built when the message can't be created
+		final ClientMessageToServer<?> message = createExecutableMessage(clientContext, messageId, frame);
+		if (message instanceof ClientMessageToServerInvalid) {
+			return message;
+		} else if (!(message instanceof BinaryDatagramDecoder)) {
+			final String errorMessage = String.format("message type '%s' does not implement %s", message.getClass().getSimpleName(),
+					BinaryDatagramDecoder.class.getSimpleName());
+			server.releaseClientMessage(message);
+			return createInvalidMessage(frame.toString(), new UnsupportedOperationException(errorMessage), errorMessage);
+		}
+		try {
+			((BinaryDatagramDecoder) message).decode(frame);
+		} catch (final RuntimeException e) {
+			server.releaseClientMessage(message);
+			return createInvalidMessage(frame.toString(), e, "unable to decode message");
+		}
+		return message;
+	}
+
+	/**
+	 * Creates a message with the factory registered for the message id, without decoding it.
+	 * 
+	 * @param clientContext The client that sent the message, passed to the message factory.
+	 * @param messageId The identifier for the message type we need to instantiate.
+	 * @param originalMessage The received message, used for logging purposes if the message type can't be instantiated. Converted to a
+	 *            string only in that case.
+	 * @return A new message of the registered type, or a {@link ClientMessageToServerInvalid} if the message id is unknown or the factory
+	 *         failed.
+	 * @see SwiftSocketServer#getClientMessageToServerFactory(int)
+	 */
+	private ClientMessageToServer<?> createExecutableMessage(final ClientContext clientContext, final int messageId,
+			final Object originalMessage) {
+		final ClientMessageToServerFactory<?> messageFactory = server.getClientMessageToServerFactory(messageId);
+		if (messageFactory == null) {
+			final String errorMessage = String.format("unknown message id %s", messageId);
+			return createInvalidMessage(originalMessage, new UnknownMessageException(clientContext, errorMessage), errorMessage);
+		}
+		final ClientMessageToServer<?> message;
+		try {
+			message = messageFactory.create(clientContext);
+		} catch (final RuntimeException e) {
+			return createInvalidMessage(originalMessage, e, "error creating message");
+		}
+		if (message == null) {
+			final String errorMessage = String.format("message factory for message id %s returned null", messageId);
+			return createInvalidMessage(originalMessage, new IllegalStateException(errorMessage), errorMessage);
+		}
+		return message;
+	}
+
+	/**
+	 * Generates a {@link ClientMessageToServerInvalid} object with the failure cause. When executed, this message throws a runtime
+	 * exception with the original exception.
+	 * 
+	 * @param originalMessage The original message, or a binary frame which is described by its string representation.
+	 * @param failureCause The exception that occurred when the original messages was being converted into a
+	 *            {@link ClientMessageToServer}.
+	 * @param cause A fine grained exception description when the exception <code>failureCause</code> occurred.
+	 * @return An instance of {@link ClientMessageToServerInvalid}.
+	 */
+	private ClientMessageToServer<?> createInvalidMessage(final Object originalMessage, final Exception failureCause, final String cause) {
+		final ClientMessageToServerInvalid message = new ClientMessageToServerInvalid(clientContext, failureCause);
+		message.decode(String.format("%s (original message: '%s')", cause, originalMessage));
+		return message;
+	}
+
 	/**
 	 * @return The {@link #clientContext} containing session data for external use.
 	 */
@@ -297,27 +629,31 @@ public class ClientHandler implements Runnable {
 		 * <br />
 		 * The input data is read per line, so messages need to end with a newline character '\n'. Since clients need to conform to the
 		 * common denominator, they are required to append a zero (0) byte '\0' as per Flash clients. This character is appended to the
-		 * newline '\n' character and needs to be discarded manually using a {@link BufferedReader#read()}.
+		 * newline '\n' character and needs to be discarded manually using a {@link BufferedReader#read()}.<br />
+		 * <br />
+		 * With a framed {@link WireProtocol} complete length-prefixed frames are read in bulk instead of lines. A client sending malformed or
+		 * oversized frames is dropped, since the rest of its input can't be framed reliably anymore.<br />
+		 * <br />
+		 * Since reading blocks until input is available, the next line is read right away; only after an unknown error the thread sleeps
+		 * briefly before retrying. Wakes up the client handler when done, so it can finish as well.
 		 * 
 		 * @see SwiftSocketServer#isRunning()
 		 * @see ClientHandler#checkPong()
 		 */
 		@Override
 		public void run() {
+			final boolean framed = getWireProtocol().isFramed();
 			while (server.isRunning() && (!pingPongMode || checkPong()) && !clientContext.isClientSaidByeBye()) {
 				try {
-					final String line = clientContext.getClientEndpoint().readLine();
-					if (server.isRunning()) {
-						if (line != null) {
-							clientContext.getClientEndpoint().read();
-							handleMessage(clientContext, line);
-						} else {
-							// client closed its connection the hard way
-							LOGGER.debug(String.format("client %s closed connection non-gracefully", clientContext.getClientInetAddress()));
-							server.disposeOfClient(clientContext);
-							break;
-						}
+					if (!(framed ? receiveFrame() : receiveLine()) && server.isRunning()) {
+						// client closed its connection the hard way
+						LOGGER.debug(String.format("client %s closed connection non-gracefully", clientContext.getClientInetAddress()));
+						server.disposeOfClient(clientContext);
+						break;
 					}
+				} catch (final ProtocolException e) {
+					dropClient(e.getMessage());
+					break;
 				} catch (final SocketException e) {
 					if (e.getMessage().equals(ERROR_SOCKET_CLOSED) || e.getMessage().equals(ERROR_RECV_FAILED)
 							|| e.getMessage().equals(ERROR_CONNECTION_RESET)) {
@@ -336,105 +672,49 @@ public class ClientHandler implements Runnable {
 					}
 					// we have no clue what exception was thrown, just log the error and retry
 					LOGGER.error(e.getMessage(), e);
+					ServerUtil.defaultSleep();
 				} catch (final IOException e) {
 					// we have no clue what exception was thrown, just log the error and retry
 					LOGGER.error(e.getMessage(), e);
+					ServerUtil.defaultSleep();
 				}
-
-				ServerUtil.defaultSleep();
 			}
+			wakeUp();
 		}
 
 		/**
-		 * Handles a single client message string. Creates a {@link ClientMessageToServer} and adds this to the server message queue unless
-		 * it is a server level message, such as a 'pong' notification, in which case the message is executed directly.
+		 * Reads the next line and handles it if the server is still running.
 		 * 
-		 * @param clientContext The client that sent the message being interpreted.
-		 * @param datagramMessage The client message string, minus newline character '\n' or zero (0) byte '\0'.
-		 * @see #createDecodedExecutableMessage(ClientContext, String)
-		 * @see SwiftSocketServer#addClientMessage(ClientMessageToServer)
+		 * @return Whether a line was read, <code>false</code> if the connection was closed.
+		 * @throws IOException Thrown by {@link ClientEndpoint#readLine()} and {@link ClientEndpoint#read()}.
 		 */
-		public void handleMessage(final ClientContext clientContext, final String datagramMessage) {
-			final ClientMessageToServer<?> message = createDecodedExecutableMessage(clientContext, datagramMessage);
-			determineLogger(message).debug(
-					String.format("receiving message from %s: %s", clientContext, message.getClass().getSimpleName()));
-			if (message instanceof ClientMessageToServerPingPong) {
-				((ClientMessageToServerPingPong) message).execute(ClientHandler.this);
-			} else if (message instanceof ClientMessageToServerByeBye) {
-				((ClientMessageToServerByeBye) message).execute(ClientHandler.this);
-			} else {
-				server.addClientMessage(message);
+		private boolean receiveLine()
+				throws IOException {
+			final String line = clientContext.getClientEndpoint().readLine();
+			if (line != null && server.isRunning()) {
+				clientContext.getClientEndpoint().read();
+				handleMessage(line);
 			}
+			return line != null;
 		}
 
 		/**
-		 * Parses the raw client message into a message id and message content. Passes both values to
-		 * {@link #createDecodedExecutableMessage(ClientContext, int, String)} and returns the result. The first three bytes of the raw
-		 * message denote the message code.
-		 * <p>
-		 * In case anything goes wrong, a {@link ClientMessageToServerInvalid} object is returned instead which generates some useful
-		 * message for logging purposes. The server user can choose to filter out unknown messages at its own discretion. If a
-		 * <code>ClientMessageToServerInvalid</code> is executed however, it will throw a runtime exception with the original message.
+		 * Reads the next frame and handles it as per the {@link WireProtocol} if the server is still running.
 		 * 
-		 * @param clientMessage The client input string that represents a single message.
-		 * @return {@link #createDecodedExecutableMessage(ClientContext, int, String)}
-		 * @see #createInvalidMessage(String, Exception, String)
+		 * @return Whether a frame was read, <code>false</code> if the connection was closed.
+		 * @throws IOException Thrown by {@link FrameReader#next()}.
 		 */
-		protected ClientMessageToServer<?> createDecodedExecutableMessage(final ClientContext clientContext, final String clientMessage) {
-			final int messageId;
-			try {
-				messageId = Integer.parseInt(clientMessage.substring(0, MESSAGEID_LENGTH));
-			} catch (final NumberFormatException e) {
-				return createInvalidMessage(clientMessage, e, "invalid message identifier");
+		private boolean receiveFrame()
+				throws IOException {
+			final FrameReader frameReader = clientContext.getClientEndpoint().getFrameReader(getMaxFrameSize());
+			if (!frameReader.next()) {
+				return false;
 			}
-			final String messageContent = clientMessage.substring(MESSAGEID_LENGTH);
-			return createDecodedExecutableMessage(clientContext, messageId, messageContent);
-		}
-
-		/**
-		 * Creates a {@link ClientMessageToServer} instance based on the message id and message content.
-		 * 
-		 * @param clientContext The client that sent the message, useful to be able to reply to.
-		 * @param messageId The identifier for the message type we need to instantiate.
-		 * @param messageContent The message content for the solved message type to decode.
-		 * @return A {@link ClientMessageToServer} with identified by <code>messageId</code> decoded from <code>messageContent</code>.
-		 * @see SwiftSocketServer#getClientMessageToServerType(int)
-		 * @see ClientMessageToServer#decode(String)
-		 */
-		private final ClientMessageToServer<?> createDecodedExecutableMessage(final ClientContext clientContext, final int messageId,
-				final String messageContent) {
-			final Class<? extends ClientMessageToServer<?>> messageType = server.getClientMessageToServerType(messageId);
-			ClientMessageToServer<?> message;
-			try {
-				message = messageType.getConstructor(ClientContext.class).newInstance(clientContext);
-			} catch (final NoSuchMethodException e) {
-				final String errorMessage = "message type '%s' has no valid constructor";
-				return createInvalidMessage(messageContent, e, String.format(errorMessage, messageType.getSimpleName()));
-			} catch (final IllegalAccessException e) {
-				return createInvalidMessage(messageContent, e, "constructor not visible for message");
-			} catch (final InvocationTargetException e) {
-				return createInvalidMessage(messageContent, e, "error calling message constructor");
-			} catch (final InstantiationException e) {
-				return createInvalidMessage(messageContent, e, "unable to construct message");
+			if (server.isRunning()) {
+				getWireProtocol().handleFrame(ClientHandler.this, frameReader.getBuffer(), frameReader.getFrameOffset(),
+						frameReader.getFrameLength());
 			}
-			message.decode(messageContent);
-			return message;
-		}
-
-		/**
-		 * Generates a {@link ClientMessageToServerInvalid} object with the failure cause. When executed, this message throws a runtime
-		 * exception with the original exception.
-		 * 
-		 * @param originalMessage The original message
-		 * @param failureCause The exception that occurred when the original messages was being converted into a
-		 *            {@link ClientMessageToServer}.
-		 * @param cause A fine grained exception description when the exception <code>failureCause</code> occurred.
-		 * @return An instance of {@link ClientMessageToServerInvalid}.
-		 */
-		private ClientMessageToServer<?> createInvalidMessage(final String originalMessage, final Exception failureCause, final String cause) {
-			final ClientMessageToServerInvalid message = new ClientMessageToServerInvalid(clientContext, failureCause);
-			message.decode(String.format("%s (original message: '%s')", cause, originalMessage));
-			return message;
+			return true;
 		}
 	}
 }
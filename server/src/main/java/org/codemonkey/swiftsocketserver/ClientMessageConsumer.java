@@ -0,0 +1,15 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Receives the client messages taken from the server's message queue by
+ * {@link SwiftSocketServer#drainClientMessages(ClientMessageConsumer, int)}, in the order in which they were queued.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+public interface ClientMessageConsumer {
+	/**
+	 * @param message The next unprocessed client message.
+	 */
+	void consume(ClientMessageToServer<?> message);
+}
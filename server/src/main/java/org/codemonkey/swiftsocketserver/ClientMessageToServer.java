@@ -18,6 +18,8 @@ import org.codemonkey.util.Executable;
  * <p>
  * It is up to the implementing class to decode this information and utilize it as an executable object.
  * <p>
+ * Message types that implement {@link Recyclable} can be registered with a {@link MessagePool}, in which case the server reuses instances
+ * and assigns the client context of every message received.
  * 
  * @author Benny Bottema
  * @param <Controller> The type to which the executable can defer to (also see {@link Executable#execute(Object)}).
@@ -29,9 +31,17 @@ import org.codemonkey.util.Executable;
 public abstract class ClientMessageToServer<Controller> implements Executable<Controller, UnknownMessageException> {
 
 	/**
-	 * Holds the information about the whereabouts of the connected client that was responsible for the current message.
+	 * Holds the information about the whereabouts of the connected client that was responsible for the current message. Only reassigned
+	 * for pooled messages.
 	 */
-	private final ClientContext clientContext;
+	private ClientContext clientContext;
+
+	/**
+	 * The {@link System#nanoTime()} at which the message was dispatched to its execution context, used to measure how long it waited.
+	 * 
+	 * @see MessageDispatcher
+	 */
+	private long dispatchNanos;
 
 	/**
 	 * Constructor; simply stores a reference to the client associated with this message.
@@ -49,6 +59,39 @@ public abstract class ClientMessageToServer<Controller> implements Executable<Co
 		return clientContext;
 	}
 
+	/**
+	 * Returns the key that determines the order of this message when messages are executed in parallel (see {@link KeyedExecutor}).
+	 * Messages with the same key are executed one at a time in the order in which they were received, messages with different keys may be
+	 * executed concurrently. Defaults to the client context, keeping the messages of a single client in order.
+	 * <p>
+	 * Override to order messages differently, for example by returning a constant for messages that change shared state, so they are
+	 * executed in order with each other regardless of the client that sent them.
+	 * 
+	 * @return The ordering key of this message, compared by {@link Object#equals(Object)}.
+	 */
+	public Object getOrderingKey() {
+		return clientContext;
+	}
+
+	/**
+	 * @return {@link #dispatchNanos}
+	 */
+	final long getDispatchNanos() {
+		return dispatchNanos;
+	}
+
+	final void setDispatchNanos(final long dispatchNanos) {
+		this.dispatchNanos = dispatchNanos;
+	}
+
+	/**
+	 * @param clientContext The client associated with a pooled message.
+	 * @see PooledMessageFactory
+	 */
+	final void setClientContext(final ClientContext clientContext) {
+		this.clientContext = clientContext;
+	}
+
 	/**
 	 * Translates a message string or binary packet to the contents of the current {@link ClientMessageToServer} object, ready to be
 	 * executed.
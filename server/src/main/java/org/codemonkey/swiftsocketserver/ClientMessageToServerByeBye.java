@@ -1,6 +1,8 @@
 package org.codemonkey.swiftsocketserver;
 
 import org.apache.log4j.Logger;
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDecoder;
 
 /**
  * Message that handles graceful disconnection attempts by the client. This message is on the server level and therefore only interacts with
@@ -9,7 +11,7 @@ import org.apache.log4j.Logger;
  * @author Benny Bottema
  * @since 1.0
  */
-class ClientMessageToServerByeBye extends ClientMessageToServer<ClientHandler> {
+class ClientMessageToServerByeBye extends ClientMessageToServer<ClientHandler> implements BinaryDatagramDecoder {
 
 	public ClientMessageToServerByeBye(final ClientContext clientContext) {
 		super(clientContext);
@@ -25,6 +27,16 @@ class ClientMessageToServerByeBye extends ClientMessageToServer<ClientHandler> {
 		}
 	}
 
+	/**
+	 * Validates that there is indeed no content in this message, since only the message id is relevant.
+	 */
+	@Override
+	public final void decode(final BinaryDecoder decoder) {
+		if (decoder.remaining() > 0) {
+			throw new RuntimeException("invalid byebye message, reason: message too long");
+		}
+	}
+
 	/**
 	 * Calls {@link ClientHandler#clientSaysByeBye()}.
 	 */
@@ -0,0 +1,22 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Creates instances of a client-to-server message type, registered once for a message id with
+ * {@link SwiftSocketServer#registerClientMessageToServerType(int, ClientMessageToServerFactory)}. A factory is invoked for every message
+ * received with that id, before the message is decoded, so creating a message is a direct call rather than a reflective one.
+ * <p>
+ * Factories are called from the threads reading client messages, so a factory should be thread safe.
+ * 
+ * @author Benny Bottema
+ * @param <T> The message type created by the factory.
+ * @see SwiftSocketServer#registerClientMessageToServerType(int, Class)
+ * @since 1.0
+ */
+public interface ClientMessageToServerFactory<T extends ClientMessageToServer<?>> {
+
+	/**
+	 * @param clientContext The client that sent the message.
+	 * @return A new, not yet decoded message associated with the given client.
+	 */
+	T create(ClientContext clientContext);
+}
@@ -1,5 +1,8 @@
 package org.codemonkey.swiftsocketserver;
 
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDecoder;
+
 /**
  * Message that decodes pong datagrams. This message is on the server level and therefore only interacts with the {@link ClientHandler} and
  * is filtered from the client messages queue in the server.
@@ -8,7 +11,7 @@ package org.codemonkey.swiftsocketserver;
  * @see ClientMessageToServer
  * @since 1.0
  */
-final class ClientMessageToServerPingPong extends ClientMessageToServer<ClientHandler> {
+final class ClientMessageToServerPingPong extends ClientMessageToServer<ClientHandler> implements BinaryDatagramDecoder {
 
 	public ClientMessageToServerPingPong(final ClientContext clientContext) {
 		super(clientContext);
@@ -27,6 +30,19 @@ final class ClientMessageToServerPingPong extends ClientMessageToServer<ClientHa
 		}
 	}
 
+	/**
+	 * Only validates on zero length, since there is no extra information required for a pong notification.
+	 * 
+	 * @param decoder The binary frame content following the message id, which should be empty.
+	 * @see BinaryDatagramDecoder#decode(BinaryDecoder)
+	 */
+	@Override
+	public void decode(final BinaryDecoder decoder) {
+		if (decoder.remaining() > 0) {
+			throw new RuntimeException("invalid pong message, reason: message too long");
+		}
+	}
+
 	/**
 	 * Simply delegates the pong event to the {@link ClientHandler}.
 	 * 
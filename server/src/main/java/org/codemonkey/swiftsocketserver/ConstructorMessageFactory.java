@@ -0,0 +1,63 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+/**
+ * Message factory calling the constructor of a message type that takes a {@link ClientContext}. The constructor is resolved and validated
+ * once when the message type is registered, so a message type without a suitable constructor is refused right away instead of failing for
+ * every message received.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#registerClientMessageToServerType(int, Class)
+ * @since 1.0
+ */
+final class ConstructorMessageFactory implements ClientMessageToServerFactory<ClientMessageToServer<?>> {
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(ClientMessageToServer.class, ClientContext.class);
+
+	private final Class<? extends ClientMessageToServer<?>> messageType;
+
+	private final MethodHandle constructor;
+
+	/**
+	 * @param messageType A concrete {@link ClientMessageToServer} sub type with a constructor taking a {@link ClientContext}.
+	 * @throws IllegalArgumentException Thrown when the message type is abstract or doesn't have a suitable constructor.
+	 */
+	ConstructorMessageFactory(final Class<? extends ClientMessageToServer<?>> messageType) {
+		this.messageType = messageType;
+		if (Modifier.isAbstract(messageType.getModifiers())) {
+			throw new IllegalArgumentException(String.format("message type '%s' is abstract", messageType.getSimpleName()));
+		}
+		try {
+			final Constructor<? extends ClientMessageToServer<?>> messageConstructor = messageType.getDeclaredConstructor(ClientContext.class);
+			messageConstructor.setAccessible(true);
+			constructor = MethodHandles.lookup().unreflectConstructor(messageConstructor).asType(CONSTRUCTOR_TYPE);
+		} catch (final NoSuchMethodException e) {
+			final String msg = "message type '%s' has no constructor taking a %s";
+			throw new IllegalArgumentException(String.format(msg, messageType.getSimpleName(), ClientContext.class.getSimpleName()), e);
+		} catch (final IllegalAccessException e) {
+			final String msg = "constructor not visible for message type '%s'";
+			throw new IllegalArgumentException(String.format(msg, messageType.getSimpleName()), e);
+		}
+	}
+
+	/**
+	 * Calls the message type's constructor. Exceptions thrown by the constructor are passed on.
+	 */
+	@Override
+	public ClientMessageToServer<?> create(final ClientContext clientContext) {
+		try {
+			return (ClientMessageToServer<?>) constructor.invokeExact(clientContext);
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new RuntimeException(String.format("error calling constructor of message type '%s'", messageType.getSimpleName()), e);
+		}
+	}
+}
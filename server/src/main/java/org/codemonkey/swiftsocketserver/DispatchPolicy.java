@@ -0,0 +1,48 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Determines on which thread messages with a registered execution context are executed (see
+ * {@link SwiftSocketServer#registerExecutionContext(Class, Object, DispatchPolicy)}):
+ * <ul>
+ * <li>{@link #INLINE}: on the thread that received the message, before it reads the next message of the client</li>
+ * <li>{@link #WORLD_THREAD}: on the thread that takes messages from the server's message queue, such as the world thread of a world
+ * server</li>
+ * <li>{@link #SHARED_POOL}: on a bounded pool shared by all message types with this policy, in order per
+ * {@link ClientMessageToServer#getOrderingKey() ordering key}</li>
+ * <li>{@link #DEDICATED_LANE}: on a single thread dedicated to the message type, in the order in which the messages were received</li>
+ * </ul>
+ * The time messages wait before being executed and the time it takes to execute them are reported per policy (see
+ * {@link SwiftSocketServer#getDispatchStatistics()}).
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+public enum DispatchPolicy {
+
+	/**
+	 * Executes the message right away on the thread that received it. Cheapest for short handlers, but a slow handler delays reading the
+	 * client's next messages, or those of all clients served by the same thread with a reactor based server type.
+	 */
+	INLINE,
+
+	/**
+	 * Queues the message with the other client messages, to be executed by the thread taking messages from the queue with
+	 * {@link SwiftSocketServer#drainClientMessages(ClientMessageConsumer, int)} or {@link SwiftSocketServer#getNextClientMessage()},
+	 * instead of handing it to that thread.
+	 */
+	WORLD_THREAD,
+
+	/**
+	 * Executes the message on the shared dispatch pool. Messages from one client are executed in order, messages from different clients
+	 * concurrently. The receiving thread backs off while the pool is at capacity.
+	 * 
+	 * @see SwiftSocketServer#setDispatchPool(int, int)
+	 */
+	SHARED_POOL,
+
+	/**
+	 * Executes the message on a thread dedicated to its message type, one message at a time in the order received from all clients, so a
+	 * slow message type doesn't hold up any other. The receiving thread backs off while the lane is at capacity.
+	 */
+	DEDICATED_LANE
+}
@@ -0,0 +1,110 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Snapshot of the messages executed with a single {@link DispatchPolicy}. Counters are totals since the server was started, so averages
+ * over a period are derived by comparing two snapshots.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#getDispatchStatistics()
+ * @since 1.0
+ */
+public final class DispatchStatistics {
+
+	private final DispatchPolicy dispatchPolicy;
+
+	private final long messagesExecuted;
+
+	private final long totalQueueNanos;
+
+	private final long maxQueueNanos;
+
+	private final long totalExecuteNanos;
+
+	private final long maxExecuteNanos;
+
+	/**
+	 * Constructor; simply stores all values of the snapshot.
+	 * 
+	 * @param dispatchPolicy The policy the statistics apply to.
+	 * @param messagesExecuted The total number of messages executed.
+	 * @param totalQueueNanos The total time messages waited between being received and being executed.
+	 * @param maxQueueNanos The longest time a single message waited before being executed.
+	 * @param totalExecuteNanos The total time spent executing messages.
+	 * @param maxExecuteNanos The longest time spent executing a single message.
+	 */
+	DispatchStatistics(final DispatchPolicy dispatchPolicy, final long messagesExecuted, final long totalQueueNanos, final long maxQueueNanos,
+			final long totalExecuteNanos, final long maxExecuteNanos) {
+		this.dispatchPolicy = dispatchPolicy;
+		this.messagesExecuted = messagesExecuted;
+		this.totalQueueNanos = totalQueueNanos;
+		this.maxQueueNanos = maxQueueNanos;
+		this.totalExecuteNanos = totalExecuteNanos;
+		this.maxExecuteNanos = maxExecuteNanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		final String format = "%s: %s messages executed, queue time avg %sns max %sns, execute time avg %sns max %sns";
+		return String.format(format, dispatchPolicy, messagesExecuted, getAverageQueueNanos(), maxQueueNanos, getAverageExecuteNanos(),
+				maxExecuteNanos);
+	}
+
+	/**
+	 * @return The average time in nanoseconds messages waited before being executed, or 0 if none were executed.
+	 */
+	public long getAverageQueueNanos() {
+		return (messagesExecuted > 0) ? totalQueueNanos / messagesExecuted : 0;
+	}
+
+	/**
+	 * @return The average time in nanoseconds spent executing a message, or 0 if none were executed.
+	 */
+	public long getAverageExecuteNanos() {
+		return (messagesExecuted > 0) ? totalExecuteNanos / messagesExecuted : 0;
+	}
+
+	/**
+	 * @return {@link #dispatchPolicy}
+	 */
+	public DispatchPolicy getDispatchPolicy() {
+		return dispatchPolicy;
+	}
+
+	/**
+	 * @return {@link #messagesExecuted}
+	 */
+	public long getMessagesExecuted() {
+		return messagesExecuted;
+	}
+
+	/**
+	 * @return {@link #totalQueueNanos}
+	 */
+	public long getTotalQueueNanos() {
+		return totalQueueNanos;
+	}
+
+	/**
+	 * @return {@link #maxQueueNanos}
+	 */
+	public long getMaxQueueNanos() {
+		return maxQueueNanos;
+	}
+
+	/**
+	 * @return {@link #totalExecuteNanos}
+	 */
+	public long getTotalExecuteNanos() {
+		return totalExecuteNanos;
+	}
+
+	/**
+	 * @return {@link #maxExecuteNanos}
+	 */
+	public long getMaxExecuteNanos() {
+		return maxExecuteNanos;
+	}
+}
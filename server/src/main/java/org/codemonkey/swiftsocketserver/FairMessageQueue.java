@@ -0,0 +1,239 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Hands out client messages round-robin across clients, within a budget per client and a total budget per tick, so a single client
+ * flooding the server can't starve the others or delay the next world update.
+ * <p>
+ * Messages taken from the server are {@link #add(ClientMessageToServer) added} to a queue of their own client. {@link #poll()} takes one
+ * message of each client in turn, skipping clients that have used up their budget, until the total budget of the tick is used up. Clients
+ * sending more messages than their budget are handled as per the {@link MessageOverflowPolicy}. Messages that don't fit in the total
+ * budget always wait for the next tick, as that is not the fault of any single client. {@link #nextTick()} starts a new budget.
+ * <p>
+ * Messages are only queued per client once they are taken from the message queue the server shares for all clients. To keep a flooding
+ * client from filling that queue in the first place, the server should limit the number of messages waiting per client as well (see
+ * {@link SwiftSocketServer#setClientMessageLimit(int, MessageOverflowPolicy)} and {@link #getMaxWaitingMessagesPerClient()}).
+ * <p>
+ * Not thread safe, should only be used by the thread that takes messages from the server, such as the world thread.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#dropClientMessage(ClientMessageToServer)
+ * @since 1.0
+ */
+public final class FairMessageQueue {
+
+	private static final Logger LOGGER = Logger.getLogger(FairMessageQueue.class);
+
+	/**
+	 * The number of ticks worth of messages a client may have waiting with {@link MessageOverflowPolicy#DEFER}.
+	 */
+	static final int MAX_DEFERRED_TICKS = 4;
+
+	private final SwiftSocketServer server;
+
+	private final int maxMessagesPerClient;
+
+	private final int maxMessagesPerTick;
+
+	private final MessageOverflowPolicy overflowPolicy;
+
+	/**
+	 * The queues of all clients that have messages waiting or have sent messages this tick.
+	 */
+	private final Map<ClientContext, ClientQueue> clientQueues = new HashMap<ClientContext, ClientQueue>();
+
+	/**
+	 * The clients that have messages waiting and budget left this tick, in the order in which they get their turn.
+	 */
+	private final Queue<ClientQueue> readyClients = new ArrayDeque<ClientQueue>();
+
+	/**
+	 * The number of messages handed out this tick.
+	 */
+	private int messagesThisTick;
+
+	/**
+	 * @param server The server to drop messages and disconnect clients with.
+	 * @param maxMessagesPerClient The maximum number of messages handed out per client per tick.
+	 * @param maxMessagesPerTick The maximum number of messages handed out per tick for all clients together.
+	 * @param overflowPolicy Determines what happens to messages of a client exceeding its budget.
+	 */
+	public FairMessageQueue(final SwiftSocketServer server, final int maxMessagesPerClient, final int maxMessagesPerTick,
+			final MessageOverflowPolicy overflowPolicy) {
+		if (maxMessagesPerClient < 1 || maxMessagesPerTick < 1) {
+			throw new IllegalArgumentException("message budgets should be positive");
+		}
+		this.server = server;
+		this.maxMessagesPerClient = maxMessagesPerClient;
+		this.maxMessagesPerTick = maxMessagesPerTick;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Queues a message taken from the server behind the other messages of its client, or drops it as per the
+	 * {@link MessageOverflowPolicy} if the client exceeds its budget.
+	 * 
+	 * @param message A message taken from the server, which this queue now takes care of.
+	 */
+	public void add(final ClientMessageToServer<?> message) {
+		final ClientContext clientContext = message.getClientContext();
+		ClientQueue clientQueue = clientQueues.get(clientContext);
+		if (clientQueue == null) {
+			clientQueue = new ClientQueue(clientContext);
+			clientQueues.put(clientContext, clientQueue);
+		}
+		if ((++clientQueue.receivedThisTick > maxMessagesPerClient && overflowPolicy != MessageOverflowPolicy.DEFER)
+				|| clientQueue.disconnected) {
+			if (overflowPolicy == MessageOverflowPolicy.DISCONNECT && !clientQueue.disconnected) {
+				disconnect(clientQueue);
+			}
+			server.dropClientMessage(message);
+		} else if (clientQueue.messages.size() >= getMaxWaitingMessagesPerClient()) {
+			server.dropClientMessage(message);
+		} else {
+			clientQueue.messages.add(message);
+			markReady(clientQueue);
+		}
+	}
+
+	/**
+	 * Takes the next message, from the next client in turn that has budget left.
+	 * 
+	 * @return The next message, or <code>null</code> if there is none or if the budget of this tick has been used up.
+	 */
+	public ClientMessageToServer<?> poll() {
+		if (messagesThisTick >= maxMessagesPerTick) {
+			return null;
+		}
+		final ClientQueue clientQueue = readyClients.poll();
+		if (clientQueue == null) {
+			return null;
+		}
+		clientQueue.ready = false;
+		final ClientMessageToServer<?> message = clientQueue.messages.poll();
+		clientQueue.handedOutThisTick++;
+		messagesThisTick++;
+		markReady(clientQueue);
+		return message;
+	}
+
+	/**
+	 * Starts a new tick, resetting the budget of every client as well as the total budget. Forgets clients that sent no messages during the
+	 * last tick and have none waiting, which also ends the budget being exceeded for clients disconnected with
+	 * {@link MessageOverflowPolicy#DISCONNECT}.
+	 */
+	public void nextTick() {
+		messagesThisTick = 0;
+		for (final Iterator<ClientQueue> iterator = clientQueues.values().iterator(); iterator.hasNext();) {
+			final ClientQueue clientQueue = iterator.next();
+			if (clientQueue.messages.isEmpty() && clientQueue.receivedThisTick == 0) {
+				iterator.remove();
+			} else if (clientQueue.disconnected) {
+				// keep dropping the messages the client sent before it was disconnected
+				clientQueue.receivedThisTick = 0;
+			} else {
+				clientQueue.receivedThisTick = clientQueue.messages.size();
+				clientQueue.handedOutThisTick = 0;
+				markReady(clientQueue);
+			}
+		}
+	}
+
+	/**
+	 * Drops all waiting messages, for example when the server stops.
+	 */
+	public void clear() {
+		for (final ClientQueue clientQueue : clientQueues.values()) {
+			dropMessages(clientQueue);
+		}
+		clientQueues.clear();
+		readyClients.clear();
+	}
+
+	/**
+	 * @return The maximum number of messages a single client may have waiting: its budget for {@value #MAX_DEFERRED_TICKS} ticks.
+	 */
+	public int getMaxWaitingMessagesPerClient() {
+		return maxMessagesPerClient * MAX_DEFERRED_TICKS;
+	}
+
+	/**
+	 * @return The total number of messages waiting for their turn.
+	 */
+	public int size() {
+		int size = 0;
+		for (final ClientQueue clientQueue : clientQueues.values()) {
+			size += clientQueue.messages.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Gives the client its turn after the other clients, if it has messages waiting and budget left.
+	 */
+	private void markReady(final ClientQueue clientQueue) {
+		if (!clientQueue.ready && !clientQueue.messages.isEmpty() && clientQueue.handedOutThisTick < maxMessagesPerClient) {
+			clientQueue.ready = true;
+			readyClients.add(clientQueue);
+		}
+	}
+
+	private void disconnect(final ClientQueue clientQueue) {
+		LOGGER.warn(String.format("client %s exceeded its budget of %s messages per tick", clientQueue.clientContext,
+				maxMessagesPerClient));
+		clientQueue.disconnected = true;
+		dropMessages(clientQueue);
+		readyClients.remove(clientQueue);
+		clientQueue.ready = false;
+		server.disconnectClient(clientQueue.clientContext, "message budget exceeded");
+	}
+
+	private void dropMessages(final ClientQueue clientQueue) {
+		ClientMessageToServer<?> message;
+		while ((message = clientQueue.messages.poll()) != null) {
+			server.dropClientMessage(message);
+		}
+	}
+
+	/**
+	 * The waiting messages and the budget of a single client.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private static final class ClientQueue {
+
+		private final ClientContext clientContext;
+
+		private final Queue<ClientMessageToServer<?>> messages = new ArrayDeque<ClientMessageToServer<?>>();
+
+		/**
+		 * The number of messages received this tick, including those deferred from previous ticks.
+		 */
+		private int receivedThisTick;
+
+		private int handedOutThisTick;
+
+		/**
+		 * Whether this client is in {@link FairMessageQueue#readyClients}.
+		 */
+		private boolean ready;
+
+		/**
+		 * Whether this client has been disconnected for exceeding its budget, after which its remaining messages are dropped until it
+		 * stops sending them for a whole tick.
+		 */
+		private boolean disconnected;
+
+		ClientQueue(final ClientContext clientContext) {
+			this.clientContext = clientContext;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import org.codemonkey.util.BinaryDatagramEncoder;
+import org.codemonkey.util.BinaryEncoder;
+
+/**
+ * An encoded server message, ready to be written to any number of clients. The message is encoded exactly once, after which its bytes are
+ * shared read-only by every client endpoint sending it, so broadcasting a message costs a single encoding regardless of the number of
+ * recipients.
+ * <p>
+ * A text frame is built up in the following format: message id (3), encoded message, newline '\n' and zero (0) byte '\0'. A framed text
+ * message starts with its length as variable length integer instead of ending with a newline. A binary frame starts with its length and
+ * the message id as variable length integers, followed by the encoded message (see {@link WireProtocol}).
+ * <p>
+ * Messages are encoded in the sending thread's {@link FrameSink}, so the frame's byte array is the only allocation of the encoding itself.
+ * 
+ * @author Benny Bottema
+ * @see ClientEndpoint#sendFrame(Frame)
+ * @see SwiftSocketServer#broadcastMessage(ServerMessageToClient)
+ * @since 1.0
+ */
+final class Frame {
+
+	private final byte[] bytes;
+
+	/**
+	 * A read-only view on {@link #bytes}, duplicated for every write so each recipient has its own position.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * @param bytes The complete encoded message, which should not be modified afterwards.
+	 */
+	private Frame(final byte[] bytes) {
+		this.bytes = bytes;
+		buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Encodes a message into a new text frame.
+	 * 
+	 * @param messageId The message id, known to both the server and the client.
+	 * @param message The message appending its values to the datagram.
+	 * @return The frame containing the message id, the encoded message and the message terminator.
+	 * @see ServerMessageToClient#encodeTo(StringBuilder)
+	 */
+	static Frame encode(final int messageId, final ServerMessageToClient message) {
+		final FrameSink sink = FrameSink.acquire();
+		try {
+			message.encodeTo(sink.startText(messageId));
+			return new Frame(sink.toTextFrame());
+		} finally {
+			sink.release();
+		}
+	}
+
+	/**
+	 * Encodes a message into a new length-prefixed text frame.
+	 * 
+	 * @param messageId The message id, known to both the server and the client.
+	 * @param message The message appending its values to the datagram.
+	 * @return The frame containing the frame length, the message id and the encoded message.
+	 * @see WireProtocol#TEXT_FRAMED
+	 */
+	static Frame encodeFramed(final int messageId, final ServerMessageToClient message) {
+		final FrameSink sink = FrameSink.acquire();
+		try {
+			message.encodeTo(sink.startText(messageId));
+			return new Frame(sink.toFramedTextFrame());
+		} finally {
+			sink.release();
+		}
+	}
+
+	/**
+	 * Encodes a message into a new binary frame.
+	 * 
+	 * @param messageId The message id, known to both the server and the client.
+	 * @param message The message writing its values to a {@link BinaryEncoder}.
+	 * @return The frame containing the frame length, the message id and the encoded message.
+	 * @see BinaryDatagramEncoder#encode(BinaryEncoder)
+	 */
+	static Frame encodeBinary(final int messageId, final BinaryDatagramEncoder message) {
+		final FrameSink sink = FrameSink.acquire();
+		try {
+			final BinaryEncoder encoder = sink.startBinary();
+			encoder.writeVarInt(messageId);
+			message.encode(encoder);
+			return new Frame(encoder.toFrame());
+		} finally {
+			sink.release();
+		}
+	}
+
+	/**
+	 * @return A new read-only buffer positioned at the start of the frame, sharing the frame's content.
+	 */
+	ByteBuffer asReadOnlyBuffer() {
+		return buffer.duplicate();
+	}
+
+	/**
+	 * Writes the complete frame to the stream, without flushing it.
+	 * 
+	 * @param out The stream to write the frame to.
+	 * @throws IOException Thrown by {@link OutputStream#write(byte[])}.
+	 */
+	void writeTo(final OutputStream out)
+			throws IOException {
+		out.write(bytes);
+	}
+
+	/**
+	 * @param address The client to which the frame should be sent.
+	 * @return A datagram packet sharing the frame's content.
+	 */
+	DatagramPacket createDatagramPacket(final SocketAddress address) {
+		return new DatagramPacket(bytes, bytes.length, address);
+	}
+
+	/**
+	 * @return The size of the frame in bytes.
+	 */
+	int length() {
+		return bytes.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return new String(bytes);
+	}
+}
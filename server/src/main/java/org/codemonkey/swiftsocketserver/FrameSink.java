@@ -0,0 +1,183 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.codemonkey.util.BinaryEncoder;
+
+/**
+ * Per thread set of reusable buffers in which server messages are encoded into frames. A message appends its values to the sink's datagram
+ * buffer (see {@link ServerMessageToClient#encodeTo(StringBuilder)}), which is converted to bytes in the sink's byte buffer, so in a
+ * steady state encoding a message only allocates the byte array of the resulting {@link Frame}. That copy is needed regardless, since a
+ * frame is shared by every recipient and may still be queued when the sending thread encodes its next message.
+ * <p>
+ * Buffers that have grown beyond {@link #MAX_RETAINED_SIZE} for an exceptionally large message are not kept, so a single large message
+ * doesn't pin its buffers to the thread.
+ * 
+ * @author Benny Bottema
+ * @see Frame#encode(int, ServerMessageToClient)
+ * @since 1.0
+ */
+final class FrameSink {
+
+	/**
+	 * The capacity in characters or bytes up to which buffers are kept for the next message.
+	 */
+	static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * Every thread encodes with its own sink, since messages are sent from any thread.
+	 */
+	private static final ThreadLocal<FrameSink> SINKS = new ThreadLocal<FrameSink>() {
+		@Override
+		protected FrameSink initialValue() {
+			return new FrameSink();
+		}
+	};
+
+	/**
+	 * Malformed and unmappable characters are replaced, like {@link String#getBytes()} does.
+	 */
+	private final CharsetEncoder charsetEncoder;
+
+	private StringBuilder datagram;
+
+	/**
+	 * The characters of {@link #datagram} copied for {@link #charsetEncoder}, which can't read a <code>StringBuilder</code> without
+	 * wrapping it.
+	 */
+	private char[] chars;
+
+	/**
+	 * A view on {@link #chars}, recreated only when {@link #chars} grows.
+	 */
+	private CharBuffer charBuffer;
+
+	private ByteBuffer bytes;
+
+	private BinaryEncoder binaryEncoder;
+
+	/**
+	 * Indicates the sink is being used by a message being encoded, in which case a message encoding another message (for example to embed
+	 * it) gets a sink of its own.
+	 */
+	private boolean inUse;
+
+	private FrameSink() {
+		charsetEncoder = Charset.defaultCharset().newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		datagram = new StringBuilder(INITIAL_CAPACITY);
+		chars = new char[INITIAL_CAPACITY];
+		charBuffer = CharBuffer.wrap(chars);
+		bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+		binaryEncoder = new BinaryEncoder(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @return The current thread's sink, which should be returned with {@link #release()} when the frame has been created.
+	 */
+	static FrameSink acquire() {
+		final FrameSink sink = SINKS.get();
+		if (sink.inUse) {
+			return new FrameSink();
+		}
+		sink.inUse = true;
+		return sink;
+	}
+
+	/**
+	 * Makes the sink available for the next message, dropping buffers that have grown beyond {@link #MAX_RETAINED_SIZE}.
+	 */
+	void release() {
+		if (datagram.capacity() > MAX_RETAINED_SIZE) {
+			datagram = new StringBuilder(INITIAL_CAPACITY);
+		}
+		if (chars.length > MAX_RETAINED_SIZE) {
+			chars = new char[INITIAL_CAPACITY];
+			charBuffer = CharBuffer.wrap(chars);
+		}
+		if (bytes.capacity() > MAX_RETAINED_SIZE) {
+			bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+		}
+		if (binaryEncoder.size() > MAX_RETAINED_SIZE) {
+			binaryEncoder = new BinaryEncoder(INITIAL_CAPACITY);
+		}
+		inUse = false;
+	}
+
+	/**
+	 * @param messageId The message id, known to both the server and the client.
+	 * @return The emptied datagram buffer, containing only the message id padded to {@link ClientHandler#MESSAGEID_LENGTH} digits.
+	 */
+	StringBuilder startText(final int messageId) {
+		datagram.setLength(0);
+		int digits = 1;
+		for (int remaining = messageId / 10; remaining > 0; remaining /= 10) {
+			digits++;
+		}
+		for (int i = digits; i < ClientHandler.MESSAGEID_LENGTH; i++) {
+			datagram.append('0');
+		}
+		return datagram.append(messageId);
+	}
+
+	/**
+	 * @return The datagram terminated by a newline and zero byte, as bytes.
+	 */
+	byte[] toTextFrame() {
+		datagram.append("\n\0");
+		encodeDatagram();
+		return Arrays.copyOf(bytes.array(), bytes.position());
+	}
+
+	/**
+	 * @return The datagram preceded by its length in bytes, as bytes.
+	 * @see BinaryEncoder#toFrame(byte[], int, int)
+	 */
+	byte[] toFramedTextFrame() {
+		encodeDatagram();
+		return BinaryEncoder.toFrame(bytes.array(), 0, bytes.position());
+	}
+
+	/**
+	 * @return The emptied binary encoder.
+	 */
+	BinaryEncoder startBinary() {
+		binaryEncoder.reset();
+		return binaryEncoder;
+	}
+
+	/**
+	 * Converts {@link #datagram} to bytes in {@link #bytes}, growing the buffers when needed.
+	 */
+	private void encodeDatagram() {
+		final int length = datagram.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(chars.length * 2, length)];
+			charBuffer = CharBuffer.wrap(chars);
+		}
+		datagram.getChars(0, length, chars, 0);
+		charBuffer.clear();
+		charBuffer.limit(length);
+		final int maxByteCount = (int) Math.ceil(length * (double) charsetEncoder.maxBytesPerChar());
+		if (bytes.capacity() < maxByteCount) {
+			bytes = ByteBuffer.allocate(Math.max(bytes.capacity() * 2, maxByteCount));
+		}
+		bytes.clear();
+		charsetEncoder.reset();
+		CoderResult result = charsetEncoder.encode(charBuffer, bytes, true);
+		if (result.isUnderflow()) {
+			result = charsetEncoder.flush(bytes);
+		}
+		if (!result.isUnderflow()) {
+			throw new IllegalStateException(String.format("unable to encode datagram: %s", result));
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executes tasks on a pool of worker threads, while keeping tasks submitted with the same key in order. Tasks with different keys run
+ * concurrently, tasks with the same key run one at a time in the order in which they were submitted, though not necessarily on the same
+ * thread.
+ * <p>
+ * Every key with pending tasks has its own queue, which is handed to the pool as a whole when its first task arrives and removed again
+ * once it runs empty, so idle keys don't take up memory. A busy key gives up its worker after {@value #MAX_TASKS_PER_TURN} tasks and is
+ * scheduled again behind the other keys, so a single key can't monopolize a worker.
+ * <p>
+ * Typically used with the {@link ClientContext} as key, so that messages from one client are executed in order while messages from
+ * different clients are executed in parallel (see {@link ClientMessageToServer#getOrderingKey()}).
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+public final class KeyedExecutor {
+
+	private static final Logger LOGGER = Logger.getLogger(KeyedExecutor.class);
+
+	/**
+	 * The maximum number of tasks of a single key executed before the worker moves on to other keys.
+	 */
+	private static final int MAX_TASKS_PER_TURN = 64;
+
+	private final ExecutorService workers;
+
+	/**
+	 * The queues of all keys that currently have pending tasks.
+	 */
+	private final ConcurrentMap<Object, KeyQueue> keyQueues = new ConcurrentHashMap<Object, KeyQueue>();
+
+	/**
+	 * The number of tasks submitted but not yet completed, used to wait until the executor is idle.
+	 */
+	private final AtomicInteger pendingTaskCount = new AtomicInteger();
+
+	private final Lock idleLock = new ReentrantLock();
+
+	private final Condition idle = idleLock.newCondition();
+
+	/**
+	 * Starts the worker threads.
+	 * 
+	 * @param name The name of the worker threads, followed by their number.
+	 * @param threadCount The number of worker threads.
+	 */
+	public KeyedExecutor(final String name, final int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("at least one worker thread is required");
+		}
+		workers = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Thread safe method that schedules a task to run after all tasks previously submitted with the same key. Exceptions thrown by the
+	 * task are logged and don't affect the tasks that follow.
+	 * 
+	 * @param key Determines the order of the task, compared by {@link Object#equals(Object)}.
+	 * @param task The task to run.
+	 * @throws RejectedExecutionException Thrown when the executor has been shut down.
+	 */
+	public void execute(final Object key, final Runnable task) {
+		pendingTaskCount.incrementAndGet();
+		try {
+			while (true) {
+				KeyQueue keyQueue = keyQueues.get(key);
+				if (keyQueue == null) {
+					final KeyQueue newKeyQueue = new KeyQueue(key);
+					keyQueue = keyQueues.putIfAbsent(key, newKeyQueue);
+					if (keyQueue == null) {
+						keyQueue = newKeyQueue;
+					}
+				}
+				if (keyQueue.offer(task)) {
+					return;
+				}
+				// the queue ran empty and retired in the meantime, retry with a new one
+			}
+		} catch (final RejectedExecutionException e) {
+			taskCompleted();
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits until every task submitted so far has completed, for example to let another thread work on state the tasks share without
+	 * synchronization. If interrupted, returns right away with the interrupt flag set.
+	 */
+	public void awaitIdle() {
+		if (pendingTaskCount.get() > 0) {
+			idleLock.lock();
+			try {
+				while (pendingTaskCount.get() > 0) {
+					idle.await();
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				idleLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of tasks submitted but not yet completed.
+	 */
+	public int getPendingTaskCount() {
+		return pendingTaskCount.get();
+	}
+
+	/**
+	 * Stops accepting new tasks, letting the worker threads finish the tasks already submitted before they end.
+	 */
+	public void shutdown() {
+		workers.shutdown();
+	}
+
+	private void taskCompleted() {
+		if (pendingTaskCount.decrementAndGet() == 0) {
+			idleLock.lock();
+			try {
+				idle.signalAll();
+			} finally {
+				idleLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * The pending tasks of a single key. Scheduled on the worker pool as a whole while it has tasks, so only one worker executes the tasks
+	 * of a key at any time.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private final class KeyQueue implements Runnable {
+
+		private final Object key;
+
+		private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		/**
+		 * Whether this queue has been handed to the worker pool.
+		 */
+		private boolean scheduled;
+
+		/**
+		 * Whether this queue ran empty and has been removed from {@link KeyedExecutor#keyQueues}, after which it accepts no more tasks.
+		 */
+		private boolean retired;
+
+		KeyQueue(final Object key) {
+			this.key = key;
+		}
+
+		/**
+		 * @param task The task to add.
+		 * @return Whether the task was accepted, <code>false</code> if this queue has retired.
+		 */
+		synchronized boolean offer(final Runnable task) {
+			if (retired) {
+				return false;
+			}
+			if (!scheduled) {
+				workers.execute(this);
+				scheduled = true;
+			}
+			tasks.add(task);
+			return true;
+		}
+
+		/**
+		 * @return The next task, or <code>null</code> if there is none, in which case this queue retires.
+		 */
+		private synchronized Runnable poll() {
+			final Runnable task = tasks.poll();
+			if (task == null) {
+				retired = true;
+				keyQueues.remove(key, this);
+			}
+			return task;
+		}
+
+		/**
+		 * Executes up to {@value KeyedExecutor#MAX_TASKS_PER_TURN} tasks, after which this queue is scheduled again unless it retired. An
+		 * {@link Error} thrown by a task ends the worker thread, which the pool replaces, but this queue is still scheduled again so the
+		 * remaining tasks of the key are executed and the executor can become idle.
+		 */
+		@Override
+		public void run() {
+			try {
+				for (int i = 0; i < MAX_TASKS_PER_TURN; i++) {
+					final Runnable task = poll();
+					if (task == null) {
+						return;
+					}
+					try {
+						task.run();
+					} catch (final RuntimeException e) {
+						LOGGER.error(String.format("error executing task for key '%s'", key), e);
+					} finally {
+						taskCompleted();
+					}
+				}
+			} finally {
+				// only the worker running this queue retires it
+				if (!retired) {
+					reschedule();
+				}
+			}
+		}
+
+		/**
+		 * Hands this queue back to the pool behind the other keys, or retires it if the pool has been shut down in the meantime.
+		 */
+		private void reschedule() {
+			try {
+				workers.execute(this);
+			} catch (final RejectedExecutionException e) {
+				LOGGER.debug(String.format("executor shut down, finishing tasks for key '%s'", key));
+				run();
+			}
+		}
+	}
+}
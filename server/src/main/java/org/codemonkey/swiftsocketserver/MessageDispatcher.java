@@ -0,0 +1,320 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executes client messages against their registered execution context as per the {@link DispatchPolicy} of their message type, and keeps
+ * track of the queue and execute times per policy.
+ * <p>
+ * Execution contexts are registered before the server starts, after which the registrations are only read, so they can be looked up by
+ * all client threads without locking. The shared pool and dedicated lanes are created when the server starts and shut down when it stops.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#registerExecutionContext(Class, Object, DispatchPolicy)
+ * @since 1.0
+ */
+final class MessageDispatcher {
+
+	private static final Logger LOGGER = Logger.getLogger(MessageDispatcher.class);
+
+	/**
+	 * The default maximum number of messages waiting in the shared pool or in a single lane.
+	 */
+	static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Time in nanoseconds a client thread backs off when the pool or lane is at capacity, before trying again.
+	 */
+	private static final long FULL_QUEUE_BACKOFF_NS = 100000;
+
+	private final SwiftSocketServer server;
+
+	/**
+	 * Registrations by message type. Only modified before the server is started.
+	 */
+	private final Map<Class<?>, Registration> registrations = new HashMap<Class<?>, Registration>();
+
+	/**
+	 * Metrics by {@link DispatchPolicy#ordinal()}.
+	 */
+	private final DispatchMetrics[] metrics;
+
+	private int sharedPoolThreadCount = Runtime.getRuntime().availableProcessors();
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * Executes messages with {@link DispatchPolicy#SHARED_POOL}, created on {@link #start()} if any message type uses it.
+	 */
+	private KeyedExecutor sharedPool;
+
+	private volatile boolean started;
+
+	/**
+	 * @param server The server to release executed messages to.
+	 */
+	MessageDispatcher(final SwiftSocketServer server) {
+		this.server = server;
+		metrics = new DispatchMetrics[DispatchPolicy.values().length];
+		for (int i = 0; i < metrics.length; i++) {
+			metrics[i] = new DispatchMetrics();
+		}
+	}
+
+	/**
+	 * @param messageType The type of message executed using the given context object.
+	 * @param executionContext The execution context object used to execute messages against.
+	 * @param dispatchPolicy Determines on which thread the messages are executed.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	void register(final Class<? extends ClientMessageToServer<?>> messageType, final Object executionContext,
+			final DispatchPolicy dispatchPolicy) {
+		checkNotStarted();
+		registrations.put(messageType, new Registration(messageType, executionContext, dispatchPolicy));
+	}
+
+	/**
+	 * @param sharedPoolThreadCount The number of threads of the shared pool.
+	 * @param capacity The maximum number of messages waiting in the shared pool or in a single lane.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	void setPool(final int sharedPoolThreadCount, final int capacity) {
+		checkNotStarted();
+		if (sharedPoolThreadCount < 1) {
+			throw new IllegalArgumentException("at least one dispatch thread is required");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("dispatch capacity should be positive");
+		}
+		this.sharedPoolThreadCount = sharedPoolThreadCount;
+		this.capacity = capacity;
+	}
+
+	private void checkNotStarted() {
+		if (started) {
+			throw new IllegalStateException("execution contexts can't be changed after the server has been started");
+		}
+	}
+
+	/**
+	 * Creates the shared pool and the dedicated lanes needed by the registered message types.
+	 */
+	void start() {
+		for (final Registration registration : registrations.values()) {
+			if (registration.dispatchPolicy == DispatchPolicy.SHARED_POOL && sharedPool == null) {
+				sharedPool = new KeyedExecutor("dispatch-pool", sharedPoolThreadCount);
+			} else if (registration.dispatchPolicy == DispatchPolicy.DEDICATED_LANE && registration.lane == null) {
+				registration.lane = new KeyedExecutor("dispatch-lane-" + registration.messageType.getSimpleName(), 1);
+			}
+		}
+		started = true;
+	}
+
+	/**
+	 * Lets the shared pool and dedicated lanes finish the messages already dispatched to them, after which their threads end.
+	 */
+	void stop() {
+		if (sharedPool != null) {
+			sharedPool.shutdown();
+		}
+		for (final Registration registration : registrations.values()) {
+			if (registration.lane != null) {
+				registration.lane.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Executes or dispatches a message received by a client thread, if an execution context has been registered for its type.
+	 * 
+	 * @param message The message just received.
+	 * @return Whether the message was taken care of, <code>false</code> if it should be queued with the other client messages, which is
+	 *         also the case for {@link DispatchPolicy#WORLD_THREAD}.
+	 */
+	boolean dispatch(final ClientMessageToServer<?> message) {
+		final Registration registration = registrations.get(message.getClass());
+		if (registration == null) {
+			return false;
+		}
+		message.setDispatchNanos(System.nanoTime());
+		switch (registration.dispatchPolicy) {
+		case INLINE:
+			execute(registration, message);
+			return true;
+		case SHARED_POOL:
+			submit(sharedPool, message.getOrderingKey(), registration, message);
+			return true;
+		case DEDICATED_LANE:
+			submit(registration.lane, registration.messageType, registration, message);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Executes a message taken from the client message queue, if it was queued for {@link DispatchPolicy#WORLD_THREAD}. Exceptions are
+	 * logged rather than passed on to the thread taking the messages.
+	 * 
+	 * @param message The message taken from the queue.
+	 * @return Whether the message has been executed and released, <code>false</code> if it should be handed to the thread taking it.
+	 */
+	boolean executeOnWorldThread(final ClientMessageToServer<?> message) {
+		final Registration registration = registrations.get(message.getClass());
+		if (registration == null || registration.dispatchPolicy != DispatchPolicy.WORLD_THREAD) {
+			return false;
+		}
+		try {
+			execute(registration, message);
+		} catch (final RuntimeException e) {
+			// severe error, but catch to prevent the world thread from crashing
+			LOGGER.error(String.format("error executing message '%s'", message), e);
+		}
+		return true;
+	}
+
+	/**
+	 * Hands a message to a pool or lane, backing off while it is at capacity. Drops the message if the server stops in the meantime.
+	 */
+	private void submit(final KeyedExecutor executor, final Object key, final Registration registration,
+			final ClientMessageToServer<?> message) {
+		if (executor.getPendingTaskCount() >= capacity) {
+			LOGGER.debug(String.format("%s at capacity, holding off message %s", registration.dispatchPolicy, message));
+			while (executor.getPendingTaskCount() >= capacity) {
+				if (!server.isRunning()) {
+					server.releaseClientMessage(message);
+					return;
+				}
+				LockSupport.parkNanos(FULL_QUEUE_BACKOFF_NS);
+			}
+		}
+		try {
+			executor.execute(key, new DispatchedExecution(registration, message));
+		} catch (final RejectedExecutionException e) {
+			LOGGER.debug(String.format("server stopped, dropping message %s", message));
+			server.releaseClientMessage(message);
+		}
+	}
+
+	/**
+	 * Executes the message against its execution context, records the queue and execute time and releases the message.
+	 */
+	@SuppressWarnings("unchecked")
+	private void execute(final Registration registration, final ClientMessageToServer<?> message) {
+		final long startNanos = System.nanoTime();
+		try {
+			((ClientMessageToServer<? super Object>) message).execute(registration.executionContext);
+		} finally {
+			final long endNanos = System.nanoTime();
+			metrics[registration.dispatchPolicy.ordinal()].record(startNanos - message.getDispatchNanos(), endNanos - startNanos);
+			server.releaseClientMessage(message);
+		}
+	}
+
+	/**
+	 * @return A snapshot of the statistics of every {@link DispatchPolicy}, in declaration order.
+	 */
+	List<DispatchStatistics> getStatistics() {
+		final List<DispatchStatistics> statistics = new ArrayList<DispatchStatistics>(metrics.length);
+		for (final DispatchPolicy dispatchPolicy : DispatchPolicy.values()) {
+			statistics.add(metrics[dispatchPolicy.ordinal()].snapshot(dispatchPolicy));
+		}
+		return statistics;
+	}
+
+	/**
+	 * The execution context and dispatch policy registered for a message type.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private static final class Registration {
+
+		private final Class<?> messageType;
+
+		private final Object executionContext;
+
+		private final DispatchPolicy dispatchPolicy;
+
+		/**
+		 * The single threaded executor of a {@link DispatchPolicy#DEDICATED_LANE} message type, created when the server starts.
+		 */
+		private KeyedExecutor lane;
+
+		Registration(final Class<?> messageType, final Object executionContext, final DispatchPolicy dispatchPolicy) {
+			this.messageType = messageType;
+			this.executionContext = executionContext;
+			this.dispatchPolicy = dispatchPolicy;
+		}
+	}
+
+	/**
+	 * Executes a message handed to the shared pool or a dedicated lane.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private final class DispatchedExecution implements Runnable {
+
+		private final Registration registration;
+
+		private final ClientMessageToServer<?> message;
+
+		DispatchedExecution(final Registration registration, final ClientMessageToServer<?> message) {
+			this.registration = registration;
+			this.message = message;
+		}
+
+		@Override
+		public void run() {
+			execute(registration, message);
+		}
+	}
+
+	/**
+	 * Thread safe counters of the messages executed with a single {@link DispatchPolicy}.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private static final class DispatchMetrics {
+
+		private final AtomicLong messagesExecuted = new AtomicLong();
+
+		private final AtomicLong totalQueueNanos = new AtomicLong();
+
+		private final AtomicLong maxQueueNanos = new AtomicLong();
+
+		private final AtomicLong totalExecuteNanos = new AtomicLong();
+
+		private final AtomicLong maxExecuteNanos = new AtomicLong();
+
+		void record(final long queueNanos, final long executeNanos) {
+			messagesExecuted.incrementAndGet();
+			totalQueueNanos.addAndGet(queueNanos);
+			totalExecuteNanos.addAndGet(executeNanos);
+			updateMax(maxQueueNanos, queueNanos);
+			updateMax(maxExecuteNanos, executeNanos);
+		}
+
+		private static void updateMax(final AtomicLong max, final long value) {
+			long current;
+			while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+				// another thread raised the maximum in the meantime, compare again
+			}
+		}
+
+		DispatchStatistics snapshot(final DispatchPolicy dispatchPolicy) {
+			return new DispatchStatistics(dispatchPolicy, messagesExecuted.get(), totalQueueNanos.get(), maxQueueNanos.get(),
+					totalExecuteNanos.get(), maxExecuteNanos.get());
+		}
+	}
+}
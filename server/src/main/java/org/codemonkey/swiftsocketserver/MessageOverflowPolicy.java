@@ -0,0 +1,33 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Determines what happens to the messages of a client that sends more messages in one tick than its budget allows (see
+ * {@link FairMessageQueue}):
+ * <ul>
+ * <li>{@link #DEFER}: the excess messages wait in the client's queue and are executed in the next ticks</li>
+ * <li>{@link #DROP}: the excess messages are dropped</li>
+ * <li>{@link #DISCONNECT}: the client is disconnected and its queued messages are dropped</li>
+ * </ul>
+ * Dropped messages are counted per client (see {@link ClientContext#getDroppedMessageCount()}).
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+public enum MessageOverflowPolicy {
+
+	/**
+	 * Keeps the excess messages for the next ticks, up to {@value FairMessageQueue#MAX_DEFERRED_TICKS} ticks worth of messages, beyond
+	 * which messages are dropped.
+	 */
+	DEFER,
+
+	/**
+	 * Drops every message received beyond the budget of the current tick.
+	 */
+	DROP,
+
+	/**
+	 * Disconnects a client as soon as it exceeds its budget, treating it as misbehaving.
+	 */
+	DISCONNECT
+}
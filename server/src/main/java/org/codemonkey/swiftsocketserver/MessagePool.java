@@ -0,0 +1,215 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Thread safe pool of reusable message instances of a single type, so messages received or sent at a high rate don't need a new instance
+ * each. A pool is opt-in per message type, by registering it with the server:
+ * <ul>
+ * <li>client-to-server messages are taken from the pool when received and returned to it by the server once executed (see
+ * {@link SwiftSocketServer#registerClientMessageToServerType(int, MessagePool)})</li>
+ * <li>server-to-client messages are taken from the pool by the user and returned to it by the server once encoded (see
+ * {@link SwiftSocketServer#registerServerMessageToClientId(int, MessagePool)})</li>
+ * </ul>
+ * Once returned, a message is {@link Recyclable#reset() reset} and handed out again, so a pooled message should not be referenced anymore
+ * after it has been executed or sent.
+ * <p>
+ * When the pool is empty, a new message is created. When a message is released while the pool already holds its maximum number of
+ * messages, it is left to the garbage collector.
+ * <p>
+ * With leak detection enabled (by default when debug logging is enabled for this class), the pool remembers where every message currently
+ * in use was acquired. Releasing a message that is not in use (for example releasing it twice) then fails, and messages never released are
+ * logged by {@link #reportLeaks()}, which the server calls when it is stopped.
+ * 
+ * @author Benny Bottema
+ * @param <T> The type of message in the pool.
+ * @see Recyclable
+ * @since 1.0
+ */
+public final class MessagePool<T extends Recyclable> {
+
+	private static final Logger LOGGER = Logger.getLogger(MessagePool.class);
+
+	/**
+	 * Creates new messages for a {@link MessagePool} when it is empty.
+	 * 
+	 * @param <T> The type of message created.
+	 */
+	public interface Factory<T> {
+		/**
+		 * @return A new message, with default state.
+		 */
+		T create();
+	}
+
+	private final Class<T> messageType;
+
+	private final Factory<? extends T> factory;
+
+	/**
+	 * The maximum number of idle messages kept in {@link #pooledMessages}.
+	 */
+	private final int maxPooledMessages;
+
+	private final Queue<T> pooledMessages;
+
+	/**
+	 * The number of messages in {@link #pooledMessages}, kept separately since {@link ConcurrentLinkedQueue#size()} is not a constant time
+	 * operation.
+	 */
+	private final AtomicInteger pooledMessageCount;
+
+	/**
+	 * The number of messages acquired and not released yet.
+	 */
+	private final AtomicInteger outstandingMessageCount;
+
+	/**
+	 * The messages in use mapped to the stack trace of where they were acquired, when leak detection is enabled. Also serves as lock for
+	 * itself.
+	 */
+	private final Map<T, Throwable> outstandingMessages;
+
+	private volatile boolean leakDetection;
+
+	/**
+	 * Creates an empty pool. Messages are created on demand.
+	 * 
+	 * @param messageType The exact type of message in the pool, used by the server to find the pool of a message.
+	 * @param factory Creates a new message when the pool is empty.
+	 * @param maxPooledMessages The maximum number of idle messages kept for reuse.
+	 */
+	public MessagePool(final Class<T> messageType, final Factory<? extends T> factory, final int maxPooledMessages) {
+		if (maxPooledMessages < 0) {
+			throw new IllegalArgumentException("maximum number of pooled messages should not be negative");
+		}
+		this.messageType = messageType;
+		this.factory = factory;
+		this.maxPooledMessages = maxPooledMessages;
+		pooledMessages = new ConcurrentLinkedQueue<T>();
+		pooledMessageCount = new AtomicInteger();
+		outstandingMessageCount = new AtomicInteger();
+		outstandingMessages = new IdentityHashMap<T, Throwable>();
+		leakDetection = LOGGER.isDebugEnabled();
+	}
+
+	/**
+	 * Enables or disables leak detection. Only messages acquired while leak detection is enabled are tracked.
+	 * 
+	 * @param leakDetection Whether to remember where every message in use was acquired.
+	 */
+	public void setLeakDetection(final boolean leakDetection) {
+		this.leakDetection = leakDetection;
+		if (!leakDetection) {
+			synchronized (outstandingMessages) {
+				outstandingMessages.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return A message with default state, either reused or newly created.
+	 */
+	public T acquire() {
+		T message = pooledMessages.poll();
+		if (message != null) {
+			pooledMessageCount.decrementAndGet();
+		} else {
+			message = factory.create();
+		}
+		outstandingMessageCount.incrementAndGet();
+		if (leakDetection) {
+			synchronized (outstandingMessages) {
+				outstandingMessages.put(message, new Throwable("message acquired here"));
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * Resets the message and returns it to the pool. The message should not be used by the caller afterwards.
+	 * 
+	 * @param message A message previously returned by {@link #acquire()}.
+	 * @throws IllegalStateException Thrown with leak detection enabled, when the message is not in use (for example released twice).
+	 */
+	public void release(final T message) {
+		discard(message);
+		message.reset();
+		if (pooledMessageCount.incrementAndGet() <= maxPooledMessages) {
+			pooledMessages.offer(message);
+		} else {
+			pooledMessageCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Releases a message without keeping it for reuse, for example because references to it may still be around. The message is left to
+	 * the garbage collector.
+	 * 
+	 * @param message A message previously returned by {@link #acquire()}.
+	 * @throws IllegalStateException Thrown with leak detection enabled, when the message is not in use (for example released twice).
+	 */
+	public void discard(final T message) {
+		if (leakDetection) {
+			synchronized (outstandingMessages) {
+				if (outstandingMessages.remove(message) == null) {
+					final String msg = "message %s released twice or not acquired from this pool";
+					throw new IllegalStateException(String.format(msg, message));
+				}
+			}
+		}
+		outstandingMessageCount.decrementAndGet();
+	}
+
+	/**
+	 * Releases a message known to be of {@link #messageType}.
+	 */
+	void releaseMessage(final Object message) {
+		release(messageType.cast(message));
+	}
+
+	/**
+	 * Logs every message acquired while leak detection was enabled and not released yet, with the stack trace of where it was acquired.
+	 * 
+	 * @return The number of messages acquired and not released yet, regardless of leak detection.
+	 */
+	public int reportLeaks() {
+		final List<Throwable> acquisitions;
+		synchronized (outstandingMessages) {
+			acquisitions = new ArrayList<Throwable>(outstandingMessages.values());
+		}
+		for (final Throwable acquisition : acquisitions) {
+			LOGGER.warn(String.format("%s never released to its pool", messageType.getSimpleName()), acquisition);
+		}
+		return outstandingMessageCount.get();
+	}
+
+	/**
+	 * @return {@link #messageType}
+	 */
+	public Class<T> getMessageType() {
+		return messageType;
+	}
+
+	/**
+	 * @return The number of idle messages in the pool.
+	 */
+	public int getPooledMessageCount() {
+		return pooledMessageCount.get();
+	}
+
+	/**
+	 * @return The number of messages acquired and not released yet.
+	 */
+	public int getOutstandingMessageCount() {
+		return outstandingMessageCount.get();
+	}
+}
@@ -0,0 +1,198 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The message types known to a server, mapped to the unique identifiers known to both the clients and the server. Message types are
+ * registered in maps while the server is being configured. When the server is started, the registry is frozen into lookup structures that
+ * are looked up for every message received or sent:
+ * <ul>
+ * <li>client-to-server message factories are stored in an array indexed by message id</li>
+ * <li>server-to-client message ids are cached on the message class with a {@link ClassValue}</li>
+ * <li>message pools are cached on the message class with a {@link ClassValue}</li>
+ * </ul>
+ * Message types can't be registered anymore once the registry is frozen, so the lookup structures never change and can be read by any
+ * thread without locking.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#start()
+ * @since 1.0
+ */
+final class MessageRegistry {
+
+	/**
+	 * The highest message id that can be registered, which limits the size of {@link #clientMessageToServerFactoryTable}.
+	 */
+	static final int MAX_MESSAGE_ID = 0xFFFF;
+
+	/**
+	 * The highest message id that fits in the three digits of the text wire protocols.
+	 * 
+	 * @see WireProtocol#getMaxMessageId()
+	 */
+	static final int MAX_TEXT_MESSAGE_ID = 999;
+
+	/**
+	 * Cached by {@link #serverMessageToClientIds} for message types that have not been registered.
+	 */
+	private static final int NO_MESSAGE_ID = -1;
+
+	private final Map<Integer, ClientMessageToServerFactory<?>> clientMessageToServerFactories;
+
+	private final Map<Class<? extends ServerMessageToClient>, Integer> serverMessageToClientIdList;
+
+	private final Map<Class<?>, MessagePool<?>> messagePoolList;
+
+	/**
+	 * The factories of {@link #clientMessageToServerFactories} indexed by message id, up to the highest registered message id.
+	 * <code>null</code> until the registry is frozen.
+	 */
+	private volatile ClientMessageToServerFactory<?>[] clientMessageToServerFactoryTable;
+
+	/**
+	 * The message ids of {@link #serverMessageToClientIdList}, cached per message class once the registry is frozen.
+	 */
+	private final ClassValue<Integer> serverMessageToClientIds;
+
+	/**
+	 * The pools of {@link #messagePoolList}, cached per message class once the registry is frozen.
+	 */
+	private final ClassValue<MessagePool<?>> messagePools;
+
+	MessageRegistry() {
+		clientMessageToServerFactories = new HashMap<Integer, ClientMessageToServerFactory<?>>();
+		serverMessageToClientIdList = new HashMap<Class<? extends ServerMessageToClient>, Integer>();
+		messagePoolList = new HashMap<Class<?>, MessagePool<?>>();
+		serverMessageToClientIds = new ClassValue<Integer>() {
+			@Override
+			protected Integer computeValue(final Class<?> messageType) {
+				final Integer messageId = serverMessageToClientIdList.get(messageType);
+				return (messageId != null) ? messageId : NO_MESSAGE_ID;
+			}
+		};
+		messagePools = new ClassValue<MessagePool<?>>() {
+			@Override
+			protected MessagePool<?> computeValue(final Class<?> messageType) {
+				return messagePoolList.get(messageType);
+			}
+		};
+	}
+
+	/**
+	 * @see SwiftSocketServer#registerClientMessageToServerType(int, ClientMessageToServerFactory)
+	 */
+	void registerClientMessageToServerFactory(final int messageId, final ClientMessageToServerFactory<?> messageFactory) {
+		checkRegistration(messageId);
+		clientMessageToServerFactories.put(messageId, messageFactory);
+	}
+
+	/**
+	 * @see SwiftSocketServer#registerServerMessageToClientId(int, Class)
+	 */
+	void registerServerMessageToClientId(final int messageId, final Class<? extends ServerMessageToClient> messageType) {
+		checkRegistration(messageId);
+		serverMessageToClientIdList.put(messageType, messageId);
+	}
+
+	/**
+	 * @see SwiftSocketServer#registerClientMessageToServerType(int, MessagePool)
+	 * @see SwiftSocketServer#registerServerMessageToClientId(int, MessagePool)
+	 */
+	void registerMessagePool(final MessagePool<?> messagePool) {
+		if (clientMessageToServerFactoryTable != null) {
+			throw new IllegalStateException("message types can only be registered before the server is started");
+		}
+		messagePoolList.put(messagePool.getMessageType(), messagePool);
+	}
+
+	private void checkRegistration(final int messageId) {
+		if (clientMessageToServerFactoryTable != null) {
+			throw new IllegalStateException("message types can only be registered before the server is started");
+		} else if (messageId < 0 || messageId > MAX_MESSAGE_ID) {
+			throw new IllegalArgumentException(String.format("message id should be between 0 and %s", MAX_MESSAGE_ID));
+		}
+	}
+
+	/**
+	 * Builds the lookup structures from the registered message types, after which no more message types can be registered. Does nothing
+	 * if the registry is frozen already.
+	 */
+	void freeze() {
+		if (clientMessageToServerFactoryTable == null) {
+			int maxMessageId = -1;
+			for (final Integer messageId : clientMessageToServerFactories.keySet()) {
+				maxMessageId = Math.max(maxMessageId, messageId);
+			}
+			final ClientMessageToServerFactory<?>[] factoryTable = new ClientMessageToServerFactory<?>[maxMessageId + 1];
+			for (final Map.Entry<Integer, ClientMessageToServerFactory<?>> entry : clientMessageToServerFactories.entrySet()) {
+				factoryTable[entry.getKey()] = entry.getValue();
+			}
+			clientMessageToServerFactoryTable = factoryTable;
+		}
+	}
+
+	/**
+	 * @return The highest message id registered for any client-to-server or server-to-client message type, or -1 if none are registered.
+	 */
+	int getHighestMessageId() {
+		int highestMessageId = -1;
+		for (final Integer messageId : clientMessageToServerFactories.keySet()) {
+			highestMessageId = Math.max(highestMessageId, messageId);
+		}
+		for (final Integer messageId : serverMessageToClientIdList.values()) {
+			highestMessageId = Math.max(highestMessageId, messageId);
+		}
+		return highestMessageId;
+	}
+
+	/**
+	 * @param messageId The message id for which to find the registered message factory.
+	 * @return The client-to-server message factory associated with the given message id, or <code>null</code> if not found.
+	 */
+	ClientMessageToServerFactory<?> getClientMessageToServerFactory(final int messageId) {
+		final ClientMessageToServerFactory<?>[] factoryTable = clientMessageToServerFactoryTable;
+		if (factoryTable == null) {
+			return clientMessageToServerFactories.get(messageId);
+		}
+		return (messageId >= 0 && messageId < factoryTable.length) ? factoryTable[messageId] : null;
+	}
+
+	/**
+	 * @param messageType The exact type of a message.
+	 * @return The pool registered for the message type, or <code>null</code> if the message type is not pooled.
+	 */
+	MessagePool<?> getMessagePool(final Class<?> messageType) {
+		return (clientMessageToServerFactoryTable == null) ? messagePoolList.get(messageType) : messagePools.get(messageType);
+	}
+
+	/**
+	 * Reports the messages of every registered pool that have not been released yet.
+	 * 
+	 * @see MessagePool#reportLeaks()
+	 */
+	void reportLeaks() {
+		for (final MessagePool<?> messagePool : messagePoolList.values()) {
+			messagePool.reportLeaks();
+		}
+	}
+
+	/**
+	 * @param messageType The message type to identify.
+	 * @return The unique identifier registered for the given message type.
+	 * @throws IllegalArgumentException Thrown when the message type has not been registered.
+	 */
+	int getServerMessageId(final Class<? extends ServerMessageToClient> messageType) {
+		final int messageId;
+		if (clientMessageToServerFactoryTable == null) {
+			final Integer registeredMessageId = serverMessageToClientIdList.get(messageType);
+			messageId = (registeredMessageId != null) ? registeredMessageId : NO_MESSAGE_ID;
+		} else {
+			messageId = serverMessageToClientIds.get(messageType);
+		}
+		if (messageId == NO_MESSAGE_ID) {
+			throw new IllegalArgumentException(String.format("message type '%s' has not been registered", messageType.getSimpleName()));
+		}
+		return messageId;
+	}
+}
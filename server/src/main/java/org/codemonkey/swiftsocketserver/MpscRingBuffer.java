@@ -0,0 +1,137 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free queue for multiple producer threads and a single consumer thread, backed by a ring of preallocated slots.
+ * <p>
+ * Every slot has a sequence number that tells producers and the consumer whose turn it is (as in Dmitry Vyukov's bounded queue): a
+ * producer claims the slot at the tail by advancing the tail with a compare-and-set, stores its element and then publishes it by
+ * advancing the slot's sequence. The consumer takes the element once the sequence says it has been published and hands the slot back to
+ * producers of the next lap. Since there is only one consumer, the head needs no compare-and-set at all.
+ * <p>
+ * Offering and polling allocate nothing. {@link #poll()} may only be called by one thread at a time.
+ * 
+ * @author Benny Bottema
+ * @param <E> The type of elements in the queue.
+ * @see SwiftSocketServer#drainClientMessages(ClientMessageConsumer, int)
+ * @since 1.0
+ */
+final class MpscRingBuffer<E> {
+
+	/**
+	 * Used to map a position to a slot index, since the capacity is a power of two.
+	 */
+	private final int mask;
+
+	private final Object[] slots;
+
+	/**
+	 * For every slot, the position at which a producer may fill it or, once filled, that position plus one.
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * The position the next producer claims.
+	 */
+	private final AtomicLong tail;
+
+	/**
+	 * The position the consumer takes next. Only written by the consumer, volatile so {@link #size()} and {@link #isEmpty()} can be called
+	 * from any thread.
+	 */
+	private volatile long head;
+
+	/**
+	 * Creates a queue with all slots preallocated.
+	 * 
+	 * @param requestedCapacity The minimum number of elements the queue can hold, rounded up to a power of two.
+	 */
+	MpscRingBuffer(final int requestedCapacity) {
+		if (requestedCapacity < 1 || requestedCapacity > 1 << 30) {
+			throw new IllegalArgumentException("capacity should be between 1 and 2^30: " + requestedCapacity);
+		}
+		int capacity = 1;
+		while (capacity < requestedCapacity) {
+			capacity <<= 1;
+		}
+		mask = capacity - 1;
+		slots = new Object[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+		tail = new AtomicLong();
+	}
+
+	/**
+	 * Thread safe method that adds an element to the tail of the queue, unless the queue is full.
+	 * 
+	 * @param element The element to add, not <code>null</code>.
+	 * @return Whether the element was added.
+	 */
+	boolean offer(final E element) {
+		long position = tail.get();
+		while (true) {
+			final int index = (int) position & mask;
+			final long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots[index] = element;
+					sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				// the slot still holds an element of the previous lap
+				return false;
+			} else {
+				// another producer claimed the slot in the meantime
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Takes the element at the head of the queue. Should only be called by the consumer thread.
+	 * 
+	 * @return The oldest element, or <code>null</code> if the queue is empty (or the oldest element has been claimed, but not yet
+	 *         published by its producer).
+	 */
+	@SuppressWarnings("unchecked")
+	E poll() {
+		final long position = head;
+		final int index = (int) position & mask;
+		if (sequences.get(index) != position + 1) {
+			return null;
+		}
+		final E element = (E) slots[index];
+		slots[index] = null;
+		sequences.lazySet(index, position + mask + 1);
+		head = position + 1;
+		return element;
+	}
+
+	/**
+	 * @return Whether no published element is waiting at the head of the queue.
+	 */
+	boolean isEmpty() {
+		final long position = head;
+		return sequences.get((int) position & mask) != position + 1;
+	}
+
+	/**
+	 * @return The approximate number of elements in the queue, including claimed elements that have not been published yet.
+	 */
+	int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	/**
+	 * @return The maximum number of elements the queue can hold.
+	 */
+	int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,210 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of encoded messages waiting to be written to a single client. Any thread may send messages, while the I/O layer of the
+ * client endpoint takes them out in batches (see {@link #poll(ByteBuffer[])} and {@link #take(ByteBuffer[])}), so that queued messages are
+ * coalesced into as few writes as possible.
+ * <p>
+ * Messages are taken out of the queue before they are written, so a partially written message is never discarded. When the queue is full,
+ * the configured {@link SlowConsumerPolicy} decides whether to discard the oldest message, to refuse the message or to wait for room.
+ * 
+ * @author Benny Bottema
+ * @see ClientEndpointTCP
+ * @see ClientEndpointNIO
+ * @since 1.0
+ */
+final class OutboundQueue {
+
+	/**
+	 * The maximum number of messages taken out at once, which is the maximum number of buffers handed to a single gathering write.
+	 */
+	static final int MAX_BATCH_SIZE = 64;
+
+	/**
+	 * Ring of queued messages, of which {@link #count} messages starting at {@link #head} are in use.
+	 */
+	private final ByteBuffer[] messages;
+
+	private int head;
+
+	/**
+	 * The number of queued messages. Only changed while holding the {@link #lock}, but read without it by {@link #size()}.
+	 */
+	private volatile int count;
+
+	private final SlowConsumerPolicy slowConsumerPolicy;
+
+	private final long blockTimeoutNanos;
+
+	private final Lock lock;
+
+	private final Condition notEmpty;
+
+	private final Condition notFull;
+
+	/**
+	 * Set when the client endpoint is closed, after which messages are discarded and waiting threads return.
+	 */
+	private boolean closed;
+
+	/**
+	 * @param capacity The maximum number of queued messages.
+	 * @param slowConsumerPolicy Determines what happens when a message is offered to a full queue.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
+	 */
+	OutboundQueue(final int capacity, final SlowConsumerPolicy slowConsumerPolicy, final int blockTimeoutMs) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("outbound queue capacity should be positive");
+		}
+		messages = new ByteBuffer[capacity];
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+		lock = new ReentrantLock();
+		notEmpty = lock.newCondition();
+		notFull = lock.newCondition();
+	}
+
+	/**
+	 * Queues a message, applying the {@link #slowConsumerPolicy} if the queue is full. Messages offered after {@link #close()} are silently
+	 * discarded.
+	 * 
+	 * @param message The encoded message, which should not be modified by the caller afterwards.
+	 * @param mayBlock Whether the calling thread may wait for room, which is not the case for the thread writing this queue.
+	 * @return Whether the message was accepted, otherwise the client should be dropped.
+	 */
+	boolean offer(final ByteBuffer message, final boolean mayBlock) {
+		lock.lock();
+		try {
+			if (!closed && count == messages.length && !slowConsumerPolicy.makeRoom(this, blockTimeoutNanos, mayBlock)) {
+				return false;
+			}
+			if (!closed) {
+				messages[(head + count) % messages.length] = message;
+				count++;
+				notEmpty.signal();
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes out as many queued messages as fit in the batch, without waiting.
+	 * 
+	 * @param batch The array to which the messages are moved, starting at index 0.
+	 * @return The number of messages taken out.
+	 */
+	int poll(final ByteBuffer[] batch) {
+		lock.lock();
+		try {
+			return drainTo(batch);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes out as many queued messages as fit in the batch, waiting for the first message if the queue is empty.
+	 * 
+	 * @param batch The array to which the messages are moved, starting at index 0.
+	 * @return The number of messages taken out, which is 0 only when the queue has been closed.
+	 * @throws InterruptedException Thrown when interrupted while waiting.
+	 */
+	int take(final ByteBuffer[] batch)
+			throws InterruptedException {
+		lock.lock();
+		try {
+			while (count == 0 && !closed) {
+				notEmpty.await();
+			}
+			return drainTo(batch);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int drainTo(final ByteBuffer[] batch) {
+		final int batchSize = Math.min(count, batch.length);
+		for (int i = 0; i < batchSize; i++) {
+			batch[i] = messages[head];
+			messages[head] = null;
+			head = (head + 1) % messages.length;
+		}
+		count -= batchSize;
+		if (batchSize > 0) {
+			notFull.signalAll();
+		}
+		return batchSize;
+	}
+
+	/**
+	 * Discards the oldest queued message. Only called by {@link SlowConsumerPolicy#makeRoom(OutboundQueue, long, boolean)} while holding
+	 * the {@link #lock}.
+	 */
+	void dropOldest() {
+		messages[head] = null;
+		head = (head + 1) % messages.length;
+		count--;
+	}
+
+	/**
+	 * Waits until there is room for a message or the queue has been closed. Only called by
+	 * {@link SlowConsumerPolicy#makeRoom(OutboundQueue, long, boolean)} while holding the {@link #lock}.
+	 * 
+	 * @param timeoutNanos The maximum time to wait.
+	 * @return Whether there is room or the queue has been closed, <code>false</code> when timed out or interrupted.
+	 */
+	boolean awaitRoom(final long timeoutNanos) {
+		long remainingNanos = timeoutNanos;
+		try {
+			while (count == messages.length && !closed) {
+				if (remainingNanos <= 0) {
+					return false;
+				}
+				remainingNanos = notFull.awaitNanos(remainingNanos);
+			}
+			return true;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Discards all queued messages and wakes up all waiting threads. Messages offered afterwards are discarded as well.
+	 */
+	void close() {
+		lock.lock();
+		try {
+			closed = true;
+			while (count > 0) {
+				dropOldest();
+			}
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Whether messages are queued.
+	 */
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * @return The number of queued messages, not counting messages that have been taken out but are not completely written yet.
+	 */
+	int size() {
+		return count;
+	}
+}
@@ -0,0 +1,32 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Message factory taking messages from a {@link MessagePool}, handing every message to the client that sent it. The server returns the
+ * message to the pool once it has been executed.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#registerClientMessageToServerType(int, MessagePool)
+ * @see SwiftSocketServer#releaseClientMessage(ClientMessageToServer)
+ * @since 1.0
+ */
+final class PooledMessageFactory implements ClientMessageToServerFactory<ClientMessageToServer<?>> {
+
+	private final MessagePool<? extends ClientMessageToServer<?>> messagePool;
+
+	/**
+	 * @param messagePool The pool to take messages from.
+	 */
+	PooledMessageFactory(final MessagePool<? extends ClientMessageToServer<?>> messagePool) {
+		this.messagePool = messagePool;
+	}
+
+	/**
+	 * Acquires a message from the pool and assigns it the given client context.
+	 */
+	@Override
+	public ClientMessageToServer<?> create(final ClientContext clientContext) {
+		final ClientMessageToServer<?> message = messagePool.acquire();
+		message.setClientContext(clientContext);
+		return message;
+	}
+}
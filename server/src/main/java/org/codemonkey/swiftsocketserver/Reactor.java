@@ -0,0 +1,325 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Event loop that serves any number of {@link ClientEndpointNIO} connections from a single thread using a {@link Selector}.
+ * <p>
+ * Reads are non-blocking and received bytes are framed by the client endpoint, which hands complete messages to its {@link ClientHandler}.
+ * Writes are non-blocking as well: other threads only queue output on a client endpoint and request a write, after which the reactor
+ * writes whatever the channel accepts and waits for the channel to become writable again for the remainder.
+ * <p>
+ * Since no thread is dedicated to a client, the reactor also performs the connection checks otherwise done by {@link ClientHandler#run()}
+ * (see {@link #checkConnections()}).
+ * <p>
+ * A server may run several reactors, each with its own selector and buffers, to spread connections over multiple cores. Every reactor keeps
+ * counters of its own load, which are exposed as {@link ReactorStatistics}.
+ * 
+ * @author Benny Bottema
+ * @see ServerEndpointNIO
+ * @see ClientEndpointNIO
+ * @since 1.0
+ */
+class Reactor implements Runnable {
+
+	private static final Logger LOGGER = Logger.getLogger(Reactor.class);
+
+	/**
+	 * Size of the buffer that is reused for every read on any of the channels.
+	 */
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	/**
+	 * Interval in milliseconds at which the connection of every client is checked (see {@link ClientHandler#checkConnection()}).
+	 */
+	private static final long CONNECTION_CHECK_INTERVAL_MS = 100;
+
+	/**
+	 * The position of this reactor in the server endpoint's reactor pool, used for logging and statistics.
+	 */
+	private final int reactorIndex;
+
+	private final Selector selector;
+
+	/**
+	 * Reused for every read, since the bytes read are framed by the client endpoint right away.
+	 */
+	private final ByteBuffer readBuffer;
+
+	/**
+	 * Client endpoints waiting to be registered with the {@link #selector}, which is done by the reactor thread itself.
+	 */
+	private final Queue<ClientEndpointNIO> pendingRegistrations;
+
+	/**
+	 * Client endpoints that have queued output since the last select.
+	 */
+	private final Queue<ClientEndpointNIO> pendingWrites;
+
+	/**
+	 * The number of connections currently served. Incremented when a client is handed to this reactor, rather than when it is registered,
+	 * so that balancing new connections immediately takes it into account.
+	 */
+	private final AtomicInteger connectionCount;
+
+	/*
+	 * throughput counters, only updated by the reactor thread
+	 */
+
+	private volatile long bytesRead;
+
+	private volatile long bytesWritten;
+
+	private volatile long messagesReceived;
+
+	private long lastConnectionCheck;
+
+	private volatile boolean closed;
+
+	/**
+	 * The thread running this reactor, assigned when it starts running.
+	 */
+	private volatile Thread reactorThread;
+
+	/**
+	 * Opens a new {@link Selector}.
+	 * 
+	 * @param reactorIndex The position of this reactor in the server endpoint's reactor pool.
+	 * @throws IOException Thrown by {@link Selector#open()}.
+	 */
+	public Reactor(final int reactorIndex)
+			throws IOException {
+		this.reactorIndex = reactorIndex;
+		connectionCount = new AtomicInteger();
+		selector = Selector.open();
+		readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		pendingRegistrations = new ConcurrentLinkedQueue<ClientEndpointNIO>();
+		pendingWrites = new ConcurrentLinkedQueue<ClientEndpointNIO>();
+	}
+
+	/**
+	 * Thread safe method that hands a new client to this reactor. The registration itself is performed by the reactor thread.
+	 * 
+	 * @param clientEndpoint The client endpoint to serve.
+	 * @param clientHandler The handler that receives the client's messages.
+	 */
+	void register(final ClientEndpointNIO clientEndpoint, final ClientHandler clientHandler) {
+		connectionCount.incrementAndGet();
+		clientEndpoint.setClientHandler(clientHandler);
+		pendingRegistrations.offer(clientEndpoint);
+		selector.wakeup();
+	}
+
+	/**
+	 * Thread safe method that notifies the reactor the given client endpoint has queued output.
+	 * 
+	 * @param clientEndpoint The client endpoint that has output waiting to be written.
+	 */
+	void requestWrite(final ClientEndpointNIO clientEndpoint) {
+		pendingWrites.offer(clientEndpoint);
+		selector.wakeup();
+	}
+
+	/**
+	 * @return Whether the calling thread is the thread running this reactor.
+	 */
+	boolean isReactorThread() {
+		return Thread.currentThread() == reactorThread;
+	}
+
+	/**
+	 * Keeps selecting ready channels until {@link #close()} is called, after which all client channels are closed.
+	 */
+	@Override
+	public void run() {
+		reactorThread = Thread.currentThread();
+		try {
+			while (!closed) {
+				selector.select(CONNECTION_CHECK_INTERVAL_MS);
+				processRegistrations();
+				processWriteRequests();
+				processSelectedKeys();
+				if (System.currentTimeMillis() - lastConnectionCheck >= CONNECTION_CHECK_INTERVAL_MS) {
+					checkConnections();
+				}
+			}
+		} catch (final IOException e) {
+			LOGGER.error(String.format("reactor %s crashed, client connections will be closed", reactorIndex), e);
+		} finally {
+			closeAll();
+		}
+	}
+
+	/**
+	 * Registers new clients with the {@link #selector} and writes output that was queued before the client was registered (such as the
+	 * first ping message).
+	 */
+	private void processRegistrations() {
+		ClientEndpointNIO clientEndpoint;
+		while ((clientEndpoint = pendingRegistrations.poll()) != null) {
+			try {
+				write(clientEndpoint.getSocketChannel().register(selector, SelectionKey.OP_READ, clientEndpoint));
+			} catch (final ClosedChannelException e) {
+				clientEndpoint.getClientHandler().dropClient("connection closed before it could be served");
+			}
+		}
+	}
+
+	private void processWriteRequests() {
+		ClientEndpointNIO clientEndpoint;
+		while ((clientEndpoint = pendingWrites.poll()) != null) {
+			final SelectionKey key = clientEndpoint.getSocketChannel().keyFor(selector);
+			if (key != null && key.isValid()) {
+				write(key);
+			}
+		}
+	}
+
+	private void processSelectedKeys() {
+		final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			final SelectionKey key = keys.next();
+			keys.remove();
+			try {
+				if (key.isValid() && key.isReadable()) {
+					read(key);
+				}
+				if (key.isValid() && key.isWritable()) {
+					write(key);
+				}
+			} catch (final CancelledKeyException e) {
+				// client was disposed of while handling its input
+			}
+		}
+	}
+
+	/**
+	 * Reads whatever is available from the key's channel and lets the client endpoint frame it. A client that closed its connection,
+	 * whose connection broke or whose input can't be handled is dropped.
+	 * 
+	 * @param key The key of a readable channel.
+	 * @see ClientEndpointNIO#receive(ByteBuffer)
+	 */
+	private void read(final SelectionKey key) {
+		final ClientEndpointNIO clientEndpoint = (ClientEndpointNIO) key.attachment();
+		final ClientHandler clientHandler = clientEndpoint.getClientHandler();
+		readBuffer.clear();
+		final int bytesRead;
+		try {
+			bytesRead = clientEndpoint.getSocketChannel().read(readBuffer);
+		} catch (final IOException e) {
+			clientHandler.dropClient(String.format("socket in error state [%s]", e.getMessage()));
+			return;
+		}
+		if (bytesRead < 0) {
+			// client closed its connection the hard way
+			clientHandler.dropClient("client closed connection non-gracefully");
+		} else {
+			this.bytesRead += bytesRead;
+			readBuffer.flip();
+			try {
+				messagesReceived += clientEndpoint.receive(readBuffer);
+			} catch (final RuntimeException e) {
+				// severe error, but catch to prevent the reactor and with it all other clients from crashing; the client's input can't be
+				// framed reliably anymore, so drop it
+				LOGGER.error(String.format("error handling input from client %s", clientHandler.getClientContext()), e);
+				clientHandler.dropClient(String.format("error handling input [%s]", e.getMessage()));
+			}
+		}
+	}
+
+	/**
+	 * Writes queued output to the key's channel and only keeps the channel registered for write readiness while output remains.
+	 * 
+	 * @param key The key of a channel that has output queued.
+	 * @see ClientEndpointNIO#flush()
+	 */
+	private void write(final SelectionKey key) {
+		final ClientEndpointNIO clientEndpoint = (ClientEndpointNIO) key.attachment();
+		try {
+			bytesWritten += clientEndpoint.flush();
+			if (!clientEndpoint.hasPendingOutput()) {
+				key.interestOps(SelectionKey.OP_READ);
+			} else {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		} catch (final IOException e) {
+			clientEndpoint.getClientHandler().dropClient(String.format("socket in error state [%s]", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Performs the connection check on all served clients, which sends ping messages and drops clients that timed out when ping pong mode
+	 * is turned on.
+	 * 
+	 * @see ClientHandler#checkConnection()
+	 */
+	private void checkConnections() {
+		lastConnectionCheck = System.currentTimeMillis();
+		for (final SelectionKey key : selector.keys()) {
+			if (key.isValid()) {
+				final ClientEndpointNIO clientEndpoint = (ClientEndpointNIO) key.attachment();
+				if (!clientEndpoint.getClientHandler().checkConnection()) {
+					key.cancel();
+				}
+			}
+		}
+	}
+
+	private void closeAll() {
+		for (final SelectionKey key : selector.keys()) {
+			try {
+				key.channel().close();
+			} catch (final IOException e) {
+				LOGGER.error("error closing client channel: " + e.getMessage());
+			}
+		}
+		try {
+			selector.close();
+		} catch (final IOException e) {
+			LOGGER.error("error closing selector: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Thread safe method that notifies the reactor one of its clients closed its connection.
+	 * 
+	 * @see ClientEndpointNIO#close()
+	 */
+	void connectionClosed() {
+		connectionCount.decrementAndGet();
+	}
+
+	/**
+	 * @return {@link #connectionCount}
+	 */
+	int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	/**
+	 * @return A snapshot of the counters of this reactor.
+	 */
+	ReactorStatistics getStatistics() {
+		return new ReactorStatistics(reactorIndex, connectionCount.get(), bytesRead, bytesWritten, messagesReceived);
+	}
+
+	/**
+	 * Thread safe method that stops the reactor. All client channels are closed by the reactor thread once it wakes up.
+	 */
+	void close() {
+		closed = true;
+		selector.wakeup();
+	}
+}
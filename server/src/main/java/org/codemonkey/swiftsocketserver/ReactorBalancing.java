@@ -0,0 +1,53 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.List;
+
+/**
+ * Defines how new connections are distributed over the {@link Reactor} pool of a {@link ServerType#TCP_NIO} server.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#setReactors(int, ReactorBalancing)
+ * @since 1.0
+ */
+public enum ReactorBalancing {
+	/**
+	 * Assigns connections to the reactors in turn, regardless of how many connections each reactor is currently serving.
+	 */
+	ROUND_ROBIN {
+		/**
+		 * @see ReactorBalancing#ROUND_ROBIN
+		 */
+		@Override
+		Reactor selectReactor(final List<Reactor> reactors, final long acceptCount) {
+			return reactors.get((int) (acceptCount % reactors.size()));
+		}
+	},
+	/**
+	 * Assigns a connection to the reactor currently serving the least connections, so that reactors are evened out again when clients of
+	 * one reactor disconnect.
+	 */
+	LEAST_CONNECTIONS {
+		/**
+		 * @see ReactorBalancing#LEAST_CONNECTIONS
+		 */
+		@Override
+		Reactor selectReactor(final List<Reactor> reactors, final long acceptCount) {
+			Reactor leastLoaded = reactors.get(0);
+			for (final Reactor reactor : reactors) {
+				if (reactor.getConnectionCount() < leastLoaded.getConnectionCount()) {
+					leastLoaded = reactor;
+				}
+			}
+			return leastLoaded;
+		}
+	};
+
+	/**
+	 * Selects the reactor that should serve a newly accepted connection.
+	 * 
+	 * @param reactors The reactor pool, containing at least one reactor.
+	 * @param acceptCount The number of connections accepted before the current one.
+	 * @return The reactor to register the new connection with.
+	 */
+	abstract Reactor selectReactor(List<Reactor> reactors, long acceptCount);
+}
@@ -0,0 +1,84 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Snapshot of the load of a single {@link Reactor} of a {@link ServerType#TCP_NIO} server. Counters are totals since the server was
+ * started, so throughput is derived by comparing two snapshots.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#getReactorStatistics()
+ * @since 1.0
+ */
+public final class ReactorStatistics {
+
+	private final int reactorIndex;
+
+	private final int connectionCount;
+
+	private final long bytesRead;
+
+	private final long bytesWritten;
+
+	private final long messagesReceived;
+
+	/**
+	 * Constructor; simply stores all values of the snapshot.
+	 * 
+	 * @param reactorIndex The position of the reactor in the server's reactor pool.
+	 * @param connectionCount The number of connections currently served by the reactor.
+	 * @param bytesRead The total number of bytes read by the reactor.
+	 * @param bytesWritten The total number of bytes written by the reactor.
+	 * @param messagesReceived The total number of messages framed by the reactor.
+	 */
+	ReactorStatistics(final int reactorIndex, final int connectionCount, final long bytesRead, final long bytesWritten,
+			final long messagesReceived) {
+		this.reactorIndex = reactorIndex;
+		this.connectionCount = connectionCount;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.messagesReceived = messagesReceived;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		final String format = "reactor %s: %s connections, %s bytes read, %s bytes written, %s messages received";
+		return String.format(format, reactorIndex, connectionCount, bytesRead, bytesWritten, messagesReceived);
+	}
+
+	/**
+	 * @return {@link #reactorIndex}
+	 */
+	public int getReactorIndex() {
+		return reactorIndex;
+	}
+
+	/**
+	 * @return {@link #connectionCount}
+	 */
+	public int getConnectionCount() {
+		return connectionCount;
+	}
+
+	/**
+	 * @return {@link #bytesRead}
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * @return {@link #bytesWritten}
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * @return {@link #messagesReceived}
+	 */
+	public long getMessagesReceived() {
+		return messagesReceived;
+	}
+}
@@ -0,0 +1,17 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Marks a message type whose instances can be reused by a {@link MessagePool} instead of being left to the garbage collector after use.
+ * 
+ * @author Benny Bottema
+ * @see MessagePool
+ * @since 1.0
+ */
+public interface Recyclable {
+
+	/**
+	 * Clears the state of the instance before it is returned to its pool, so the next user of the instance doesn't see values of the
+	 * previous use. Fields that are always overwritten (for example by decoding a message) don't need to be cleared.
+	 */
+	void reset();
+}
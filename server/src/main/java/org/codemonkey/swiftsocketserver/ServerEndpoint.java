@@ -6,10 +6,21 @@ import java.net.DatagramSocket;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
 
@@ -20,6 +31,8 @@ import org.apache.log4j.Logger;
  * @author Benny Bottema
  * @see ServerEndpointTCP
  * @see ServerEndpointUDP
+ * @see ServerEndpointNIO
+ * @see ServerEndpointUDPNIO
  * @since 1.0
  */
 abstract class ServerEndpoint {
@@ -49,6 +62,23 @@ abstract class ServerEndpoint {
 	 */
 	abstract void close()
 			throws IOException;
+
+	/**
+	 * Starts serving a newly connected client. By default a dedicated thread (see {@link ThreadMode}) is started running the given
+	 * {@link ClientHandler}, which in turn reads the client's input on its own thread. Event driven endpoints override this to serve the client without dedicated threads.
+	 * 
+	 * @param clientHandler The handler for the client endpoint previously returned by {@link #getClientEndpoint()}.
+	 */
+	void serveClient(final ClientHandler clientHandler) {
+		clientHandler.getThreadMode().newThread(clientHandler).start();
+	}
+
+	/**
+	 * @return Load statistics of the reactors serving the clients, or an empty list if this endpoint is not reactor based.
+	 */
+	List<ReactorStatistics> getReactorStatistics() {
+		return Collections.<ReactorStatistics> emptyList();
+	}
 }
 
 /**
@@ -64,12 +94,34 @@ class ServerEndpointTCP extends ServerEndpoint {
 	private final ServerSocket serverSocket;
 
 	/**
-	 * Constructor; simply stores a reference to the server socket.
+	 * The maximum number of messages queued for each client.
+	 */
+	private final int outboundQueueCapacity;
+
+	/**
+	 * Determines what happens when a client's outbound queue is full.
+	 */
+	private final SlowConsumerPolicy slowConsumerPolicy;
+
+	/**
+	 * The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
+	 */
+	private final int blockTimeoutMs;
+
+	/**
+	 * Constructor; simply stores a reference to the server socket and the settings for the client's outbound queues.
 	 * 
 	 * @param serverSocket The {@link ServerSocket} on which we connect new clients.
+	 * @param outboundQueueCapacity The maximum number of messages queued for each client.
+	 * @param slowConsumerPolicy Determines what happens when a client's outbound queue is full.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
 	 */
-	public ServerEndpointTCP(final ServerSocket serverSocket) {
+	public ServerEndpointTCP(final ServerSocket serverSocket, final int outboundQueueCapacity, final SlowConsumerPolicy slowConsumerPolicy,
+			final int blockTimeoutMs) {
 		this.serverSocket = serverSocket;
+		this.outboundQueueCapacity = outboundQueueCapacity;
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		this.blockTimeoutMs = blockTimeoutMs;
 	}
 
 	/**
@@ -78,7 +130,16 @@ class ServerEndpointTCP extends ServerEndpoint {
 	@Override
 	ClientEndpoint getClientEndpoint()
 			throws IOException {
-		return new ClientEndpointTCP(serverSocket.accept());
+		return new ClientEndpointTCP(serverSocket.accept(), outboundQueueCapacity, slowConsumerPolicy, blockTimeoutMs);
+	}
+
+	/**
+	 * Starts a thread writing the client's output in addition to the threads started by default.
+	 */
+	@Override
+	void serveClient(final ClientHandler clientHandler) {
+		((ClientEndpointTCP) clientHandler.getClientContext().getClientEndpoint()).startOutputHandler(clientHandler);
+		super.serveClient(clientHandler);
 	}
 
 	/**
@@ -111,9 +172,9 @@ class ServerEndpointTCP extends ServerEndpoint {
 class ServerEndpointUDP extends ServerEndpoint {
 
 	/**
-	 * This should probably be tuned at some point to allow for larger datagram packets.
+	 * The largest datagram in bytes that is received in full; larger datagrams are truncated.
 	 */
-	private static final int PACKET_BUFFER_SIZE = 1024;
+	private final int maxDatagramSize;
 
 	/**
 	 * The server socket we're accepting client messages on in the form of UDP datagram packets.
@@ -128,18 +189,33 @@ class ServerEndpointUDP extends ServerEndpoint {
 	/**
 	 * The list of new clients ready to be returned when asked for a new client endpoint.
 	 */
-	private final List<ClientEndpointUDP> newClients;
+	private final Queue<ClientEndpointUDP> newClients;
+
+	/**
+	 * Signaled when a new client is added to {@link #newClients} or the socket is closed.
+	 */
+	private final WaitSignal newClientSignal;
+
+	/**
+	 * The wait strategy used by {@link #newClientSignal} and passed on to client endpoints.
+	 */
+	private final WaitStrategy waitStrategy;
 
 	/**
 	 * Constructor; starts a new <code>Thread</code> listening for new datagram packets. If a new client sends a message, it will be
 	 * returned on {@link #getClientEndpoint()}. In either case the datagram is passed on to the client endpoint being enqueued.
 	 * 
 	 * @param datagramSocket A DatagramSocket to listen to UDP messages.
+	 * @param maxDatagramSize The largest datagram in bytes that is received in full.
+	 * @param waitStrategy Determines how threads wait for new clients and new datagrams.
 	 */
-	public ServerEndpointUDP(final DatagramSocket datagramSocket) {
+	public ServerEndpointUDP(final DatagramSocket datagramSocket, final int maxDatagramSize, final WaitStrategy waitStrategy) {
 		this.datagramSocket = datagramSocket;
+		this.maxDatagramSize = maxDatagramSize;
+		this.waitStrategy = waitStrategy;
 		knownClients = new HashMap<SocketAddress, ClientEndpointUDP>();
-		newClients = new ArrayList<ClientEndpointUDP>();
+		newClients = new ConcurrentLinkedQueue<ClientEndpointUDP>();
+		newClientSignal = new WaitSignal(waitStrategy);
 		new Thread(new DatagramPacketReceiver()).start();
 	}
 
@@ -152,14 +228,20 @@ class ServerEndpointUDP extends ServerEndpoint {
 	 * match the sender address to a known client. Once matched, we let the associated client endpoint deal with the datagram packet, as a
 	 * TCP Socket would have done. If the datagram packet could not be matched to a known client, a new client is trying to communicate with
 	 * us, and so we can return a new <code>ClientEndpoint</code>.
+	 * <p>
+	 * Waits for new clients as per the configured {@link WaitStrategy}.
 	 */
 	@Override
 	ClientEndpoint getClientEndpoint() {
-		while (newClients.isEmpty() && !datagramSocket.isClosed()) {
-			ServerUtil.defaultSleep();
-		}
-		if (newClients.size() > 0) {
-			return newClients.remove(0);
+		newClientSignal.await(new WaitCondition() {
+			@Override
+			public boolean isSatisfied() {
+				return !newClients.isEmpty() || datagramSocket.isClosed();
+			}
+		});
+		final ClientEndpointUDP clientEndpoint = newClients.poll();
+		if (clientEndpoint != null) {
+			return clientEndpoint;
 		} else {
 			// socket.close() will be called when the SwiftSocketServer is stopping,
 			// returning null won't cause NullPointerException in that case
@@ -183,7 +265,7 @@ class ServerEndpointUDP extends ServerEndpoint {
 		public void run() {
 			// a DatagramSocket will only close if the server is stopping gracefully or a client time-out was detected using PingPong mode
 			while (!datagramSocket.isClosed()) {
-				final DatagramPacket datagramPacket = new DatagramPacket(new byte[PACKET_BUFFER_SIZE], PACKET_BUFFER_SIZE);
+				final DatagramPacket datagramPacket = new DatagramPacket(new byte[maxDatagramSize], maxDatagramSize);
 				try {
 					datagramSocket.receive(datagramPacket);
 				} catch (final IOException e) {
@@ -195,9 +277,10 @@ class ServerEndpointUDP extends ServerEndpoint {
 						LOGGER.debug(String.format("received UDP datagram packet from unknown client endpoint [%s]",
 								datagramPacket.getSocketAddress()));
 						final ClientEndpointUDP clientEndpoint = new ClientEndpointUDP(ServerEndpointUDP.this, datagramSocket,
-								datagramPacket);
+								datagramPacket, waitStrategy);
 						knownClients.put(datagramPacket.getSocketAddress(), clientEndpoint);
-						newClients.add(clientEndpoint);
+						newClients.offer(clientEndpoint);
+						newClientSignal.signal();
 					} else {
 						String debugMsg = "received UDP datagram packet from known client endpoint [%s]";
 						LOGGER.debug(String.format(debugMsg, datagramPacket.getSocketAddress()));
@@ -220,7 +303,9 @@ class ServerEndpointUDP extends ServerEndpoint {
 	 * @param clientSocketAddress The socket address which identifies the {@link ClientEndpointUDP} to be removed.
 	 */
 	public void removeClient(final SocketAddress clientSocketAddress) {
-		knownClients.remove(clientSocketAddress);
+		synchronized (knownClients) {
+			knownClients.remove(clientSocketAddress);
+		}
 	}
 
 	/**
@@ -230,7 +315,9 @@ class ServerEndpointUDP extends ServerEndpoint {
 	 * @return Whether {@link #knownClients} contains the given socket address.
 	 */
 	public boolean hasClient(final SocketAddress clientSocketAddress) {
-		return knownClients.containsKey(clientSocketAddress);
+		synchronized (knownClients) {
+			return knownClients.containsKey(clientSocketAddress);
+		}
 	}
 
 	/**
@@ -242,10 +329,465 @@ class ServerEndpointUDP extends ServerEndpoint {
 	}
 
 	/**
-	 * Calls {@link DatagramSocket#close()}
+	 * Calls {@link DatagramSocket#close()} and wakes up all threads waiting for new clients or new datagrams.
 	 */
 	@Override
 	void close() {
 		datagramSocket.close();
+		newClientSignal.signal();
+		synchronized (knownClients) {
+			for (final ClientEndpointUDP clientEndpoint : knownClients.values()) {
+				clientEndpoint.signal();
+			}
+		}
+	}
+}
+
+/**
+ * Non-blocking TCP server endpoint that accepts {@link SocketChannel} connections and hands them to a pool of {@link Reactor} instances,
+ * each serving its share of the connections from a single selector thread. Unlike {@link ServerEndpointTCP}, no threads are dedicated to
+ * individual clients: input is read and framed by a reactor and pushed to the client's {@link ClientHandler}, while ping / pong checks are
+ * performed by the reactor in between selects.
+ * <p>
+ * Every reactor owns its selector and buffers, so the pool scales with the number of cores. New connections are distributed over the pool
+ * as per the configured {@link ReactorBalancing}.
+ * 
+ * @author Benny Bottema
+ * @see Reactor
+ * @see ClientEndpointNIO
+ * @since 1.0
+ */
+class ServerEndpointNIO extends ServerEndpoint {
+
+	/**
+	 * The channel on which new clients are accepted. Kept in blocking mode, since accepting is done by the server's own listening thread.
+	 */
+	private final ServerSocketChannel serverSocketChannel;
+
+	/**
+	 * The reactors that perform all reads and writes for the connected clients.
+	 */
+	private final List<Reactor> reactors;
+
+	/**
+	 * Determines which reactor serves a newly accepted connection.
+	 */
+	private final ReactorBalancing reactorBalancing;
+
+	/**
+	 * The number of connections accepted so far, used by {@link ReactorBalancing#ROUND_ROBIN}.
+	 */
+	private long acceptCount;
+
+	/**
+	 * The maximum number of messages queued for each client.
+	 */
+	private final int outboundQueueCapacity;
+
+	/**
+	 * Determines what happens when a client's outbound queue is full.
+	 */
+	private final SlowConsumerPolicy slowConsumerPolicy;
+
+	/**
+	 * The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
+	 */
+	private final int blockTimeoutMs;
+
+	/**
+	 * Constructor; stores a reference to the server channel and starts a new <code>Thread</code> for each {@link Reactor}.
+	 * 
+	 * @param serverSocketChannel A bound {@link ServerSocketChannel} on which we accept new clients.
+	 * @param reactorCount The number of reactors to distribute the connections over.
+	 * @param reactorBalancing The strategy that determines which reactor serves a new connection.
+	 * @param outboundQueueCapacity The maximum number of messages queued for each client.
+	 * @param slowConsumerPolicy Determines what happens when a client's outbound queue is full.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
+	 * @throws IOException Thrown by {@link Reactor#Reactor(int)}.
+	 */
+	public ServerEndpointNIO(final ServerSocketChannel serverSocketChannel, final int reactorCount, final ReactorBalancing reactorBalancing,
+			final int outboundQueueCapacity, final SlowConsumerPolicy slowConsumerPolicy, final int blockTimeoutMs)
+			throws IOException {
+		this.serverSocketChannel = serverSocketChannel;
+		this.reactorBalancing = reactorBalancing;
+		this.outboundQueueCapacity = outboundQueueCapacity;
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		this.blockTimeoutMs = blockTimeoutMs;
+		reactors = new ArrayList<Reactor>();
+		for (int i = 0; i < reactorCount; i++) {
+			final Reactor reactor = new Reactor(i);
+			reactors.add(reactor);
+			new Thread(reactor).start();
+		}
+		LOGGER.debug(String.format("started %s reactors (%s)", reactorCount, reactorBalancing));
+	}
+
+	/**
+	 * Returns a new {@link ClientEndpointNIO} for a non-blocking {@link SocketChannel} received from
+	 * {@link ServerSocketChannel#accept()}, assigned to the reactor selected by the {@link #reactorBalancing}.
+	 */
+	@Override
+	ClientEndpoint getClientEndpoint()
+			throws IOException {
+		final SocketChannel socketChannel;
+		try {
+			socketChannel = serverSocketChannel.accept();
+		} catch (final ClosedChannelException e) {
+			// channel.close() will be called when the SwiftSocketServer is stopping,
+			// returning null won't cause NullPointerException in that case
+			return null;
+		}
+		socketChannel.configureBlocking(false);
+		return new ClientEndpointNIO(socketChannel, reactorBalancing.selectReactor(reactors, acceptCount++), outboundQueueCapacity,
+				slowConsumerPolicy, blockTimeoutMs);
+	}
+
+	/**
+	 * Registers the client with its {@link Reactor} instead of starting threads for it.
+	 */
+	@Override
+	void serveClient(final ClientHandler clientHandler) {
+		clientHandler.startSession();
+		final ClientEndpointNIO clientEndpoint = (ClientEndpointNIO) clientHandler.getClientContext().getClientEndpoint();
+		clientEndpoint.getReactor().register(clientEndpoint, clientHandler);
+	}
+
+	/**
+	 * @return A snapshot of the counters of each reactor.
+	 */
+	@Override
+	List<ReactorStatistics> getReactorStatistics() {
+		final List<ReactorStatistics> statistics = new ArrayList<ReactorStatistics>();
+		for (final Reactor reactor : reactors) {
+			statistics.add(reactor.getStatistics());
+		}
+		return statistics;
+	}
+
+	/**
+	 * @return Whether the {@link ServerSocketChannel} has been closed.
+	 */
+	@Override
+	boolean isClosed() {
+		return !serverSocketChannel.isOpen();
+	}
+
+	/**
+	 * Closes the {@link ServerSocketChannel} and stops all {@link Reactor} instances, closing all client connections.
+	 */
+	@Override
+	void close()
+			throws IOException {
+		serverSocketChannel.close();
+		for (final Reactor reactor : reactors) {
+			reactor.close();
+		}
+	}
+}
+
+/**
+ * Non-blocking UDP server endpoint on a {@link DatagramChannel}. Contrary to {@link ServerEndpointUDP}, datagrams are not copied into a
+ * new <code>DatagramPacket</code> and queued per client, but received in a reused direct {@link ByteBuffer} taken from a
+ * {@link ByteBufferPool} and decoded in place: every line in the datagram is handed to the client's {@link ClientHandler} right away by a
+ * single receiver thread. Like {@link ServerEndpointNIO}, no threads are dedicated to individual clients, so the receiver thread performs
+ * the ping / pong checks as well.
+ * <p>
+ * TCP like client handling is emulated the same way as {@link ServerEndpointUDP} does, based on the address of the sender and a handshake
+ * for new clients (see {@link ClientEndpointUDP#CONNECT}).
+ * 
+ * @author Benny Bottema
+ * @see ClientEndpointUDPNIO
+ * @see SwiftSocketServer#setMaxDatagramSize(int)
+ * @since 1.0
+ */
+class ServerEndpointUDPNIO extends ServerEndpoint {
+
+	/**
+	 * Interval in milliseconds at which the connection of every client is checked (see {@link ClientHandler#checkConnection()}).
+	 */
+	private static final long CONNECTION_CHECK_INTERVAL_MS = 100;
+
+	/**
+	 * The maximum number of idle buffers kept in the {@link #bufferPool}.
+	 */
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	/**
+	 * The non-blocking channel on which all datagrams are received and sent.
+	 */
+	private final DatagramChannel datagramChannel;
+
+	/**
+	 * Used by the receiver thread to wait for datagrams.
+	 */
+	private final Selector selector;
+
+	/**
+	 * The largest datagram in bytes that is accepted or sent.
+	 */
+	private final int maxDatagramSize;
+
+	/**
+	 * Buffers for receiving and sending datagrams. Every buffer has room for one byte more than {@link #maxDatagramSize}, so truncated
+	 * datagrams can be detected.
+	 */
+	private final ByteBufferPool bufferPool;
+
+	/**
+	 * The list of known clients, based on the {@link SocketAddress} of previously received datagrams.
+	 */
+	private final Map<SocketAddress, ClientEndpointUDPNIO> knownClients;
+
+	/**
+	 * The new clients ready to be returned when asked for a new client endpoint.
+	 */
+	private final Queue<ClientEndpointUDPNIO> newClients;
+
+	/**
+	 * Signaled when a new client is added to {@link #newClients} or the channel is closed.
+	 */
+	private final WaitSignal newClientSignal;
+
+	/**
+	 * The client endpoints that were handed their client handler, of which the receiver thread still has to flush the pending lines (see
+	 * {@link ClientEndpointUDPNIO#flushPendingLines()}).
+	 */
+	private final Queue<ClientEndpointUDPNIO> servedClients;
+
+	/**
+	 * Constructor; registers the channel with a new {@link Selector} and starts a new <code>Thread</code> receiving datagrams.
+	 * 
+	 * @param datagramChannel A bound, non-blocking {@link DatagramChannel} to listen to UDP messages.
+	 * @param maxDatagramSize The largest datagram in bytes that is accepted or sent.
+	 * @param waitStrategy Determines how threads wait for new clients.
+	 * @throws IOException Thrown by {@link Selector#open()} and {@link DatagramChannel#register(Selector, int)}.
+	 */
+	public ServerEndpointUDPNIO(final DatagramChannel datagramChannel, final int maxDatagramSize, final WaitStrategy waitStrategy)
+			throws IOException {
+		this.datagramChannel = datagramChannel;
+		this.maxDatagramSize = maxDatagramSize;
+		bufferPool = new ByteBufferPool(maxDatagramSize + 1, MAX_POOLED_BUFFERS);
+		knownClients = new ConcurrentHashMap<SocketAddress, ClientEndpointUDPNIO>();
+		newClients = new ConcurrentLinkedQueue<ClientEndpointUDPNIO>();
+		newClientSignal = new WaitSignal(waitStrategy);
+		servedClients = new ConcurrentLinkedQueue<ClientEndpointUDPNIO>();
+		selector = Selector.open();
+		datagramChannel.register(selector, SelectionKey.OP_READ);
+		new Thread(new DatagramChannelReceiver()).start();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns a new client endpoint once a handshake has been received from an unknown client. Blocks (like {@link ServerSocket#accept()})
+	 * until that happens or the channel is closed, waiting as per the configured {@link WaitStrategy}.
+	 * 
+	 * @see ServerEndpointUDP#getClientEndpoint()
+	 */
+	@Override
+	ClientEndpoint getClientEndpoint() {
+		newClientSignal.await(new WaitCondition() {
+			@Override
+			public boolean isSatisfied() {
+				return !newClients.isEmpty() || !datagramChannel.isOpen();
+			}
+		});
+		// channel.close() will be called when the SwiftSocketServer is stopping,
+		// returning null won't cause NullPointerException in that case
+		return newClients.poll();
+	}
+
+	/**
+	 * Hands the client handler to the client endpoint, so the receiver thread pushes the client's messages to it, instead of starting
+	 * threads for it. Wakes up the receiver thread, so lines received before the client was served are handled right away instead of
+	 * waiting for the client's next datagram.
+	 */
+	@Override
+	void serveClient(final ClientHandler clientHandler) {
+		clientHandler.startSession();
+		final ClientEndpointUDPNIO clientEndpoint = (ClientEndpointUDPNIO) clientHandler.getClientContext().getClientEndpoint();
+		clientEndpoint.setClientHandler(clientHandler);
+		servedClients.offer(clientEndpoint);
+		selector.wakeup();
+	}
+
+	/**
+	 * Receives datagrams from the channel and lets the sending client endpoint decode them, or performs the handshake for unknown clients.
+	 * In between, checks the connection of every client that is being served.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private class DatagramChannelReceiver implements Runnable {
+
+		/**
+		 * Reused for every datagram, since datagrams are decoded right away.
+		 */
+		private final ByteBuffer receiveBuffer = bufferPool.acquire();
+
+		/**
+		 * Reused by client endpoints to decode lines from {@link #receiveBuffer}.
+		 */
+		private final byte[] lineBuffer = new byte[maxDatagramSize];
+
+		private long lastConnectionCheck;
+
+		@Override
+		public void run() {
+			try {
+				// the channel will only close if the server is stopping
+				while (datagramChannel.isOpen()) {
+					selector.select(CONNECTION_CHECK_INTERVAL_MS);
+					selector.selectedKeys().clear();
+					flushServedClients();
+					receiveDatagrams();
+					if (System.currentTimeMillis() - lastConnectionCheck >= CONNECTION_CHECK_INTERVAL_MS) {
+						checkConnections();
+					}
+				}
+			} catch (final IOException e) {
+				if (datagramChannel.isOpen()) {
+					LOGGER.error("error receiving datagrams in UDP server endpoint, shutting down endpoint", e);
+				}
+			} finally {
+				bufferPool.release(receiveBuffer);
+				closeQuietly();
+			}
+		}
+
+		/**
+		 * Receives datagrams until none are available without blocking.
+		 */
+		private void receiveDatagrams()
+				throws IOException {
+			while (true) {
+				receiveBuffer.clear();
+				final SocketAddress clientSocketAddress = datagramChannel.receive(receiveBuffer);
+				if (clientSocketAddress == null) {
+					return;
+				}
+				receiveBuffer.flip();
+				if (receiveBuffer.remaining() > maxDatagramSize) {
+					final String msg = "dropped datagram from %s exceeding the maximum datagram size of %s bytes";
+					LOGGER.warn(String.format(msg, clientSocketAddress, maxDatagramSize));
+					continue;
+				}
+				final ClientEndpointUDPNIO clientEndpoint = knownClients.get(clientSocketAddress);
+				if (clientEndpoint == null) {
+					LOGGER.debug(String.format("received UDP datagram from unknown client endpoint [%s]", clientSocketAddress));
+					acceptClient(clientSocketAddress);
+				} else {
+					try {
+						clientEndpoint.receive(receiveBuffer, lineBuffer);
+					} catch (final RuntimeException e) {
+						// severe error, but catch to prevent the receiver and with it all other clients from crashing
+						LOGGER.error(String.format("error handling input from client %s", clientSocketAddress), e);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Hands the lines received before they were served to the client handlers of newly served clients.
+		 */
+		private void flushServedClients() {
+			ClientEndpointUDPNIO clientEndpoint;
+			while ((clientEndpoint = servedClients.poll()) != null) {
+				try {
+					clientEndpoint.flushPendingLines();
+				} catch (final RuntimeException e) {
+					// severe error, but catch to prevent the receiver and with it all other clients from crashing
+					LOGGER.error(String.format("error handling input from client %s", clientEndpoint.getInetAddress()), e);
+				}
+			}
+		}
+
+		/**
+		 * Verifies that the datagram in {@link #receiveBuffer} is the handshake request '{@value ClientEndpointUDP#CONNECT}' and if so,
+		 * completes the handshake and queues a new client endpoint to be returned by {@link ServerEndpointUDPNIO#getClientEndpoint()}.
+		 */
+		private void acceptClient(final SocketAddress clientSocketAddress) {
+			final int length = receiveBuffer.remaining();
+			receiveBuffer.get(lineBuffer, 0, length);
+			final String message = new String(lineBuffer, 0, length).trim();
+			if (!message.equals(ClientEndpointUDP.CONNECT)) {
+				final String msg = "expected handshake '%s' from %s, but received: '%s'";
+				LOGGER.warn(String.format(msg, ClientEndpointUDP.CONNECT, clientSocketAddress, message));
+			} else {
+				final ClientEndpointUDPNIO clientEndpoint = new ClientEndpointUDPNIO(ServerEndpointUDPNIO.this, datagramChannel,
+						clientSocketAddress, bufferPool, maxDatagramSize);
+				try {
+					LOGGER.debug("sending handshake acknowledgment to " + clientSocketAddress + ": " + ClientEndpointUDP.ACK);
+					clientEndpoint.send(ClientEndpointUDP.ACK);
+					knownClients.put(clientSocketAddress, clientEndpoint);
+					newClients.offer(clientEndpoint);
+					newClientSignal.signal();
+				} catch (final IOException e) {
+					final String msg = "unable establish first contact with client '%s' with acknowledgment response '%s'!";
+					LOGGER.error(String.format(msg, clientSocketAddress, ClientEndpointUDP.ACK), e);
+				}
+			}
+		}
+
+		/**
+		 * Performs the connection check on all served clients, which sends ping messages and drops clients that timed out when ping pong
+		 * mode is turned on.
+		 * 
+		 * @see ClientHandler#checkConnection()
+		 */
+		private void checkConnections() {
+			lastConnectionCheck = System.currentTimeMillis();
+			for (final ClientEndpointUDPNIO clientEndpoint : knownClients.values()) {
+				final ClientHandler clientHandler = clientEndpoint.getClientHandler();
+				if (clientHandler != null) {
+					clientHandler.checkConnection();
+				}
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				selector.close();
+				datagramChannel.close();
+			} catch (final IOException e) {
+				LOGGER.error("error closing UDP server endpoint: " + e.getMessage());
+			}
+			newClientSignal.signal();
+		}
+	}
+
+	/**
+	 * Removes a client from the list of known clients, most likely because it was explicitly closed by calling
+	 * {@link ClientEndpointUDPNIO#close()}.
+	 * 
+	 * @param clientSocketAddress The socket address which identifies the {@link ClientEndpointUDPNIO} to be removed.
+	 */
+	void removeClient(final SocketAddress clientSocketAddress) {
+		knownClients.remove(clientSocketAddress);
+	}
+
+	/**
+	 * @param clientSocketAddress The address by which the client is identified.
+	 * @return Whether {@link #knownClients} contains the given socket address.
+	 */
+	boolean hasClient(final SocketAddress clientSocketAddress) {
+		return knownClients.containsKey(clientSocketAddress);
+	}
+
+	/**
+	 * @return Whether the {@link DatagramChannel} has been closed.
+	 */
+	@Override
+	boolean isClosed() {
+		return !datagramChannel.isOpen();
+	}
+
+	/**
+	 * Closes the {@link DatagramChannel} and wakes up the receiver thread so it can finish, as well as all threads waiting for new clients.
+	 */
+	@Override
+	void close()
+			throws IOException {
+		datagramChannel.close();
+		selector.wakeup();
+		newClientSignal.signal();
+	}
+}
@@ -1,6 +1,7 @@
 package org.codemonkey.swiftsocketserver;
 
 import org.codemonkey.util.DatagramEncoder;
+import org.codemonkey.util.StreamingDatagramEncoder;
 
 /**
  * Provides a default {@link DatagramEncoder} implementation that returns an empty string. The {@link #encode()} method implemented can be
@@ -17,19 +18,28 @@ import org.codemonkey.util.DatagramEncoder;
  * <p>
  * The following example could of a login response: <i>0052OK</i><br />
  * The following example could of a pong notification: <i>{@value SwiftSocketServer#MESSAGE_ID_PINGPONG}</i><br />
+ * <p>
+ * The server encodes messages through {@link #encodeTo(StringBuilder)}, appending them to a datagram buffer that is reused by the sending
+ * thread. Messages sent often, such as world state broadcasts, may override it to append their values directly instead of building an
+ * intermediate <code>String</code> in {@link #encode()}.
+ * <p>
+ * Message types that implement {@link Recyclable} can be registered with a {@link MessagePool}, in which case the server returns every
+ * message to the pool once it has been sent. A pooled message is assigned its recipient with {@link #setClientContext(ClientContext)}.
  * 
  * @author Benny Bottema
  * @see SwiftSocketServer#addClientMessage(ClientMessageToServer)
  * @see SwiftSocketServer#getNextClientMessage()
  * @see DatagramEncoder#encode()
+ * @see StreamingDatagramEncoder#encodeTo(StringBuilder)
  * @since 1.0
  */
-public abstract class ServerMessageToClient implements DatagramEncoder {
+public abstract class ServerMessageToClient implements DatagramEncoder, StreamingDatagramEncoder {
 
 	/**
-	 * Holds the information about the whereabouts of the connected client that was responsible for the current message.
+	 * Holds the information about the whereabouts of the connected client that was responsible for the current message. Only reassigned
+	 * for pooled messages.
 	 */
-	private final ClientContext clientContext;
+	private ClientContext clientContext;
 
 	/**
 	 * Constructor; simply stores a reference to the client associated with this message.
@@ -47,6 +57,16 @@ public abstract class ServerMessageToClient implements DatagramEncoder {
 		return clientContext;
 	}
 
+	/**
+	 * Assigns the recipient of a pooled message, which the server clears when the message is returned to its pool.
+	 * 
+	 * @param clientContext The client associated with this message.
+	 * @see MessagePool
+	 */
+	protected final void setClientContext(final ClientContext clientContext) {
+		this.clientContext = clientContext;
+	}
+
 	/**
 	 * Default implementation which returns an empty string. This is useful for messages that have no parameters, just a message code.
 	 * 
@@ -57,4 +77,15 @@ public abstract class ServerMessageToClient implements DatagramEncoder {
 	public String encode() {
 		return "";
 	}
+
+	/**
+	 * Default implementation which appends the result of {@link #encode()}, so existing messages keep working unchanged.
+	 * 
+	 * @param coded The datagram being built, already containing the message id.
+	 * @see StreamingDatagramEncoder#encodeTo(StringBuilder)
+	 */
+	@Override
+	public void encodeTo(final StringBuilder coded) {
+		coded.append(encode());
+	}
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package org.codemonkey.swiftsocketserver;
 
+import org.codemonkey.util.BinaryDatagramEncoder;
+import org.codemonkey.util.BinaryEncoder;
+
 /**
  * Message that encodes pong messages. This message is on the server level and therefore only interacts with the {@link ClientHandler} and
  * is filtered from the client message queue in the server.
@@ -8,8 +11,16 @@ package org.codemonkey.swiftsocketserver;
  * @see ServerMessageToClient
  * @since 1.0
  */
-final class ServerMessageToClientPingPong extends ServerMessageToClient {
+final class ServerMessageToClientPingPong extends ServerMessageToClient implements BinaryDatagramEncoder {
 	public ServerMessageToClientPingPong(final ClientContext clientContext) {
 		super(clientContext);
 	}
+
+	/**
+	 * Writes nothing, since only the message id is relevant.
+	 */
+	@Override
+	public void encode(final BinaryEncoder encoder) {
+		//
+	}
 }
\ No newline at end of file
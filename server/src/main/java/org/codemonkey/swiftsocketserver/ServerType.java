@@ -2,13 +2,16 @@ package org.codemonkey.swiftsocketserver;
 
 import java.io.IOException;
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.SocketException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
 
 /**
- * Defines the type of server, {@link #UDP} or {@link #TCP}. Determines which {@link ServerEndpoint} is being used. The server behaves
- * exactly the same in both modes, except the message transport types are being switched (without breaking API). In UDP mode, TCP mode is
- * being emulated (see {@link ServerEndpoint} for more info on this).
+ * Defines the type of server, {@link #UDP}, {@link #UDP_NIO}, {@link #TCP} or {@link #TCP_NIO}. Determines which {@link ServerEndpoint} is
+ * being used. The server behaves exactly the same in all modes, except the message transport types are being switched (without breaking
+ * API). In UDP mode, TCP mode is being emulated (see {@link ServerEndpoint} for more info on this).
  * 
  * @author Benny Bottema
  * @since 1.0
@@ -25,9 +28,29 @@ public enum ServerType {
 		 * @see ServerType#UDP
 		 */
 		@Override
-		ServerEndpoint createServerEndpoint(final int port)
+		ServerEndpoint createServerEndpoint(final int port, final SwiftSocketServer server)
 				throws SocketException {
-			return new ServerEndpointUDP(new DatagramSocket(port));
+			return new ServerEndpointUDP(new DatagramSocket(port), server.getMaxDatagramSize(), server.getWaitStrategy());
+		}
+	},
+	/**
+	 * Creates a {@link ServerEndpointUDPNIO} with an embedded non-blocking {@link DatagramChannel}. Datagrams are received in pooled
+	 * buffers and decoded in place by a single thread instead of being queued per client, so use this type for high datagram rates.
+	 * 
+	 * @see ServerEndpointUDPNIO
+	 * @see SwiftSocketServer#setMaxDatagramSize(int)
+	 */
+	UDP_NIO {
+		/**
+		 * @see ServerType#UDP_NIO
+		 */
+		@Override
+		ServerEndpoint createServerEndpoint(final int port, final SwiftSocketServer server)
+				throws IOException {
+			final DatagramChannel datagramChannel = DatagramChannel.open();
+			datagramChannel.socket().bind(new InetSocketAddress(port));
+			datagramChannel.configureBlocking(false);
+			return new ServerEndpointUDPNIO(datagramChannel, server.getMaxDatagramSize(), server.getWaitStrategy());
 		}
 	},
 	/**
@@ -41,9 +64,31 @@ public enum ServerType {
 		 * @see ServerType#TCP
 		 */
 		@Override
-		ServerEndpoint createServerEndpoint(final int port)
+		ServerEndpoint createServerEndpoint(final int port, final SwiftSocketServer server)
+				throws IOException {
+			return new ServerEndpointTCP(new ServerSocket(port), server.getOutboundQueueCapacity(), server.getSlowConsumerPolicy(),
+					server.getSlowConsumerBlockTimeoutMs());
+		}
+	},
+	/**
+	 * Creates a {@link ServerEndpointNIO} with an embedded {@link ServerSocketChannel}. All clients are served by a fixed number of
+	 * threads instead of two threads per client, so use this type when many clients are connected simultaneously.
+	 * 
+	 * @see ServerEndpointNIO
+	 * @see Reactor
+	 * @see SwiftSocketServer#setReactors(int, ReactorBalancing)
+	 */
+	TCP_NIO {
+		/**
+		 * @see ServerType#TCP_NIO
+		 */
+		@Override
+		ServerEndpoint createServerEndpoint(final int port, final SwiftSocketServer server)
 				throws IOException {
-			return new ServerEndpointTCP(new ServerSocket(port));
+			final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+			serverSocketChannel.socket().bind(new InetSocketAddress(port));
+			return new ServerEndpointNIO(serverSocketChannel, server.getReactorCount(), server.getReactorBalancing(),
+					server.getOutboundQueueCapacity(), server.getSlowConsumerPolicy(), server.getSlowConsumerBlockTimeoutMs());
 		}
 	};
 
@@ -51,10 +96,12 @@ public enum ServerType {
 	 * Creates a server endpoint embedding a transport type specific socket (UDP or TCP).
 	 * 
 	 * @param port The port on which the server endpoint socket should list.
+	 * @param server The server for which the endpoint is created, providing transport specific settings.
 	 * @return A UDP or TCP {@link ServerEndpoint}.
 	 * @throws SocketException Thrown when creating an UDP {@link DatagramSocket} went wrong.
-	 * @throws IOException Thrown when creating a TCP {@link ServerSocket} went wrong.
+	 * @throws IOException Thrown when creating a TCP {@link ServerSocket}, {@link ServerSocketChannel} or UDP {@link DatagramChannel} went
+	 *             wrong.
 	 */
-	abstract ServerEndpoint createServerEndpoint(int port)
+	abstract ServerEndpoint createServerEndpoint(int port, SwiftSocketServer server)
 			throws SocketException, IOException;
 }
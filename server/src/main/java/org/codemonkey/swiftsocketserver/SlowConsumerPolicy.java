@@ -0,0 +1,64 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * Determines what happens when a message is sent to a client whose outbound queue is full, which means the client (or the network towards
+ * it) does not keep up with the messages sent to it.
+ * <ul>
+ * <li>{@link #DROP_OLDEST}: the oldest message that has not been written yet is discarded to make room, favoring fresh state over
+ * completeness</li>
+ * <li>{@link #DISCONNECT}: the client is dropped (the default)</li>
+ * <li>{@link #BLOCK}: the sending thread waits for room, up to a time-out after which the client is dropped</li>
+ * </ul>
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#setOutboundQueue(int, SlowConsumerPolicy, int)
+ * @see OutboundQueue
+ * @since 1.0
+ */
+public enum SlowConsumerPolicy {
+
+	/**
+	 * Discards the oldest queued message, so a new message always fits.
+	 */
+	DROP_OLDEST {
+		@Override
+		boolean makeRoom(final OutboundQueue outboundQueue, final long blockTimeoutNanos, final boolean mayBlock) {
+			outboundQueue.dropOldest();
+			return true;
+		}
+	},
+
+	/**
+	 * Refuses the message, after which the client is dropped.
+	 */
+	DISCONNECT {
+		@Override
+		boolean makeRoom(final OutboundQueue outboundQueue, final long blockTimeoutNanos, final boolean mayBlock) {
+			return false;
+		}
+	},
+
+	/**
+	 * Waits until the I/O layer has written enough to make room or the time-out expires, after which the client is dropped. Threads that
+	 * write the queue themselves (such as a reactor sending a ping message) never block, they drop the client right away.
+	 * <p>
+	 * The thread that waits is the one sending the message, typically the world thread, so a single slow client stalls every other
+	 * client's simulation for up to the time-out, per message.
+	 */
+	BLOCK {
+		@Override
+		boolean makeRoom(final OutboundQueue outboundQueue, final long blockTimeoutNanos, final boolean mayBlock) {
+			return mayBlock && outboundQueue.awaitRoom(blockTimeoutNanos);
+		}
+	};
+
+	/**
+	 * Makes room in a full queue for one more message. Called while holding the queue's lock.
+	 * 
+	 * @param outboundQueue The full queue.
+	 * @param blockTimeoutNanos The maximum time to wait for room, if this policy waits at all.
+	 * @param mayBlock Whether the sending thread may wait for room.
+	 * @return Whether room was made, otherwise the client should be dropped.
+	 */
+	abstract boolean makeRoom(OutboundQueue outboundQueue, long blockTimeoutNanos, boolean mayBlock);
+}
@@ -4,13 +4,18 @@ import java.io.IOException;
 import java.net.BindException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Logger;
+import org.codemonkey.util.DecoderUtil;
+import org.codemonkey.util.EncoderUtil;
 
 /**
  * A low level message server that mediates messages from and to clients and the server in the form of 'datagrams' (custom serialized
@@ -58,30 +63,55 @@ public class SwiftSocketServer {
 	 * 
 	 * @see ServerEndpoint
 	 */
-	private ServerEndpoint serverEndpoint;
+	private volatile ServerEndpoint serverEndpoint;
 
 	/**
-	 * Used to identify a {@link ClientMessageToServer} type that can handle a binary packet.
+	 * Used to create a {@link ClientMessageToServer} that can handle a binary packet and to prepend the right binary packet code for a
+	 * given {@link ServerMessageToClient} type. Frozen when the server is started.
 	 */
-	private final Map<Integer, Class<? extends ClientMessageToServer<?>>> clientMessageToServerTypeList;
+	private final MessageRegistry messageRegistry;
 
 	/**
-	 * Contains context objects mapped directly against a executable client message type. Usage of this list is optional.
+	 * Contains context objects mapped directly against a executable client message type. Usage of these registrations is optional.
 	 * <p>
-	 * This mechanism automates executing messages using a pre-registered context object. Client messages that are registered in this list
-	 * will not be queued in the {@link #clientMessages} queue for manual processing.
+	 * This mechanism automates executing messages using a pre-registered context object. Client messages that are registered here will
+	 * not be handed out from the {@link #clientMessages} queue for manual processing, but executed as per their {@link DispatchPolicy}.
 	 */
-	private final Map<Class<? extends ClientMessageToServer<?>>, Object> executionContexts;
+	private final MessageDispatcher messageDispatcher;
 
 	/**
-	 * Used to prepend the right binary packet code for a given {@link ServerMessageToClient} type.
+	 * The default capacity of {@link #clientMessages}.
 	 */
-	private final Map<Class<? extends ServerMessageToClient>, Integer> serverMessageToClientIdList;
+	private static final int DEFAULT_CLIENT_MESSAGE_QUEUE_CAPACITY = 16384;
 
 	/**
-	 * A queue that contains unprocessed messages from any client.
+	 * Time in nanoseconds a client thread backs off when {@link #clientMessages} is full, before trying again.
 	 */
-	private final LinkedList<ClientMessageToServer<?>> clientMessages;
+	private static final long FULL_QUEUE_BACKOFF_NS = 100000;
+
+	/**
+	 * A bounded queue that contains unprocessed messages from any client, filled by the client threads and emptied by a single thread
+	 * (usually the world thread). Default capacity set to {@value #DEFAULT_CLIENT_MESSAGE_QUEUE_CAPACITY} in the constructor.
+	 * 
+	 * @see #setClientMessageQueueCapacity(int)
+	 */
+	private MpscRingBuffer<ClientMessageToServer<?>> clientMessages;
+
+	/**
+	 * Signaled when a message is added to {@link #clientMessages} or the server is stopping. Created on {@link #start()} with the
+	 * configured {@link #waitStrategy}.
+	 */
+	private volatile WaitSignal clientMessageSignal;
+
+	/**
+	 * Satisfied when there are messages in {@link #clientMessages} or the server is stopping.
+	 */
+	private final WaitCondition clientMessagesAvailable = new WaitCondition() {
+		@Override
+		public boolean isSatisfied() {
+			return !clientMessages.isEmpty() || isStopping();
+		}
+	};
 
 	/**
 	 * A list of simultaneous client connection handlers, for receiving {@link ClientMessageToServer} messages and sending
@@ -92,7 +122,7 @@ public class SwiftSocketServer {
 	/**
 	 * Indicates whether stop() has been called and the server socket has been closed.
 	 */
-	private boolean stopping;
+	private volatile boolean stopping;
 
 	/**
 	 * Default turned off in the constructor.
@@ -109,6 +139,86 @@ public class SwiftSocketServer {
 	 */
 	private int pingPongTimeoutMs;
 
+	/**
+	 * Number of reactors a {@link ServerType#TCP_NIO} server distributes its connections over. Default set to the number of available
+	 * processors in the constructor.
+	 */
+	private int reactorCount;
+
+	/**
+	 * Strategy used to assign new connections to one of the reactors. Default set to {@link ReactorBalancing#LEAST_CONNECTIONS} in the
+	 * constructor.
+	 */
+	private ReactorBalancing reactorBalancing;
+
+	/**
+	 * The kind of threads client handlers run on. Default set to {@link ThreadMode#PLATFORM} in the constructor.
+	 */
+	private ThreadMode threadMode;
+
+	/**
+	 * The largest datagram in bytes a {@link ServerType#UDP} or {@link ServerType#UDP_NIO} server receives. Default set to 1024 in the
+	 * constructor.
+	 */
+	private int maxDatagramSize;
+
+	/**
+	 * The number of threads decoding received messages, or 0 to decode messages on the thread receiving them (default).
+	 */
+	private int decodeThreadCount;
+
+	/**
+	 * The maximum number of received messages waiting to be decoded, after which receiving threads back off.
+	 */
+	private int decodeCapacity = MessageDispatcher.DEFAULT_CAPACITY;
+
+	/**
+	 * The maximum number of messages of a single client waiting in {@link #clientMessages}, or 0 for no limit (default).
+	 */
+	private int maxQueuedMessagesPerClient;
+
+	/**
+	 * Determines what happens to messages of a client exceeding {@link #maxQueuedMessagesPerClient}.
+	 */
+	private MessageOverflowPolicy queueOverflowPolicy = MessageOverflowPolicy.DROP;
+
+	/**
+	 * Decodes received messages in order per client, created on {@link #start()} if {@link #decodeThreadCount} is set.
+	 */
+	private volatile KeyedExecutor decodePool;
+
+	/**
+	 * Determines how threads wait at hand-off points, such as the world thread waiting for new client messages. Default set to
+	 * {@link WaitStrategy#BLOCKING} in the constructor.
+	 */
+	private WaitStrategy waitStrategy;
+
+	/**
+	 * The maximum number of messages queued for a single TCP client. Default set to 1024 in the constructor.
+	 */
+	private int outboundQueueCapacity;
+
+	/**
+	 * Determines what happens when a TCP client's outbound queue is full. Default set to {@link SlowConsumerPolicy#DISCONNECT} in the
+	 * constructor.
+	 */
+	private SlowConsumerPolicy slowConsumerPolicy;
+
+	/**
+	 * The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}. Default set to 1000ms in the constructor.
+	 */
+	private int slowConsumerBlockTimeoutMs;
+
+	/**
+	 * Determines how messages are laid out on the wire. Default set to {@link WireProtocol#TEXT} in the constructor.
+	 */
+	private WireProtocol wireProtocol;
+
+	/**
+	 * The largest frame in bytes accepted from a client with a framed {@link WireProtocol}. Default set to 65536 in the constructor.
+	 */
+	private int maxFrameSize;
+
 	/**
 	 * Default constructor, calls {@link #SwiftSocketServer(int, ServerType)} with TCP {@link ServerType}.
 	 * 
@@ -136,11 +246,20 @@ public class SwiftSocketServer {
 		pingPongMode = false;
 		pingPongIntervalMs = 2500;
 		pingPongTimeoutMs = 5000;
-		clientMessageToServerTypeList = new HashMap<Integer, Class<? extends ClientMessageToServer<?>>>();
-		serverMessageToClientIdList = new HashMap<Class<? extends ServerMessageToClient>, Integer>();
-		clientMessages = new LinkedList<ClientMessageToServer<?>>();
+		reactorCount = Runtime.getRuntime().availableProcessors();
+		reactorBalancing = ReactorBalancing.LEAST_CONNECTIONS;
+		threadMode = ThreadMode.PLATFORM;
+		maxDatagramSize = 1024;
+		waitStrategy = WaitStrategy.BLOCKING;
+		outboundQueueCapacity = 1024;
+		slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+		slowConsumerBlockTimeoutMs = 1000;
+		wireProtocol = WireProtocol.TEXT;
+		maxFrameSize = 65536;
+		messageRegistry = new MessageRegistry();
+		clientMessages = new MpscRingBuffer<ClientMessageToServer<?>>(DEFAULT_CLIENT_MESSAGE_QUEUE_CAPACITY);
 		clientHandlers = Collections.synchronizedMap(new HashMap<ClientContext, ClientHandler>());
-		executionContexts = new HashMap<Class<? extends ClientMessageToServer<?>>, Object>();
+		messageDispatcher = new MessageDispatcher(this);
 
 		registerClientMessageToServerType(MESSAGE_ID_PINGPONG, ClientMessageToServerPingPong.class);
 		registerClientMessageToServerType(MESSAGE_ID_BYEBYE, ClientMessageToServerByeBye.class);
@@ -172,26 +291,272 @@ public class SwiftSocketServer {
 		this.pingPongTimeoutMs = pingPongTimeoutMs;
 	}
 
+	/**
+	 * Sets the kind of threads on which each client handler and its input handler run, for server types that dedicate threads to clients
+	 * ({@link ServerType#TCP} and {@link ServerType#UDP}). Use {@link ThreadMode#VIRTUAL} to serve many mostly idle connections. When
+	 * changed, will only apply the new setting to <strong>new</strong> clients.
+	 * 
+	 * @param threadMode The kind of threads to run client handlers on.
+	 */
+	public void setThreadMode(final ThreadMode threadMode) {
+		this.threadMode = threadMode;
+	}
+
+	/**
+	 * Sets the maximum number of unprocessed client messages that are queued. When the queue is full, client threads hold off reading more
+	 * input until messages have been processed, so slow processing pushes back on the clients rather than exhausting memory. Only applies
+	 * when set before the server is started.
+	 * 
+	 * @param capacity The minimum number of messages the queue can hold, rounded up to a power of two.
+	 */
+	public void setClientMessageQueueCapacity(final int capacity) {
+		clientMessages = new MpscRingBuffer<ClientMessageToServer<?>>(capacity);
+	}
+
+	/**
+	 * Sets how threads wait for each other at the hand-off points of the server: the thread waiting for new client messages (see
+	 * {@link #awaitClientMessages(long)}) and, for {@link ServerType#UDP}, the threads waiting for new clients and new datagrams. Only
+	 * applies when set before the server is started.
+	 * 
+	 * @param waitStrategy The strategy that trades latency against cpu usage.
+	 */
+	public void setWaitStrategy(final WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Sets the largest datagram in bytes a {@link ServerType#UDP} or {@link ServerType#UDP_NIO} server receives, which for the latter is
+	 * also the largest message that can be sent. Has no effect on TCP server types and only applies when set before the server is started.
+	 * 
+	 * @param maxDatagramSize The maximum datagram size in bytes.
+	 */
+	public void setMaxDatagramSize(final int maxDatagramSize) {
+		if (maxDatagramSize < 1) {
+			throw new IllegalArgumentException("maximum datagram size should be positive");
+		}
+		this.maxDatagramSize = maxDatagramSize;
+	}
+
+	/**
+	 * Sets the number of threads that decode received messages into {@link ClientMessageToServer} objects, so the threads receiving them
+	 * only have to frame the bytes. This keeps large or expensive messages from holding up the other connections served by a reactor or
+	 * receiver thread. Messages of a single client are decoded and queued in the order in which they were received, messages of different
+	 * clients in parallel. The non-blocking server types and the framed wire protocols hand over the raw bytes, so even converting them to
+	 * text happens on the decoding threads. Only applies when set before the server is started.
+	 * 
+	 * @param threadCount The number of decoding threads, or 0 to decode messages on the receiving threads (default).
+	 * @param capacity The maximum number of messages waiting to be decoded, after which the receiving threads back off until there is room
+	 *            again.
+	 */
+	public void setDecodePool(final int threadCount, final int capacity) {
+		if (threadCount < 0) {
+			throw new IllegalArgumentException("number of decode threads should not be negative");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("decode capacity should be positive");
+		}
+		this.decodeThreadCount = threadCount;
+		this.decodeCapacity = capacity;
+	}
+
+	/**
+	 * Sets the number of reactors used by a {@link ServerType#TCP_NIO} server and how new connections are distributed over them. Has no
+	 * effect on other server types and only applies when set before the server is started.
+	 * 
+	 * @param reactorCount The number of reactors, each running on its own thread.
+	 * @param reactorBalancing The strategy that determines which reactor serves a new connection.
+	 */
+	public void setReactors(final int reactorCount, final ReactorBalancing reactorBalancing) {
+		if (reactorCount < 1) {
+			throw new IllegalArgumentException("at least one reactor is required");
+		}
+		this.reactorCount = reactorCount;
+		this.reactorBalancing = reactorBalancing;
+	}
+
+	/**
+	 * Sets the size of the queue in which messages for a single client wait to be written, and what happens when a client doesn't keep up
+	 * and its queue is full. Applies to {@link ServerType#TCP} and {@link ServerType#TCP_NIO}, UDP datagrams are sent right away. Only
+	 * applies when set before the server is started. By default clients are disconnected once 1024 messages are queued for them.
+	 * <p>
+	 * Note that {@link SlowConsumerPolicy#BLOCK} blocks the thread sending the message, typically the world thread: every message sent or
+	 * broadcast to a slow client may then hold up the simulation for up to <code>blockTimeoutMs</code>.
+	 * 
+	 * @param capacity The maximum number of messages queued for a single client.
+	 * @param slowConsumerPolicy Determines what happens when a message is sent to a client whose queue is full.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}, after which the
+	 *            client is dropped.
+	 * @see ClientContext#getOutboundQueueDepth()
+	 */
+	public void setOutboundQueue(final int capacity, final SlowConsumerPolicy slowConsumerPolicy, final int blockTimeoutMs) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("outbound queue capacity should be positive");
+		}
+		if (blockTimeoutMs < 0) {
+			throw new IllegalArgumentException("block time-out should not be negative");
+		}
+		this.outboundQueueCapacity = capacity;
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		this.slowConsumerBlockTimeoutMs = blockTimeoutMs;
+	}
+
+	/**
+	 * Limits the number of messages of a single client waiting in the message queue shared by all clients. The limit is applied as soon as
+	 * a message is received, before it takes a place in the queue, so a client flooding the server can't fill the queue and make the
+	 * threads receiving messages of all other clients wait for room. Messages beyond the limit can't wait elsewhere, so with
+	 * {@link MessageOverflowPolicy#DEFER} and {@link MessageOverflowPolicy#DROP} they are dropped, with
+	 * {@link MessageOverflowPolicy#DISCONNECT} the client is disconnected as well. Messages executed directly on a registered execution
+	 * context don't count towards the limit. By default clients are not limited. Only applies when set before the server is started.
+	 * 
+	 * @param maxQueuedMessages The maximum number of messages of a single client waiting in the queue, or 0 for no limit.
+	 * @param overflowPolicy Determines what happens to messages of a client exceeding the limit.
+	 * @see ClientContext#getDroppedMessageCount()
+	 */
+	public void setClientMessageLimit(final int maxQueuedMessages, final MessageOverflowPolicy overflowPolicy) {
+		if (maxQueuedMessages < 0) {
+			throw new IllegalArgumentException("maximum number of queued messages should not be negative");
+		}
+		this.maxQueuedMessagesPerClient = maxQueuedMessages;
+		this.queueOverflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Sets how messages are laid out on the wire, which should match the protocol used by the clients. The framed protocols
+	 * {@link WireProtocol#TEXT_FRAMED} and {@link WireProtocol#BINARY} are only supported by {@link ServerType#TCP} and
+	 * {@link ServerType#TCP_NIO}. Only applies when set before the server is started.
+	 * <p>
+	 * The text protocols limit message ids to 999. Message types registered with a higher id are refused, and when the wire protocol is
+	 * changed to a text protocol after registering such a message type, the server refuses to start.
+	 * 
+	 * @param wireProtocol The protocol used to encode and decode messages.
+	 * @see #setMaxFrameSize(int)
+	 */
+	public void setWireProtocol(final WireProtocol wireProtocol) {
+		if (wireProtocol.isFramed() && (serverType == ServerType.UDP || serverType == ServerType.UDP_NIO)) {
+			throw new IllegalArgumentException(String.format("wire protocol %s is not supported by UDP servers", wireProtocol));
+		}
+		this.wireProtocol = wireProtocol;
+	}
+
+	/**
+	 * Sets the largest frame in bytes accepted from a client with a framed {@link WireProtocol}, which is also the longest line accepted
+	 * by a {@link ServerType#TCP_NIO} server with {@link WireProtocol#TEXT}. Clients sending larger frames or lines are dropped, so a
+	 * client can't make the server buffer arbitrary amounts of data. Only applies when set before the server is started.
+	 * 
+	 * @param maxFrameSize The maximum frame size in bytes, excluding the frame length header.
+	 */
+	public void setMaxFrameSize(final int maxFrameSize) {
+		if (maxFrameSize < 1) {
+			throw new IllegalArgumentException("maximum frame size should be positive");
+		}
+		this.maxFrameSize = maxFrameSize;
+	}
+
 	/**
 	 * Registers a client-to-server message on the given unique identifier. Both the client and server must use the same identifier to be
 	 * able to decode the message on the server.
 	 * 
-	 * @param messageId The unique identifier for this message type.
-	 * @param messageType A {@link ClientMessageToServer} sub type.
+	 * <p>
+	 * The message type's constructor taking a {@link ClientContext} is resolved once, here, and called directly for every message received.
+	 * The fields used by {@link DecoderUtil#reflectiveDecode(Object, StringBuilder, Class)} are resolved here as well; a message type that
+	 * can't be decoded reflectively is reported right away, though only as warning since it may decode itself without reflection.
+	 * 
+	 * @param messageId The unique identifier for this message type, between 0 and the {@link WireProtocol}'s maximum: 999 for the text
+	 *            protocols, {@value MessageRegistry#MAX_MESSAGE_ID} for {@link WireProtocol#BINARY}.
+	 * @param messageType A concrete {@link ClientMessageToServer} sub type with a constructor taking a {@link ClientContext}.
+	 * @throws IllegalArgumentException Thrown when the message type is abstract or doesn't have a suitable constructor.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 * @see #registerClientMessageToServerType(int, ClientMessageToServerFactory)
 	 */
 	public void registerClientMessageToServerType(final int messageId, final Class<? extends ClientMessageToServer<?>> messageType) {
-		clientMessageToServerTypeList.put(messageId, messageType);
+		registerClientMessageToServerType(messageId, new ConstructorMessageFactory(messageType));
+		try {
+			DecoderUtil.prepareReflectiveDecode(messageType);
+		} catch (final RuntimeException e) {
+			LOGGER.warn(String.format("message type '%s' can't be decoded reflectively: %s", messageType.getName(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * Registers a factory for client-to-server messages on the given unique identifier, for example a constructor reference on Java 8 and
+	 * later. Both the client and server must use the same identifier to be able to decode the message on the server.
+	 * 
+	 * @param messageId The unique identifier for the message type created by the factory, between 0 and the {@link WireProtocol}'s
+	 *            maximum (see {@link #registerClientMessageToServerType(int, Class)}).
+	 * @param messageFactory The factory creating a new message for every message received with the given identifier.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	public void registerClientMessageToServerType(final int messageId, final ClientMessageToServerFactory<?> messageFactory) {
+		if (messageFactory == null) {
+			throw new IllegalArgumentException("message factory should not be null");
+		}
+		checkMessageId(messageId);
+		messageRegistry.registerClientMessageToServerFactory(messageId, messageFactory);
+	}
+
+	/**
+	 * Registers a pooled client-to-server message type on the given unique identifier. Messages received with this identifier are taken
+	 * from the pool and returned to it once executed, either by the server or by {@link #drainClientMessages(ClientMessageConsumer, int)}.
+	 * Messages taken with {@link #getNextClientMessage()} should be returned with {@link #releaseClientMessage(ClientMessageToServer)}.
+	 * 
+	 * @param messageId The unique identifier for the pooled message type, between 0 and the {@link WireProtocol}'s maximum (see
+	 *            {@link #registerClientMessageToServerType(int, Class)}).
+	 * @param messagePool The pool of the message type, whose messages should not be referenced anymore once executed.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	public void registerClientMessageToServerType(final int messageId, final MessagePool<? extends ClientMessageToServer<?>> messagePool) {
+		registerClientMessageToServerType(messageId, new PooledMessageFactory(messagePool));
+		messageRegistry.registerMessagePool(messagePool);
 	}
 
 	/**
 	 * Registers a server-to-client message on the given unique identifier. Both the client and server must use the same identifier to be
 	 * able to decode the message on the client.
+	 * <p>
+	 * The fields used by {@link EncoderUtil#reflectiveEncode(Object, Class)} are resolved here; a message type that can't be encoded
+	 * reflectively is reported right away, though only as warning since it may encode itself without reflection.
 	 * 
-	 * @param messageId The unique identifier for this message type.
+	 * @param messageId The unique identifier for this message type, between 0 and the {@link WireProtocol}'s maximum: 999 for the text
+	 *            protocols, {@value MessageRegistry#MAX_MESSAGE_ID} for {@link WireProtocol#BINARY}.
 	 * @param messageType A {@link ServerMessageToClient} sub type.
+	 * @throws IllegalStateException Thrown when the server has been started already.
 	 */
 	public void registerServerMessageToClientId(final int messageId, final Class<? extends ServerMessageToClient> messageType) {
-		serverMessageToClientIdList.put(messageType, messageId);
+		checkMessageId(messageId);
+		messageRegistry.registerServerMessageToClientId(messageId, messageType);
+		try {
+			EncoderUtil.prepareReflectiveEncode(messageType);
+		} catch (final RuntimeException e) {
+			LOGGER.warn(String.format("message type '%s' can't be encoded reflectively: %s", messageType.getName(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * Verifies the message id can be laid out on the wire by the current {@link #wireProtocol}.
+	 * 
+	 * @param messageId The message id of a message type being registered.
+	 * @throws IllegalArgumentException Thrown when the message id exceeds {@link WireProtocol#getMaxMessageId()}.
+	 */
+	private void checkMessageId(final int messageId) {
+		if (messageId > wireProtocol.getMaxMessageId()) {
+			final String msg = "message id %s exceeds the maximum message id %s of wire protocol %s";
+			throw new IllegalArgumentException(String.format(msg, messageId, wireProtocol.getMaxMessageId(), wireProtocol));
+		}
+	}
+
+	/**
+	 * Registers a pooled server-to-client message type on the given unique identifier. Messages of this type should be acquired from the
+	 * pool and are returned to it by {@link #sendMessage(ServerMessageToClient)} and {@link #broadcastMessage(ServerMessageToClient)} once
+	 * they have been encoded, so a message should be sent only once and not be referenced anymore afterwards.
+	 * 
+	 * @param messageId The unique identifier for the pooled message type, between 0 and the {@link WireProtocol}'s maximum (see
+	 *            {@link #registerClientMessageToServerType(int, Class)}).
+	 * @param messagePool The pool of the message type.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	public void registerServerMessageToClientId(final int messageId, final MessagePool<? extends ServerMessageToClient> messagePool) {
+		registerServerMessageToClientId(messageId, messagePool.getMessageType());
+		messageRegistry.registerMessagePool(messagePool);
 	}
 
 	/**
@@ -201,22 +566,66 @@ public class SwiftSocketServer {
 	 * 
 	 * @param messageType The type of message that will be matched and executed using the given context object.
 	 * @param executionContext The execution context object used to execute executable client messages against.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 * @see DispatchPolicy#INLINE
 	 */
 	public void registerExecutionContext(final Class<? extends ClientMessageToServer<?>> messageType, final Object executionContext) {
-		executionContexts.put(messageType, executionContext);
+		registerExecutionContext(messageType, executionContext, DispatchPolicy.INLINE);
+	}
+
+	/**
+	 * Registers a default execution context for a client-to-server message type, along with the policy that determines on which thread
+	 * incoming messages of the given type are executed. Executed messages are returned to their pool, if any.
+	 * 
+	 * @param messageType The type of message that will be matched and executed using the given context object.
+	 * @param executionContext The execution context object used to execute executable client messages against.
+	 * @param dispatchPolicy Determines on which thread the messages are executed.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	public void registerExecutionContext(final Class<? extends ClientMessageToServer<?>> messageType, final Object executionContext,
+			final DispatchPolicy dispatchPolicy) {
+		messageDispatcher.register(messageType, executionContext, dispatchPolicy);
 	}
 
 	/**
-	 * Thread safe method that starts the client thread, listening for new messages and sending messages.
+	 * Sets the number of threads of the pool executing messages registered with {@link DispatchPolicy#SHARED_POOL}, and the maximum number
+	 * of messages waiting in that pool or in a single {@link DispatchPolicy#DEDICATED_LANE}. Defaults to the number of available processors
+	 * and {@value MessageDispatcher#DEFAULT_CAPACITY} messages.
 	 * 
+	 * @param threadCount The number of threads of the shared pool.
+	 * @param capacity The maximum number of waiting messages, after which the receiving threads back off until there is room again.
+	 * @throws IllegalStateException Thrown when the server has been started already.
+	 */
+	public void setDispatchPool(final int threadCount, final int capacity) {
+		messageDispatcher.setPool(threadCount, capacity);
+	}
+
+	/**
+	 * Thread safe method that starts the client thread, listening for new messages and sending messages. Message types can't be
+	 * registered anymore once the server is started.
+	 * 
+	 * @throws IllegalStateException Thrown when a registered message id exceeds the maximum message id of the {@link #wireProtocol}, which
+	 *             happens when the wire protocol was changed after registering the message type.
 	 * @see InvisibleServerRunner
+	 * @see MessageRegistry#freeze()
 	 */
 	public void start() {
+		final int highestMessageId = messageRegistry.getHighestMessageId();
+		if (highestMessageId > wireProtocol.getMaxMessageId()) {
+			final String msg = "registered message id %s exceeds the maximum message id %s of wire protocol %s";
+			throw new IllegalStateException(String.format(msg, highestMessageId, wireProtocol.getMaxMessageId(), wireProtocol));
+		}
 		LOGGER.info("booting Swift message server. Hold on...");
+		messageRegistry.freeze();
+		messageDispatcher.start();
+		if (decodeThreadCount > 0) {
+			decodePool = new KeyedExecutor("decoder", decodeThreadCount);
+		}
 		if (serverType == ServerType.UDP && !pingPongMode) {
 			LOGGER.warn("WARNING: running UDP server without ping pong mode: if a client connection drops, we won't know!");
 		}
 		stopping = false;
+		clientMessageSignal = new WaitSignal(waitStrategy);
 		new Thread(new InvisibleServerRunner()).start();
 	}
 
@@ -224,14 +633,144 @@ public class SwiftSocketServer {
 	 * @return Whether there are unprocessed client messages waiting in queue to be executed.
 	 */
 	public boolean hasClientMessages() {
-		return clientMessages.size() > 0;
+		return !clientMessages.isEmpty();
 	}
 
 	/**
-	 * @return The next queues unprocessed client messages to be executed (see {@link LinkedList#poll()}).
+	 * Waits as per the configured {@link WaitStrategy} until there are unprocessed client messages, the server is stopping or the time-out
+	 * has elapsed. Should only be called after the server has been started.
+	 * 
+	 * @param timeoutMs The maximum time to wait in milliseconds.
+	 * @return Whether there are unprocessed client messages waiting in queue to be executed.
+	 * @see #setWaitStrategy(WaitStrategy)
+	 */
+	public boolean awaitClientMessages(final long timeoutMs) {
+		clientMessageSignal.await(clientMessagesAvailable, timeoutMs);
+		return hasClientMessages();
+	}
+
+	/**
+	 * Waits as per the configured {@link WaitStrategy} until there are unprocessed client messages, the server is stopping or the deadline
+	 * has passed. Unlike {@link #awaitClientMessages(long)} the deadline is as precise as {@link System#nanoTime()}, so a thread can wait
+	 * for messages right up until it has other work scheduled. Should only be called after the server has been started.
+	 * 
+	 * @param deadlineNanos The {@link System#nanoTime()} after which to stop waiting.
+	 * @return Whether there are unprocessed client messages waiting in queue to be executed.
+	 * @see #setWaitStrategy(WaitStrategy)
+	 */
+	public boolean awaitClientMessagesUntil(final long deadlineNanos) {
+		clientMessageSignal.awaitUntil(clientMessagesAvailable, deadlineNanos);
+		return hasClientMessages();
+	}
+
+	/**
+	 * Returns the next unprocessed client message. Messages should be taken by one thread at a time, either using this method or
+	 * {@link #drainClientMessages(ClientMessageConsumer, int)}.
+	 * 
+	 * @return The next queues unprocessed client messages to be executed, or <code>null</code> if there is none.
 	 */
 	public ClientMessageToServer<?> getNextClientMessage() {
-		return clientMessages.poll();
+		ClientMessageToServer<?> message;
+		while ((message = pollClientMessage()) != null && messageDispatcher.executeOnWorldThread(message)) {
+			// executed against its registered execution context, take the next
+		}
+		return message;
+	}
+
+	/**
+	 * Takes the next message from {@link #clientMessages}, counting it off its client if the number of queued messages per client is
+	 * limited.
+	 * 
+	 * @return The next message, or <code>null</code> if there is none.
+	 */
+	private ClientMessageToServer<?> pollClientMessage() {
+		final ClientMessageToServer<?> message = clientMessages.poll();
+		if (message != null && maxQueuedMessagesPerClient > 0) {
+			message.getClientContext().messageDequeued();
+		}
+		return message;
+	}
+
+	/**
+	 * Hands up to <code>maxMessages</code> unprocessed client messages to the consumer in the order in which they were received, without
+	 * any locking or allocation per message. Messages should be taken by one thread at a time, either using this method or
+	 * {@link #getNextClientMessage()}.
+	 * <p>
+	 * Pooled messages are returned to their pool once the consumer is done with them, so the consumer should not keep references to them.
+	 * 
+	 * @param consumer Receives every message taken from the queue.
+	 * @param maxMessages The maximum number of messages to take.
+	 * @return The number of messages handed to the consumer.
+	 */
+	public int drainClientMessages(final ClientMessageConsumer consumer, final int maxMessages) {
+		int count = 0;
+		ClientMessageToServer<?> message;
+		while (count < maxMessages && (message = pollClientMessage()) != null) {
+			count++;
+			if (!messageDispatcher.executeOnWorldThread(message)) {
+				try {
+					consumer.consume(message);
+				} finally {
+					releaseClientMessage(message);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a client message to its pool, if its message type was registered with a {@link MessagePool}. Messages taken with
+	 * {@link #getNextClientMessage()} should be released once they have been executed, other messages are released by the server.
+	 * 
+	 * @param message A message that has been executed, which should not be referenced anymore.
+	 * @see #registerClientMessageToServerType(int, MessagePool)
+	 */
+	public void releaseClientMessage(final ClientMessageToServer<?> message) {
+		final MessagePool<?> messagePool = messageRegistry.getMessagePool(message.getClass());
+		if (messagePool != null) {
+			message.setClientContext(null);
+			messagePool.releaseMessage(message);
+		}
+	}
+
+	/**
+	 * Returns a server message to its pool once it has been encoded, if its message type was registered with a {@link MessagePool}.
+	 * 
+	 * @param message A message that has been sent.
+	 * @see #registerServerMessageToClientId(int, MessagePool)
+	 */
+	private void releaseServerMessage(final ServerMessageToClient message) {
+		final MessagePool<?> messagePool = messageRegistry.getMessagePool(message.getClass());
+		if (messagePool != null) {
+			message.setClientContext(null);
+			messagePool.releaseMessage(message);
+		}
+	}
+
+	/**
+	 * Drops a client message taken from the server without executing it, counting it with its client (see
+	 * {@link ClientContext#getDroppedMessageCount()}) and returning it to its pool.
+	 * 
+	 * @param message A message that won't be executed, which should not be referenced anymore.
+	 */
+	public void dropClientMessage(final ClientMessageToServer<?> message) {
+		final ClientContext clientContext = message.getClientContext();
+		if (clientContext != null) {
+			clientContext.messageDropped();
+		}
+		releaseClientMessage(message);
+	}
+
+	/**
+	 * Thread safe method that closes the connection with a client, for example because it misbehaves. Messages the client sent before are
+	 * still in the message queue.
+	 * 
+	 * @param clientContext The client to disconnect.
+	 * @param reason A short description why the client is disconnected, used for logging.
+	 */
+	public void disconnectClient(final ClientContext clientContext, final String reason) {
+		LOGGER.info(String.format("disconnecting client %s, reason: %s", clientContext, reason));
+		disposeOfClient(clientContext);
 	}
 
 	/**
@@ -244,7 +783,10 @@ public class SwiftSocketServer {
 			synchronized (client) {
 				synchronized (clientHandlers) {
 					client.setClientSaidByeBye(true);
-					clientHandlers.remove(client);
+					final ClientHandler clientHandler = clientHandlers.remove(client);
+					if (clientHandler != null) {
+						clientHandler.wakeUp();
+					}
 					try {
 						client.getClientEndpoint().close();
 					} catch (final IOException e) {
@@ -268,7 +810,7 @@ public class SwiftSocketServer {
 		@Override
 		public void run() {
 			try {
-				serverEndpoint = serverType.createServerEndpoint(port);
+				serverEndpoint = serverType.createServerEndpoint(port, SwiftSocketServer.this);
 				final String msg = "server booting done. Waiting for clients @ port %s (%s)...";
 				LOGGER.info(String.format(msg, port, serverType.name()));
 				handleMessages(serverEndpoint);
@@ -283,7 +825,8 @@ public class SwiftSocketServer {
 	}
 
 	/**
-	 * Listens for new clients on the server endpoint. Creates a new {@link ClientHandler} for each new {@link ClientEndpoint}.
+	 * Listens for new clients on the server endpoint. Creates a new {@link ClientHandler} for each new {@link ClientEndpoint}, which is then
+	 * served by the server endpoint (see {@link ServerEndpoint#serveClient(ClientHandler)}).
 	 * 
 	 * @param serverEndpoint The server endpoint on which we expect client messages.
 	 * @throws IOException Thrown by {@link ServerEndpoint#getClientEndpoint()}.
@@ -296,9 +839,9 @@ public class SwiftSocketServer {
 				if (!isStopping()) {
 					final ClientContext clientContext = new ClientContext(clientEndpoint);
 					final ClientHandler clientHandler = new ClientHandler(this, clientContext, pingPongMode, pingPongIntervalMs,
-							pingPongTimeoutMs);
+							pingPongTimeoutMs, threadMode);
 					clientHandlers.put(clientContext, clientHandler);
-					new Thread(clientHandler).start();
+					serverEndpoint.serveClient(clientHandler);
 				}
 			} catch (final SocketException e) {
 				LOGGER.error("server socket crashed, shutting server down...", e);
@@ -314,23 +857,50 @@ public class SwiftSocketServer {
 	 * @see ClientHandler#sendMessage(ServerMessageToClient)
 	 */
 	public void sendMessage(final ServerMessageToClient message) {
-		clientHandlers.get(message.getClientContext()).sendMessage(message);
+		try {
+			clientHandlers.get(message.getClientContext()).sendMessage(message);
+		} finally {
+			releaseServerMessage(message);
+		}
 	}
 
 	/**
+	 * Encodes the message exactly once and sends the resulting frame to every client that hasn't said 'Bye Bye', so the cost per client is
+	 * limited to queueing the shared bytes.
+	 * <p>
+	 * The clients are sent the message outside the lock on {@link #clientHandlers}, since sending may drop a slow client (see
+	 * {@link SlowConsumerPolicy}).
+	 * 
 	 * @param message The message to send to all clients (ignoring clientContext on the message).
-	 * @see SwiftSocketServer#broadcastMessage(ServerMessageToClient)
+	 * @see ClientHandler#sendMessage(ServerMessageToClient, Frame)
 	 */
 	public void broadcastMessage(final ServerMessageToClient message) {
-		synchronized (clientHandlers) {
-			for (final ClientContext clientcontext : getAllClientContexts()) {
-				if (!clientcontext.isClientSaidByeBye()) {
-					clientHandlers.get(clientcontext).sendMessage(message);
+		try {
+			final Frame frame = encodeFrame(message);
+			final List<ClientHandler> recipients;
+			synchronized (clientHandlers) {
+				recipients = new ArrayList<ClientHandler>(clientHandlers.values());
+			}
+			for (final ClientHandler clientHandler : recipients) {
+				if (!clientHandler.getClientContext().isClientSaidByeBye()) {
+					clientHandler.sendMessage(message, frame);
 				}
 			}
+		} finally {
+			releaseServerMessage(message);
 		}
 	}
 
+	/**
+	 * Encodes a message as per the configured {@link WireProtocol}.
+	 * 
+	 * @param message The message to encode.
+	 * @return The frame containing the message and its registered message id.
+	 */
+	final Frame encodeFrame(final ServerMessageToClient message) {
+		return wireProtocol.encodeFrame(getServerMessageId(message.getClass()), message);
+	}
+
 	/**
 	 * @return {@link #stopping}
 	 */
@@ -340,35 +910,59 @@ public class SwiftSocketServer {
 
 	/**
 	 * Adds a message to the queue for later processing, unless a known context object has been registered for this object in
-	 * {@link #executionContexts}.
+	 * {@link #messageDispatcher} with a policy other than {@link DispatchPolicy#WORLD_THREAD}. Messages of a client that already has
+	 * {@link #maxQueuedMessagesPerClient} messages waiting are handled as per the {@link #queueOverflowPolicy}. If the queue is full, the
+	 * calling client thread backs off until there is room again or the server is stopping, in which case the message is dropped. Pooled
+	 * messages executed or dropped are returned to their pool.
 	 * 
-	 * @param message The message to be executed now if registered with {@link #executionContexts}, or later manually.
+	 * @param message The message to be dispatched now if registered with {@link #messageDispatcher}, or later manually.
+	 * @see #setClientMessageLimit(int, MessageOverflowPolicy)
 	 */
-	@SuppressWarnings("unchecked")
 	protected void addClientMessage(final ClientMessageToServer<?> message) {
-		if (executionContexts.containsKey(message.getClass())) {
-			final Object contextObject = executionContexts.get(message.getClass());
-			((ClientMessageToServer<? super Object>) message).execute(contextObject);
-		} else {
-			clientMessages.offer(message);
+		if (!messageDispatcher.dispatch(message)) {
+			final ClientContext clientContext = message.getClientContext();
+			if (maxQueuedMessagesPerClient > 0) {
+				if (clientContext.getQueuedMessageCount() >= maxQueuedMessagesPerClient) {
+					if (queueOverflowPolicy == MessageOverflowPolicy.DISCONNECT && clientContext.isActive()) {
+						disconnectClient(clientContext, String.format("more than %s messages queued", maxQueuedMessagesPerClient));
+					}
+					dropClientMessage(message);
+					return;
+				}
+				clientContext.messageQueued();
+			}
+			if (!clientMessages.offer(message)) {
+				LOGGER.debug(String.format("client message queue full, holding off message %s", message));
+				while (!clientMessages.offer(message)) {
+					if (isStopping()) {
+						if (maxQueuedMessagesPerClient > 0) {
+							clientContext.messageDequeued();
+						}
+						releaseClientMessage(message);
+						return;
+					}
+					LockSupport.parkNanos(FULL_QUEUE_BACKOFF_NS);
+				}
+			}
+			clientMessageSignal.signal();
 		}
 	}
 
 	/**
-	 * @param messageId The message id for which to find the registered message type.
-	 * @return The client-to-server message type associated with the given message id, or {@link ClientMessageToServerInvalid} if not found.
+	 * @param messageId The message id for which to find the registered message factory.
+	 * @return The client-to-server message factory associated with the given message id, or <code>null</code> if not found.
 	 */
-	protected Class<? extends ClientMessageToServer<?>> getClientMessageToServerType(final int messageId) {
-		final Class<? extends ClientMessageToServer<?>> messageType = clientMessageToServerTypeList.get(messageId);
-		return (messageType != null) ? messageType : ClientMessageToServerInvalid.class;
+	protected ClientMessageToServerFactory<?> getClientMessageToServerFactory(final int messageId) {
+		return messageRegistry.getClientMessageToServerFactory(messageId);
 	}
 
 	/**
 	 * @param serverMessageToClientType The message type to identify.
 	 * @return The unique identifier registered for the given message type.
+	 * @throws IllegalArgumentException Thrown when the message type has not been registered.
 	 */
 	public int getServerMessageId(final Class<? extends ServerMessageToClient> serverMessageToClientType) {
-		return serverMessageToClientIdList.get(serverMessageToClientType);
+		return messageRegistry.getServerMessageId(serverMessageToClientType);
 	}
 
 	/**
@@ -378,13 +972,143 @@ public class SwiftSocketServer {
 		return clientHandlers.keySet();
 	}
 
+	/**
+	 * Thread safe method that returns the current load of each reactor of a {@link ServerType#TCP_NIO} server, which can be used to verify
+	 * connections are spread evenly.
+	 * 
+	 * @return A snapshot of the statistics of each reactor, or an empty list if the server is not started or not reactor based.
+	 */
+	public List<ReactorStatistics> getReactorStatistics() {
+		final ServerEndpoint serverEndpoint = this.serverEndpoint;
+		return (serverEndpoint != null) ? serverEndpoint.getReactorStatistics() : Collections.<ReactorStatistics> emptyList();
+	}
+
+	/**
+	 * Thread safe method that returns how long messages with a registered execution context waited before being executed and how long
+	 * executing them took, for every {@link DispatchPolicy}.
+	 * 
+	 * @return A snapshot of the statistics of each dispatch policy, in declaration order.
+	 */
+	public List<DispatchStatistics> getDispatchStatistics() {
+		return messageDispatcher.getStatistics();
+	}
+
+	/**
+	 * @return {@link #reactorCount}
+	 */
+	final int getReactorCount() {
+		return reactorCount;
+	}
+
+	/**
+	 * @return {@link #reactorBalancing}
+	 */
+	final ReactorBalancing getReactorBalancing() {
+		return reactorBalancing;
+	}
+
+	/**
+	 * @return {@link #waitStrategy}
+	 */
+	final WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * @return {@link #maxDatagramSize}
+	 */
+	final int getMaxDatagramSize() {
+		return maxDatagramSize;
+	}
+
+	/**
+	 * @return {@link #outboundQueueCapacity}
+	 */
+	final int getOutboundQueueCapacity() {
+		return outboundQueueCapacity;
+	}
+
+	/**
+	 * @return {@link #slowConsumerPolicy}
+	 */
+	final SlowConsumerPolicy getSlowConsumerPolicy() {
+		return slowConsumerPolicy;
+	}
+
+	/**
+	 * @return {@link #slowConsumerBlockTimeoutMs}
+	 */
+	final int getSlowConsumerBlockTimeoutMs() {
+		return slowConsumerBlockTimeoutMs;
+	}
+
+	/**
+	 * @return {@link #wireProtocol}
+	 */
+	final WireProtocol getWireProtocol() {
+		return wireProtocol;
+	}
+
+	/**
+	 * @return Whether received messages are decoded by the decode pool instead of the receiving threads.
+	 * @see #setDecodePool(int, int)
+	 */
+	final boolean isDecodeOffloaded() {
+		return decodePool != null;
+	}
+
+	/**
+	 * Hands the decoding of a received message to the decode pool, after all messages of the same client handed over before. Backs off
+	 * while the pool is at capacity, or drops the message if the server is stopping.
+	 * 
+	 * @param clientContext The client that sent the message, keeping its messages in order.
+	 * @param decoding Decodes the message and hands it to the client's handler.
+	 */
+	final void decodeLater(final ClientContext clientContext, final Runnable decoding) {
+		final KeyedExecutor decodePool = this.decodePool;
+		if (decodePool.getPendingTaskCount() >= decodeCapacity) {
+			LOGGER.debug(String.format("decode pool at capacity, holding off message from client %s", clientContext));
+			while (decodePool.getPendingTaskCount() >= decodeCapacity) {
+				if (isStopping()) {
+					return;
+				}
+				LockSupport.parkNanos(FULL_QUEUE_BACKOFF_NS);
+			}
+		}
+		try {
+			decodePool.execute(clientContext, decoding);
+		} catch (final RejectedExecutionException e) {
+			LOGGER.debug(String.format("server stopped, dropping message from client %s", clientContext));
+		}
+	}
+
+	/**
+	 * @return {@link #maxFrameSize}
+	 */
+	final int getMaxFrameSize() {
+		return maxFrameSize;
+	}
+
 	/**
 	 * Thread safe method to make the server initialize stopping procedure. This means setting a flag and letting client handlers manage
 	 * disconnecting the clients, while closing the server socket simultaneously.
 	 */
 	public void stop() {
 		stopping = true;
+		if (decodePool != null) {
+			decodePool.shutdown();
+		}
+		messageDispatcher.stop();
+		messageRegistry.reportLeaks();
+		if (clientMessageSignal != null) {
+			clientMessageSignal.signal();
+		}
 		shutdown();
+		synchronized (clientHandlers) {
+			for (final ClientHandler clientHandler : clientHandlers.values()) {
+				clientHandler.wakeUp();
+			}
+		}
 	}
 
 	private void shutdown() {
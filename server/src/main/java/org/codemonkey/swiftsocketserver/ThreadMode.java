@@ -0,0 +1,83 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Determines the kind of threads on which a {@link ClientHandler} and its input handler run for server endpoints that dedicate threads to
+ * clients (see {@link ServerEndpoint#serveClient(ClientHandler)}).
+ * <p>
+ * The blocking {@link ClientEndpoint#readLine()} model works the same in both modes, but with virtual threads a blocked or parked client
+ * handler doesn't occupy an operating system thread, so a single server can keep many mostly idle connections open.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#setThreadMode(ThreadMode)
+ * @since 1.0
+ */
+public enum ThreadMode {
+
+	/**
+	 * Runs every client handler on a regular platform thread, created with <code>new Thread(...)</code>.
+	 */
+	PLATFORM {
+		@Override
+		Thread newThread(final Runnable runnable) {
+			return new Thread(runnable);
+		}
+	},
+
+	/**
+	 * Runs every client handler on a virtual thread. Virtual threads are resolved at runtime, since they are only available as of Java 21;
+	 * on older runtimes a warning is logged and platform threads are used instead.
+	 */
+	VIRTUAL {
+		@Override
+		Thread newThread(final Runnable runnable) {
+			final ThreadFactory virtualThreadFactory = VirtualThreadFactoryHolder.VIRTUAL_THREAD_FACTORY;
+			return (virtualThreadFactory != null) ? virtualThreadFactory.newThread(runnable) : PLATFORM.newThread(runnable);
+		}
+	};
+
+	/**
+	 * Creates a new, unstarted thread of this mode.
+	 *
+	 * @param runnable The task the thread should run.
+	 * @return A thread ready to be started.
+	 */
+	abstract Thread newThread(Runnable runnable);
+
+	/**
+	 * Resolves the virtual thread factory once, on first use of {@link ThreadMode#VIRTUAL}.
+	 *
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private static final class VirtualThreadFactoryHolder {
+
+		private static final Logger LOGGER = Logger.getLogger(ThreadMode.class);
+
+		/**
+		 * The result of <code>Thread.ofVirtual().factory()</code>, or <code>null</code> if the runtime has no virtual threads.
+		 */
+		private static final ThreadFactory VIRTUAL_THREAD_FACTORY = resolveVirtualThreadFactory();
+
+		private static ThreadFactory resolveVirtualThreadFactory() {
+			try {
+				final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+			} catch (final NoSuchMethodException e) {
+				LOGGER.warn("virtual threads not supported by this runtime, falling back to platform threads");
+			} catch (final ClassNotFoundException e) {
+				LOGGER.warn("virtual threads not supported by this runtime, falling back to platform threads");
+			} catch (final IllegalAccessException e) {
+				LOGGER.warn("virtual threads not accessible, falling back to platform threads", e);
+			} catch (final InvocationTargetException e) {
+				// thrown on runtimes that have virtual threads as preview feature, without preview features enabled
+				LOGGER.warn("virtual threads not enabled, falling back to platform threads", e.getCause());
+			}
+			return null;
+		}
+	}
+}
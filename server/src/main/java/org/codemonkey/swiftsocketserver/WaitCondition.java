@@ -0,0 +1,16 @@
+package org.codemonkey.swiftsocketserver;
+
+/**
+ * The condition a thread waits for at a hand-off point, such as new input becoming available. Evaluated repeatedly by a {@link WaitSignal}
+ * as per its {@link WaitStrategy}, so implementations should be cheap and thread safe.
+ * 
+ * @author Benny Bottema
+ * @see WaitSignal#await(WaitCondition)
+ * @since 1.0
+ */
+interface WaitCondition {
+	/**
+	 * @return Whether the waiting thread may continue.
+	 */
+	boolean isSatisfied();
+}
@@ -0,0 +1,107 @@
+package org.codemonkey.swiftsocketserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Determines how threads wait at the hand-off points of the server, where one thread waits for another to provide something, such as a
+ * new client or a new client message. Every hand-off point has its own {@link WaitSignal}, which is signaled by the providing thread.
+ * <p>
+ * The strategies trade latency against cpu usage:
+ * <ul>
+ * <li>{@link #BLOCKING}: the waiting thread is suspended until signaled, using no cpu at all while idle</li>
+ * <li>{@link #PARK_WITH_BACKOFF}: the waiting thread spins and yields briefly before parking for increasing periods, reacting fastest under
+ * a steady load</li>
+ * <li>{@link #BUSY_SPIN}: the waiting thread never gives up its cpu, for the lowest possible latency on dedicated cores</li>
+ * </ul>
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#setWaitStrategy(WaitStrategy)
+ * @since 1.0
+ */
+public enum WaitStrategy {
+
+	/**
+	 * Waits on a lock condition until the hand-off point is signaled.
+	 */
+	BLOCKING {
+		@Override
+		boolean await(final WaitSignal waitSignal, final WaitCondition condition, final long deadlineNanos) {
+			return waitSignal.block(condition, deadlineNanos);
+		}
+	},
+
+	/**
+	 * Spins, then yields and finally parks with exponentially increasing periods up to {@value #MAX_PARK_MS}ms. Signaling unparks the
+	 * waiting thread, so the maximum period only bounds the delay in case no signal is given.
+	 */
+	PARK_WITH_BACKOFF {
+		@Override
+		boolean await(final WaitSignal waitSignal, final WaitCondition condition, final long deadlineNanos) {
+			int attempt = 0;
+			long parkNanos = MIN_PARK_NANOS;
+			waitSignal.addParkedThread(Thread.currentThread());
+			try {
+				while (!condition.isSatisfied()) {
+					final long remainingNanos = deadlineNanos - System.nanoTime();
+					if (remainingNanos <= 0) {
+						return false;
+					}
+					if (attempt < SPIN_ATTEMPTS) {
+						attempt++;
+					} else if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+						attempt++;
+						Thread.yield();
+					} else {
+						LockSupport.parkNanos(this, Math.min(parkNanos, remainingNanos));
+						parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+					}
+				}
+				return true;
+			} finally {
+				waitSignal.removeParkedThread(Thread.currentThread());
+			}
+		}
+	},
+
+	/**
+	 * Keeps evaluating the condition without ever giving up the cpu.
+	 */
+	BUSY_SPIN {
+		@Override
+		boolean await(final WaitSignal waitSignal, final WaitCondition condition, final long deadlineNanos) {
+			while (!condition.isSatisfied()) {
+				if (deadlineNanos - System.nanoTime() <= 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	};
+
+	/**
+	 * The number of times {@link #PARK_WITH_BACKOFF} evaluates the condition before it starts yielding.
+	 */
+	private static final int SPIN_ATTEMPTS = 100;
+
+	/**
+	 * The number of times {@link #PARK_WITH_BACKOFF} yields before it starts parking.
+	 */
+	private static final int YIELD_ATTEMPTS = 50;
+
+	private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+	private static final int MAX_PARK_MS = 50;
+
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(MAX_PARK_MS);
+
+	/**
+	 * Waits until the condition is satisfied or the deadline has passed.
+	 * 
+	 * @param waitSignal The hand-off point that is signaled when the condition may have changed.
+	 * @param condition The condition to wait for.
+	 * @param deadlineNanos The {@link System#nanoTime()} after which to stop waiting.
+	 * @return Whether the condition was satisfied.
+	 */
+	abstract boolean await(WaitSignal waitSignal, WaitCondition condition, long deadlineNanos);
+}
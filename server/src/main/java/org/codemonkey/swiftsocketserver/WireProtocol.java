@@ -0,0 +1,145 @@
+package org.codemonkey.swiftsocketserver;
+
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDatagramEncoder;
+import org.codemonkey.util.BinaryDecoder;
+import org.codemonkey.util.BinaryEncoder;
+import org.codemonkey.util.FrameReader;
+
+/**
+ * Defines how messages are laid out on the wire, {@link #TEXT}, {@link #TEXT_FRAMED} or {@link #BINARY}. Both the server and its clients
+ * must use the same protocol. Only {@link ServerType#TCP} and {@link ServerType#TCP_NIO} support the framed protocols.
+ * 
+ * @author Benny Bottema
+ * @see SwiftSocketServer#setWireProtocol(WireProtocol)
+ * @since 1.0
+ */
+public enum WireProtocol {
+	/**
+	 * Messages are encoded as text: a three digit message id, followed by the encoded message, a newline '\n' and a zero (0) byte '\0'.
+	 * Message ids are limited to 999 and message values may not contain newlines.
+	 * 
+	 * @see ServerMessageToClient#encode()
+	 * @see ClientMessageToServer#decode(String)
+	 */
+	TEXT(false, MessageRegistry.MAX_TEXT_MESSAGE_ID) {
+		/**
+		 * @see WireProtocol#TEXT
+		 */
+		@Override
+		Frame encodeFrame(final int messageId, final ServerMessageToClient message) {
+			return Frame.encode(messageId, message);
+		}
+
+		/**
+		 * Not supported, text messages are not framed but end with a newline.
+		 */
+		@Override
+		void handleFrame(final ClientHandler clientHandler, final byte[] buffer, final int offset, final int length) {
+			throw new UnsupportedOperationException("text messages are not framed");
+		}
+	},
+	/**
+	 * Messages are encoded as text like {@link #TEXT}, but instead of ending with a newline every message is preceded by its length in
+	 * bytes as variable length integer (see {@link BinaryEncoder#writeVarInt(int)}). Message values may contain newlines and messages are
+	 * read in bulk instead of per line, while messages larger than the maximum frame size are refused. Message ids are limited to 999, like
+	 * with {@link #TEXT}.
+	 * 
+	 * @see SwiftSocketServer#setMaxFrameSize(int)
+	 * @see FrameReader
+	 */
+	TEXT_FRAMED(true, MessageRegistry.MAX_TEXT_MESSAGE_ID) {
+		/**
+		 * @see WireProtocol#TEXT_FRAMED
+		 */
+		@Override
+		Frame encodeFrame(final int messageId, final ServerMessageToClient message) {
+			return Frame.encodeFramed(messageId, message);
+		}
+
+		/**
+		 * Hands the frame content to {@link ClientHandler#handleTextMessage(byte[], int, int)}.
+		 */
+		@Override
+		void handleFrame(final ClientHandler clientHandler, final byte[] buffer, final int offset, final int length) {
+			clientHandler.handleTextMessage(buffer, offset, length);
+		}
+	},
+	/**
+	 * Messages are encoded in a compact binary form: the frame length in bytes and message id as variable length integers, followed by the
+	 * message values as written by a {@link BinaryEncoder}. Message ids are not limited to three digits, but range up to
+	 * {@value MessageRegistry#MAX_MESSAGE_ID}, and numbers are not converted to text. Messages must implement {@link BinaryDatagramEncoder} (server-to-client) or {@link BinaryDatagramDecoder} (client-to-server).
+	 * 
+	 * @see BinaryEncoder#toFrame()
+	 */
+	BINARY(true, MessageRegistry.MAX_MESSAGE_ID) {
+		/**
+		 * @see WireProtocol#BINARY
+		 */
+		@Override
+		Frame encodeFrame(final int messageId, final ServerMessageToClient message) {
+			if (!(message instanceof BinaryDatagramEncoder)) {
+				final String msg = "message type '%s' does not implement %s";
+				throw new IllegalArgumentException(String.format(msg, message.getClass().getSimpleName(),
+						BinaryDatagramEncoder.class.getSimpleName()));
+			}
+			return Frame.encodeBinary(messageId, (BinaryDatagramEncoder) message);
+		}
+
+		/**
+		 * Hands the frame content to {@link ClientHandler#handleMessage(byte[], int, int)}, which decodes it with a {@link BinaryDecoder}.
+		 */
+		@Override
+		void handleFrame(final ClientHandler clientHandler, final byte[] buffer, final int offset, final int length) {
+			clientHandler.handleMessage(buffer, offset, length);
+		}
+	};
+
+	/**
+	 * Whether every message is preceded by its length, instead of ending with a newline.
+	 */
+	private final boolean framed;
+
+	/**
+	 * The highest message id that can be laid out on the wire by this protocol.
+	 */
+	private final int maxMessageId;
+
+	private WireProtocol(final boolean framed, final int maxMessageId) {
+		this.framed = framed;
+		this.maxMessageId = maxMessageId;
+	}
+
+	/**
+	 * Encodes a message into a new frame, laid out as per this protocol.
+	 * 
+	 * @param messageId The message id, known to both the server and the client.
+	 * @param message The message to encode.
+	 * @return The frame ready to be sent to any number of clients.
+	 */
+	abstract Frame encodeFrame(int messageId, ServerMessageToClient message);
+
+	/**
+	 * Decodes the content of a received frame and hands the message to the client handler. The content is only valid during this call.
+	 * 
+	 * @param clientHandler The handler of the client that sent the frame.
+	 * @param buffer The array containing the frame content.
+	 * @param offset The position of the frame content, excluding the frame length header.
+	 * @param length The length of the frame content in bytes.
+	 */
+	abstract void handleFrame(ClientHandler clientHandler, byte[] buffer, int offset, int length);
+
+	/**
+	 * @return {@link #framed}
+	 */
+	final boolean isFramed() {
+		return framed;
+	}
+
+	/**
+	 * @return {@link #maxMessageId}
+	 */
+	final int getMaxMessageId() {
+		return maxMessageId;
+	}
+}
@@ -0,0 +1,29 @@
+package org.codemonkey.swiftworldserver;
+
+/**
+ * Determines what the {@link WorldServer} does when it falls behind its frame schedule, because a world update or the messages executed
+ * in between took longer than a frame:
+ * <ul>
+ * <li>{@link #CATCH_UP}: the missed frames are updated back to back, each with the regular delta factor, keeping the simulation
+ * deterministic</li>
+ * <li>{@link #SKIP}: the missed frames are dropped and the next update receives the actual time elapsed since the previous update</li>
+ * </ul>
+ * Either way the world progresses with the time that has actually elapsed, except for frames beyond the catch-up limit, which are dropped
+ * to keep an overloaded server from falling ever further behind.
+ * 
+ * @author Benny Bottema
+ * @see WorldServer#setFrameLagPolicy(FrameLagPolicy, int)
+ * @since 1.0
+ */
+public enum FrameLagPolicy {
+
+	/**
+	 * Updates the world once for every missed frame, up to a maximum number of frames, after which the remaining missed frames are dropped.
+	 */
+	CATCH_UP,
+
+	/**
+	 * Updates the world once with the actual elapsed time, then continues with the next frame on schedule.
+	 */
+	SKIP
+}
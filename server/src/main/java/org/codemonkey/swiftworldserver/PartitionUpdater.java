@@ -0,0 +1,100 @@
+package org.codemonkey.swiftworldserver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Updates the partitions of a {@link PartitionedWorldContext} in parallel on a {@link ForkJoinPool}. The partitions are split in halves
+ * until a single partition remains, so idle workers steal the remaining halves from busy ones and uneven partitions balance out.
+ * <p>
+ * {@link #update(PartitionedWorldContext, double)} returns only when every partition has been updated, acting as the barrier between the
+ * parallel phase and the merge phase on the world thread.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+final class PartitionUpdater {
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param parallelism The number of worker threads updating partitions.
+	 */
+	PartitionUpdater(final int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Updates every partition of the context in parallel and then merges them on the calling thread. An exception thrown by any of the
+	 * partition updates is rethrown once all partitions are done, without merging. When several partitions fail, the exceptions of the others
+	 * are added to it as suppressed exceptions.
+	 * 
+	 * @param context The world to update.
+	 * @param secondsPerFrame The scale factor passed to every partition.
+	 */
+	void update(final PartitionedWorldContext context, final double secondsPerFrame) {
+		final int partitionCount = context.getPartitionCount();
+		if (partitionCount == 1) {
+			context.updatePartition(0, secondsPerFrame);
+		} else if (partitionCount > 1) {
+			pool.invoke(new PartitionTask(context, 0, partitionCount, secondsPerFrame));
+		}
+		context.mergePartitions(secondsPerFrame);
+	}
+
+	/**
+	 * Stops the worker threads, after which this updater can't be used anymore.
+	 */
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Updates a range of partitions, splitting it in halves until a single partition remains.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private static final class PartitionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final PartitionedWorldContext context;
+
+		private final int fromPartition;
+
+		private final int toPartition;
+
+		private final double secondsPerFrame;
+
+		PartitionTask(final PartitionedWorldContext context, final int fromPartition, final int toPartition, final double secondsPerFrame) {
+			this.context = context;
+			this.fromPartition = fromPartition;
+			this.toPartition = toPartition;
+			this.secondsPerFrame = secondsPerFrame;
+		}
+
+		@Override
+		protected void compute() {
+			if (toPartition - fromPartition == 1) {
+				context.updatePartition(fromPartition, secondsPerFrame);
+			} else {
+				final int middle = (fromPartition + toPartition) >>> 1;
+				final PartitionTask upperHalf = new PartitionTask(context, middle, toPartition, secondsPerFrame);
+				upperHalf.fork();
+				try {
+					new PartitionTask(context, fromPartition, middle, secondsPerFrame).compute();
+				} catch (final Throwable lowerFailure) {
+					// joins even when the lower half failed, so no partition is still running once the update returns
+					try {
+						upperHalf.join();
+					} catch (final Throwable upperFailure) {
+						lowerFailure.addSuppressed(upperFailure);
+					}
+					throw lowerFailure;
+				}
+				upperHalf.join();
+			}
+		}
+	}
+}
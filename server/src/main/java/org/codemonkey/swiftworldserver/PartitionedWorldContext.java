@@ -0,0 +1,47 @@
+package org.codemonkey.swiftworldserver;
+
+/**
+ * A {@link WorldContext} that divides its world into partitions which can be updated in parallel, so a large simulation is not limited
+ * to a single core.
+ * <p>
+ * Every frame the {@link WorldServer} updates the world in three phases:
+ * <ol>
+ * <li>{@link #updateWorld(double)} on the world thread, for the part of the update that can't be partitioned</li>
+ * <li>{@link #updatePartition(int, double)} for every partition, in parallel on a work-stealing pool</li>
+ * <li>{@link #mergePartitions(double)} on the world thread, once all partitions have been updated</li>
+ * </ol>
+ * A partition update should only change the state of its own partition and may only read state that is not changed by other partitions
+ * in the same frame. Anything that crosses partitions, such as entities moving from one partition to another, should be recorded per
+ * partition and applied while merging, which happens in the same order every frame regardless of how the partitions were scheduled.
+ * <p>
+ * Client messages and snapshots are always handled on the world thread, never while partitions are being updated. For the same reason the
+ * {@link WorldServer#getTickArena() tick arena} should not be used by partition updates.
+ * 
+ * @author Benny Bottema
+ * @see WorldServer#setWorldParallelism(int)
+ * @since 1.0
+ */
+public interface PartitionedWorldContext extends WorldContext {
+
+	/**
+	 * Called on the world thread at the start of every parallel update.
+	 * 
+	 * @return The number of partitions to update this frame.
+	 */
+	int getPartitionCount();
+
+	/**
+	 * Called concurrently for every partition, after {@link #updateWorld(double)}.
+	 * 
+	 * @param partition The index of the partition to update, from 0 up to the partition count.
+	 * @param secondsPerFrame The scale factor that determines the size of the change (see {@link WorldServer}).
+	 */
+	void updatePartition(int partition, double secondsPerFrame);
+
+	/**
+	 * Called on the world thread once all partitions have been updated, to apply the changes that cross partitions.
+	 * 
+	 * @param secondsPerFrame The scale factor that determines the size of the change (see {@link WorldServer}).
+	 */
+	void mergePartitions(double secondsPerFrame);
+}
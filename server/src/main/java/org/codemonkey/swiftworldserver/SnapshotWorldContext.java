@@ -0,0 +1,22 @@
+package org.codemonkey.swiftworldserver;
+
+/**
+ * A {@link WorldContext} that sends the world state to its clients at a lower rate than it simulates the world, so outbound bandwidth
+ * and the cpu spent on encoding messages don't grow with the simulation rate.
+ * <p>
+ * The {@link WorldServer} calls {@link #produceSnapshot(double)} only on network ticks, after a world update, as configured with
+ * {@link WorldServer#setSnapshotsPerSecond(double)}. Broadcasting state should then be done in that method, rather than in
+ * {@link #updateWorld(double)}.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+public interface SnapshotWorldContext extends WorldContext {
+
+	/**
+	 * Called after a world update on every network tick, to send the state of the world to the clients.
+	 * 
+	 * @param secondsPerSnapshot The total of the scale factors passed to {@link #updateWorld(double)} since the previous snapshot.
+	 */
+	void produceSnapshot(double secondsPerSnapshot);
+}
@@ -0,0 +1,244 @@
+package org.codemonkey.swiftworldserver;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.codemonkey.swiftsocketserver.MessagePool;
+import org.codemonkey.swiftsocketserver.Recyclable;
+
+/**
+ * Tick scoped source of transient objects for the world thread: lists, string builders and pooled objects (such as messages) used while
+ * processing one frame are handed out by the arena and reclaimed all at once when the frame ends, after
+ * {@link WorldContext#updateWorld(double)}. In a steady state the same instances are handed out every frame, so a world running at a high
+ * frame rate doesn't produce garbage for them.
+ * <p>
+ * The JVM doesn't allow bump allocation of arbitrary objects in a region, so the arena recycles instances instead: lists and string
+ * builders are cleared, pooled objects are returned to their {@link MessagePool}. Objects handed out by the arena should therefore not be
+ * referenced after the frame in which they were obtained.
+ * <p>
+ * In debug mode (by default when debug logging is enabled for this class) the arena detects references escaping the frame:
+ * <ul>
+ * <li>lists fail with an {@link IllegalStateException} when used after their frame ended</li>
+ * <li>string builders and pooled objects are not reused, so an escaped reference never sees the state of a later frame</li>
+ * <li>using the arena from any other thread than the world thread fails</li>
+ * </ul>
+ * The arena is not thread safe and should only be used from the world thread.
+ * 
+ * @author Benny Bottema
+ * @see WorldServer#getTickArena()
+ * @since 1.0
+ */
+public final class TickArena {
+
+	private static final Logger LOGGER = Logger.getLogger(TickArena.class);
+
+	/**
+	 * Lists and string builders that have grown beyond this number of elements or characters are not reused, so a single large frame
+	 * doesn't pin large buffers.
+	 */
+	static final int MAX_RETAINED_SIZE = 4096;
+
+	/**
+	 * The number of frames that ended, used to detect lists used after their frame ended.
+	 */
+	private long tick;
+
+	private final List<ArrayList<Object>> freeLists;
+	private final List<ArrayList<Object>> usedLists;
+
+	private final List<StringBuilder> freeStringBuilders;
+	private final List<StringBuilder> usedStringBuilders;
+
+	/**
+	 * Pooled objects handed out during the current frame, with their pools at the same index in {@link #usedObjectPools}.
+	 */
+	private final List<Recyclable> usedObjects;
+	private final List<MessagePool<?>> usedObjectPools;
+
+	private boolean debugMode;
+
+	/**
+	 * The thread allowed to use the arena in debug mode, assigned on first use.
+	 */
+	private Thread owner;
+
+	TickArena() {
+		freeLists = new ArrayList<ArrayList<Object>>();
+		usedLists = new ArrayList<ArrayList<Object>>();
+		freeStringBuilders = new ArrayList<StringBuilder>();
+		usedStringBuilders = new ArrayList<StringBuilder>();
+		usedObjects = new ArrayList<Recyclable>();
+		usedObjectPools = new ArrayList<MessagePool<?>>();
+		debugMode = LOGGER.isDebugEnabled();
+	}
+
+	/**
+	 * @param debugMode Whether to detect references escaping the frame, at the cost of reusing less.
+	 */
+	public void setDebugMode(final boolean debugMode) {
+		this.debugMode = debugMode;
+	}
+
+	/**
+	 * @return An empty list, valid until the end of the current frame.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> List<E> newList() {
+		checkOwner();
+		final ArrayList<Object> list = freeLists.isEmpty() ? new ArrayList<Object>() : freeLists.remove(freeLists.size() - 1);
+		usedLists.add(list);
+		return (List<E>) (debugMode ? new TickList<Object>(list, this, tick) : list);
+	}
+
+	/**
+	 * @return An empty string builder, valid until the end of the current frame.
+	 */
+	public StringBuilder newStringBuilder() {
+		checkOwner();
+		final StringBuilder stringBuilder;
+		if (freeStringBuilders.isEmpty()) {
+			stringBuilder = new StringBuilder();
+		} else {
+			stringBuilder = freeStringBuilders.remove(freeStringBuilders.size() - 1);
+		}
+		usedStringBuilders.add(stringBuilder);
+		return stringBuilder;
+	}
+
+	/**
+	 * Acquires an object from the pool, which is returned to the pool at the end of the current frame.
+	 * 
+	 * @param pool The pool to acquire the object from.
+	 * @return An object with default state, valid until the end of the current frame.
+	 */
+	public <R extends Recyclable> R allocate(final MessagePool<R> pool) {
+		checkOwner();
+		final R object = pool.acquire();
+		usedObjects.add(object);
+		usedObjectPools.add(pool);
+		return object;
+	}
+
+	/**
+	 * @return The number of frames that ended since the arena was created.
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Ends the current frame, reclaiming every object handed out during the frame. Called by the world thread after every world update.
+	 */
+	void reset() {
+		checkOwner();
+		tick++;
+		for (final ArrayList<Object> list : usedLists) {
+			final boolean retain = list.size() <= MAX_RETAINED_SIZE;
+			list.clear();
+			if (retain) {
+				freeLists.add(list);
+			}
+		}
+		usedLists.clear();
+		for (final StringBuilder stringBuilder : usedStringBuilders) {
+			if (!debugMode && stringBuilder.capacity() <= MAX_RETAINED_SIZE) {
+				stringBuilder.setLength(0);
+				freeStringBuilders.add(stringBuilder);
+			}
+		}
+		usedStringBuilders.clear();
+		for (int i = 0; i < usedObjects.size(); i++) {
+			releaseObject(usedObjectPools.get(i), usedObjects.get(i), debugMode);
+		}
+		usedObjects.clear();
+		usedObjectPools.clear();
+	}
+
+	/**
+	 * Returns the object to its pool, or in debug mode resets it and discards it so escaped references don't see it reused.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <R extends Recyclable> void releaseObject(final MessagePool<R> pool, final Recyclable object, final boolean discard) {
+		if (discard) {
+			object.reset();
+			pool.discard((R) object);
+		} else {
+			pool.release((R) object);
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException Thrown in debug mode when called from another thread than the first thread that used the arena.
+	 */
+	private void checkOwner() {
+		if (debugMode) {
+			if (owner == null) {
+				owner = Thread.currentThread();
+			} else if (owner != Thread.currentThread()) {
+				final String msg = "tick arena of thread '%s' used by thread '%s'";
+				throw new IllegalStateException(String.format(msg, owner.getName(), Thread.currentThread().getName()));
+			}
+		}
+	}
+
+	/**
+	 * @param allocationTick The frame in which a list was handed out.
+	 * @throws IllegalStateException Thrown when the frame has ended.
+	 */
+	void checkTick(final long allocationTick) {
+		if (allocationTick != tick) {
+			final String msg = "list of frame %s used in frame %s, after it was reclaimed by the tick arena";
+			throw new IllegalStateException(String.format(msg, allocationTick, tick));
+		}
+	}
+
+	/**
+	 * List view handed out in debug mode, which fails when used after the frame it was handed out in.
+	 * 
+	 * @param <E> The type of the elements in the list.
+	 */
+	private static final class TickList<E> extends AbstractList<E> {
+
+		private final ArrayList<E> list;
+		private final TickArena arena;
+		private final long allocationTick;
+
+		TickList(final ArrayList<E> list, final TickArena arena, final long allocationTick) {
+			this.list = list;
+			this.arena = arena;
+			this.allocationTick = allocationTick;
+		}
+
+		@Override
+		public E get(final int index) {
+			arena.checkTick(allocationTick);
+			return list.get(index);
+		}
+
+		@Override
+		public E set(final int index, final E element) {
+			arena.checkTick(allocationTick);
+			return list.set(index, element);
+		}
+
+		@Override
+		public void add(final int index, final E element) {
+			arena.checkTick(allocationTick);
+			list.add(index, element);
+		}
+
+		@Override
+		public E remove(final int index) {
+			arena.checkTick(allocationTick);
+			return list.remove(index);
+		}
+
+		@Override
+		public int size() {
+			arena.checkTick(allocationTick);
+			return list.size();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package org.codemonkey.swiftworldserver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the frame schedule of the {@link WorldServer} on a fixed time step. Frame deadlines are absolute {@link System#nanoTime()}
+ * values, so the time spent updating the world and executing messages is subtracted from the wait for the next frame rather than added to
+ * it, and the schedule doesn't drift.
+ * <p>
+ * When frames are missed, {@link #dueFrames(long)} applies the configured {@link FrameLagPolicy} to determine how many updates are due and
+ * which delta they should be given.
+ * <p>
+ * Not thread safe, except for {@link #setFrameNanos(long)} and {@link #getDroppedFrameCount()}, and should only be used by the world
+ * thread.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+final class TickScheduler {
+
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * The length of a frame in nanoseconds. May be changed from another thread, in which case it applies from the next scheduled frame.
+	 */
+	private volatile long frameNanos;
+
+	private FrameLagPolicy frameLagPolicy;
+
+	/**
+	 * The maximum number of frames updated back to back with {@link FrameLagPolicy#CATCH_UP}.
+	 */
+	private int maxCatchUpFrames;
+
+	/**
+	 * The {@link System#nanoTime()} at which the next frame is due.
+	 */
+	private long nextDeadline;
+
+	/**
+	 * The {@link System#nanoTime()} at which the last due frames were determined, used to calculate the actual elapsed time.
+	 */
+	private long lastFrameTime;
+
+	/**
+	 * The delta in seconds for each of the frames returned by the last call to {@link #dueFrames(long)}.
+	 */
+	private double frameSeconds;
+
+	/**
+	 * The total number of frames dropped since the scheduler was started. Only written by the world thread, but may be read by any thread.
+	 */
+	private volatile long droppedFrameCount;
+
+	/**
+	 * @param frameNanos The length of a frame in nanoseconds.
+	 * @param frameLagPolicy Determines what happens when frames are missed.
+	 * @param maxCatchUpFrames The maximum number of frames updated back to back with {@link FrameLagPolicy#CATCH_UP}.
+	 */
+	TickScheduler(final long frameNanos, final FrameLagPolicy frameLagPolicy, final int maxCatchUpFrames) {
+		setFrameNanos(frameNanos);
+		setFrameLagPolicy(frameLagPolicy, maxCatchUpFrames);
+	}
+
+	/**
+	 * Schedules the first frame one frame length after the given time.
+	 * 
+	 * @param now The current {@link System#nanoTime()}.
+	 */
+	void start(final long now) {
+		lastFrameTime = now;
+		nextDeadline = now + frameNanos;
+	}
+
+	/**
+	 * Determines how many frames are due at the given time and schedules the next frame. Every due frame should be updated with
+	 * {@link #getFrameSeconds()} as delta.
+	 * 
+	 * @param now The current {@link System#nanoTime()}.
+	 * @return The number of frames due, 0 if the next deadline has not passed yet.
+	 */
+	int dueFrames(final long now) {
+		if (now - nextDeadline < 0) {
+			return 0;
+		}
+		final long frameNanos = this.frameNanos;
+		final long missedFrames = (now - nextDeadline) / frameNanos;
+		final int dueFrames;
+		if (frameLagPolicy == FrameLagPolicy.CATCH_UP) {
+			if (missedFrames < maxCatchUpFrames) {
+				dueFrames = (int) missedFrames + 1;
+				nextDeadline += dueFrames * frameNanos;
+			} else {
+				dueFrames = maxCatchUpFrames;
+				droppedFrameCount += missedFrames + 1 - maxCatchUpFrames;
+				nextDeadline = now + frameNanos;
+			}
+			frameSeconds = frameNanos / NANOS_PER_SECOND;
+		} else {
+			dueFrames = 1;
+			droppedFrameCount += missedFrames;
+			nextDeadline += (missedFrames + 1) * frameNanos;
+			frameSeconds = (now - lastFrameTime) / NANOS_PER_SECOND;
+		}
+		lastFrameTime = now;
+		return dueFrames;
+	}
+
+	/**
+	 * @return {@link #nextDeadline}
+	 */
+	long getNextDeadline() {
+		return nextDeadline;
+	}
+
+	/**
+	 * @return {@link #frameSeconds}
+	 */
+	double getFrameSeconds() {
+		return frameSeconds;
+	}
+
+	/**
+	 * @return {@link #droppedFrameCount}
+	 */
+	long getDroppedFrameCount() {
+		return droppedFrameCount;
+	}
+
+	void setFrameNanos(final long frameNanos) {
+		if (frameNanos < 1) {
+			throw new IllegalArgumentException("frame length should be positive");
+		}
+		this.frameNanos = frameNanos;
+	}
+
+	void setFrameLagPolicy(final FrameLagPolicy frameLagPolicy, final int maxCatchUpFrames) {
+		if (maxCatchUpFrames < 1) {
+			throw new IllegalArgumentException("at least one frame should be updated when frames are due");
+		}
+		this.frameLagPolicy = frameLagPolicy;
+		this.maxCatchUpFrames = maxCatchUpFrames;
+	}
+}
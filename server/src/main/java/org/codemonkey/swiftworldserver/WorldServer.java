@@ -1,12 +1,26 @@
 package org.codemonkey.swiftworldserver;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
 import org.apache.log4j.Logger;
+import org.codemonkey.swiftsocketserver.ClientContext;
+import org.codemonkey.swiftsocketserver.ClientMessageConsumer;
 import org.codemonkey.swiftsocketserver.ClientMessageToServer;
+import org.codemonkey.swiftsocketserver.ClientMessageToServerFactory;
+import org.codemonkey.swiftsocketserver.FairMessageQueue;
+import org.codemonkey.swiftsocketserver.KeyedExecutor;
+import org.codemonkey.swiftsocketserver.MessageOverflowPolicy;
+import org.codemonkey.swiftsocketserver.MessagePool;
+import org.codemonkey.swiftsocketserver.ReactorBalancing;
 import org.codemonkey.swiftsocketserver.ServerMessageToClient;
 import org.codemonkey.swiftsocketserver.ServerType;
-import org.codemonkey.swiftsocketserver.ServerUtil;
+import org.codemonkey.swiftsocketserver.SlowConsumerPolicy;
 import org.codemonkey.swiftsocketserver.SwiftSocketServer;
+import org.codemonkey.swiftsocketserver.ThreadMode;
 import org.codemonkey.swiftsocketserver.UnknownMessageException;
+import org.codemonkey.swiftsocketserver.WaitStrategy;
+import org.codemonkey.swiftsocketserver.WireProtocol;
 
 /**
  * The World Server class adds a thin layer around the {@link SwiftSocketServer} to ease the management of a world state, or simulation /
@@ -15,13 +29,22 @@ import org.codemonkey.swiftsocketserver.UnknownMessageException;
  * The most important aspect of this layer is the heart beat implementation that invokes updates on the given world context, based on a
  * given frame per second. This FPS number determines how often the world or simulation is updated, while providing a delta factor
  * indicating the number of seconds per frame as a scale. For example, with an FPS of 4, every 250ms an update is invoked with a value of
- * 0,25. Lag is not accounted for (ie. the scale is not increased when an update takes too long). A higher FPS means faster but smaller
- * updates, while lower FPS means less updates which are larger each time (also see {@link #secondsPerFrame}).
+ * 0,25. A higher FPS means faster but smaller updates, while lower FPS means less updates which are larger each time.
+ * <p>
+ * Frames are scheduled on a fixed time step, so time spent updating the world and executing messages doesn't delay the next frame. When
+ * the server falls behind nonetheless, missed frames are caught up or skipped (see {@link #setFrameLagPolicy(FrameLagPolicy, int)}).
+ * <p>
+ * A {@link SnapshotWorldContext} can send the world state to clients at a lower rate than the world is simulated, by producing snapshots
+ * only every few frames (see {@link #setSnapshotsPerSecond(double)}). A {@link PartitionedWorldContext} is updated in parallel, partition by
+ * partition (see {@link #setWorldParallelism(int)}).
  * <p>
  * The World Server allows us to execute decoded client messages against a known context (your game class for example), so that the
  * executable message can then invoke specific methods on your {@link WorldContext} implementation.
  * <p>
- * This class keeps polling the server for unprocessed messages and executes them when they become available.
+ * This class keeps waiting on the server for unprocessed messages (see {@link #setWaitStrategy(WaitStrategy)}) and executes them when they
+ * become available, either one by one on the world thread or in parallel by ordering key (see {@link #setMessageExecutionThreads(int)}).
+ * Optionally, messages are taken round-robin across clients within a budget per tick (see
+ * {@link #setMessageBudget(int, int, MessageOverflowPolicy)}).
  * 
  * @param <T> A specific {@link WorldContext} implementation, such a some game or a simulation.
  * @author Benny Bottema
@@ -31,25 +54,109 @@ public final class WorldServer<T extends WorldContext> {
 
 	private static final Logger LOGGER = Logger.getLogger(WorldServer.class);
 
+	/**
+	 * The maximum number of client messages executed in one pass, after which the frame time is checked again.
+	 */
+	private static final int MAX_MESSAGES_PER_DRAIN = 1024;
+
+	/**
+	 * The default maximum number of client messages waiting to be executed in parallel, after which the world thread stops handing them
+	 * out.
+	 */
+	private static final int DEFAULT_MESSAGE_EXECUTION_CAPACITY = 1024;
+
+	/**
+	 * The time the world thread backs off while the {@link #messageDispatcher} is at capacity, before checking again.
+	 */
+	private static final long FULL_QUEUE_BACKOFF_NS = 100000;
+
 	/**
 	 * The server that we simply start and listen to for new messages. All registered message types are delegated to this server instance.
 	 */
 	final SwiftSocketServer server;
 
 	/**
-	 * The scaling factor calculated based on the frame per second passed in the constructor of this class.
+	 * The default maximum number of missed frames updated back to back with {@link FrameLagPolicy#CATCH_UP}.
+	 */
+	private static final int DEFAULT_MAX_CATCH_UP_FRAMES = 5;
+
+	/**
+	 * Schedules the frames based on the frame per second passed in the constructor of this class, and determines the scaling factor passed
+	 * to every update.
 	 * <p>
-	 * You may use this to determine the size of the change set in your world simulation, as it changes proportionally and in conjunction
-	 * with the FPS. Higher FPS means smaller changes each frame, while lower FP means larger changes each frame. This way you may throttle
-	 * the FPs, while keeping simulation progress constant.
+	 * You may use this scaling factor to determine the size of the change set in your world simulation, as it changes proportionally and in
+	 * conjunction with the FPS. Higher FPS means smaller changes each frame, while lower FP means larger changes each frame. This way you may
+	 * throttle the FPs, while keeping simulation progress constant.
 	 */
-	private double secondsPerFrame;
+	private final TickScheduler tickScheduler = new TickScheduler(1, FrameLagPolicy.CATCH_UP, DEFAULT_MAX_CATCH_UP_FRAMES);
 
 	/**
 	 * The {@link WorldContext} implementation against which all executable messages are executed against.
 	 */
 	private final T context;
 
+	/**
+	 * The number of frames per second, kept to recalculate {@link #framesPerSnapshot} when the snapshot rate changes.
+	 */
+	private volatile double framesPerSecond;
+
+	/**
+	 * The number of snapshots per second, or 0 to produce a snapshot every frame.
+	 */
+	private volatile double snapshotsPerSecond;
+
+	/**
+	 * The number of world updates between two calls to {@link SnapshotWorldContext#produceSnapshot(double)}.
+	 */
+	private volatile int framesPerSnapshot = 1;
+
+	/**
+	 * The number of threads updating the partitions of a {@link PartitionedWorldContext}, defaults to the number of available processors.
+	 */
+	private int worldParallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The number of threads executing client messages in parallel, or 0 to execute them on the world thread.
+	 */
+	private int messageExecutionThreads;
+
+	/**
+	 * The maximum number of client messages waiting in the {@link #messageDispatcher}. Until there is room again, messages are left in the
+	 * server's queue, so the server's back-pressure towards the receiving threads still applies.
+	 */
+	private int messageExecutionCapacity = DEFAULT_MESSAGE_EXECUTION_CAPACITY;
+
+	/**
+	 * Executes client messages in parallel by ordering key while the server runs, if {@link #messageExecutionThreads} is set.
+	 */
+	private KeyedExecutor messageDispatcher;
+
+	/**
+	 * Hands out client messages round-robin across clients within their budget, or <code>null</code> to execute messages in the order in
+	 * which they were received.
+	 */
+	private FairMessageQueue fairMessageQueue;
+
+	/**
+	 * The number of world updates since the last snapshot. Only used by the world thread.
+	 */
+	private int framesSinceSnapshot;
+
+	/**
+	 * The total delta of the world updates since the last snapshot. Only used by the world thread.
+	 */
+	private double secondsSinceSnapshot;
+
+	/**
+	 * Executes every client message drained from the server against the {@link #context}.
+	 */
+	private final ClientMessageConsumer messageExecutor = new MessageExecutor();
+
+	/**
+	 * Hands out transient objects for the current frame, reclaimed after every world update.
+	 */
+	private final TickArena tickArena = new TickArena();
+
 	/**
 	 * Starts a new default TCP swift socket server on the given port, performing updates based on the given frame per second.
 	 * 
@@ -102,6 +209,185 @@ public final class WorldServer<T extends WorldContext> {
 		server.setPingPongMode(pingPongMode, pingPongIntervalMs, pingPongTimeoutMs);
 	}
 
+	/**
+	 * Delegates to {@link SwiftSocketServer#setThreadMode(ThreadMode)}.
+	 * <p>
+	 * Note: When changed, will only apply the new setting to <strong>new</strong> clients.
+	 * 
+	 * @param threadMode The kind of threads to run client handlers on.
+	 */
+	public void setThreadMode(final ThreadMode threadMode) {
+		server.setThreadMode(threadMode);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setClientMessageQueueCapacity(int)}.
+	 * 
+	 * @param capacity The minimum number of messages the queue can hold, rounded up to a power of two.
+	 */
+	public void setClientMessageQueueCapacity(final int capacity) {
+		server.setClientMessageQueueCapacity(capacity);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setWaitStrategy(WaitStrategy)}.
+	 * 
+	 * @param waitStrategy The strategy that trades latency against cpu usage.
+	 */
+	public void setWaitStrategy(final WaitStrategy waitStrategy) {
+		server.setWaitStrategy(waitStrategy);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setMaxDatagramSize(int)}.
+	 * 
+	 * @param maxDatagramSize The maximum datagram size in bytes.
+	 */
+	public void setMaxDatagramSize(final int maxDatagramSize) {
+		server.setMaxDatagramSize(maxDatagramSize);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setOutboundQueue(int, SlowConsumerPolicy, int)}.
+	 * 
+	 * @param capacity The maximum number of messages queued for a single client.
+	 * @param slowConsumerPolicy Determines what happens when a message is sent to a client whose queue is full.
+	 * @param blockTimeoutMs The maximum time in milliseconds to wait for room with {@link SlowConsumerPolicy#BLOCK}.
+	 */
+	public void setOutboundQueue(final int capacity, final SlowConsumerPolicy slowConsumerPolicy, final int blockTimeoutMs) {
+		server.setOutboundQueue(capacity, slowConsumerPolicy, blockTimeoutMs);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setWireProtocol(WireProtocol)}.
+	 * 
+	 * @param wireProtocol The protocol used to encode and decode messages.
+	 */
+	public void setWireProtocol(final WireProtocol wireProtocol) {
+		server.setWireProtocol(wireProtocol);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setMaxFrameSize(int)}.
+	 * 
+	 * @param maxFrameSize The maximum frame size in bytes.
+	 */
+	public void setMaxFrameSize(final int maxFrameSize) {
+		server.setMaxFrameSize(maxFrameSize);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setDecodePool(int, int)}.
+	 * 
+	 * @param threadCount The number of decoding threads, or 0 to decode messages on the receiving threads.
+	 * @param capacity The maximum number of messages waiting to be decoded.
+	 */
+	public void setDecodePool(final int threadCount, final int capacity) {
+		server.setDecodePool(threadCount, capacity);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#setReactors(int, ReactorBalancing)}.
+	 * 
+	 * @param reactorCount The number of reactors, each running on its own thread.
+	 * @param reactorBalancing The strategy that determines which reactor serves a new connection.
+	 */
+	public void setReactors(final int reactorCount, final ReactorBalancing reactorBalancing) {
+		server.setReactors(reactorCount, reactorBalancing);
+	}
+
+	/**
+	 * Sets what happens when the server falls behind its frame schedule. Defaults to {@link FrameLagPolicy#CATCH_UP} with at most
+	 * {@value #DEFAULT_MAX_CATCH_UP_FRAMES} frames. Only applies when set before the server is started.
+	 * 
+	 * @param frameLagPolicy Determines whether missed frames are caught up or skipped.
+	 * @param maxCatchUpFrames The maximum number of frames updated back to back with {@link FrameLagPolicy#CATCH_UP}, beyond which missed
+	 *            frames are dropped.
+	 */
+	public void setFrameLagPolicy(final FrameLagPolicy frameLagPolicy, final int maxCatchUpFrames) {
+		tickScheduler.setFrameLagPolicy(frameLagPolicy, maxCatchUpFrames);
+	}
+
+	/**
+	 * Sets the number of threads that update the partitions of a {@link PartitionedWorldContext} in parallel. Defaults to the number of
+	 * available processors. Has no effect on other contexts and only applies when set before the server is started.
+	 * 
+	 * @param worldParallelism The number of threads updating partitions.
+	 */
+	public void setWorldParallelism(final int worldParallelism) {
+		if (worldParallelism < 1) {
+			throw new IllegalArgumentException("at least one thread is required to update the world");
+		}
+		this.worldParallelism = worldParallelism;
+	}
+
+	/**
+	 * Sets the number of threads that execute client messages in parallel. Messages with the same
+	 * {@link ClientMessageToServer#getOrderingKey() ordering key}, by default the messages of one client, are still executed one at a time
+	 * in the order in which they were received. The world thread waits for all messages received so far to complete before it updates the
+	 * world, so messages never run concurrently with {@link WorldContext#updateWorld(double)}, but the parts of the world context invoked
+	 * by messages should be safe to use by messages with different keys at the same time, and should not use the
+	 * {@link #getTickArena() tick arena}.
+	 * <p>
+	 * Defaults to 0, executing all messages on the world thread. Only applies when set before the server is started.
+	 * 
+	 * @param messageExecutionThreads The number of threads executing messages, or 0 to execute messages on the world thread.
+	 * @see #setMessageExecutionThreads(int, int)
+	 */
+	public void setMessageExecutionThreads(final int messageExecutionThreads) {
+		setMessageExecutionThreads(messageExecutionThreads, DEFAULT_MESSAGE_EXECUTION_CAPACITY);
+	}
+
+	/**
+	 * Sets the number of threads that execute client messages in parallel, like {@link #setMessageExecutionThreads(int)}, along with the
+	 * maximum number of messages waiting to be executed. Once that many messages are waiting, the world thread leaves further messages in
+	 * the server's queue until there is room again. Defaults to {@value #DEFAULT_MESSAGE_EXECUTION_CAPACITY} messages.
+	 * 
+	 * @param messageExecutionThreads The number of threads executing messages, or 0 to execute messages on the world thread.
+	 * @param capacity The maximum number of messages waiting to be executed in parallel.
+	 */
+	public void setMessageExecutionThreads(final int messageExecutionThreads, final int capacity) {
+		if (messageExecutionThreads < 0) {
+			throw new IllegalArgumentException("number of message execution threads should not be negative");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("message execution capacity should be positive");
+		}
+		this.messageExecutionThreads = messageExecutionThreads;
+		this.messageExecutionCapacity = capacity;
+	}
+
+	/**
+	 * Limits the number of client messages executed per frame, taking messages round-robin across clients so a single client flooding the
+	 * server can't starve the others or push the world update past its deadline. Messages exceeding the total budget wait for the next
+	 * frame, messages exceeding the budget of their client are handled as per the overflow policy. By default messages are executed in the
+	 * order in which they were received, without limits. Only applies when set before the server is started.
+	 * <p>
+	 * The number of messages a client may have waiting in the server's message queue is limited to its budget for a few frames as well,
+	 * applied as soon as messages are received, so a flooding client can't fill the queue shared by all clients either.
+	 * 
+	 * @param maxMessagesPerClient The maximum number of messages executed per client per frame.
+	 * @param maxMessagesPerFrame The maximum number of messages executed per frame for all clients together.
+	 * @param overflowPolicy Determines what happens to messages of a client exceeding its budget.
+	 * @see FairMessageQueue
+	 * @see SwiftSocketServer#setClientMessageLimit(int, MessageOverflowPolicy)
+	 * @see ClientContext#getDroppedMessageCount()
+	 */
+	public void setMessageBudget(final int maxMessagesPerClient, final int maxMessagesPerFrame, final MessageOverflowPolicy overflowPolicy) {
+		fairMessageQueue = new FairMessageQueue(server, maxMessagesPerClient, maxMessagesPerFrame, overflowPolicy);
+		server.setClientMessageLimit(fairMessageQueue.getMaxWaitingMessagesPerClient(), overflowPolicy);
+	}
+
+	/**
+	 * Delegates to {@link SwiftSocketServer#disconnectClient(ClientContext, String)}.
+	 * 
+	 * @param clientContext The client to disconnect.
+	 * @param reason A short description why the client is disconnected, used for logging.
+	 */
+	public void disconnectClient(final ClientContext clientContext, final String reason) {
+		server.disconnectClient(clientContext, reason);
+	}
+
 	/**
 	 * Registers a client-to-server message on the given unique identifier on the swift socket server, by delegating to
 	 * {@link SwiftSocketServer#registerClientMessageToServerType(int, Class)}.
@@ -113,6 +399,29 @@ public final class WorldServer<T extends WorldContext> {
 		server.registerClientMessageToServerType(messageId, messageType);
 	}
 
+	/**
+	 * Registers a factory for client-to-server messages on the given unique identifier on the swift socket server, by delegating to
+	 * {@link SwiftSocketServer#registerClientMessageToServerType(int, ClientMessageToServerFactory)}.
+	 * 
+	 * @param messageId The unique identifier for the message type created by the factory.
+	 * @param messageFactory The factory creating a new message for every message received with the given identifier.
+	 */
+	public void registerClientMessageToServerType(final int messageId,
+			final ClientMessageToServerFactory<? extends ClientMessageToServer<T>> messageFactory) {
+		server.registerClientMessageToServerType(messageId, messageFactory);
+	}
+
+	/**
+	 * Registers a pooled client-to-server message type on the given unique identifier on the swift socket server, by delegating to
+	 * {@link SwiftSocketServer#registerClientMessageToServerType(int, MessagePool)}. Messages are returned to the pool once executed.
+	 * 
+	 * @param messageId The unique identifier for the pooled message type.
+	 * @param messagePool The pool of the message type.
+	 */
+	public void registerClientMessageToServerType(final int messageId, final MessagePool<? extends ClientMessageToServer<T>> messagePool) {
+		server.registerClientMessageToServerType(messageId, messagePool);
+	}
+
 	/**
 	 * Registers a server-to-client message on the given unique identifier on the swift socket server, by delegating to
 	 * {@link SwiftSocketServer#registerServerMessageToClientId(int, Class)}.
@@ -124,11 +433,21 @@ public final class WorldServer<T extends WorldContext> {
 		server.registerServerMessageToClientId(messageId, messageType);
 	}
 
+	/**
+	 * Registers a pooled server-to-client message type on the given unique identifier on the swift socket server, by delegating to
+	 * {@link SwiftSocketServer#registerServerMessageToClientId(int, MessagePool)}. Messages are returned to the pool once sent.
+	 * 
+	 * @param messageId The unique identifier for the pooled message type.
+	 * @param messagePool The pool of the message type.
+	 */
+	public void registerServerMessageToClientId(final int messageId, final MessagePool<? extends ServerMessageToClient> messagePool) {
+		server.registerServerMessageToClientId(messageId, messagePool);
+	}
+
 	/**
 	 * Calls {@link WorldContext#initWorld()} before starting the server, after which the server starts handling client connections,
 	 * incoming messages and world updates.
 	 */
-	@SuppressWarnings("unchecked")
 	public void start() {
 		// 1. starting universe
 		LOGGER.info("loading universe...");
@@ -139,28 +458,185 @@ public final class WorldServer<T extends WorldContext> {
 		server.start();
 
 		// 3. run simulation
-		while (server.isRunning()) {
-			final long now = System.currentTimeMillis();
-			while (System.currentTimeMillis() - now < secondsPerFrame * 1000) {
-				if (server.hasClientMessages()) {
-					@SuppressWarnings("rawtypes")
-					final ClientMessageToServer message = server.getNextClientMessage();
-					try {
-						message.execute(context);
-					} catch (final UnknownMessageException e) {
-						LOGGER.error(String.format("received invalid message from client '%s'", e.getClientContext()));
-						LOGGER.debug("\t\t" + e);
-					} catch (final Exception e) {
-						// severe error, but catch to prevent server from crashing
-						LOGGER.error(String.format("error executing message '%s'", message));
-						LOGGER.debug("\t\t" + e);
+		final PartitionUpdater partitionUpdater = (context instanceof PartitionedWorldContext) ? new PartitionUpdater(worldParallelism)
+				: null;
+		messageDispatcher = (messageExecutionThreads > 0) ? new KeyedExecutor("message-executor", messageExecutionThreads) : null;
+		try {
+			tickScheduler.start(System.nanoTime());
+			while (server.isRunning()) {
+				int dueFrames;
+				while ((dueFrames = tickScheduler.dueFrames(System.nanoTime())) == 0) {
+					if (executeClientMessages() == 0) {
+						if (isMessageDispatcherFull()) {
+							LockSupport.parkNanos(FULL_QUEUE_BACKOFF_NS);
+						} else {
+							server.awaitClientMessagesUntil(tickScheduler.getNextDeadline());
+						}
+					}
+				}
+				if (messageDispatcher != null) {
+					messageDispatcher.awaitIdle();
+				}
+				if (dueFrames > 1 && LOGGER.isDebugEnabled()) {
+					LOGGER.debug(String.format("catching up %s frames", dueFrames - 1));
+				}
+				for (int i = 1; i <= dueFrames; i++) {
+					context.updateWorld(tickScheduler.getFrameSeconds());
+					if (partitionUpdater != null) {
+						partitionUpdater.update((PartitionedWorldContext) context, tickScheduler.getFrameSeconds());
+					}
+					framesSinceSnapshot++;
+					secondsSinceSnapshot += tickScheduler.getFrameSeconds();
+					if (i == dueFrames) {
+						produceSnapshotWhenDue();
 					}
-				} else {
-					ServerUtil.defaultSleep();
+					tickArena.reset();
 				}
+				if (fairMessageQueue != null) {
+					fairMessageQueue.nextTick();
+				}
+			}
+		} finally {
+			if (fairMessageQueue != null) {
+				fairMessageQueue.clear();
+			}
+			if (partitionUpdater != null) {
+				partitionUpdater.shutdown();
+			}
+			if (messageDispatcher != null) {
+				messageDispatcher.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Executes up to {@value #MAX_MESSAGES_PER_DRAIN} client messages on the world thread, or hands them to the
+	 * {@link #messageDispatcher} to be executed in parallel. With a {@link #fairMessageQueue}, messages taken from the server are queued
+	 * per client first and executed as far as the budget of the frame allows. No messages are handed to the message dispatcher while it is
+	 * at capacity.
+	 * 
+	 * @return The number of messages taken from the server or the fair message queue, 0 if there is nothing to do until new messages
+	 *         arrive, the next frame starts or the message dispatcher has room again.
+	 */
+	private int executeClientMessages() {
+		if (fairMessageQueue == null && messageDispatcher == null) {
+			return server.drainClientMessages(messageExecutor, MAX_MESSAGES_PER_DRAIN);
+		}
+		int count = 0;
+		ClientMessageToServer<?> message;
+		while (count < MAX_MESSAGES_PER_DRAIN && (fairMessageQueue != null || !isMessageDispatcherFull())
+				&& (message = server.getNextClientMessage()) != null) {
+			count++;
+			if (fairMessageQueue != null) {
+				fairMessageQueue.add(message);
+			} else {
+				executeClientMessage(message);
+			}
+		}
+		if (fairMessageQueue != null) {
+			for (int i = 0; i < MAX_MESSAGES_PER_DRAIN && !isMessageDispatcherFull() && (message = fairMessageQueue.poll()) != null; i++) {
+				count++;
+				executeClientMessage(message);
 			}
-			context.updateWorld(secondsPerFrame);
 		}
+		return count;
+	}
+
+	/**
+	 * @return Whether messages are executed in parallel and {@link #messageExecutionCapacity} messages are waiting to be executed.
+	 */
+	private boolean isMessageDispatcherFull() {
+		return messageDispatcher != null && messageDispatcher.getPendingTaskCount() >= messageExecutionCapacity;
+	}
+
+	/**
+	 * Executes a client message on the world thread and releases it, or hands it to the {@link #messageDispatcher}. Dispatched messages
+	 * are released by the thread that executes them, as the world thread doesn't know when they are done.
+	 * 
+	 * @param message A message taken from the server.
+	 */
+	private void executeClientMessage(final ClientMessageToServer<?> message) {
+		if (messageDispatcher != null) {
+			messageDispatcher.execute(message.getOrderingKey(), new DispatchedMessage(message));
+		} else {
+			try {
+				messageExecutor.consume(message);
+			} finally {
+				server.releaseClientMessage(message);
+			}
+		}
+	}
+
+	/**
+	 * Calls {@link SnapshotWorldContext#produceSnapshot(double)} when enough frames have passed since the previous snapshot. Snapshots
+	 * are not produced halfway when catching up on missed frames, as only the latest state is of interest to clients.
+	 */
+	private void produceSnapshotWhenDue() {
+		if (context instanceof SnapshotWorldContext && framesSinceSnapshot >= framesPerSnapshot) {
+			final double secondsPerSnapshot = secondsSinceSnapshot;
+			framesSinceSnapshot = 0;
+			secondsSinceSnapshot = 0;
+			((SnapshotWorldContext) context).produceSnapshot(secondsPerSnapshot);
+		}
+	}
+
+	/**
+	 * Executes client messages against the {@link WorldServer#context}, logging failing messages rather than letting them crash the world
+	 * thread.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private class MessageExecutor implements ClientMessageConsumer {
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void consume(final ClientMessageToServer<?> message) {
+			try {
+				((ClientMessageToServer) message).execute(context);
+			} catch (final UnknownMessageException e) {
+				LOGGER.error(String.format("received invalid message from client '%s'", e.getClientContext()));
+				LOGGER.debug("\t\t" + e);
+			} catch (final Exception e) {
+				// severe error, but catch to prevent server from crashing
+				LOGGER.error(String.format("error executing message '%s'", message));
+				LOGGER.debug("\t\t" + e);
+			}
+		}
+	}
+
+	/**
+	 * Executes a single client message on a thread of the {@link WorldServer#messageDispatcher} and releases it afterwards.
+	 * 
+	 * @author Benny Bottema
+	 * @since 1.0
+	 */
+	private class DispatchedMessage implements Runnable {
+
+		private final ClientMessageToServer<?> message;
+
+		DispatchedMessage(final ClientMessageToServer<?> message) {
+			this.message = message;
+		}
+
+		@Override
+		public void run() {
+			try {
+				messageExecutor.consume(message);
+			} finally {
+				server.releaseClientMessage(message);
+			}
+		}
+	}
+
+	/**
+	 * Returns the arena for objects only needed during the current frame, while executing client messages or updating the world. Objects
+	 * obtained from the arena are reclaimed after {@link WorldContext#updateWorld(double)}, so they should not be referenced afterwards.
+	 * Should only be used from the world thread.
+	 * 
+	 * @return {@link #tickArena}
+	 */
+	public TickArena getTickArena() {
+		return tickArena;
 	}
 
 	/**
@@ -171,10 +647,51 @@ public final class WorldServer<T extends WorldContext> {
 	 * @see WorldServer
 	 */
 	public void setFramesPerSecond(final double framesPerSecond) {
-		this.secondsPerFrame = 1d / framesPerSecond;
+		if (!(framesPerSecond > 0)) {
+			throw new IllegalArgumentException("frames per second should be positive");
+		}
+		final double secondsPerFrame = 1d / framesPerSecond;
+		tickScheduler.setFrameNanos(Math.max(1, Math.round(secondsPerFrame * TimeUnit.SECONDS.toNanos(1))));
+		this.framesPerSecond = framesPerSecond;
+		updateFramesPerSnapshot();
 		LOGGER.info(String.format("setting frame per setting to: %s (delta factor now: %s)", framesPerSecond, secondsPerFrame));
 	}
 
+	/**
+	 * Changes how often the server invokes {@link SnapshotWorldContext#produceSnapshot(double)}, independently of the number of world
+	 * updates per second. Snapshots always directly follow a world update, so the rate is rounded to a whole number of frames per snapshot
+	 * and capped at the frames per second. For example, a world simulated at 60 frames per second with 20 snapshots per second produces a
+	 * snapshot every third frame. Defaults to a snapshot every frame. Has no effect if the context is not a {@link SnapshotWorldContext}.
+	 * 
+	 * @param snapshotsPerSecond The number of snapshots per second, or 0 to produce a snapshot every frame.
+	 */
+	public void setSnapshotsPerSecond(final double snapshotsPerSecond) {
+		if (snapshotsPerSecond < 0) {
+			throw new IllegalArgumentException("snapshots per second should not be negative");
+		}
+		this.snapshotsPerSecond = snapshotsPerSecond;
+		updateFramesPerSnapshot();
+		LOGGER.info(String.format("setting snapshots per second to: %s (frames per snapshot now: %s)", snapshotsPerSecond,
+				framesPerSnapshot));
+	}
+
+	/**
+	 * Recalculates {@link #framesPerSnapshot} from {@link #framesPerSecond} and {@link #snapshotsPerSecond}.
+	 */
+	private void updateFramesPerSnapshot() {
+		framesPerSnapshot = snapshotsPerSecond > 0 ? (int) Math.max(1, Math.round(framesPerSecond / snapshotsPerSecond)) : 1;
+	}
+
+	/**
+	 * Returns the number of frames dropped because the server fell too far behind its frame schedule, as per the configured
+	 * {@link FrameLagPolicy}. A growing number indicates updating the world takes longer than a frame.
+	 * 
+	 * @return The total number of frames dropped since the server was started.
+	 */
+	public long getDroppedFrameCount() {
+		return tickScheduler.getDroppedFrameCount();
+	}
+
 	/**
 	 * Stops the Swift Socket Server by delegating this call to {@link SwiftSocketServer#stop()}.
 	 */
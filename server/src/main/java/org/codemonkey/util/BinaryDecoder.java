@@ -0,0 +1,159 @@
+package org.codemonkey.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codemonkey.javareflection.JReflect;
+
+/**
+ * Binary counterpart of {@link DecoderUtil}: reads values from a byte array in the order and format they were written by a
+ * {@link BinaryEncoder}. A decoder reads a single datagram or frame and keeps track of the position of the next value.
+ * 
+ * @author Benny Bottema
+ * @see BinaryEncoder
+ * @see BinaryDatagramDecoder
+ * @since 1.0
+ */
+public final class BinaryDecoder {
+
+	private final byte[] buffer;
+
+	/**
+	 * The position of the first encoded value.
+	 */
+	private final int offset;
+
+	private int position;
+
+	private final int limit;
+
+	/**
+	 * @param buffer The array containing the encoded values.
+	 * @param offset The position of the first encoded value.
+	 * @param length The number of bytes that may be read.
+	 */
+	public BinaryDecoder(final byte[] buffer, final int offset, final int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		position = offset;
+		limit = offset + length;
+	}
+
+	/**
+	 * @param buffer The array containing only the encoded values.
+	 */
+	public BinaryDecoder(final byte[] buffer) {
+		this(buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Reads an <code>int</code> written by {@link BinaryEncoder#writeVarInt(int)}.
+	 * 
+	 * @return The decoded value.
+	 */
+	public int readVarInt() {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			final byte b = next();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("malformed variable length integer");
+	}
+
+	public byte readByte() {
+		return next();
+	}
+
+	public boolean readBoolean() {
+		return next() != 0;
+	}
+
+	public short readShort() {
+		require(2);
+		return (short) ((buffer[position++] & 0xFF) | (buffer[position++] << 8));
+	}
+
+	public int readInt() {
+		require(4);
+		return (buffer[position++] & 0xFF) | (buffer[position++] & 0xFF) << 8 | (buffer[position++] & 0xFF) << 16 | buffer[position++] << 24;
+	}
+
+	public long readLong() {
+		return (readInt() & 0xFFFFFFFFL) | ((long) readInt() << 32);
+	}
+
+	public float readFloat() {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	public double readDouble() {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	/**
+	 * Reads a string written by {@link BinaryEncoder#writeString(String)}.
+	 * 
+	 * @return The decoded string, or <code>null</code>.
+	 */
+	public String readString() {
+		final int length = readVarInt() - 1;
+		if (length < 0) {
+			return null;
+		}
+		require(length);
+		final String value = new String(buffer, position, length, BinaryEncoder.UTF8);
+		position += length;
+		return value;
+	}
+
+	/**
+	 * Reads a list written by {@link BinaryEncoder#writeList(List)}, reflectively instantiating every item like
+	 * {@link DecoderUtil#genericDecodeList(StringBuilder, Class)} does.
+	 * 
+	 * @param <T> A {@link BinaryDatagramDecoder} type with a no-args constructor.
+	 * @param _class The type of the list items.
+	 * @return A list of decoded items, or <code>null</code>.
+	 */
+	public <T extends BinaryDatagramDecoder> List<T> readList(final Class<T> _class) {
+		final int count = readVarInt() - 1;
+		if (count < 0) {
+			return null;
+		}
+		final List<T> decodedObjects = new ArrayList<T>(Math.min(count, remaining()));
+		for (int i = 0; i < count; i++) {
+			final T decoder = JReflect.newInstanceSimple(_class);
+			decoder.decode(this);
+			decodedObjects.add(decoder);
+		}
+		return decodedObjects;
+	}
+
+	/**
+	 * @return The number of bytes not read yet.
+	 */
+	public int remaining() {
+		return limit - position;
+	}
+
+	private byte next() {
+		require(1);
+		return buffer[position++];
+	}
+
+	private void require(final int length) {
+		if (length > limit - position) {
+			throw new IllegalStateException(String.format("expected %s more bytes, but only %s remain", length, limit - position));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("binary datagram of %s bytes (%s remaining)", limit - offset, remaining());
+	}
+}
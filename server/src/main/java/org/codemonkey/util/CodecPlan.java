@@ -0,0 +1,205 @@
+package org.codemonkey.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.codemonkey.javareflection.FieldUtils;
+import org.codemonkey.javareflection.FieldUtils.BeanRestriction;
+import org.codemonkey.javareflection.FieldUtils.Visibility;
+import org.codemonkey.javareflection.FieldWrapper;
+import org.codemonkey.javareflection.ValueConverter;
+
+/**
+ * The fields, accessors and value conversions used by {@link EncoderUtil#reflectiveEncode(Object, Class)} and
+ * {@link DecoderUtil#reflectiveDecode(Object, DatagramReader, Class)} for a single class. Plans are resolved once per class and cached, so
+ * encoding or decoding a message no longer collects fields, scans interfaces or goes through {@link Method#invoke(Object, Object...)}.
+ * Plans of registered message types are resolved at registration (see {@link EncoderUtil#prepareReflectiveEncode(Class)} and
+ * {@link DecoderUtil#prepareReflectiveDecode(Class)}), other plans on first use.
+ * <p>
+ * Getters and setters are bound as {@link MethodHandle}s adapted to a fixed <code>Object</code> signature, so invoking them doesn't
+ * need argument arrays or access checks.
+ * 
+ * @author Benny Bottema
+ * @since 1.0
+ */
+final class CodecPlan {
+
+	/**
+	 * Encoding plans per boundary marker class, resolved on first use.
+	 */
+	private static final ClassValue<CodecPlan> ENCODE_PLANS = new ClassValue<CodecPlan>() {
+		@Override
+		protected CodecPlan computeValue(final Class<?> boundaryMarkerClass) {
+			return new CodecPlan(boundaryMarkerClass, BeanRestriction.YES_GETTER);
+		}
+	};
+
+	/**
+	 * Decoding plans per specific class, resolved on first use.
+	 */
+	private static final ClassValue<CodecPlan> DECODE_PLANS = new ClassValue<CodecPlan>() {
+		@Override
+		protected CodecPlan computeValue(final Class<?> specificClass) {
+			return new CodecPlan(specificClass, BeanRestriction.YES_SETTER);
+		}
+	};
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * The encoded or decoded properties, in the order they appear in the datagram.
+	 */
+	private final PropertyPlan[] properties;
+
+	private CodecPlan(final Class<?> type, final BeanRestriction accessor) {
+		final Map<Class<?>, List<FieldWrapper>> fieldMap = FieldUtils.collectFields(type, type, EnumSet.allOf(Visibility.class),
+				EnumSet.of(accessor));
+		final List<PropertyPlan> propertyPlans = new ArrayList<PropertyPlan>();
+		for (final List<FieldWrapper> fieldWrapperList : fieldMap.values()) {
+			for (final FieldWrapper fieldWrapper : fieldWrapperList) {
+				final boolean encoding = accessor == BeanRestriction.YES_GETTER;
+				propertyPlans.add(new PropertyPlan(fieldWrapper, encoding));
+			}
+		}
+		properties = propertyPlans.toArray(new PropertyPlan[propertyPlans.size()]);
+	}
+
+	/**
+	 * @param boundaryMarkerClass See {@link EncoderUtil#reflectiveEncode(Object, Class)}.
+	 * @return The cached plan for encoding all getter backed fields of the given class.
+	 */
+	static CodecPlan forEncoding(final Class<?> boundaryMarkerClass) {
+		return ENCODE_PLANS.get(boundaryMarkerClass);
+	}
+
+	/**
+	 * @param specificClass See {@link DecoderUtil#reflectiveDecode(Object, DatagramReader, Class)}.
+	 * @return The cached plan for decoding all setter backed fields of the given class.
+	 */
+	static CodecPlan forDecoding(final Class<?> specificClass) {
+		return DECODE_PLANS.get(specificClass);
+	}
+
+	/**
+	 * Appends all planned property values of the subject to the given datagram, as {@link EncoderUtil#encode(Object...)} would.
+	 * 
+	 * @param subject The object on which to invoke the getters.
+	 * @param coded The datagram to append to.
+	 */
+	void encode(final Object subject, final StringBuilder coded) {
+		for (final PropertyPlan property : properties) {
+			final Object value;
+			try {
+				value = property.accessor.invokeExact(subject);
+			} catch (final Throwable e) {
+				throw new RuntimeException(String.format("unable to encode property '%s'", property.name), e);
+			}
+			if (value != null && property.plainValue) {
+				final String encodedValue = String.valueOf(value);
+				coded.append(encodedValue.length()).append(EncoderUtil.VALUE_SEPERATOR).append(encodedValue);
+			} else {
+				EncoderUtil.encodeValue(value, coded);
+			}
+		}
+	}
+
+	/**
+	 * Reads a value from the datagram for each planned property and applies it on the subject.
+	 * 
+	 * @param subject The object on which to invoke the setters.
+	 * @param reader The reader positioned at the subject's first value.
+	 */
+	void decode(final Object subject, final DatagramReader reader) {
+		for (final PropertyPlan property : properties) {
+			final Object convertedValue;
+			if (property.elementType != null) {
+				convertedValue = DecoderUtil.genericDecodeList(reader, property.elementType);
+			} else if (property.simpleSerialization) {
+				convertedValue = DecoderUtil.deserializeValue(reader.nextValue(), property.type);
+			} else {
+				convertedValue = ValueConverter.convert(reader.nextValue(), property.type);
+			}
+			try {
+				property.accessor.invokeExact(subject, convertedValue);
+			} catch (final Throwable e) {
+				throw new RuntimeException(String.format("unable to decode property '%s'", property.name), e);
+			}
+		}
+	}
+
+	/**
+	 * A single field's accessor and its pre-resolved way of converting values.
+	 */
+	private static final class PropertyPlan {
+
+		private final String name;
+
+		private final Class<?> type;
+
+		/**
+		 * The getter when encoding, the setter when decoding.
+		 */
+		private final MethodHandle accessor;
+
+		/**
+		 * When encoding, indicates the field's type can never hold a {@link StreamingDatagramEncoder}, {@link DatagramEncoder},
+		 * {@link SimpleSerialization} or {@link Collection}, so its value is always encoded by its string representation.
+		 */
+		private final boolean plainValue;
+
+		/**
+		 * When decoding, indicates the field's type directly implements {@link SimpleSerialization}.
+		 */
+		private final boolean simpleSerialization;
+
+		/**
+		 * When decoding a {@link Collection} field, the type argument of the collection, <code>null</code> otherwise.
+		 */
+		private final Class<?> elementType;
+
+		PropertyPlan(final FieldWrapper fieldWrapper, final boolean encoding) {
+			name = fieldWrapper.getField().getName();
+			type = fieldWrapper.getField().getType();
+			final Method method = encoding ? fieldWrapper.getGetter() : fieldWrapper.getSetter();
+			try {
+				method.setAccessible(true);
+				final MethodHandle methodHandle = MethodHandles.lookup().unreflect(method);
+				accessor = methodHandle.asType(encoding ? GETTER_TYPE : SETTER_TYPE);
+			} catch (final IllegalAccessException e) {
+				throw new RuntimeException(String.format("unable to access property '%s'", name), e);
+			}
+			plainValue = encoding && isPlainType(type);
+			simpleSerialization = !encoding && Arrays.asList(type.getInterfaces()).contains(SimpleSerialization.class);
+			if (!encoding && Collection.class.isAssignableFrom(type)) {
+				elementType = (Class<?>) ((ParameterizedType) fieldWrapper.getField().getGenericType()).getActualTypeArguments()[0];
+			} else {
+				elementType = null;
+			}
+		}
+
+		/**
+		 * @return Whether values of the given field type are always encoded by their string representation, regardless of the runtime
+		 *         type.
+		 */
+		private static boolean isPlainType(final Class<?> type) {
+			if (type.isPrimitive()) {
+				return true;
+			}
+			return Modifier.isFinal(type.getModifiers()) && !StreamingDatagramEncoder.class.isAssignableFrom(type)
+					&& !DatagramEncoder.class.isAssignableFrom(type) && !SimpleSerialization.class.isAssignableFrom(type)
+					&& !Collection.class.isAssignableFrom(type);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package org.codemonkey.util;
+
+/**
+ * Reads encoded values from a datagram by moving a cursor through it, without copying or modifying the remaining datagram. Decoding a
+ * datagram by value from a <code>StringBuilder</code> (see {@link DecoderUtil#extractValue(StringBuilder)}) removes each value from the
+ * start of the builder, which shifts the rest of the datagram every time and makes decoding large lists quadratic in the size of the
+ * datagram.
+ * <p>
+ * The reader understands the same format as {@link DecoderUtil}: values preceded by their length and a
+ * {@value EncoderUtil#VALUE_SEPERATOR}, lists preceded by their number of items and <code>null</code> represented as
+ * {@value EncoderUtil#ENCODED_NULL}.
+ * 
+ * @author Benny Bottema
+ * @see StreamingDatagramDecoder
+ * @since 1.0
+ */
+public final class DatagramReader {
+
+	private static final char VALUE_SEPERATOR = EncoderUtil.VALUE_SEPERATOR.charAt(0);
+
+	private static final char ENCODED_NULL = EncoderUtil.ENCODED_NULL.charAt(0);
+
+	/**
+	 * The datagram being read, which is never modified except by {@link #discardRead()} and {@link #decode(DatagramDecoder)}.
+	 */
+	private final CharSequence datagram;
+
+	/**
+	 * The index of the next character to read.
+	 */
+	private int position;
+
+	/**
+	 * @param datagram The datagram to read, from the start.
+	 */
+	public DatagramReader(final CharSequence datagram) {
+		this.datagram = datagram;
+	}
+
+	/**
+	 * @return Whether the next value was encoded as <code>null</code>.
+	 */
+	public boolean isNextNull() {
+		return position < datagram.length() && datagram.charAt(position) == ENCODED_NULL;
+	}
+
+	/**
+	 * Cursor based counterpart of {@link DecoderUtil#countNext(StringBuilder)}: returns the encoded length of the next value and moves
+	 * past this indication, so that the reader is positioned at the value itself.
+	 * 
+	 * @return The length of the next value, 1 for a <code>null</code> value or 0 if the datagram has been read completely.
+	 */
+	public int countNext() {
+		if (position == datagram.length()) {
+			return 0;
+		} else if (isNextNull()) {
+			return 1;
+		}
+		int count = 0;
+		int i = position;
+		for (; i < datagram.length() && datagram.charAt(i) != VALUE_SEPERATOR; i++) {
+			final int digit = Character.digit(datagram.charAt(i), 10);
+			if (digit < 0) {
+				throw new NumberFormatException(String.format("invalid value length at position %s", position));
+			}
+			count = count * 10 + digit;
+		}
+		if (i == position) {
+			throw new NumberFormatException(String.format("missing value length at position %s", position));
+		} else if (i == datagram.length()) {
+			throw new IllegalStateException(String.format("missing '%s' after value length at position %s", VALUE_SEPERATOR, position));
+		}
+		position = i + 1;
+		return count;
+	}
+
+	/**
+	 * Cursor based counterpart of {@link DecoderUtil#extractValue(StringBuilder)}: reads the next value.
+	 * 
+	 * @return The next value, or <code>null</code> if it was encoded as such.
+	 */
+	public String nextValue() {
+		final int valueLength = countNext();
+		final String value = datagram.subSequence(position, position + valueLength).toString();
+		position += valueLength;
+		return value.equals(EncoderUtil.ENCODED_NULL) ? null : value;
+	}
+
+	/**
+	 * Reads the number of items of the next list. A <code>null</code> list is read entirely.
+	 * 
+	 * @return The number of items in the list, or -1 if the list was <code>null</code>.
+	 */
+	public int nextListCount() {
+		if (isNextNull()) {
+			position++;
+			return -1;
+		}
+		return countNext();
+	}
+
+	/**
+	 * Lets a decoder read the next values from a <code>StringBuilder</code>, for decoders that don't implement
+	 * {@link StreamingDatagramDecoder}. When reading from a <code>StringBuilder</code> the decoder gets the builder itself (after
+	 * {@link #discardRead()}), otherwise the unread remainder of the datagram is copied.
+	 * 
+	 * @param decoder The decoder which decodes the next values.
+	 */
+	public void decode(final DatagramDecoder decoder) {
+		if (datagram instanceof StringBuilder) {
+			discardRead();
+			decoder.decode((StringBuilder) datagram);
+		} else {
+			final StringBuilder remainder = new StringBuilder(remaining()).append(datagram, position, datagram.length());
+			final int remainderLength = remainder.length();
+			decoder.decode(remainder);
+			position += remainderLength - remainder.length();
+		}
+	}
+
+	/**
+	 * Removes everything read so far from the <code>StringBuilder</code> being read, so that the builder starts at the next unread value,
+	 * like it would after decoding with {@link DecoderUtil}. Used to keep decoding from a <code>StringBuilder</code> (see
+	 * {@link DatagramDecoder#decode(StringBuilder)}) working with a cursor: the builder is shifted once instead of once per value.
+	 * 
+	 * @throws UnsupportedOperationException If the datagram being read is not a <code>StringBuilder</code>.
+	 */
+	public void discardRead() {
+		if (!(datagram instanceof StringBuilder)) {
+			throw new UnsupportedOperationException("can only discard values read from a StringBuilder");
+		}
+		((StringBuilder) datagram).delete(0, position);
+		position = 0;
+	}
+
+	/**
+	 * @return The number of characters not read yet.
+	 */
+	public int remaining() {
+		return datagram.length() - position;
+	}
+
+	/**
+	 * @return {@link #position}
+	 */
+	public int getPosition() {
+		return position;
+	}
+}
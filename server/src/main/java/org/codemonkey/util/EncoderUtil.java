@@ -1,16 +1,7 @@
 package org.codemonkey.util;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
-import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-
-import org.codemonkey.javareflection.FieldUtils;
-import org.codemonkey.javareflection.FieldUtils.BeanRestriction;
-import org.codemonkey.javareflection.FieldUtils.Visibility;
-import org.codemonkey.javareflection.FieldWrapper;
 
 /**
  * Helper utility for encoding (integers, strings etc.,lists), using java reflection.
@@ -41,28 +32,70 @@ public final class EncoderUtil {
 	 */
 	public static String encode(final Object... values) {
 		final StringBuilder coded = new StringBuilder("");
+		encodeTo(coded, values);
+		return coded.toString();
+	}
+
+	/**
+	 * Appends the given values to a datagram being built, in the same format as {@link #encode(Object...)}. Nested collections and
+	 * {@link StreamingDatagramEncoder} values are appended in place rather than encoded into a <code>String</code> of their own first.
+	 * 
+	 * @param coded The datagram to append the encoded values to.
+	 * @param values A list of values to encode.
+	 * @see StreamingDatagramEncoder#encodeTo(StringBuilder)
+	 */
+	public static void encodeTo(final StringBuilder coded, final Object... values) {
 		for (final Object value : values) {
-			if (value != null) {
-				final String encodedValue;
-				if (value instanceof DatagramEncoder) {
-					encodedValue = ((DatagramEncoder) value).encode();
-					coded.append(encodedValue);
-				} else if (value instanceof SimpleSerialization<?>) {
-					encodedValue = ((SimpleSerialization<?>) value).serialize();
-					coded.append(encodedValue.length() + VALUE_SEPERATOR + encodedValue);
-				} else if (value instanceof Collection) {
-					final Collection<?> collection = (Collection<?>) value;
-					encodedValue = encode(collection.toArray());
-					coded.append(collection.size() + VALUE_SEPERATOR + encodedValue);
-				} else {
-					encodedValue = String.valueOf(value);
-					coded.append(encodedValue.length() + VALUE_SEPERATOR + encodedValue);
+			encodeValue(value, coded);
+		}
+	}
+
+	/**
+	 * Appends a single value to the given datagram, see {@link #encode(Object...)}.
+	 * 
+	 * @param value The value to encode, may be <code>null</code>.
+	 * @param coded The datagram to append the encoded value to.
+	 */
+	static void encodeValue(final Object value, final StringBuilder coded) {
+		if (value != null) {
+			final String encodedValue;
+			if (value instanceof StreamingDatagramEncoder) {
+				((StreamingDatagramEncoder) value).encodeTo(coded);
+			} else if (value instanceof DatagramEncoder) {
+				encodedValue = ((DatagramEncoder) value).encode();
+				coded.append(encodedValue);
+			} else if (value instanceof SimpleSerialization<?>) {
+				encodedValue = ((SimpleSerialization<?>) value).serialize();
+				coded.append(encodedValue.length()).append(VALUE_SEPERATOR).append(encodedValue);
+			} else if (value instanceof Collection) {
+				final Collection<?> collection = (Collection<?>) value;
+				coded.append(collection.size()).append(VALUE_SEPERATOR);
+				for (final Object item : collection) {
+					encodeValue(item, coded);
 				}
 			} else {
-				coded.append(ENCODED_NULL);
+				encodedValue = String.valueOf(value);
+				coded.append(encodedValue.length()).append(VALUE_SEPERATOR).append(encodedValue);
 			}
+		} else {
+			coded.append(ENCODED_NULL);
+		}
+	}
+
+	/**
+	 * Appends a single string value to the given datagram, preceded by its length. <code>null</code> is represented as '
+	 * {@value #ENCODED_NULL}'. Used by generated codecs, which convert values to strings themselves.
+	 * 
+	 * @param value The string representation of a value, may be <code>null</code>.
+	 * @param coded The datagram to append the encoded value to.
+	 * @see #encode(Object...)
+	 */
+	public static void encodeString(final String value, final StringBuilder coded) {
+		if (value != null) {
+			coded.append(value.length()).append(VALUE_SEPERATOR).append(value);
+		} else {
+			coded.append(ENCODED_NULL);
 		}
-		return coded.toString();
 	}
 
 	/**
@@ -82,7 +115,7 @@ public final class EncoderUtil {
 		}
 		final StringBuilder coded = new StringBuilder(encoders.size() + VALUE_SEPERATOR);
 		for (final DatagramEncoder encoder : encoders) {
-			coded.append(encoder.encode());
+			encodeValue(encoder, coded);
 		}
 		return coded.toString();
 	}
@@ -93,31 +126,39 @@ public final class EncoderUtil {
 	 * The <code>boundaryMarkerClass</code> argument controls how far up the tree we need to go to find fields to include in the encoding.
 	 * You may use <code>reflectiveEncode(subject, subject.getClass());</code> to only encode the fields declared by the subject's class
 	 * itself.
+	 * <p>
+	 * The fields and their getters are resolved once per <code>boundaryMarkerClass</code> and cached (see {@link CodecPlan}).
 	 * 
 	 * @param subject The object on which to invoke field queries.
 	 * @param boundaryMarkerClass Needed to be able to get fields from super classes of a subject as well if required.
 	 * @return A datagram encoded string containing all fields of the <code>boundaryMarkerClass</code>.
 	 */
 	public static String reflectiveEncode(final Object subject, final Class<?> boundaryMarkerClass) {
-		final Map<Class<?>, List<FieldWrapper>> fields = FieldUtils.collectFields(boundaryMarkerClass, boundaryMarkerClass,
-				EnumSet.allOf(Visibility.class), EnumSet.of(BeanRestriction.YES_GETTER));
-		final List<Object> values = new LinkedList<Object>();
-		for (final List<FieldWrapper> fieldWrapperList : fields.values()) {
-			for (final FieldWrapper fieldWrapper : fieldWrapperList) {
-				try {
-					values.add(fieldWrapper.getGetter().invoke(subject));
-				} catch (final IllegalArgumentException e) {
-					final String msg = String.format("unable to encode property '%s'", fieldWrapper.getField().getName());
-					throw new RuntimeException(msg, e);
-				} catch (final IllegalAccessException e) {
-					final String msg = String.format("unable to encode property '%s'", fieldWrapper.getField().getName());
-					throw new RuntimeException(msg, e);
-				} catch (final InvocationTargetException e) {
-					final String msg = String.format("unable to encode property '%s'", fieldWrapper.getField().getName());
-					throw new RuntimeException(msg, e);
-				}
-			}
-		}
-		return encode(values.toArray());
+		final StringBuilder coded = new StringBuilder();
+		reflectiveEncodeTo(subject, boundaryMarkerClass, coded);
+		return coded.toString();
+	}
+
+	/**
+	 * In place counterpart of {@link #reflectiveEncode(Object, Class)}, which appends the encoded fields to a datagram being built.
+	 * 
+	 * @param subject The object on which to invoke field queries.
+	 * @param boundaryMarkerClass Needed to be able to get fields from super classes of a subject as well if required.
+	 * @param coded The datagram to append the encoded fields to.
+	 * @see StreamingDatagramEncoder#encodeTo(StringBuilder)
+	 */
+	public static void reflectiveEncodeTo(final Object subject, final Class<?> boundaryMarkerClass, final StringBuilder coded) {
+		CodecPlan.forEncoding(boundaryMarkerClass).encode(subject, coded);
+	}
+
+	/**
+	 * Resolves the fields and getters used by {@link #reflectiveEncode(Object, Class)} for the given class right away, instead of when
+	 * the first object is encoded. Called when a message type is registered.
+	 * 
+	 * @param boundaryMarkerClass See {@link #reflectiveEncode(Object, Class)}.
+	 * @throws RuntimeException Thrown when the class can't be encoded reflectively.
+	 */
+	public static void prepareReflectiveEncode(final Class<?> boundaryMarkerClass) {
+		CodecPlan.forEncoding(boundaryMarkerClass);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package org.codemonkey.util;
+
+/**
+ * Interface for marking objects as datagram decoders that read their values through a {@link DatagramReader}, the cursor based
+ * counterpart of {@link DatagramDecoder}. Reading through a cursor leaves the datagram untouched, whereas decoding from a
+ * <code>StringBuilder</code> removes every value read from the start of the builder, shifting the rest of the datagram each time.
+ * 
+ * @author Benny Bottema
+ * @see DatagramReader
+ * @since 1.0
+ */
+public interface StreamingDatagramDecoder {
+
+	/**
+	 * Populates the current implementation instance fields with the next values read from the given reader.
+	 * 
+	 * @param reader The reader positioned at the first value of the current instance.
+	 */
+	void decode(DatagramReader reader);
+}
@@ -0,0 +1,20 @@
+package org.codemonkey.util;
+
+/**
+ * Interface for marking objects as datagram encoders that append their values to a datagram being built, the in place counterpart of
+ * {@link DatagramEncoder}. Appending to the datagram directly avoids building an intermediate <code>String</code> for every encoder nested
+ * in a message (see {@link EncoderUtil#encodeTo(StringBuilder, Object...)}).
+ * 
+ * @author Benny Bottema
+ * @see StreamingDatagramDecoder
+ * @since 1.0
+ */
+public interface StreamingDatagramEncoder {
+
+	/**
+	 * Appends the encoded values of the current instance to the given datagram, in the same format as {@link DatagramEncoder#encode()}.
+	 * 
+	 * @param coded The datagram being built, which may already contain other values.
+	 */
+	void encodeTo(StringBuilder coded);
+}
@@ -0,0 +1,215 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class ClientEndpointNIOTest {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static class TextMessage extends ClientMessageToServer<Object> {
+
+		private String text;
+
+		private String decodingThread;
+
+		TextMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+			text = datagramMessage;
+			decodingThread = Thread.currentThread().getName();
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private SwiftSocketServer server;
+
+	private int port;
+
+	@Before
+	public void startServer()
+			throws IOException {
+		startServer(0, WireProtocol.TEXT);
+	}
+
+	private void startServer(final int decodeThreadCount, final WireProtocol wireProtocol)
+			throws IOException {
+		final ServerSocket probe = new ServerSocket(0);
+		port = probe.getLocalPort();
+		probe.close();
+		server = new SwiftSocketServer(port, ServerType.TCP_NIO);
+		server.setWireProtocol(wireProtocol);
+		server.registerClientMessageToServerType(1, TextMessage.class);
+		server.setMaxFrameSize(1024);
+		if (decodeThreadCount > 0) {
+			server.setDecodePool(decodeThreadCount, 16);
+		}
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+
+	private SocketChannel connect()
+			throws IOException, InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (true) {
+			try {
+				return SocketChannel.open(new InetSocketAddress("localhost", port));
+			} catch (final IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static void send(final SocketChannel channel, final String data)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(data.getBytes());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private TextMessage receiveMessage() {
+		return (TextMessage) receiveClientMessage();
+	}
+
+	private ClientMessageToServer<?> receiveClientMessage() {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		ClientMessageToServer<?> message;
+		while ((message = server.getNextClientMessage()) == null && System.currentTimeMillis() < deadline) {
+			server.awaitClientMessages(10);
+		}
+		assertNotNull("no message received", message);
+		return message;
+	}
+
+	private String receiveText() {
+		return receiveMessage().text;
+	}
+
+	private boolean awaitClientCount(final int clientCount)
+			throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (server.getAllClientContexts().size() != clientCount) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	@Test
+	public void testPartialReadsAndSeveralLinesPerRead()
+			throws Exception {
+		final SocketChannel channel = connect();
+		try {
+			send(channel, "001hel");
+			Thread.sleep(50);
+			send(channel, "lo\n\0");
+			assertEquals("hello", receiveText());
+
+			send(channel, "001one\n001two\r\n001thr");
+			assertEquals("one", receiveText());
+			assertEquals("two", receiveText());
+			send(channel, "ee\n");
+			assertEquals("three", receiveText());
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void testDecodesLinesOnDecodePool()
+			throws Exception {
+		server.stop();
+		startServer(2, WireProtocol.TEXT);
+		final SocketChannel channel = connect();
+		try {
+			send(channel, "001one\n001two\n");
+			for (final String expectedText : new String[] { "one", "two" }) {
+				final TextMessage message = receiveMessage();
+				assertEquals(expectedText, message.text);
+				assertTrue(message.decodingThread, message.decodingThread.startsWith("decoder-"));
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void testDisconnect()
+			throws Exception {
+		final SocketChannel channel = connect();
+		send(channel, "001bye\n");
+		assertEquals("bye", receiveText());
+		assertTrue(awaitClientCount(1));
+		channel.close();
+		assertTrue(awaitClientCount(0));
+	}
+
+	@Test
+	public void testDropsClientExceedingMaximumLineLength()
+			throws Exception {
+		final SocketChannel channel = connect();
+		try {
+			final char[] line = new char[2048];
+			Arrays.fill(line, 'x');
+			send(channel, "001" + new String(line));
+			assertTrue(awaitClientCount(0));
+			channel.socket().setSoTimeout((int) TIMEOUT_MS);
+			assertEquals(-1, channel.socket().getInputStream().read());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * A frame too short to hold a message id is handed out as invalid message and discarded, so later frames are handled exactly once.
+	 */
+	@Test
+	public void testHandlesFramesAfterUndecodableFrameOnce()
+			throws Exception {
+		server.stop();
+		startServer(0, WireProtocol.TEXT_FRAMED);
+		final SocketChannel channel = connect();
+		try {
+			send(channel, "\u00010" + "\u0008001hello");
+			assertTrue(receiveClientMessage() instanceof ClientMessageToServerInvalid);
+			assertEquals("hello", receiveText());
+			send(channel, "\u0006001two");
+			assertEquals("two", receiveText());
+			assertTrue(awaitClientCount(1));
+		} finally {
+			channel.close();
+		}
+	}
+}
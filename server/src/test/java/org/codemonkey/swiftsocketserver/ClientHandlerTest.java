@@ -0,0 +1,161 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.codemonkey.util.BinaryDatagramDecoder;
+import org.codemonkey.util.BinaryDecoder;
+import org.codemonkey.util.BinaryEncoder;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class ClientHandlerTest {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static final String MALFORMED = "malformed";
+
+	/**
+	 * Refuses to decode the text {@value #MALFORMED}, in both the text and binary form.
+	 */
+	private static class StrictMessage extends ClientMessageToServer<Object> implements BinaryDatagramDecoder {
+
+		private String text;
+
+		StrictMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+			setText(datagramMessage);
+		}
+
+		@Override
+		public void decode(final BinaryDecoder decoder) {
+			setText(decoder.readString());
+		}
+
+		private void setText(final String text) {
+			if (text.equals(MALFORMED)) {
+				throw new IllegalArgumentException("malformed message");
+			}
+			this.text = text;
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private SwiftSocketServer server;
+
+	private SocketChannel channel;
+
+	@After
+	public void stop()
+			throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+		server.stop();
+	}
+
+	private void start(final WireProtocol wireProtocol)
+			throws IOException, InterruptedException {
+		final ServerSocket probe = new ServerSocket(0);
+		final int port = probe.getLocalPort();
+		probe.close();
+		server = new SwiftSocketServer(port, ServerType.TCP_NIO);
+		server.setWireProtocol(wireProtocol);
+		server.registerClientMessageToServerType(1, StrictMessage.class);
+		server.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (channel == null) {
+			try {
+				channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+			} catch (final IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private void send(final byte[] data)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private ClientMessageToServer<?> receive() {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		ClientMessageToServer<?> message;
+		while ((message = server.getNextClientMessage()) == null && System.currentTimeMillis() < deadline) {
+			server.awaitClientMessages(10);
+		}
+		assertNotNull("no message received", message);
+		return message;
+	}
+
+	/**
+	 * A message that fails to decode is handed out as an invalid message, after which the client's next message is received as usual.
+	 */
+	private void assertMalformedMessageIsInvalid() {
+		assertTrue(receive() instanceof ClientMessageToServerInvalid);
+		final ClientMessageToServer<?> message = receive();
+		assertTrue(message instanceof StrictMessage);
+		assertEquals("valid", ((StrictMessage) message).text);
+		assertEquals(1, server.getAllClientContexts().size());
+	}
+
+	private static byte[] textFrame(final String text) {
+		final byte[] bytes = text.getBytes();
+		return BinaryEncoder.toFrame(bytes, 0, bytes.length);
+	}
+
+	@Test
+	public void testMalformedTextMessage()
+			throws Exception {
+		start(WireProtocol.TEXT);
+		send(("001" + MALFORMED + "\n\0" + "001valid\n\0").getBytes());
+		assertMalformedMessageIsInvalid();
+	}
+
+	@Test
+	public void testMalformedTextFramedMessage()
+			throws Exception {
+		start(WireProtocol.TEXT_FRAMED);
+		final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frames.write(textFrame("001" + MALFORMED));
+		frames.write(textFrame("001valid"));
+		send(frames.toByteArray());
+		assertMalformedMessageIsInvalid();
+	}
+
+	@Test
+	public void testMalformedBinaryMessage()
+			throws Exception {
+		start(WireProtocol.BINARY);
+		final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frames.write(new BinaryEncoder().writeVarInt(1).writeString(MALFORMED).toFrame());
+		frames.write(new BinaryEncoder().writeVarInt(1).writeString("valid").toFrame());
+		send(frames.toByteArray());
+		assertMalformedMessageIsInvalid();
+	}
+}
@@ -0,0 +1,84 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class ConstructorMessageFactoryTest {
+
+	private static class FailingMessage extends ClientMessageToServer<Object> {
+
+		@SuppressWarnings("unused")
+		FailingMessage(final ClientContext clientContext) {
+			super(clientContext);
+			throw new IllegalStateException("constructor failed");
+		}
+
+		@Override
+		protected void decode(final String messageContent) {
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private static class MessageWithoutContext extends ClientMessageToServer<Object> {
+
+		@SuppressWarnings("unused")
+		MessageWithoutContext() {
+			super(null);
+		}
+
+		@Override
+		protected void decode(final String messageContent) {
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private static abstract class AbstractMessage extends ClientMessageToServer<Object> {
+
+		@SuppressWarnings("unused")
+		AbstractMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		final ConstructorMessageFactory factory = new ConstructorMessageFactory(ClientMessageToServerPingPong.class);
+		final ClientMessageToServer<?> message = factory.create(null);
+		assertTrue(message instanceof ClientMessageToServerPingPong);
+		assertNotSame(message, factory.create(null));
+	}
+
+	@Test
+	public void testConstructorExceptionPassedOn() {
+		try {
+			new ConstructorMessageFactory(FailingMessage.class).create(null);
+			fail("IllegalStateException expected");
+		} catch (final IllegalStateException e) {
+			assertEquals("constructor failed", e.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRefuseTypeWithoutSuitableConstructor() {
+		new ConstructorMessageFactory(MessageWithoutContext.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRefuseAbstractType() {
+		new ConstructorMessageFactory(AbstractMessage.class);
+	}
+}
@@ -0,0 +1,172 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class FairMessageQueueTest {
+
+	private static class TestMessage extends ClientMessageToServer<Object> {
+
+		TestMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private static ClientContext createClientContext() {
+		final ClientEndpoint clientEndpoint = (ClientEndpoint) Proxy.newProxyInstance(ClientEndpoint.class.getClassLoader(),
+				new Class<?>[] { ClientEndpoint.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						if (method.getReturnType() == boolean.class) {
+							return false;
+						} else if (method.getReturnType() == int.class) {
+							return 0;
+						}
+						return null;
+					}
+				});
+		return new ClientContext(clientEndpoint);
+	}
+
+	@Test
+	public void testRoundRobinWithinBudget() {
+		final FairMessageQueue queue = new FairMessageQueue(new SwiftSocketServer(0), 2, 3, MessageOverflowPolicy.DEFER);
+		final ClientContext flooder = createClientContext();
+		final ClientContext player = createClientContext();
+		final TestMessage[] flood = new TestMessage[4];
+		for (int i = 0; i < flood.length; i++) {
+			flood[i] = new TestMessage(flooder);
+			queue.add(flood[i]);
+		}
+		final TestMessage playerMessage = new TestMessage(player);
+		queue.add(playerMessage);
+
+		assertSame(flood[0], queue.poll());
+		assertSame(playerMessage, queue.poll());
+		assertSame(flood[1], queue.poll());
+		// total budget used up
+		assertNull(queue.poll());
+
+		queue.nextTick();
+		assertSame(flood[2], queue.poll());
+		assertSame(flood[3], queue.poll());
+		assertNull(queue.poll());
+		assertEquals(0, flooder.getDroppedMessageCount());
+	}
+
+	@Test
+	public void testDropAndDeferLimit() {
+		final FairMessageQueue dropQueue = new FairMessageQueue(new SwiftSocketServer(0), 2, 10, MessageOverflowPolicy.DROP);
+		final ClientContext flooder = createClientContext();
+		for (int i = 0; i < 5; i++) {
+			dropQueue.add(new TestMessage(flooder));
+		}
+		assertEquals(2, dropQueue.size());
+		assertEquals(3, flooder.getDroppedMessageCount());
+
+		final FairMessageQueue deferQueue = new FairMessageQueue(new SwiftSocketServer(0), 2, 10, MessageOverflowPolicy.DEFER);
+		final ClientContext deferred = createClientContext();
+		for (int i = 0; i < 10; i++) {
+			deferQueue.add(new TestMessage(deferred));
+		}
+		assertEquals(2 * FairMessageQueue.MAX_DEFERRED_TICKS, deferQueue.size());
+		assertEquals(10 - 2 * FairMessageQueue.MAX_DEFERRED_TICKS, deferred.getDroppedMessageCount());
+	}
+
+	@Test
+	public void testDisconnect() {
+		final FairMessageQueue queue = new FairMessageQueue(new SwiftSocketServer(0), 2, 10, MessageOverflowPolicy.DISCONNECT);
+		final ClientContext flooder = createClientContext();
+		for (int i = 0; i < 4; i++) {
+			queue.add(new TestMessage(flooder));
+		}
+		assertFalse(flooder.isActive());
+		assertEquals(0, queue.size());
+		assertNull(queue.poll());
+		assertEquals(4, flooder.getDroppedMessageCount());
+
+		// messages sent before the disconnect are still dropped in the next tick
+		queue.nextTick();
+		queue.add(new TestMessage(flooder));
+		assertNull(queue.poll());
+		assertEquals(5, flooder.getDroppedMessageCount());
+	}
+
+	private static SwiftSocketServer startServer(final int maxQueuedMessages, final MessageOverflowPolicy overflowPolicy)
+			throws IOException {
+		final ServerSocket probe = new ServerSocket(0);
+		final SwiftSocketServer server = new SwiftSocketServer(probe.getLocalPort(), ServerType.TCP_NIO);
+		probe.close();
+		server.setClientMessageLimit(maxQueuedMessages, overflowPolicy);
+		server.start();
+		return server;
+	}
+
+	@Test
+	public void testServerLimitsQueuedMessagesPerClient()
+			throws IOException {
+		final SwiftSocketServer server = startServer(2, MessageOverflowPolicy.DEFER);
+		try {
+			final ClientContext flooder = createClientContext();
+			final ClientContext player = createClientContext();
+			for (int i = 0; i < 5; i++) {
+				server.addClientMessage(new TestMessage(flooder));
+			}
+			final TestMessage playerMessage = new TestMessage(player);
+			server.addClientMessage(playerMessage);
+			assertEquals(3, flooder.getDroppedMessageCount());
+			assertEquals(0, player.getDroppedMessageCount());
+
+			// taking a message from the server makes room for the next message of the client
+			assertSame(flooder, server.getNextClientMessage().getClientContext());
+			server.addClientMessage(new TestMessage(flooder));
+			assertEquals(3, flooder.getDroppedMessageCount());
+			assertSame(flooder, server.getNextClientMessage().getClientContext());
+			assertSame(playerMessage, server.getNextClientMessage());
+			assertSame(flooder, server.getNextClientMessage().getClientContext());
+			assertNull(server.getNextClientMessage());
+			assertTrue(flooder.isActive());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testServerDisconnectsClientExceedingQueuedMessages()
+			throws IOException {
+		final SwiftSocketServer server = startServer(2, MessageOverflowPolicy.DISCONNECT);
+		try {
+			final ClientContext flooder = createClientContext();
+			for (int i = 0; i < 3; i++) {
+				server.addClientMessage(new TestMessage(flooder));
+			}
+			assertFalse(flooder.isActive());
+			assertEquals(1, flooder.getDroppedMessageCount());
+		} finally {
+			server.stop();
+		}
+	}
+}
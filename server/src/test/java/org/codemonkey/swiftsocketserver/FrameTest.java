@@ -0,0 +1,56 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.codemonkey.util.EncoderUtil;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class FrameTest {
+
+	private static class TestMessage extends ServerMessageToClient {
+
+		private final String text;
+
+		TestMessage(final String text) {
+			super(null);
+			this.text = text;
+		}
+
+		@Override
+		public void encodeTo(final StringBuilder coded) {
+			EncoderUtil.encodeTo(coded, text, Arrays.asList(1, 22));
+		}
+	}
+
+	@Test
+	public void testEncodeTextFrame() {
+		assertEquals("0051|a2|1|12|22\n\0", Frame.encode(5, new TestMessage("a")).toString());
+		assertEquals("0421|b2|1|12|22\n\0", Frame.encode(42, new TestMessage("b")).toString());
+		assertEquals("999\n\0", Frame.encode(999, new ServerMessageToClientPingPong(null)).toString());
+	}
+
+	@Test
+	public void testEncodeFramedTextFrame() {
+		final Frame frame = Frame.encodeFramed(7, new TestMessage("é"));
+		final byte[] content = "0071|é2|1|12|22".getBytes();
+		assertEquals(content.length + 1, frame.length());
+		assertEquals(content.length, frame.toString().charAt(0));
+		assertEquals(new String(content), frame.toString().substring(1));
+	}
+
+	@Test
+	public void testFramesDontShareTheSink() {
+		final Frame large = Frame.encode(1, new TestMessage(new String(new char[FrameSink.MAX_RETAINED_SIZE * 2]).replace('\0', 'x')));
+		final Frame first = Frame.encode(1, new TestMessage("first"));
+		final Frame second = Frame.encode(1, new TestMessage("second"));
+		assertEquals(FrameSink.MAX_RETAINED_SIZE * 2 + 21, large.length());
+		assertEquals("0015|first2|1|12|22\n\0", first.toString());
+		assertEquals("0016|second2|1|12|22\n\0", second.toString());
+	}
+}
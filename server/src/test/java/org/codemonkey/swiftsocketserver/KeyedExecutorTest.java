@@ -0,0 +1,126 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class KeyedExecutorTest {
+
+	@Test
+	public void testKeepsOrderPerKey() {
+		final KeyedExecutor keyedExecutor = new KeyedExecutor("test", 4);
+		try {
+			final List<List<Integer>> executed = new ArrayList<List<Integer>>();
+			for (int key = 0; key < 8; key++) {
+				executed.add(Collections.synchronizedList(new ArrayList<Integer>()));
+			}
+			for (int i = 0; i < 1000; i++) {
+				for (int key = 0; key < 8; key++) {
+					final List<Integer> keyExecuted = executed.get(key);
+					final int value = i;
+					keyedExecutor.execute(key, new Runnable() {
+						@Override
+						public void run() {
+							keyExecuted.add(value);
+						}
+					});
+				}
+			}
+			keyedExecutor.awaitIdle();
+			assertEquals(0, keyedExecutor.getPendingTaskCount());
+			for (final List<Integer> keyExecuted : executed) {
+				assertEquals(1000, keyExecuted.size());
+				for (int i = 0; i < 1000; i++) {
+					assertEquals(i, keyExecuted.get(i).intValue());
+				}
+			}
+		} finally {
+			keyedExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testExecutesDifferentKeysConcurrently()
+			throws InterruptedException {
+		final KeyedExecutor keyedExecutor = new KeyedExecutor("test", 2);
+		try {
+			final CountDownLatch bothRunning = new CountDownLatch(2);
+			for (int key = 0; key < 2; key++) {
+				keyedExecutor.execute(key, new Runnable() {
+					@Override
+					public void run() {
+						bothRunning.countDown();
+						try {
+							bothRunning.await(5, TimeUnit.SECONDS);
+						} catch (final InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+			assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+		} finally {
+			keyedExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailingTaskDoesNotBlockKey() {
+		final KeyedExecutor keyedExecutor = new KeyedExecutor("test", 1);
+		try {
+			final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+			keyedExecutor.execute("key", new Runnable() {
+				@Override
+				public void run() {
+					throw new IllegalStateException("task failed");
+				}
+			});
+			keyedExecutor.execute("key", new Runnable() {
+				@Override
+				public void run() {
+					executed.add("second");
+				}
+			});
+			keyedExecutor.awaitIdle();
+			assertEquals(Collections.singletonList("second"), executed);
+		} finally {
+			keyedExecutor.shutdown();
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testTaskThrowingErrorDoesNotBlockKey() {
+		final KeyedExecutor keyedExecutor = new KeyedExecutor("test", 1);
+		try {
+			final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+			keyedExecutor.execute("key", new Runnable() {
+				@Override
+				public void run() {
+					throw new AssertionError("task failed");
+				}
+			});
+			keyedExecutor.execute("key", new Runnable() {
+				@Override
+				public void run() {
+					executed.add("second");
+				}
+			});
+			keyedExecutor.awaitIdle();
+			assertEquals(Collections.singletonList("second"), executed);
+			assertEquals(0, keyedExecutor.getPendingTaskCount());
+		} finally {
+			keyedExecutor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class MessageDispatcherTest {
+
+	private static class RecordingMessage extends ClientMessageToServer<List<Thread>> {
+
+		RecordingMessage() {
+			super(null);
+		}
+
+		@Override
+		public Object getOrderingKey() {
+			return "client";
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+		}
+
+		@Override
+		public void execute(final List<Thread> executingThreads) {
+			executingThreads.add(Thread.currentThread());
+		}
+	}
+
+	private static class OtherRecordingMessage extends RecordingMessage {
+	}
+
+	private static long executedCount(final MessageDispatcher messageDispatcher, final DispatchPolicy dispatchPolicy) {
+		return messageDispatcher.getStatistics().get(dispatchPolicy.ordinal()).getMessagesExecuted();
+	}
+
+	@Test
+	public void testInlineAndWorldThread() {
+		final MessageDispatcher messageDispatcher = new MessageDispatcher(new SwiftSocketServer(0));
+		final List<Thread> inlineThreads = new ArrayList<Thread>();
+		final List<Thread> worldThreads = new ArrayList<Thread>();
+		messageDispatcher.register(RecordingMessage.class, inlineThreads, DispatchPolicy.INLINE);
+		messageDispatcher.register(OtherRecordingMessage.class, worldThreads, DispatchPolicy.WORLD_THREAD);
+		messageDispatcher.start();
+
+		assertTrue(messageDispatcher.dispatch(new RecordingMessage()));
+		assertEquals(Collections.singletonList(Thread.currentThread()), inlineThreads);
+
+		final OtherRecordingMessage worldThreadMessage = new OtherRecordingMessage();
+		assertFalse(messageDispatcher.dispatch(worldThreadMessage));
+		assertTrue(worldThreads.isEmpty());
+		assertTrue(messageDispatcher.executeOnWorldThread(worldThreadMessage));
+		assertEquals(1, worldThreads.size());
+		assertFalse(messageDispatcher.executeOnWorldThread(new RecordingMessage()));
+
+		assertEquals(1, executedCount(messageDispatcher, DispatchPolicy.INLINE));
+		assertEquals(1, executedCount(messageDispatcher, DispatchPolicy.WORLD_THREAD));
+		messageDispatcher.stop();
+	}
+
+	@Test
+	public void testSharedPoolAndDedicatedLane()
+			throws InterruptedException {
+		final MessageDispatcher messageDispatcher = new MessageDispatcher(new SwiftSocketServer(0));
+		final List<Thread> poolThreads = Collections.synchronizedList(new ArrayList<Thread>());
+		final List<Thread> laneThreads = Collections.synchronizedList(new ArrayList<Thread>());
+		messageDispatcher.register(RecordingMessage.class, poolThreads, DispatchPolicy.SHARED_POOL);
+		messageDispatcher.register(OtherRecordingMessage.class, laneThreads, DispatchPolicy.DEDICATED_LANE);
+		messageDispatcher.setPool(2, 16);
+		messageDispatcher.start();
+		for (int i = 0; i < 100; i++) {
+			assertTrue(messageDispatcher.dispatch(new RecordingMessage()));
+			assertTrue(messageDispatcher.dispatch(new OtherRecordingMessage()));
+		}
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ((executedCount(messageDispatcher, DispatchPolicy.SHARED_POOL) < 100 || executedCount(messageDispatcher,
+				DispatchPolicy.DEDICATED_LANE) < 100) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(100, poolThreads.size());
+		assertEquals(100, laneThreads.size());
+		for (int i = 0; i < 100; i++) {
+			assertNotSame(Thread.currentThread(), poolThreads.get(i));
+			assertSame(laneThreads.get(0), laneThreads.get(i));
+		}
+		messageDispatcher.stop();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRegisterAfterStart() {
+		final MessageDispatcher messageDispatcher = new MessageDispatcher(new SwiftSocketServer(0));
+		messageDispatcher.start();
+		messageDispatcher.register(RecordingMessage.class, new ArrayList<Thread>(), DispatchPolicy.INLINE);
+	}
+}
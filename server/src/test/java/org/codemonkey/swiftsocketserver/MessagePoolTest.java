@@ -0,0 +1,122 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class MessagePoolTest {
+
+	private static class PooledMessage extends ServerMessageToClient implements Recyclable {
+
+		private String text;
+
+		PooledMessage() {
+			super(null);
+		}
+
+		@Override
+		public String encode() {
+			return text;
+		}
+
+		@Override
+		public void reset() {
+			text = null;
+		}
+	}
+
+	private static final MessagePool.Factory<PooledMessage> FACTORY = new MessagePool.Factory<PooledMessage>() {
+		@Override
+		public PooledMessage create() {
+			return new PooledMessage();
+		}
+	};
+
+	@Test
+	public void testReuseResetMessages() {
+		final MessagePool<PooledMessage> pool = new MessagePool<PooledMessage>(PooledMessage.class, FACTORY, 1);
+		final PooledMessage first = pool.acquire();
+		final PooledMessage second = pool.acquire();
+		assertNotSame(first, second);
+		assertEquals(2, pool.getOutstandingMessageCount());
+		first.text = "first";
+		pool.release(first);
+		pool.release(second);
+		assertEquals(0, pool.getOutstandingMessageCount());
+		assertEquals(1, pool.getPooledMessageCount());
+		final PooledMessage reused = pool.acquire();
+		assertSame(first, reused);
+		assertNull(reused.text);
+		assertEquals(0, pool.getPooledMessageCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testLeakDetectionRefusesDoubleRelease() {
+		final MessagePool<PooledMessage> pool = new MessagePool<PooledMessage>(PooledMessage.class, FACTORY, 1);
+		pool.setLeakDetection(true);
+		final PooledMessage message = pool.acquire();
+		pool.release(message);
+		pool.release(message);
+	}
+
+	@Test
+	public void testReportLeaks() {
+		final MessagePool<PooledMessage> pool = new MessagePool<PooledMessage>(PooledMessage.class, FACTORY, 1);
+		pool.setLeakDetection(true);
+		pool.acquire();
+		pool.release(pool.acquire());
+		assertEquals(1, pool.reportLeaks());
+	}
+
+	@Test
+	public void testServerReleasesPooledMessages() {
+		final MessagePool<PooledMessage> pool = new MessagePool<PooledMessage>(PooledMessage.class, FACTORY, 1);
+		final MessagePool<ClientMessageToServerPooled> clientPool = new MessagePool<ClientMessageToServerPooled>(
+				ClientMessageToServerPooled.class, new MessagePool.Factory<ClientMessageToServerPooled>() {
+					@Override
+					public ClientMessageToServerPooled create() {
+						return new ClientMessageToServerPooled();
+					}
+				}, 1);
+		final SwiftSocketServer server = new SwiftSocketServer(0);
+		server.registerServerMessageToClientId(5, pool);
+		server.registerClientMessageToServerType(5, clientPool);
+		final PooledMessage message = pool.acquire();
+		message.text = "broadcast";
+		server.broadcastMessage(message);
+		assertEquals(0, pool.getOutstandingMessageCount());
+		assertNull(message.text);
+
+		final ClientMessageToServer<?> clientMessage = server.getClientMessageToServerFactory(5).create(null);
+		assertEquals(1, clientPool.getOutstandingMessageCount());
+		server.releaseClientMessage(clientMessage);
+		assertEquals(0, clientPool.getOutstandingMessageCount());
+		assertSame(clientMessage, clientPool.acquire());
+	}
+
+	private static class ClientMessageToServerPooled extends ClientMessageToServer<Object> implements Recyclable {
+
+		ClientMessageToServerPooled() {
+			super(null);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+
+		@Override
+		public void reset() {
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class MessageRegistryTest {
+
+	private static final ClientMessageToServerFactory<?> PINGPONG_FACTORY = new ConstructorMessageFactory(
+			ClientMessageToServerPingPong.class);
+
+	@Test
+	public void testLookupsBeforeAndAfterFreeze() {
+		final MessageRegistry registry = new MessageRegistry();
+		registry.registerClientMessageToServerFactory(3, PINGPONG_FACTORY);
+		registry.registerServerMessageToClientId(5, ServerMessageToClientPingPong.class);
+		for (int lap = 0; lap < 2; lap++) {
+			assertSame(PINGPONG_FACTORY, registry.getClientMessageToServerFactory(3));
+			assertNull(registry.getClientMessageToServerFactory(0));
+			assertNull(registry.getClientMessageToServerFactory(4));
+			assertNull(registry.getClientMessageToServerFactory(-1));
+			assertEquals(5, registry.getServerMessageId(ServerMessageToClientPingPong.class));
+			registry.freeze();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRefuseRegistrationAfterFreeze() {
+		final MessageRegistry registry = new MessageRegistry();
+		registry.freeze();
+		registry.registerServerMessageToClientId(5, ServerMessageToClientPingPong.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRefuseInvalidMessageId() {
+		new MessageRegistry().registerClientMessageToServerFactory(MessageRegistry.MAX_MESSAGE_ID + 1, PINGPONG_FACTORY);
+	}
+
+	@Test
+	public void testHighestMessageId() {
+		final MessageRegistry registry = new MessageRegistry();
+		assertEquals(-1, registry.getHighestMessageId());
+		registry.registerClientMessageToServerFactory(3, PINGPONG_FACTORY);
+		registry.registerServerMessageToClientId(1200, ServerMessageToClientPingPong.class);
+		assertEquals(1200, registry.getHighestMessageId());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRefuseMessageIdExceedingTextProtocol() {
+		new SwiftSocketServer(0, ServerType.TCP).registerServerMessageToClientId(1000, ServerMessageToClientPingPong.class);
+	}
+
+	@Test
+	public void testAcceptMessageIdWithBinaryProtocol() {
+		final SwiftSocketServer server = new SwiftSocketServer(0, ServerType.TCP);
+		server.setWireProtocol(WireProtocol.BINARY);
+		server.registerServerMessageToClientId(1000, ServerMessageToClientPingPong.class);
+		assertEquals(1000, server.getServerMessageId(ServerMessageToClientPingPong.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRefuseStartAfterChangingToTextProtocol() {
+		final SwiftSocketServer server = new SwiftSocketServer(0, ServerType.TCP);
+		server.setWireProtocol(WireProtocol.BINARY);
+		server.registerServerMessageToClientId(1000, ServerMessageToClientPingPong.class);
+		server.setWireProtocol(WireProtocol.TEXT);
+		server.start();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnregisteredServerMessage() {
+		final MessageRegistry registry = new MessageRegistry();
+		registry.freeze();
+		registry.getServerMessageId(ServerMessageToClientPingPong.class);
+	}
+}
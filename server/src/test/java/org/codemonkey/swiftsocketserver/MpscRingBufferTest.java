@@ -0,0 +1,93 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class MpscRingBufferTest {
+
+	@Test
+	public void testCapacityRoundedUpToPowerOfTwo() {
+		assertEquals(1, new MpscRingBuffer<Integer>(1).capacity());
+		assertEquals(8, new MpscRingBuffer<Integer>(5).capacity());
+		assertEquals(8, new MpscRingBuffer<Integer>(8).capacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new MpscRingBuffer<Integer>(0);
+	}
+
+	@Test
+	public void testOfferPollInOrder() {
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<Integer>(4);
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+		for (int lap = 0; lap < 3; lap++) {
+			for (int i = 0; i < 4; i++) {
+				assertTrue(buffer.offer(i));
+			}
+			assertEquals(4, buffer.size());
+			assertFalse(buffer.offer(4));
+			for (int i = 0; i < 4; i++) {
+				assertEquals((Integer) i, buffer.poll());
+			}
+			assertTrue(buffer.isEmpty());
+			assertNull(buffer.poll());
+		}
+	}
+
+	@Test
+	public void testConcurrentProducersKeepTheirOrder()
+			throws InterruptedException {
+		final int producerCount = 4;
+		final int messagesPerProducer = 100000;
+		final MpscRingBuffer<int[]> buffer = new MpscRingBuffer<int[]>(64);
+		final CountDownLatch start = new CountDownLatch(1);
+		for (int p = 0; p < producerCount; p++) {
+			final int producer = p;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < messagesPerProducer; i++) {
+						final int[] element = new int[] { producer, i };
+						while (!buffer.offer(element)) {
+							Thread.yield();
+						}
+					}
+				}
+			}).start();
+		}
+		start.countDown();
+
+		final int[] expectedNext = new int[producerCount];
+		int received = 0;
+		while (received < producerCount * messagesPerProducer) {
+			final int[] element = buffer.poll();
+			if (element != null) {
+				assertEquals(expectedNext[element[0]]++, element[1]);
+				received++;
+			} else {
+				Thread.yield();
+			}
+		}
+		assertTrue(buffer.isEmpty());
+		for (int p = 0; p < producerCount; p++) {
+			assertEquals(messagesPerProducer, expectedNext[p]);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class OutboundQueueTest {
+
+	private static ByteBuffer message(final int value) {
+		return ByteBuffer.wrap(new byte[] { (byte) value });
+	}
+
+	@Test
+	public void testPollInOrderAndInBatches() {
+		final OutboundQueue queue = new OutboundQueue(4, SlowConsumerPolicy.DISCONNECT, 0);
+		final ByteBuffer[] batch = new ByteBuffer[3];
+		for (int lap = 0; lap < 3; lap++) {
+			for (int i = 0; i < 4; i++) {
+				assertTrue(queue.offer(message(i), true));
+			}
+			assertEquals(4, queue.size());
+			assertEquals(3, queue.poll(batch));
+			for (int i = 0; i < 3; i++) {
+				assertEquals(i, batch[i].get(0));
+			}
+			assertEquals(1, queue.poll(batch));
+			assertEquals(3, batch[0].get(0));
+			assertTrue(queue.isEmpty());
+			assertEquals(0, queue.poll(batch));
+		}
+	}
+
+	@Test
+	public void testDropOldest() {
+		final OutboundQueue queue = new OutboundQueue(2, SlowConsumerPolicy.DROP_OLDEST, 0);
+		assertTrue(queue.offer(message(0), true));
+		assertTrue(queue.offer(message(1), true));
+		assertTrue(queue.offer(message(2), true));
+		final ByteBuffer[] batch = new ByteBuffer[4];
+		assertEquals(2, queue.poll(batch));
+		assertEquals(1, batch[0].get(0));
+		assertEquals(2, batch[1].get(0));
+	}
+
+	@Test
+	public void testDisconnect() {
+		final OutboundQueue queue = new OutboundQueue(1, SlowConsumerPolicy.DISCONNECT, 0);
+		assertTrue(queue.offer(message(0), true));
+		assertFalse(queue.offer(message(1), true));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testBlockTimesOut() {
+		final OutboundQueue queue = new OutboundQueue(1, SlowConsumerPolicy.BLOCK, 20);
+		assertTrue(queue.offer(message(0), true));
+		final long start = System.nanoTime();
+		assertFalse(queue.offer(message(1), true));
+		assertTrue(System.nanoTime() - start >= 15000000);
+		assertFalse(queue.offer(message(1), false));
+	}
+
+	@Test
+	public void testBlockUntilRoom()
+			throws InterruptedException {
+		final OutboundQueue queue = new OutboundQueue(1, SlowConsumerPolicy.BLOCK, 10000);
+		assertTrue(queue.offer(message(0), true));
+		final Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(20);
+					queue.take(new ByteBuffer[1]);
+				} catch (final InterruptedException e) {
+					// test fails on the assertion below
+				}
+			}
+		});
+		writer.start();
+		assertTrue(queue.offer(message(1), true));
+		writer.join();
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testCloseDiscardsAndReleasesTake()
+			throws InterruptedException {
+		final OutboundQueue queue = new OutboundQueue(2, SlowConsumerPolicy.DISCONNECT, 0);
+		assertTrue(queue.offer(message(0), true));
+		queue.close();
+		assertTrue(queue.isEmpty());
+		assertTrue(queue.offer(message(1), true));
+		assertEquals(0, queue.take(new ByteBuffer[1]));
+	}
+}
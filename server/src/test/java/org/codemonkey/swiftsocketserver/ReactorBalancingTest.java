@@ -0,0 +1,171 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class ReactorBalancingTest {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static class TextMessage extends ClientMessageToServer<Object> {
+
+		TextMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private SwiftSocketServer server;
+
+	private int port;
+
+	private final List<SocketChannel> channels = new ArrayList<SocketChannel>();
+
+	@After
+	public void stop()
+			throws IOException {
+		for (final SocketChannel channel : channels) {
+			channel.close();
+		}
+		server.stop();
+	}
+
+	private void start(final ReactorBalancing reactorBalancing)
+			throws IOException {
+		final ServerSocket probe = new ServerSocket(0);
+		port = probe.getLocalPort();
+		probe.close();
+		server = new SwiftSocketServer(port, ServerType.TCP_NIO);
+		server.setReactors(2, reactorBalancing);
+		server.registerClientMessageToServerType(1, TextMessage.class);
+		server.start();
+	}
+
+	/**
+	 * Connects a new client and waits until the server accepted it, so clients are assigned to reactors in the order they connect.
+	 */
+	private SocketChannel connect()
+			throws IOException, InterruptedException {
+		final int clientCount = server.getAllClientContexts().size();
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		SocketChannel channel = null;
+		while (channel == null) {
+			try {
+				channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+			} catch (final IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+		channels.add(channel);
+		while (server.getAllClientContexts().size() == clientCount && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return channel;
+	}
+
+	private List<Integer> getConnectionCounts() {
+		final List<Integer> connectionCounts = new ArrayList<Integer>();
+		for (final ReactorStatistics reactorStatistics : server.getReactorStatistics()) {
+			connectionCounts.add(reactorStatistics.getConnectionCount());
+		}
+		return connectionCounts;
+	}
+
+	private long getMessagesReceived() {
+		long messagesReceived = 0;
+		for (final ReactorStatistics reactorStatistics : server.getReactorStatistics()) {
+			messagesReceived += reactorStatistics.getMessagesReceived();
+		}
+		return messagesReceived;
+	}
+
+	private void assertConnectionCounts(final Integer... expectedConnectionCounts)
+			throws InterruptedException {
+		final List<Integer> expected = Arrays.asList(expectedConnectionCounts);
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (!getConnectionCounts().equals(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, getConnectionCounts());
+	}
+
+	@Test
+	public void testRoundRobinAssignsReactorsInTurn()
+			throws Exception {
+		start(ReactorBalancing.ROUND_ROBIN);
+		for (int i = 0; i < 4; i++) {
+			connect();
+		}
+		assertConnectionCounts(2, 2);
+
+		for (final SocketChannel channel : channels) {
+			final ByteBuffer buffer = ByteBuffer.wrap("001hello\n".getBytes());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		for (int i = 0; i < 4; i++) {
+			final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+			ClientMessageToServer<?> message;
+			while ((message = server.getNextClientMessage()) == null && System.currentTimeMillis() < deadline) {
+				server.awaitClientMessages(10);
+			}
+			assertNotNull("no message received", message);
+		}
+		// the reactor counts messages once it handed them over
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (getMessagesReceived() != 4 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		for (final ReactorStatistics reactorStatistics : server.getReactorStatistics()) {
+			assertEquals(2, reactorStatistics.getMessagesReceived());
+			assertTrue(reactorStatistics.getBytesRead() >= 2 * "001hello\n".length());
+		}
+	}
+
+	/**
+	 * The second client is served by the second reactor. Once it disconnects, round robin would assign the next client to the first
+	 * reactor, but the least loaded reactor is the second one.
+	 */
+	@Test
+	public void testLeastConnectionsAssignsLeastLoadedReactor()
+			throws Exception {
+		start(ReactorBalancing.LEAST_CONNECTIONS);
+		connect();
+		final SocketChannel second = connect();
+		assertConnectionCounts(1, 1);
+
+		second.close();
+		assertConnectionCounts(1, 0);
+
+		connect();
+		assertConnectionCounts(1, 1);
+	}
+}
@@ -0,0 +1,192 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class ServerEndpointUDPNIOTest {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static class TextMessage extends ClientMessageToServer<Object> {
+
+		private String text;
+
+		TextMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+			text = datagramMessage;
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private SwiftSocketServer server;
+
+	private ServerEndpointUDPNIO serverEndpoint;
+
+	private DatagramChannel clientChannel;
+
+	@Before
+	public void start()
+			throws IOException {
+		final DatagramSocket probe = new DatagramSocket(0);
+		final int port = probe.getLocalPort();
+		probe.close();
+		server = new SwiftSocketServer(port, ServerType.UDP_NIO);
+		server.registerClientMessageToServerType(1, TextMessage.class);
+		server.start();
+
+		// a second endpoint, which isn't served by the server, so the test decides when its client is served
+		final DatagramChannel serverChannel = DatagramChannel.open();
+		serverChannel.socket().bind(new InetSocketAddress("localhost", 0));
+		serverChannel.configureBlocking(false);
+		serverEndpoint = new ServerEndpointUDPNIO(serverChannel, 1024, WaitStrategy.BLOCKING);
+
+		clientChannel = DatagramChannel.open();
+		clientChannel.connect(serverChannel.socket().getLocalSocketAddress());
+		clientChannel.socket().setSoTimeout((int) TIMEOUT_MS);
+	}
+
+	@After
+	public void stop()
+			throws IOException {
+		clientChannel.close();
+		serverEndpoint.close();
+		server.stop();
+	}
+
+	private void send(final String data)
+			throws IOException {
+		clientChannel.write(ByteBuffer.wrap(data.getBytes()));
+	}
+
+	private String receive()
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(1024);
+		clientChannel.read(buffer);
+		return new String(buffer.array(), 0, buffer.position());
+	}
+
+	/**
+	 * Performs the handshake and returns the new client endpoint, without serving it yet.
+	 */
+	private ClientEndpointUDPNIO connect()
+			throws IOException {
+		send(ClientEndpointUDP.CONNECT);
+		assertEquals(ClientEndpointUDP.ACK, receive());
+		return (ClientEndpointUDPNIO) serverEndpoint.getClientEndpoint();
+	}
+
+	private void awaitPendingLines(final ClientEndpointUDPNIO clientEndpoint, final int lineCount)
+			throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (clientEndpoint.getPendingLineCount() != lineCount && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(lineCount, clientEndpoint.getPendingLineCount());
+	}
+
+	private void serve(final ClientEndpointUDPNIO clientEndpoint) {
+		final ClientContext clientContext = new ClientContext(clientEndpoint);
+		serverEndpoint.serveClient(new ClientHandler(server, clientContext, false, 0, 0, ThreadMode.PLATFORM));
+	}
+
+	private ClientMessageToServer<?> receiveMessage(final long timeoutMs) {
+		final long deadline = System.currentTimeMillis() + timeoutMs;
+		ClientMessageToServer<?> message;
+		while ((message = server.getNextClientMessage()) == null && System.currentTimeMillis() < deadline) {
+			server.awaitClientMessages(10);
+		}
+		return message;
+	}
+
+	private String receiveText() {
+		final ClientMessageToServer<?> message = receiveMessage(TIMEOUT_MS);
+		assertNotNull("no message received", message);
+		return ((TextMessage) message).text;
+	}
+
+	@Test
+	public void testLinesReceivedBeforeServingAreHandledWhenServed()
+			throws Exception {
+		final ClientEndpointUDPNIO clientEndpoint = connect();
+		send("001first\n001second");
+		awaitPendingLines(clientEndpoint, 2);
+
+		// no further datagram is sent, serving the client alone should hand over the pending lines
+		serve(clientEndpoint);
+		assertEquals("first", receiveText());
+		assertEquals("second", receiveText());
+		awaitPendingLines(clientEndpoint, 0);
+
+		send("001third");
+		assertEquals("third", receiveText());
+	}
+
+	@Test
+	public void testPendingLinesAreCapped()
+			throws Exception {
+		final ClientEndpointUDPNIO clientEndpoint = connect();
+		final StringBuilder datagram = new StringBuilder();
+		for (int i = 0; i < ClientEndpointUDPNIO.MAX_PENDING_LINES + 10; i++) {
+			datagram.append(String.format("001%s\n", i));
+		}
+		send(datagram.toString());
+		// the receiver thread handles datagrams one by one, so once another client's handshake is accepted, all lines have been handled
+		final DatagramChannel otherClientChannel = DatagramChannel.open();
+		try {
+			otherClientChannel.send(ByteBuffer.wrap(ClientEndpointUDP.CONNECT.getBytes()), clientChannel.getRemoteAddress());
+			assertNotNull(serverEndpoint.getClientEndpoint());
+		} finally {
+			otherClientChannel.close();
+		}
+		assertEquals(ClientEndpointUDPNIO.MAX_PENDING_LINES, clientEndpoint.getPendingLineCount());
+
+		serve(clientEndpoint);
+		for (int i = 0; i < ClientEndpointUDPNIO.MAX_PENDING_LINES; i++) {
+			assertEquals(String.valueOf(i), receiveText());
+		}
+		assertNull(receiveMessage(100));
+	}
+
+	@Test
+	public void testClosingWakesUpThreadWaitingForNewClient()
+			throws Exception {
+		final ClientEndpoint[] clientEndpoint = new ClientEndpoint[1];
+		final Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				clientEndpoint[0] = serverEndpoint.getClientEndpoint();
+			}
+		});
+		acceptor.start();
+		Thread.sleep(50);
+		assertTrue(acceptor.isAlive());
+		serverEndpoint.close();
+		acceptor.join(TIMEOUT_MS);
+		assertFalse(acceptor.isAlive());
+		assertNull(clientEndpoint[0]);
+	}
+}
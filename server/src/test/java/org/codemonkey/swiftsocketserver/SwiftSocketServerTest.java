@@ -0,0 +1,126 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codemonkey.util.EncoderUtil;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class SwiftSocketServerTest {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static final int CLIENT_COUNT = 3;
+
+	/**
+	 * Counts how often it is encoded.
+	 */
+	private static class CountingMessage extends ServerMessageToClient {
+
+		private final AtomicInteger encodeCount = new AtomicInteger();
+
+		CountingMessage() {
+			super(null);
+		}
+
+		@Override
+		public void encodeTo(final StringBuilder coded) {
+			encodeCount.incrementAndGet();
+			EncoderUtil.encodeTo(coded, "world update");
+		}
+	}
+
+	private SwiftSocketServer server;
+
+	private final List<Socket> sockets = new ArrayList<Socket>();
+
+	@After
+	public void stop()
+			throws IOException {
+		for (final Socket socket : sockets) {
+			socket.close();
+		}
+		server.stop();
+	}
+
+	private void start(final ServerType serverType)
+			throws IOException, InterruptedException {
+		final ServerSocket probe = new ServerSocket(0);
+		final int port = probe.getLocalPort();
+		probe.close();
+		server = new SwiftSocketServer(port, serverType);
+		server.registerServerMessageToClientId(5, CountingMessage.class);
+		server.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (sockets.size() < CLIENT_COUNT) {
+			try {
+				sockets.add(new Socket("localhost", port));
+			} catch (final IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+		while (server.getAllClientContexts().size() < CLIENT_COUNT && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(CLIENT_COUNT, server.getAllClientContexts().size());
+	}
+
+	/**
+	 * Reads a single text message, up to and including the zero byte that ends it.
+	 */
+	private static String receive(final Socket socket)
+			throws IOException {
+		socket.setSoTimeout((int) TIMEOUT_MS);
+		final InputStream in = socket.getInputStream();
+		final ByteArrayOutputStream received = new ByteArrayOutputStream();
+		int b;
+		do {
+			b = in.read();
+			assertTrue("connection closed", b >= 0);
+			received.write(b);
+		} while (b != 0);
+		return received.toString();
+	}
+
+	private void assertBroadcastEncodedOnce()
+			throws IOException {
+		final CountingMessage message = new CountingMessage();
+		server.broadcastMessage(message);
+		final String expected = Frame.encode(5, new CountingMessage()).toString();
+		for (final Socket socket : sockets) {
+			assertEquals(expected, receive(socket));
+		}
+		assertEquals(1, message.encodeCount.get());
+	}
+
+	@Test
+	public void testBroadcastEncodesOnceForTcp()
+			throws Exception {
+		start(ServerType.TCP);
+		assertBroadcastEncodedOnce();
+	}
+
+	@Test
+	public void testBroadcastEncodesOnceForTcpNio()
+			throws Exception {
+		start(ServerType.TCP_NIO);
+		assertBroadcastEncodedOnce();
+	}
+}
@@ -0,0 +1,193 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class ThreadModeTest {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static class TextMessage extends ClientMessageToServer<Object> {
+
+		private String text;
+
+		TextMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+			text = datagramMessage;
+		}
+
+		@Override
+		public void execute(final Object executionContext) {
+		}
+	}
+
+	private SwiftSocketServer server;
+
+	private int port;
+
+	@After
+	public void stopServer() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	private void startServer(final boolean pingPongMode)
+			throws IOException {
+		final ServerSocket probe = new ServerSocket(0);
+		port = probe.getLocalPort();
+		probe.close();
+		server = new SwiftSocketServer(port, ServerType.TCP);
+		server.setThreadMode(ThreadMode.VIRTUAL);
+		server.setPingPongMode(pingPongMode, 50, 200);
+		server.registerClientMessageToServerType(1, TextMessage.class);
+		server.start();
+	}
+
+	private Socket connect()
+			throws IOException, InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (true) {
+			try {
+				return new Socket("localhost", port);
+			} catch (final IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private boolean awaitClientCount(final int clientCount)
+			throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (server.getAllClientContexts().size() != clientCount) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	/**
+	 * @return Whether the thread is virtual, <code>false</code> on runtimes without virtual threads.
+	 */
+	private static boolean isVirtual(final Thread thread)
+			throws Exception {
+		try {
+			final Method isVirtual = Thread.class.getMethod("isVirtual");
+			return (Boolean) isVirtual.invoke(thread);
+		} catch (final NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static boolean isVirtualThreadSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual").invoke(null);
+			return true;
+		} catch (final Exception e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testPlatformThread()
+			throws Exception {
+		final CountDownLatch ran = new CountDownLatch(1);
+		final Thread thread = ThreadMode.PLATFORM.newThread(new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		});
+		assertEquals(Thread.State.NEW, thread.getState());
+		thread.start();
+		assertTrue(ran.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		assertFalse(isVirtual(thread));
+	}
+
+	/**
+	 * Virtual threads are used where the runtime supports them, otherwise the mode falls back to platform threads.
+	 */
+	@Test
+	public void testVirtualThreadOrFallback()
+			throws Exception {
+		final CountDownLatch ran = new CountDownLatch(1);
+		final Thread thread = ThreadMode.VIRTUAL.newThread(new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		});
+		assertEquals(Thread.State.NEW, thread.getState());
+		thread.start();
+		assertTrue(ran.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		assertEquals(isVirtualThreadSupported(), isVirtual(thread));
+	}
+
+	/**
+	 * Without ping pong mode the client handler parks indefinitely, so it relies on being woken up when its client goes away.
+	 */
+	@Test
+	public void testServesAndDisposesClient()
+			throws Exception {
+		startServer(false);
+		final Socket socket = connect();
+		try {
+			final OutputStream out = socket.getOutputStream();
+			out.write("001hello\n\0".getBytes());
+			out.flush();
+			final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+			ClientMessageToServer<?> message;
+			while ((message = server.getNextClientMessage()) == null && System.currentTimeMillis() < deadline) {
+				server.awaitClientMessages(10);
+			}
+			assertNotNull("no message received", message);
+			assertEquals("hello", ((TextMessage) message).text);
+			assertTrue(awaitClientCount(1));
+		} finally {
+			socket.close();
+		}
+		assertTrue(awaitClientCount(0));
+	}
+
+	/**
+	 * With ping pong mode the client handler parks until the next ping or pong time-out is due, so a client that never answers is dropped.
+	 */
+	@Test
+	public void testDropsClientNotAnsweringPing()
+			throws Exception {
+		startServer(true);
+		final Socket socket = connect();
+		try {
+			assertTrue(awaitClientCount(1));
+			assertTrue(awaitClientCount(0));
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package org.codemonkey.swiftsocketserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class WaitSignalTest {
+
+	private static final int HAND_OFF_COUNT = 20000;
+
+	private static final long TIMEOUT_MS = 5000;
+
+	/**
+	 * Hands elements one at a time from a producer to a consumer through a {@link MpscRingBuffer}, which publishes with a lazy write. The
+	 * consumer only waits for the producer's signal, so a lost wake-up stalls the consumer until the time-out.
+	 */
+	private static void assertNoLostWakeUps(final WaitStrategy waitStrategy)
+			throws InterruptedException {
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<Integer>(1);
+		final WaitSignal elementSignal = new WaitSignal(waitStrategy);
+		final WaitSignal spaceSignal = new WaitSignal(waitStrategy);
+		final AtomicInteger timeouts = new AtomicInteger();
+		final Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < HAND_OFF_COUNT; i++) {
+					final boolean hasSpace = spaceSignal.await(new WaitCondition() {
+						@Override
+						public boolean isSatisfied() {
+							return buffer.isEmpty();
+						}
+					}, TIMEOUT_MS);
+					if (!hasSpace) {
+						timeouts.incrementAndGet();
+						return;
+					}
+					buffer.offer(i);
+					elementSignal.signal();
+				}
+			}
+		});
+		producer.start();
+		for (int i = 0; i < HAND_OFF_COUNT; i++) {
+			assertTrue(String.format("lost wake-up after %s hand-offs", i), elementSignal.await(new WaitCondition() {
+				@Override
+				public boolean isSatisfied() {
+					return !buffer.isEmpty();
+				}
+			}, TIMEOUT_MS));
+			assertEquals((Integer) i, buffer.poll());
+			spaceSignal.signal();
+		}
+		producer.join(TIMEOUT_MS);
+		assertEquals(0, timeouts.get());
+	}
+
+	@Test
+	public void testBlockingNoLostWakeUps()
+			throws InterruptedException {
+		assertNoLostWakeUps(WaitStrategy.BLOCKING);
+	}
+
+	@Test
+	public void testParkWithBackoffNoLostWakeUps()
+			throws InterruptedException {
+		assertNoLostWakeUps(WaitStrategy.PARK_WITH_BACKOFF);
+	}
+
+	@Test
+	public void testAwaitTimesOut() {
+		final WaitSignal waitSignal = new WaitSignal(WaitStrategy.BLOCKING);
+		final long start = System.currentTimeMillis();
+		assertFalse(waitSignal.await(new WaitCondition() {
+			@Override
+			public boolean isSatisfied() {
+				return false;
+			}
+		}, 50));
+		assertTrue(System.currentTimeMillis() - start >= 50);
+	}
+}
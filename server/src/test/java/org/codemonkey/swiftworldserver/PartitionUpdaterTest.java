@@ -0,0 +1,133 @@
+package org.codemonkey.swiftworldserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class PartitionUpdaterTest {
+
+	private static class GridWorld implements PartitionedWorldContext {
+
+		private final AtomicIntegerArray updates;
+
+		private final int[] failingPartitions;
+
+		private int merges;
+
+		private boolean allUpdatedWhenMerged = true;
+
+		GridWorld(final int partitionCount, final int... failingPartitions) {
+			updates = new AtomicIntegerArray(partitionCount);
+			this.failingPartitions = failingPartitions;
+		}
+
+		@Override
+		public void initWorld() {
+		}
+
+		@Override
+		public void updateWorld(final double secondsPerFrame) {
+		}
+
+		@Override
+		public int getPartitionCount() {
+			return updates.length();
+		}
+
+		@Override
+		public void updatePartition(final int partition, final double secondsPerFrame) {
+			for (final int failingPartition : failingPartitions) {
+				if (partition == failingPartition) {
+					throw new IllegalStateException(String.format("partition %s failed", partition));
+				}
+			}
+			updates.incrementAndGet(partition);
+		}
+
+		@Override
+		public void mergePartitions(final double secondsPerFrame) {
+			merges++;
+			for (int i = 0; i < updates.length(); i++) {
+				allUpdatedWhenMerged &= updates.get(i) == merges;
+			}
+		}
+	}
+
+	@Test
+	public void testUpdatesEveryPartitionBeforeMerging() {
+		final PartitionUpdater partitionUpdater = new PartitionUpdater(4);
+		try {
+			final GridWorld world = new GridWorld(37);
+			for (int i = 0; i < 10; i++) {
+				partitionUpdater.update(world, 0.1);
+			}
+			assertEquals(10, world.merges);
+			assertTrue(world.allUpdatedWhenMerged);
+		} finally {
+			partitionUpdater.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailingPartitionSkipsMerge() {
+		final PartitionUpdater partitionUpdater = new PartitionUpdater(4);
+		try {
+			final GridWorld world = new GridWorld(16, 3);
+			try {
+				partitionUpdater.update(world, 0.1);
+				fail("partition failure should be rethrown");
+			} catch (final IllegalStateException e) {
+				// expected
+			}
+			assertEquals(0, world.merges);
+			for (int i = 0; i < 16; i++) {
+				assertEquals(i == 3 ? 0 : 1, world.updates.get(i));
+			}
+		} finally {
+			partitionUpdater.shutdown();
+		}
+	}
+
+	/**
+	 * The pool may rethrow a copy of an exception thrown on another worker, with the original as cause.
+	 */
+	private static void collectMessages(final Throwable failure, final Set<String> messages) {
+		if (failure != null) {
+			messages.add(failure.getMessage());
+			for (final Throwable suppressed : failure.getSuppressed()) {
+				collectMessages(suppressed, messages);
+			}
+			collectMessages(failure.getCause(), messages);
+		}
+	}
+
+	@Test
+	public void testFailingPartitionsAreAllReported() {
+		final PartitionUpdater partitionUpdater = new PartitionUpdater(4);
+		try {
+			final GridWorld world = new GridWorld(16, 0, 15);
+			try {
+				partitionUpdater.update(world, 0.1);
+				fail("partition failure should be rethrown");
+			} catch (final IllegalStateException e) {
+				final Set<String> messages = new HashSet<String>();
+				collectMessages(e, messages);
+				assertTrue(messages.contains("partition 0 failed"));
+				assertTrue(messages.contains("partition 15 failed"));
+			}
+			assertEquals(0, world.merges);
+		} finally {
+			partitionUpdater.shutdown();
+		}
+	}
+}
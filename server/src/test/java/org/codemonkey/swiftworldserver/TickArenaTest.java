@@ -0,0 +1,112 @@
+package org.codemonkey.swiftworldserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.codemonkey.swiftsocketserver.MessagePool;
+import org.codemonkey.swiftsocketserver.Recyclable;
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class TickArenaTest {
+
+	private static class Position implements Recyclable {
+
+		private int x;
+
+		@Override
+		public void reset() {
+			x = 0;
+		}
+	}
+
+	private static MessagePool<Position> createPool() {
+		return new MessagePool<Position>(Position.class, new MessagePool.Factory<Position>() {
+			@Override
+			public Position create() {
+				return new Position();
+			}
+		}, 16);
+	}
+
+	@Test
+	public void testReuseAfterReset() {
+		final TickArena arena = new TickArena();
+		arena.setDebugMode(false);
+		final MessagePool<Position> pool = createPool();
+
+		final List<String> list = arena.newList();
+		list.add("value");
+		final StringBuilder stringBuilder = arena.newStringBuilder().append("value");
+		final Position position = arena.allocate(pool);
+		position.x = 5;
+		assertEquals(1, pool.getOutstandingMessageCount());
+		arena.reset();
+
+		assertEquals(1, arena.getTick());
+		assertEquals(0, pool.getOutstandingMessageCount());
+		assertTrue(list.isEmpty());
+		assertSame(list, arena.newList());
+		assertSame(stringBuilder, arena.newStringBuilder());
+		assertEquals(0, stringBuilder.length());
+		assertSame(position, arena.allocate(pool));
+		assertEquals(0, position.x);
+	}
+
+	@Test
+	public void testDebugModeDoesNotReuseEscapingObjects() {
+		final TickArena arena = new TickArena();
+		arena.setDebugMode(true);
+		final MessagePool<Position> pool = createPool();
+		final StringBuilder stringBuilder = arena.newStringBuilder();
+		final Position position = arena.allocate(pool);
+		position.x = 5;
+		arena.reset();
+
+		assertEquals(0, pool.getOutstandingMessageCount());
+		assertEquals(0, pool.getPooledMessageCount());
+		assertEquals(0, position.x);
+		assertNotSame(stringBuilder, arena.newStringBuilder());
+		assertNotSame(position, arena.allocate(pool));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDebugModeDetectsEscapingList() {
+		final TickArena arena = new TickArena();
+		arena.setDebugMode(true);
+		final List<String> list = arena.newList();
+		list.add("value");
+		assertEquals(1, list.size());
+		arena.reset();
+		list.size();
+	}
+
+	@Test
+	public void testDebugModeDetectsOtherThreads()
+			throws InterruptedException {
+		final TickArena arena = new TickArena();
+		arena.setDebugMode(true);
+		arena.newList();
+		final Exception[] failure = new Exception[1];
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					arena.newList();
+				} catch (final IllegalStateException e) {
+					failure[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertTrue(failure[0] instanceof IllegalStateException);
+	}
+}
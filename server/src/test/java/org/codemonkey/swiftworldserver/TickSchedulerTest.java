@@ -0,0 +1,55 @@
+package org.codemonkey.swiftworldserver;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class TickSchedulerTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testScheduleDoesNotDrift() {
+		final TickScheduler tickScheduler = new TickScheduler(100, FrameLagPolicy.CATCH_UP, 5);
+		tickScheduler.start(1000);
+		assertEquals(1100, tickScheduler.getNextDeadline());
+		assertEquals(0, tickScheduler.dueFrames(1099));
+		// a late frame moves the next deadline by one frame, not to one frame after now
+		assertEquals(1, tickScheduler.dueFrames(1130));
+		assertEquals(1200, tickScheduler.getNextDeadline());
+		assertEquals(100e-9, tickScheduler.getFrameSeconds(), DELTA);
+	}
+
+	@Test
+	public void testCatchUp() {
+		final TickScheduler tickScheduler = new TickScheduler(100, FrameLagPolicy.CATCH_UP, 5);
+		tickScheduler.start(0);
+		assertEquals(3, tickScheduler.dueFrames(350));
+		assertEquals(400, tickScheduler.getNextDeadline());
+		assertEquals(100e-9, tickScheduler.getFrameSeconds(), DELTA);
+		assertEquals(0, tickScheduler.getDroppedFrameCount());
+
+		// beyond the maximum, frames are dropped and the schedule restarts
+		assertEquals(5, tickScheduler.dueFrames(1250));
+		assertEquals(4, tickScheduler.getDroppedFrameCount());
+		assertEquals(1350, tickScheduler.getNextDeadline());
+	}
+
+	@Test
+	public void testSkip() {
+		final TickScheduler tickScheduler = new TickScheduler(100, FrameLagPolicy.SKIP, 5);
+		tickScheduler.start(0);
+		assertEquals(1, tickScheduler.dueFrames(120));
+		assertEquals(120e-9, tickScheduler.getFrameSeconds(), DELTA);
+		assertEquals(200, tickScheduler.getNextDeadline());
+
+		assertEquals(1, tickScheduler.dueFrames(450));
+		assertEquals(330e-9, tickScheduler.getFrameSeconds(), DELTA);
+		assertEquals(500, tickScheduler.getNextDeadline());
+		assertEquals(2, tickScheduler.getDroppedFrameCount());
+	}
+}
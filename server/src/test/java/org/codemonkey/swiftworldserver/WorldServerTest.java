@@ -0,0 +1,124 @@
+package org.codemonkey.swiftworldserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class WorldServerTest {
+
+	private static final double DELTA = 1e-9;
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static final int FRAME_COUNT = 30;
+
+	/**
+	 * Records the number of world updates and their total delta preceding every snapshot.
+	 */
+	private static class RecordingContext implements SnapshotWorldContext {
+
+		private final CountDownLatch updated = new CountDownLatch(FRAME_COUNT);
+
+		private final List<Integer> framesPerSnapshot = new ArrayList<Integer>();
+
+		private final List<Double> secondsPerSnapshot = new ArrayList<Double>();
+
+		private final List<Double> expectedSecondsPerSnapshot = new ArrayList<Double>();
+
+		private int framesSinceSnapshot;
+
+		private double secondsSinceSnapshot;
+
+		@Override
+		public void initWorld() {
+		}
+
+		@Override
+		public void updateWorld(final double secondsPerFrame) {
+			framesSinceSnapshot++;
+			secondsSinceSnapshot += secondsPerFrame;
+			updated.countDown();
+		}
+
+		@Override
+		public void produceSnapshot(final double secondsPerSnapshot) {
+			framesPerSnapshot.add(framesSinceSnapshot);
+			this.secondsPerSnapshot.add(secondsPerSnapshot);
+			expectedSecondsPerSnapshot.add(secondsSinceSnapshot);
+			framesSinceSnapshot = 0;
+			secondsSinceSnapshot = 0;
+		}
+	}
+
+	/**
+	 * Runs the world server until the context has been updated {@value #FRAME_COUNT} times.
+	 */
+	private static RecordingContext runWorld(final double framesPerSecond, final double snapshotsPerSecond)
+			throws IOException, InterruptedException {
+		final ServerSocket probe = new ServerSocket(0);
+		final int port = probe.getLocalPort();
+		probe.close();
+		final RecordingContext context = new RecordingContext();
+		final WorldServer<RecordingContext> worldServer = new WorldServer<RecordingContext>(port, context, framesPerSecond);
+		worldServer.setSnapshotsPerSecond(snapshotsPerSecond);
+		final Thread worldThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				worldServer.start();
+			}
+		});
+		worldThread.start();
+		try {
+			assertTrue(context.updated.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		} finally {
+			worldServer.stop();
+			worldThread.join(TIMEOUT_MS);
+		}
+		assertFalse(worldThread.isAlive());
+		return context;
+	}
+
+	/**
+	 * At 60 frames and 20 snapshots per second, a snapshot follows every third world update, or a catch-up burst of more updates, and is
+	 * passed the total delta of those updates.
+	 */
+	@Test
+	public void testProducesSnapshotsAtLowerRate()
+			throws Exception {
+		final RecordingContext context = runWorld(60, 20);
+		assertFalse(context.framesPerSnapshot.isEmpty());
+		for (int i = 0; i < context.framesPerSnapshot.size(); i++) {
+			assertTrue(context.framesPerSnapshot.get(i) >= 3);
+			assertEquals(context.expectedSecondsPerSnapshot.get(i), context.secondsPerSnapshot.get(i), DELTA);
+		}
+	}
+
+	@Test
+	public void testProducesSnapshotEveryFrameByDefault()
+			throws Exception {
+		final RecordingContext context = runWorld(60, 0);
+		// apart from catch-up bursts, every update is followed by a snapshot
+		assertTrue(context.framesPerSnapshot.contains(1));
+		for (int i = 0; i < context.framesPerSnapshot.size(); i++) {
+			assertEquals(context.expectedSecondsPerSnapshot.get(i), context.secondsPerSnapshot.get(i), DELTA);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSnapshotRate() {
+		new WorldServer<RecordingContext>(0, new RecordingContext(), 60).setSnapshotsPerSecond(-1);
+	}
+}
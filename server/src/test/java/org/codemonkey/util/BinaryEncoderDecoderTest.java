@@ -0,0 +1,114 @@
+package org.codemonkey.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class BinaryEncoderDecoderTest {
+
+	@Test
+	public void testVarInt() {
+		final int[] values = { 0, 1, 127, 128, 999, 1000, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE };
+		final BinaryEncoder encoder = new BinaryEncoder();
+		for (final int value : values) {
+			encoder.writeVarInt(value);
+		}
+		final BinaryDecoder decoder = new BinaryDecoder(encoder.toByteArray());
+		for (final int value : values) {
+			assertEquals(value, decoder.readVarInt());
+		}
+		assertEquals(0, decoder.remaining());
+		assertEquals(1, new BinaryEncoder().writeVarInt(127).size());
+		assertEquals(2, new BinaryEncoder().writeVarInt(999).size());
+		assertEquals(5, new BinaryEncoder().writeVarInt(-1).size());
+	}
+
+	@Test
+	public void testPrimitives() {
+		final BinaryEncoder encoder = new BinaryEncoder(1);
+		encoder.writeByte((byte) -5).writeBoolean(true).writeBoolean(false).writeShort((short) -12345).writeInt(0xCAFEBABE);
+		encoder.writeLong(Long.MIN_VALUE + 42).writeFloat(1.5f).writeDouble(-Math.PI);
+		final BinaryDecoder decoder = new BinaryDecoder(encoder.toByteArray());
+		assertEquals(-5, decoder.readByte());
+		assertTrue(decoder.readBoolean());
+		assertFalse(decoder.readBoolean());
+		assertEquals(-12345, decoder.readShort());
+		assertEquals(0xCAFEBABE, decoder.readInt());
+		assertEquals(Long.MIN_VALUE + 42, decoder.readLong());
+		assertEquals(1.5f, decoder.readFloat(), 0f);
+		assertEquals(-Math.PI, decoder.readDouble(), 0d);
+		assertEquals(0, decoder.remaining());
+	}
+
+	@Test
+	public void testLittleEndian() {
+		assertArrayEquals(new byte[] { 0x04, 0x03, 0x02, 0x01 }, new BinaryEncoder().writeInt(0x01020304).toByteArray());
+		assertArrayEquals(new byte[] { 0x02, 0x01 }, new BinaryEncoder().writeShort((short) 0x0102).toByteArray());
+	}
+
+	@Test
+	public void testStrings() {
+		final BinaryEncoder encoder = new BinaryEncoder();
+		encoder.writeString("line\nbreak|pipe").writeString(null).writeString("").writeString("é中");
+		final BinaryDecoder decoder = new BinaryDecoder(encoder.toByteArray());
+		assertEquals("line\nbreak|pipe", decoder.readString());
+		assertNull(decoder.readString());
+		assertEquals("", decoder.readString());
+		assertEquals("é中", decoder.readString());
+		assertEquals(0, decoder.remaining());
+	}
+
+	@Test
+	public void testList() {
+		final BinaryEncoder encoder = new BinaryEncoder();
+		encoder.writeList(Arrays.asList(new TestableItem(99, "abc"), new TestableItem(-1, null))).writeList(null);
+		final BinaryDecoder decoder = new BinaryDecoder(encoder.toByteArray());
+		final List<TestableItem> list = decoder.readList(TestableItem.class);
+		assertEquals(2, list.size());
+		assertEquals(99, list.get(0).intfield);
+		assertEquals("abc", list.get(0).stringfield);
+		assertEquals(-1, list.get(1).intfield);
+		assertNull(list.get(1).stringfield);
+		assertNull(decoder.readList(TestableItem.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnderflow() {
+		new BinaryDecoder(new BinaryEncoder().writeShort((short) 1).toByteArray()).readInt();
+	}
+
+	public static class TestableItem implements BinaryDatagramEncoder, BinaryDatagramDecoder {
+		private int intfield;
+		private String stringfield;
+
+		public TestableItem() {
+		}
+
+		public TestableItem(final int intfield, final String stringfield) {
+			this.intfield = intfield;
+			this.stringfield = stringfield;
+		}
+
+		@Override
+		public void encode(final BinaryEncoder encoder) {
+			encoder.writeVarInt(intfield).writeString(stringfield);
+		}
+
+		@Override
+		public void decode(final BinaryDecoder decoder) {
+			intfield = decoder.readVarInt();
+			stringfield = decoder.readString();
+		}
+	}
+}
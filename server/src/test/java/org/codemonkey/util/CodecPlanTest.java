@@ -0,0 +1,98 @@
+package org.codemonkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class CodecPlanTest {
+
+	@Test
+	public void testResolvesPlanOncePerClass() {
+		EncoderUtil.prepareReflectiveEncode(TestableProperties.class);
+		DecoderUtil.prepareReflectiveDecode(TestableProperties.class);
+		assertSame(CodecPlan.forEncoding(TestableProperties.class), CodecPlan.forEncoding(TestableProperties.class));
+		assertSame(CodecPlan.forDecoding(TestableProperties.class), CodecPlan.forDecoding(TestableProperties.class));
+	}
+
+	@Test
+	public void testEncodesAndDecodesProperties() {
+		final TestableProperties subject = new TestableProperties();
+		subject.setNumber(42);
+		subject.setText("abc");
+		subject.setItems(Arrays.asList("x", "yz"));
+		final StringBuilder coded = new StringBuilder();
+		CodecPlan.forEncoding(TestableProperties.class).encode(subject, coded);
+
+		final TestableProperties decoded = new TestableProperties();
+		final DatagramReader reader = new DatagramReader(coded);
+		CodecPlan.forDecoding(TestableProperties.class).decode(decoded, reader);
+		assertEquals(42, decoded.getNumber());
+		assertEquals("abc", decoded.getText());
+		assertEquals(Arrays.asList("x", "yz"), decoded.getItems());
+	}
+
+	@Test
+	public void testEncodesTheSameAsReflectiveEncode() {
+		final TestableProperties subject = new TestableProperties();
+		subject.setNumber(7);
+		subject.setText(null);
+		final StringBuilder coded = new StringBuilder();
+		CodecPlan.forEncoding(TestableProperties.class).encode(subject, coded);
+		assertEquals(EncoderUtil.reflectiveEncode(subject, TestableProperties.class), coded.toString());
+	}
+
+	/**
+	 * A raw collection has no element type to decode its items with, which is reported when the plan is prepared.
+	 */
+	@Test(expected = RuntimeException.class)
+	public void testPrepareReportsUndecodableClass() {
+		DecoderUtil.prepareReflectiveDecode(TestableRawList.class);
+	}
+
+	public static class TestableProperties {
+		private int number;
+		private String text;
+		private List<String> items;
+
+		public int getNumber() {
+			return number;
+		}
+
+		public void setNumber(final int number) {
+			this.number = number;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public void setText(final String text) {
+			this.text = text;
+		}
+
+		public List<String> getItems() {
+			return items;
+		}
+
+		public void setItems(final List<String> items) {
+			this.items = items;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	public static class TestableRawList {
+		private List items;
+
+		public void setItems(final List items) {
+			this.items = items;
+		}
+	}
+}
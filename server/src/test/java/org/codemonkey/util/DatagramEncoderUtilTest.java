@@ -145,6 +145,41 @@ public class DatagramEncoderUtilTest {
 		assertEquals("2|509|testvalue", encodedValue);
 	}
 
+	@Test
+	public void testReflectiveEncodeNestedStreamingEncoder() {
+		final TestableEncoderNestedStreaming subject = new TestableEncoderNestedStreaming();
+		subject.value = new TestableStreamingEncoder("2");
+		final String encodedValue = EncoderUtil.reflectiveEncode(subject, TestableEncoderNestedStreaming.class);
+		assertEquals(EncoderUtil.encode(subject.value), encodedValue);
+		assertEquals("1|11|2", encodedValue);
+	}
+
+	public static final class TestableStreamingEncoder implements StreamingDatagramEncoder {
+		private final String value;
+
+		public TestableStreamingEncoder(final String value) {
+			this.value = value;
+		}
+
+		@Override
+		public void encodeTo(final StringBuilder coded) {
+			EncoderUtil.encodeTo(coded, 1, value);
+		}
+
+		@Override
+		public String toString() {
+			return "TOSTRING";
+		}
+	}
+
+	public static class TestableEncoderNestedStreaming {
+		private TestableStreamingEncoder value;
+
+		public TestableStreamingEncoder getValue() {
+			return value;
+		}
+	}
+
 	public static class TestableEncoderDecoderSimpleValue implements DatagramEncoder, DatagramDecoder {
 		private String value;
 
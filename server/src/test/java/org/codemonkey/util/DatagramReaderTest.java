@@ -0,0 +1,131 @@
+package org.codemonkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class DatagramReaderTest {
+
+	@Test
+	public void testCountNext() {
+		assertEquals(0, new DatagramReader("").countNext());
+		final DatagramReader reader = new DatagramReader("-444|");
+		assertEquals(1, reader.countNext());
+		assertEquals(0, reader.getPosition());
+		assertTrue(reader.isNextNull());
+		assertNull(reader.nextValue());
+		assertEquals(444, reader.countNext());
+		assertEquals(0, reader.remaining());
+	}
+
+	@Test
+	public void testNextValue() {
+		final String datagram = "2|214|1234---1|1|3";
+		final DatagramReader reader = new DatagramReader(datagram);
+		assertEquals("21", reader.nextValue());
+		assertEquals("1234", reader.nextValue());
+		assertNull(reader.nextValue());
+		assertNull(reader.nextValue());
+		assertEquals(-1, reader.nextListCount());
+		assertEquals(1, reader.nextListCount());
+		assertEquals("3", reader.nextValue());
+		assertFalse(reader.isNextNull());
+		assertEquals(0, reader.remaining());
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testInvalidValueLength() {
+		new DatagramReader("2a|12").nextValue();
+	}
+
+	@Test
+	public void testDiscardRead() {
+		final StringBuilder encodedString = new StringBuilder("1|a2|bc");
+		final DatagramReader reader = new DatagramReader(encodedString);
+		assertEquals("a", reader.nextValue());
+		assertEquals("1|a2|bc", encodedString.toString());
+		reader.discardRead();
+		assertEquals("2|bc", encodedString.toString());
+		assertEquals("bc", reader.nextValue());
+	}
+
+	@Test
+	public void testGenericDecodeListLeavesDatagramUntouched() {
+		final String datagram = "3|2|995|abcde4|12342|AB-1|2" + "1|x";
+		final DatagramReader reader = new DatagramReader(datagram);
+		final List<TestableLegacyDecoder> list = DecoderUtil.genericDecodeList(reader, TestableLegacyDecoder.class);
+		assertEquals(3, list.size());
+		assertEquals((Integer) 1234, list.get(1).intfield);
+		assertEquals("AB", list.get(1).stringfield);
+		assertNull(list.get(2).intfield);
+		assertEquals("x", reader.nextValue());
+	}
+
+	@Test
+	public void testGenericDecodeListStreaming() {
+		final StringBuilder datagram = new StringBuilder();
+		final int count = 500;
+		datagram.append(count).append(EncoderUtil.VALUE_SEPERATOR);
+		for (int i = 0; i < count; i++) {
+			datagram.append(EncoderUtil.encode(i, "item" + i));
+		}
+		final List<TestableStreamingDecoder> list = DecoderUtil.genericDecodeList(datagram, TestableStreamingDecoder.class);
+		assertEquals("", datagram.toString());
+		assertEquals(count, list.size());
+		assertEquals((Integer) 499, list.get(499).intfield);
+		assertEquals("item499", list.get(499).stringfield);
+	}
+
+	/**
+	 * @author Benny Bottema
+	 */
+	public static class TestableStreamingDecoder implements StreamingDatagramDecoder {
+
+		private Integer intfield;
+		private String stringfield;
+
+		public void setIntfield(final Integer intfield) {
+			this.intfield = intfield;
+		}
+
+		public void setStringfield(final String stringfield) {
+			this.stringfield = stringfield;
+		}
+
+		@Override
+		public void decode(final DatagramReader reader) {
+			DecoderUtil.reflectiveDecode(this, reader, TestableStreamingDecoder.class);
+		}
+	}
+
+	/**
+	 * @author Benny Bottema
+	 */
+	public static class TestableLegacyDecoder implements DatagramDecoder {
+
+		private Integer intfield;
+		private String stringfield;
+
+		public void setIntfield(final Integer intfield) {
+			this.intfield = intfield;
+		}
+
+		public void setStringfield(final String stringfield) {
+			this.stringfield = stringfield;
+		}
+
+		@Override
+		public void decode(final StringBuilder encodedString) {
+			DecoderUtil.reflectiveDecode(this, encodedString, TestableLegacyDecoder.class);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package org.codemonkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+
+import org.junit.Test;
+
+/**
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class FrameReaderTest {
+
+	@Test
+	public void testBinaryAndTextFrames()
+			throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] text = "001multi\nline".getBytes();
+		out.write(new BinaryEncoder().writeVarInt(1000).writeString("hello").toFrame());
+		out.write(BinaryEncoder.toFrame(text, 0, text.length));
+		out.write(BinaryEncoder.toFrame(new byte[0], 0, 0));
+		final FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), 1024);
+
+		assertTrue(reader.next());
+		final BinaryDecoder decoder = new BinaryDecoder(reader.getBuffer(), reader.getFrameOffset(), reader.getFrameLength());
+		assertEquals(1000, decoder.readVarInt());
+		assertEquals("hello", decoder.readString());
+		assertEquals(0, decoder.remaining());
+		assertTrue(reader.next());
+		assertEquals("001multi\nline", new String(reader.getBuffer(), reader.getFrameOffset(), reader.getFrameLength()));
+		assertTrue(reader.next());
+		assertEquals(0, reader.getFrameLength());
+		assertFalse(reader.next());
+	}
+
+	/**
+	 * Delivers the frames one byte at a time, forcing frame headers and content to be split over reads, while frames larger than the
+	 * initial buffer force the buffer to grow.
+	 */
+	@Test
+	public void testPartialReads()
+			throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int size = 0; size < 20000; size += 997) {
+			final byte[] content = new byte[size];
+			for (int i = 0; i < size; i++) {
+				content[i] = (byte) (size + i);
+			}
+			out.write(BinaryEncoder.toFrame(content, 0, size));
+		}
+		final FrameReader reader = new FrameReader(new TrickleInputStream(out.toByteArray()), 20000);
+		for (int size = 0; size < 20000; size += 997) {
+			assertTrue(reader.next());
+			assertEquals(size, reader.getFrameLength());
+			for (int i = 0; i < size; i++) {
+				assertEquals((byte) (size + i), reader.getBuffer()[reader.getFrameOffset() + i]);
+			}
+		}
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void testOversizedFrame()
+			throws IOException {
+		final byte[] frame = BinaryEncoder.toFrame(new byte[100], 0, 100);
+		try {
+			new FrameReader(new ByteArrayInputStream(frame), 99).next();
+			fail("oversized frame accepted");
+		} catch (final ProtocolException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedFrame()
+			throws IOException {
+		final byte[] frame = BinaryEncoder.toFrame(new byte[100], 0, 100);
+		new FrameReader(new ByteArrayInputStream(frame, 0, 50), 1024).next();
+	}
+
+	private static class TrickleInputStream extends InputStream {
+		private final ByteArrayInputStream in;
+
+		public TrickleInputStream(final byte[] bytes) {
+			in = new ByteArrayInputStream(bytes);
+		}
+
+		@Override
+		public int read() {
+			return in.read();
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			return in.read(b, off, Math.min(len, 1));
+		}
+	}
+}
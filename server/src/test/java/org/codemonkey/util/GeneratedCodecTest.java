@@ -0,0 +1,207 @@
+package org.codemonkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.codemonkey.swiftcodegen.SwiftMessage;
+import org.codemonkey.swiftsocketserver.ClientContext;
+import org.codemonkey.swiftsocketserver.ClientMessageToServer;
+import org.codemonkey.util.DatagramDecoderUtilTest.TestableDecoderEnum.EnumSimpleSerialization;
+import org.junit.Test;
+
+/**
+ * Verifies codecs generated by the annotation processor produce the same datagrams as the reflective codecs.
+ * 
+ * @author Benny Bottema
+ */
+@SuppressWarnings("javadoc")
+public class GeneratedCodecTest {
+
+	@Test
+	public void testEncodeMatchesReflectiveEncode() {
+		final TestableCodecPojo pojo = new TestableCodecPojo(99, "abcde", 7, Arrays.asList("a", null, "bc"), EnumSimpleSerialization.TWO);
+		final String expected = EncoderUtil.reflectiveEncode(pojo, TestableCodecPojo.class);
+		assertEquals("2|995|abcde1|73|1|a-2|bc1|2", expected);
+		assertEquals(expected, GeneratedCodecTest_TestableCodecPojoCodec.encode(pojo));
+
+		final TestableCodecPojo nulls = new TestableCodecPojo(null, null, 0, null, null);
+		assertEquals(EncoderUtil.reflectiveEncode(nulls, TestableCodecPojo.class), GeneratedCodecTest_TestableCodecPojoCodec.encode(nulls));
+	}
+
+	@Test
+	public void testDecode() {
+		final StringBuilder encodedString = new StringBuilder("2|995|abcde1|73|1|a-2|bc1|2" + "--1|0--");
+		final TestableCodecPojo pojo = new TestableCodecPojo();
+		GeneratedCodecTest_TestableCodecPojoCodec.decode(pojo, encodedString);
+		assertEquals((Integer) 99, pojo.intfield);
+		assertEquals("abcde", pojo.stringfield);
+		assertEquals(7, pojo.primitivefield);
+		assertEquals(Arrays.asList("a", null, "bc"), pojo.values);
+		assertSame(EnumSimpleSerialization.TWO, pojo.enumfield);
+
+		final TestableCodecPojo nulls = new TestableCodecPojo();
+		GeneratedCodecTest_TestableCodecPojoCodec.decode(nulls, encodedString);
+		assertEquals("", encodedString.toString());
+		assertNull(nulls.intfield);
+		assertNull(nulls.stringfield);
+		assertNull(nulls.values);
+		assertNull(nulls.enumfield);
+	}
+
+	/**
+	 * Message ids above the text protocols' limit are accepted at compile time, as they can be used with the binary protocol.
+	 */
+	@Test
+	public void testMessageIdForBinaryProtocol() {
+		assertEquals(1000, GeneratedCodecTest_TestableBinaryCodecMessageCodec.MESSAGE_ID);
+	}
+
+	@Test
+	public void testDecodeMessageWithNestedList() {
+		final List<TestableCodecPojo> pojos = Arrays.asList(new TestableCodecPojo(1, "a", 2, null, null), new TestableCodecPojo(3, "b", 4,
+				null, EnumSimpleSerialization.ONE));
+		final TestableCodecMessage message = new TestableCodecMessage(null);
+		message.decode(EncoderUtil.encode("admin", pojos));
+		assertEquals(5, GeneratedCodecTest_TestableCodecMessageCodec.MESSAGE_ID);
+		assertEquals("admin", message.username);
+		assertEquals(2, message.pojos.size());
+		assertEquals("b", message.pojos.get(1).stringfield);
+		assertSame(EnumSimpleSerialization.ONE, message.pojos.get(1).enumfield);
+	}
+
+	/**
+	 * @author Benny Bottema
+	 */
+	@SwiftMessage
+	public static class TestableCodecPojo implements DatagramEncoder, DatagramDecoder {
+
+		private Integer intfield;
+		private String stringfield;
+		private int primitivefield;
+		private List<String> values;
+		private EnumSimpleSerialization enumfield;
+
+		public TestableCodecPojo() {
+		}
+
+		public TestableCodecPojo(final Integer intfield, final String stringfield, final int primitivefield, final List<String> values,
+				final EnumSimpleSerialization enumfield) {
+			this.intfield = intfield;
+			this.stringfield = stringfield;
+			this.primitivefield = primitivefield;
+			this.values = values;
+			this.enumfield = enumfield;
+		}
+
+		@Override
+		public String encode() {
+			return GeneratedCodecTest_TestableCodecPojoCodec.encode(this);
+		}
+
+		@Override
+		public void decode(final StringBuilder encodedString) {
+			GeneratedCodecTest_TestableCodecPojoCodec.decode(this, encodedString);
+		}
+
+		public Integer getIntfield() {
+			return intfield;
+		}
+
+		public void setIntfield(final Integer intfield) {
+			this.intfield = intfield;
+		}
+
+		public String getStringfield() {
+			return stringfield;
+		}
+
+		public void setStringfield(final String stringfield) {
+			this.stringfield = stringfield;
+		}
+
+		public int getPrimitivefield() {
+			return primitivefield;
+		}
+
+		public void setPrimitivefield(final int primitivefield) {
+			this.primitivefield = primitivefield;
+		}
+
+		public List<String> getValues() {
+			return values;
+		}
+
+		public void setValues(final List<String> values) {
+			this.values = values;
+		}
+
+		public EnumSimpleSerialization getEnumfield() {
+			return enumfield;
+		}
+
+		public void setEnumfield(final EnumSimpleSerialization enumfield) {
+			this.enumfield = enumfield;
+		}
+	}
+
+	/**
+	 * @author Benny Bottema
+	 */
+	@SwiftMessage(id = 5)
+	public static class TestableCodecMessage extends ClientMessageToServer<Object> {
+
+		private String username;
+		private List<TestableCodecPojo> pojos;
+
+		public TestableCodecMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+			GeneratedCodecTest_TestableCodecMessageCodec.decode(this, datagramMessage);
+		}
+
+		@Override
+		public void execute(final Object controller) {
+		}
+
+		void setUsername(final String username) {
+			this.username = username;
+		}
+
+		void setPojos(final List<TestableCodecPojo> pojos) {
+			this.pojos = pojos;
+		}
+	}
+
+	/**
+	 * @author Benny Bottema
+	 */
+	@SwiftMessage(id = 1000)
+	public static class TestableBinaryCodecMessage extends ClientMessageToServer<Object> {
+
+		private String username;
+
+		public TestableBinaryCodecMessage(final ClientContext clientContext) {
+			super(clientContext);
+		}
+
+		@Override
+		protected void decode(final String datagramMessage) {
+			GeneratedCodecTest_TestableBinaryCodecMessageCodec.decode(this, datagramMessage);
+		}
+
+		@Override
+		public void execute(final Object controller) {
+		}
+
+		void setUsername(final String username) {
+			this.username = username;
+		}
+	}
+}